@@ -0,0 +1,87 @@
+package Benchmark;
+
+import Model.LibraryCache;
+import Model.Song;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+/**
+ * Mjeri ucitavanje velike plejliste sa praznim (hladni start) i punim (topli start) LibraryCache-om:
+ * vrijeme ucitavanja cache fajla, vrijeme ucitavanja plejliste i broj pogodaka/promasaja.
+ *
+ * Run with: java -cp out:lib/* Benchmark.CacheBenchmark [tracks]
+ */
+public class CacheBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int tracks = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        Path directory = Files.createTempDirectory("cacheBenchmark");
+        Path cacheFile = directory.resolve("library.cache");
+        try {
+            List<String> paths = new ArrayList<>();
+            for (int i = 0; i < tracks; i++) {
+                Path file = directory.resolve("track" + i + ".mp3");
+                SyntheticMp3.write(file, 4, i % 2 == 1, "Track " + i, "Artist " + (i % 100), 64, i);
+                paths.add(file.toString());
+            }
+            System.out.printf("%d tracks, %d loader threads%n", tracks, threads);
+
+            LibraryCache cold = new LibraryCache(cacheFile);
+            long start = System.nanoTime();
+            cold.load();
+            long loadTime = System.nanoTime() - start;
+            long playlistTime = loadPlaylist(paths, threads, cold);
+            report("cold", loadTime, playlistTime, cold);
+
+            start = System.nanoTime();
+            cold.save();
+            System.out.printf("save          %8.1f ms, %d KB%n", (System.nanoTime() - start) / 1e6, Files.size(cacheFile) / 1024);
+
+            LibraryCache warm = new LibraryCache(cacheFile);
+            start = System.nanoTime();
+            warm.load();
+            loadTime = System.nanoTime() - start;
+            playlistTime = loadPlaylist(paths, threads, warm);
+            report("warm", loadTime, playlistTime, warm);
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static long loadPlaylist(List<String> paths, int threads, LibraryCache libraryCache) throws InterruptedException {
+        OrderedPlaylistLoader loader = new OrderedPlaylistLoader(threads, libraryCache);
+        CountDownLatch finished = new CountDownLatch(1);
+        long start = System.nanoTime();
+        loader.load(paths, new OrderedPlaylistLoader.Listener() {
+            @Override
+            public void songLoaded(int index, Song song) {
+            }
+
+            @Override
+            public void loadingFinished(int songCount) {
+                finished.countDown();
+            }
+        });
+        finished.await();
+        long time = System.nanoTime() - start;
+        loader.shutdown();
+        return time;
+    }
+
+    private static void report(String name, long loadTime, long playlistTime, LibraryCache libraryCache) {
+        System.out.printf("%s start    cache load %6.1f ms, playlist %8.1f ms, hits %d, misses %d%n",
+                name, loadTime / 1e6, playlistTime / 1e6, libraryCache.getHits(), libraryCache.getMisses());
+    }
+}
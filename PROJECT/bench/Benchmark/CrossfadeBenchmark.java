@@ -0,0 +1,136 @@
+package Benchmark;
+
+import Model.Crossfader;
+import Model.LibraryCache;
+import Model.PlaybackEngine;
+import Model.RenderOutput;
+import Model.Song;
+import Model.TrackDecoder;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mjeri pretapanje: nekoliko pjesama se kroz PlaybackEngine renderuje (bez cekanja na karticu) sa svakom
+ * krivuljom pretapanja, provjerava se da je izlaz kraci za trajanje pretapanja (do jednog frejma) i ispisuje vrijeme
+ * dekoder niti po sekundi zvuka za vrijeme pretapanja. Zatim se sam Crossfader.mix (sa dekodiranjem
+ * pjesme koja dolazi) mjeri u petlji, zajedno sa brojem alociranih bajtova.
+ *
+ * Run with: java -cp out:lib/* Benchmark.CrossfadeBenchmark
+ */
+public class CrossfadeBenchmark {
+
+    private static final int TRACKS = 3;
+    private static final int SECONDS = 20;
+    private static final int CROSSFADE_MILLISECONDS = 5000;
+    private static final int MIX_SECONDS = 120;
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("crossfadeBenchmark");
+        List<Path> files = new ArrayList<>();
+        try {
+            LibraryCache libraryCache = new LibraryCache(directory.resolve("unused.cache"));
+            List<Song> songs = new ArrayList<>();
+            for (int i = 0; i < TRACKS; i++) {
+                Path file = directory.resolve("track" + i + ".mp3");
+                files.add(file);
+                SyntheticMp3.write(file, SyntheticMp3.framesFor(SECONDS), i % 2 == 1, "Track " + i, "Artist", 0, i);
+                songs.add(new Song(file.toString(), libraryCache));
+            }
+            long trackFrames = SyntheticMp3.framesFor(SECONDS) * SyntheticMp3.SAMPLES_PER_FRAME
+                    - SyntheticMp3.ENCODER_DELAY - SyntheticMp3.ENCODER_PADDING;
+            long expectedFrames = TRACKS * trackFrames - (TRACKS - 1) * (CROSSFADE_MILLISECONDS * 44100L / 1000);
+
+            render(songs, Crossfader.Curve.LINEAR, expectedFrames, false); // JIT-compile the decoder first
+            System.out.printf("%d tracks of %d s, %d ms crossfade, expected about %d sample frames%n",
+                    TRACKS, SECONDS, CROSSFADE_MILLISECONDS, expectedFrames);
+            System.out.printf("%-12s %14s %14s %22s%n", "curve", "frames out", "difference", "us per s of audio");
+            for (Crossfader.Curve curve : Crossfader.Curve.values()) {
+                render(songs, curve, expectedFrames, true);
+            }
+
+            Path longFile = directory.resolve("long.mp3");
+            files.add(longFile);
+            SyntheticMp3.write(longFile, SyntheticMp3.framesFor(MIX_SECONDS), false, "Long", "Artist", 0, 42);
+            mix(new Song(longFile.toString(), libraryCache));
+        } finally {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory.resolve("unused.cache"));
+            Files.delete(directory);
+        }
+    }
+
+    private static void render(List<Song> songs, Crossfader.Curve curve, long expectedFrames, boolean print)
+            throws InterruptedException {
+        RenderOutput output = new RenderOutput();
+        CountDownLatch finished = new CountDownLatch(1);
+        PlaybackEngine engine = new PlaybackEngine(output, new PlaybackEngine.Listener() {
+            @Override
+            public void trackStarted(Song song) {
+            }
+
+            @Override
+            public void trackFinished(Song song) {
+                finished.countDown();
+            }
+
+            @Override
+            public Song nextTrack(Song current) {
+                int next = songs.indexOf(current) + 1;
+                return next < songs.size() ? songs.get(next) : null;
+            }
+        });
+        engine.setGapless(false); // the next song is primed for the fade alone
+        engine.setCrossfade(CROSSFADE_MILLISECONDS, curve);
+        engine.play(songs.get(0), 0);
+        if (!finished.await(songs.size() * SECONDS * 4L, TimeUnit.SECONDS)) {
+            System.out.println(curve + ": timed out");
+        }
+        long framesOut = output.getFramesRendered();
+        if (print) {
+            System.out.printf("%-12s %14d %14d %22.1f%n", curve, framesOut, framesOut - expectedFrames,
+                    engine.getLastCrossfadeCost() / 1000.0);
+        }
+        engine.shutdown();
+    }
+
+    /**
+     * Mixes a sine into a long song in a loop, as the decoder thread does during a very long fade.
+     */
+    private static void mix(Song song) throws Exception {
+        short[] outgoing = new short[SyntheticMp3.SAMPLES_PER_FRAME * 2];
+        for (int i = 0; i < outgoing.length; i += 2) {
+            outgoing[i] = (short) (20000 * Math.sin(2 * Math.PI * 440 * (i / 2) / 44100.0));
+            outgoing[i + 1] = outgoing[i];
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        System.out.printf("%-12s %22s %18s%n", "curve", "us per s of audio", "bytes allocated");
+        for (int round = 0; round < 2; round++) { // the first round is the warm-up
+            for (Crossfader.Curve curve : Crossfader.Curve.values()) {
+                Crossfader crossfader = new Crossfader();
+                try (TrackDecoder incoming = new TrackDecoder(song, 0)) {
+                    incoming.prime(); // as on the primer thread, jlayer allocates its tables in the first frame
+                    crossfader.start(incoming, MIX_SECONDS * 44100L, curve, 1);
+                    long allocated = threads.getCurrentThreadAllocatedBytes();
+                    long started = System.nanoTime();
+                    while (!crossfader.isFinished()) {
+                        crossfader.mix(outgoing, 0, outgoing.length);
+                    }
+                    long took = System.nanoTime() - started;
+                    allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+                    crossfader.finish();
+                    if (round == 1) {
+                        System.out.printf("%-12s %22.1f %18d%n", curve, took / 1000.0 / MIX_SECONDS, allocated);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package Benchmark;
+
+import Model.DspChain;
+import Model.Equalizer;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mjeri DspChain sa ekvilajzerom kao na izlaznoj niti: blokovi od 2048 uzoraka (44.1 kHz stereo) se obradjuju
+ * na mjestu, a iz vremena po bloku se racuna koliki dio jedne jezgre lanac trosi za zvuk u stvarnom vremenu.
+ * Prije toga se provjerava frekvencijski odziv (sinus na sredini svakog opsega) i broje alocirani bajtovi.
+ *
+ * Run with: java -cp out:lib/* Benchmark.EqualizerBenchmark [--out results.json]
+ */
+public class EqualizerBenchmark {
+
+    private static final int SAMPLE_RATE = 44100;
+    private static final int CHUNK = 2048; // same as the output stage of PlaybackEngine
+
+    public static void main(String[] args) throws Exception {
+        Path resultFile = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--out") && i + 1 < args.length) {
+                resultFile = Paths.get(args[++i]);
+            }
+        }
+        Harness harness = new Harness(1000);
+
+        response(Equalizer.Preset.ROCK);
+
+        // pink-ish noise at a moderate level, so the filters never see only silence
+        short[] source = new short[CHUNK * 64];
+        java.util.Random random = new java.util.Random(1);
+        double level = 0;
+        for (int i = 0; i < source.length; i += 2) {
+            level = 0.98 * level + 0.02 * random.nextGaussian() * 40000;
+            source[i] = (short) Math.max(-32768, Math.min(32767, level));
+            source[i + 1] = source[i];
+        }
+        short[] chunk = new short[CHUNK];
+        double chunkNanos = CHUNK / 2 * 1e9 / SAMPLE_RATE;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        for (Equalizer.Preset preset : new Equalizer.Preset[]{Equalizer.Preset.FLAT, Equalizer.Preset.BASS_BOOST,
+                Equalizer.Preset.ROCK}) {
+            Equalizer equalizer = new Equalizer();
+            equalizer.setPreset(preset);
+            DspChain chain = new DspChain();
+            chain.add(equalizer);
+            chain.setFormat(SAMPLE_RATE, 2);
+            int[] position = {0};
+            Harness.Result result = harness.averageTime("dsp.process", Harness.params("preset", preset.name()),
+                    TimeUnit.NANOSECONDS, 3, 5, () -> {
+                        System.arraycopy(source, position[0], chunk, 0, CHUNK);
+                        position[0] = (position[0] + CHUNK) % source.length;
+                        chain.process(chunk, 0, CHUNK);
+                        return chunk[CHUNK - 1];
+                    });
+            long allocated = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < 10_000; i++) {
+                System.arraycopy(source, (i * CHUNK) % source.length, chunk, 0, CHUNK);
+                chain.process(chunk, 0, CHUNK);
+            }
+            allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+            System.out.printf("  %s: %.3f %% of one core at 44.1 kHz stereo, %d bytes allocated by 10000 blocks%n",
+                    preset, 100 * result.score() / chunkNanos, allocated);
+        }
+
+        if (resultFile != null) {
+            harness.writeJson(resultFile);
+            System.out.println("Results written to " + resultFile.toAbsolutePath());
+        }
+    }
+
+    /**
+     * Plays a sine at the center of every band through the equalizer and prints the measured gain next to
+     * the gain of the preset band, less the preamp that keeps the loudest band from clipping.
+     */
+    private static void response(Equalizer.Preset preset) {
+        float[] gains = preset.getGains();
+        float loudest = 0;
+        for (float gain : gains) {
+            loudest = Math.max(loudest, gain);
+        }
+        System.out.printf("%s response:%n%8s %10s %10s%n", preset, "Hz", "preset", "measured");
+        for (int band = 0; band < Equalizer.BANDS; band++) {
+            Equalizer equalizer = new Equalizer();
+            equalizer.setPreset(preset);
+            equalizer.setFormat(SAMPLE_RATE, 1);
+            int frequency = Equalizer.FREQUENCIES[band];
+            short[] samples = new short[SAMPLE_RATE * 2]; // two seconds, the second one is measured
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = (short) (8000 * Math.sin(2 * Math.PI * frequency * i / SAMPLE_RATE));
+            }
+            equalizer.process(samples, 0, samples.length);
+            double sum = 0;
+            for (int i = SAMPLE_RATE; i < samples.length; i++) {
+                sum += (double) samples[i] * samples[i];
+            }
+            double measured = 20 * Math.log10(Math.sqrt(sum / SAMPLE_RATE) / (8000 / Math.sqrt(2)));
+            System.out.printf("%8d %+10.1f %+10.1f%n", frequency, gains[band] - loudest, measured);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package Benchmark;
+
+import Model.MusicPlayer;
+import Model.PlayerEvent;
+import Model.PlayerEventBus;
+import Model.Song;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mjeri PlayerEventBus: koliko kosta objava dogadjaja sa niti plejera i koliko dostava pretplatnici dobiju
+ * kad plejer objavi niz dogadjaja (npr. korisnik drzi next), u odnosu na broj objavljenih dogadjaja.
+ *
+ * Run with: java -cp out:lib/* Benchmark.EventBusBenchmark [--out results.json]
+ */
+public class EventBusBenchmark {
+
+    private static final int BURST = 1000;
+
+    public static void main(String[] args) throws Exception {
+        Path resultFile = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--out") && i + 1 < args.length) {
+                resultFile = Paths.get(args[++i]);
+            }
+        }
+        Harness harness = new Harness(1000);
+
+        PlayerEventBus bus = new PlayerEventBus(null);
+        AtomicLong delivered = new AtomicLong();
+        bus.subscribe(PlayerEvent.SongChanged.class, event -> delivered.incrementAndGet());
+        bus.subscribe(PlayerEvent.StateChanged.class, event -> delivered.incrementAndGet());
+        PlayerEvent.SongChanged song = new PlayerEvent.SongChanged((Song) null);
+        PlayerEvent.StateChanged playing = new PlayerEvent.StateChanged(MusicPlayer.State.PLAYING);
+
+        harness.averageTime("bus.publish", Harness.params("subscribers", "2"), TimeUnit.NANOSECONDS, 3, 5, () -> {
+            bus.publish(song);
+            bus.publish(playing);
+            return 0;
+        });
+
+        // a burst of songs and states, as fast as the player thread can publish them
+        Thread.sleep(100);
+        long published = bus.getPublishedCount();
+        long dispatches = bus.getDispatchCount();
+        long events = delivered.get();
+        long start = System.nanoTime();
+        for (int i = 0; i < BURST; i++) {
+            bus.publish(song);
+            bus.publish(playing);
+        }
+        long burstNanos = System.nanoTime() - start;
+        Thread.sleep(100);
+        System.out.printf("  burst of %d events in %.2f ms: %d dispatches, %d events delivered%n",
+                bus.getPublishedCount() - published, burstNanos / 1e6,
+                bus.getDispatchCount() - dispatches, delivered.get() - events);
+        bus.shutdown();
+
+        if (resultFile != null) {
+            harness.writeJson(resultFile);
+            System.out.println("Results written to " + resultFile.toAbsolutePath());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package Benchmark;
+
+import Model.LibraryCache;
+import Model.PlaybackEngine;
+import Model.Song;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mjeri pauzu izmedju pjesama u uzorcima: nekoliko pjesama se odsvira u stvarnom vremenu kroz
+ * SimulatedDeviceOutput, jednom s gapless nacinom rada, a jednom kao prije (nova pjesma se otvara tek na kraju stare).
+ * Broji se tisina koju bi kartica odsvirala (underrun) i koliko je uzoraka zapisano u odnosu na
+ * broj uzoraka bez encoder delay/padding tisine.
+ *
+ * Run with: java -cp out:lib/* Benchmark.GaplessBenchmark
+ */
+public class GaplessBenchmark {
+
+    private static final int TRACKS = 4;
+    private static final int SECONDS = 3;
+    private static final int BUFFER_MILLISECONDS = 250; // same as JavaSoundOutput
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("gaplessBenchmark");
+        List<Path> files = new ArrayList<>();
+        try {
+            LibraryCache libraryCache = new LibraryCache(directory.resolve("unused.cache"));
+            List<Song> songs = new ArrayList<>();
+            for (int i = 0; i < TRACKS; i++) {
+                Path file = directory.resolve("track" + i + ".mp3");
+                files.add(file);
+                SyntheticMp3.write(file, SyntheticMp3.framesFor(SECONDS), i % 2 == 1, "Track " + i, "Artist", 0, i);
+                songs.add(new Song(file.toString(), libraryCache));
+            }
+            long expectedFrames = (long) TRACKS
+                    * (SyntheticMp3.framesFor(SECONDS) * SyntheticMp3.SAMPLES_PER_FRAME
+                    - SyntheticMp3.ENCODER_DELAY - SyntheticMp3.ENCODER_PADDING);
+
+            run("warm-up", true, songs, expectedFrames, false); // JIT-compile the decoder first
+            System.out.printf("%d tracks of %d s, %d ms device buffer, expected %d sample frames%n",
+                    TRACKS, SECONDS, BUFFER_MILLISECONDS, expectedFrames);
+            System.out.printf("%-10s %14s %14s %16s %12s%n",
+                    "mode", "frames out", "extra frames", "silence (total)", "per gap");
+            run("gapless", true, songs, expectedFrames, true);
+            run("reopen", false, songs, expectedFrames, true);
+        } finally {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory.resolve("unused.cache"));
+            Files.delete(directory);
+        }
+    }
+
+    private static void run(String name, boolean gapless, List<Song> songs, long expectedFrames, boolean print)
+            throws InterruptedException {
+        SimulatedDeviceOutput output = new SimulatedDeviceOutput(BUFFER_MILLISECONDS);
+        CountDownLatch finished = new CountDownLatch(1);
+        PlaybackEngine[] engine = new PlaybackEngine[1];
+        engine[0] = new PlaybackEngine(output, new PlaybackEngine.Listener() {
+            @Override
+            public void trackStarted(Song song) {
+            }
+
+            @Override
+            public void trackFinished(Song song) {
+                int next = songs.indexOf(song) + 1;
+                if (next < songs.size()) {
+                    engine[0].play(songs.get(next), 0); // what MusicPlayer.nextSong() does without gapless
+                } else {
+                    finished.countDown();
+                }
+            }
+
+            @Override
+            public Song nextTrack(Song current) {
+                int next = songs.indexOf(current) + 1;
+                return next < songs.size() ? songs.get(next) : null;
+            }
+        });
+        engine[0].setGapless(gapless);
+        engine[0].play(songs.get(0), 0);
+        if (!finished.await(songs.size() * SECONDS * 4L, TimeUnit.SECONDS)) {
+            System.out.println(name + ": timed out");
+        }
+        long framesOut = output.getFramesWritten();
+        long silence = output.getUnderrunFrames();
+        if (print) {
+            System.out.printf("%-10s %14d %14d %16d %12d%n", name, framesOut, framesOut - expectedFrames,
+                    silence, silence / (songs.size() - 1));
+        }
+        engine[0].shutdown();
+    }
+}
@@ -0,0 +1,251 @@
+package Benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mali harness za mjerenje po uzoru na JMH: iteracije zagrijavanja, iteracije mjerenja, prosjek i greska (99.9%),
+ * a rezultati se zapisuju u JSON formatu koji koristi JMH (-rf json), pa se mogu usporedjivati izmedju commitova
+ * istim alatima. Projekt nema Maven/Gradle build, pa harness ne ovisi ni o cemu osim JDK-a.
+ */
+public final class Harness {
+
+    /**
+     * One invocation of the measured code. The returned value is consumed so the JIT cannot drop the work;
+     * for throughput it is the amount of work done, for latency the measured nanoseconds.
+     */
+    public interface Operation {
+        long run() throws Exception;
+    }
+
+    private static final double Z_999 = 3.291; // two-sided 99.9% normal quantile
+    private static volatile long sink;
+
+    private final long iterationNanos;
+    private final List<Result> results = new ArrayList<>();
+
+    public Harness(long iterationMillis) {
+        this.iterationNanos = iterationMillis * 1_000_000L;
+    }
+
+    public static Map<String, String> params(String... keysAndValues) {
+        Map<String, String> params = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < keysAndValues.length; i += 2) {
+            params.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return params;
+    }
+
+    /**
+     * Average time per operation: each iteration calls the operation for the iteration time.
+     */
+    public Result averageTime(String benchmark, Map<String, String> params, TimeUnit unit,
+                              int warmups, int iterations, Operation operation) throws Exception {
+        double[] scores = new double[iterations];
+        for (int i = -warmups; i < iterations; i++) {
+            long operations = 0;
+            long started = System.nanoTime();
+            long elapsed;
+            do {
+                sink += operation.run();
+                operations++;
+                elapsed = System.nanoTime() - started;
+            } while (elapsed < iterationNanos);
+            if (i >= 0) {
+                scores[i] = (double) elapsed / operations / unit.toNanos(1);
+            }
+        }
+        return record(benchmark, "avgt", params, unitName(unit) + "/op", warmups, scores);
+    }
+
+    /**
+     * Single shot: each iteration calls the operation once, for cold or long operations.
+     */
+    public Result singleShot(String benchmark, Map<String, String> params, TimeUnit unit,
+                             int warmups, int iterations, Operation operation) throws Exception {
+        double[] scores = new double[iterations];
+        for (int i = -warmups; i < iterations; i++) {
+            long started = System.nanoTime();
+            sink += operation.run();
+            long elapsed = System.nanoTime() - started;
+            if (i >= 0) {
+                scores[i] = (double) elapsed / unit.toNanos(1);
+            }
+        }
+        return record(benchmark, "ss", params, unitName(unit) + "/op", warmups, scores);
+    }
+
+    /**
+     * Throughput: work units per second, where the operation returns the work it did.
+     */
+    public Result throughput(String benchmark, Map<String, String> params, String workUnit,
+                             int warmups, int iterations, Operation operation) throws Exception {
+        double[] scores = new double[iterations];
+        for (int i = -warmups; i < iterations; i++) {
+            long work = 0;
+            long started = System.nanoTime();
+            long elapsed;
+            do {
+                work += operation.run();
+                elapsed = System.nanoTime() - started;
+            } while (elapsed < iterationNanos);
+            sink += work;
+            if (i >= 0) {
+                scores[i] = work * 1e9 / elapsed;
+            }
+        }
+        return record(benchmark, "thrpt", params, workUnit + "/s", warmups, scores);
+    }
+
+    /**
+     * Latency the operation measures itself (in nanoseconds), for asynchronous operations
+     * whose end is seen by another thread.
+     */
+    public Result latency(String benchmark, Map<String, String> params, TimeUnit unit,
+                          int warmups, int samples, Operation operation) throws Exception {
+        double[] scores = new double[samples];
+        for (int i = -warmups; i < samples; i++) {
+            long nanos = operation.run();
+            if (i >= 0) {
+                scores[i] = (double) nanos / unit.toNanos(1);
+            }
+        }
+        return record(benchmark, "sample", params, unitName(unit) + "/op", warmups, scores);
+    }
+
+    private Result record(String benchmark, String mode, Map<String, String> params, String unit,
+                          int warmups, double[] scores) {
+        Result result = new Result(benchmark, mode, params, unit, warmups, scores);
+        results.add(result);
+        System.out.printf(Locale.ROOT, "%-28s %-34s %6s %14.3f +- %10.3f %s%n", benchmark, params, mode,
+                result.score(), result.error(), unit);
+        return result;
+    }
+
+    /**
+     * Writes all results as a JMH compatible JSON array.
+     */
+    public void writeJson(Path file) throws IOException {
+        String jdk = System.getProperty("java.version");
+        String vm = System.getProperty("java.vm.name");
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("[\n");
+            for (int r = 0; r < results.size(); r++) {
+                Result result = results.get(r);
+                out.write("    {\n");
+                out.write("        \"benchmark\" : " + quote(result.benchmark) + ",\n");
+                out.write("        \"mode\" : " + quote(result.mode) + ",\n");
+                out.write("        \"threads\" : 1,\n");
+                out.write("        \"forks\" : 0,\n");
+                out.write("        \"jdkVersion\" : " + quote(jdk) + ",\n");
+                out.write("        \"vmName\" : " + quote(vm) + ",\n");
+                out.write("        \"warmupIterations\" : " + result.warmups + ",\n");
+                out.write("        \"measurementIterations\" : " + result.scores.length + ",\n");
+                out.write("        \"params\" : {");
+                int p = 0;
+                for (Map.Entry<String, String> param : result.params.entrySet()) {
+                    out.write((p++ == 0 ? " " : ", ") + quote(param.getKey()) + " : " + quote(param.getValue()));
+                }
+                out.write(" },\n");
+                out.write("        \"primaryMetric\" : {\n");
+                out.write("            \"score\" : " + number(result.score()) + ",\n");
+                out.write("            \"scoreError\" : " + number(result.error()) + ",\n");
+                out.write("            \"scoreUnit\" : " + quote(result.unit) + ",\n");
+                out.write("            \"rawData\" : [ [");
+                for (int i = 0; i < result.scores.length; i++) {
+                    out.write((i == 0 ? " " : ", ") + number(result.scores[i]));
+                }
+                out.write(" ] ]\n");
+                out.write("        }\n");
+                out.write(r + 1 < results.size() ? "    },\n" : "    }\n");
+            }
+            out.write("]\n");
+        }
+    }
+
+    private static String unitName(TimeUnit unit) {
+        switch (unit) {
+            case NANOSECONDS:
+                return "ns";
+            case MICROSECONDS:
+                return "us";
+            case MILLISECONDS:
+                return "ms";
+            default:
+                return "s";
+        }
+    }
+
+    private static String number(double value) {
+        return Double.isNaN(value) ? "\"NaN\"" : String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    private static String quote(String text) {
+        StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+
+    /**
+     * Scores of one benchmark with one set of parameters.
+     */
+    public static final class Result {
+        final String benchmark;
+        final String mode;
+        final Map<String, String> params;
+        final String unit;
+        final int warmups;
+        final double[] scores;
+
+        Result(String benchmark, String mode, Map<String, String> params, String unit, int warmups, double[] scores) {
+            this.benchmark = benchmark;
+            this.mode = mode;
+            this.params = params;
+            this.unit = unit;
+            this.warmups = warmups;
+            this.scores = scores;
+        }
+
+        public double score() {
+            double sum = 0;
+            for (double score : scores) {
+                sum += score;
+            }
+            return sum / scores.length;
+        }
+
+        /**
+         * Half width of the 99.9% confidence interval, NaN for a single iteration (like JMH).
+         */
+        public double error() {
+            if (scores.length < 2) {
+                return Double.NaN;
+            }
+            double mean = score();
+            double squares = 0;
+            for (double score : scores) {
+                squares += (score - mean) * (score - mean);
+            }
+            return Z_999 * Math.sqrt(squares / (scores.length - 1)) / Math.sqrt(scores.length);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package Benchmark;
+
+import Model.LibraryCache;
+import Model.MusicPlayer;
+import Model.PlaybackClock;
+import Model.PlaybackEngine;
+import Model.PlayerEvent;
+import Model.RenderOutput;
+import Model.Song;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Provjera plejera bez zvucne kartice: playSong, seekTo, nextSong, prevSong, pause, resume i stop
+ * preko MusicPlayer komandi, sa RenderOutput-om koji svira brze od stvarnog vremena.
+ * Na kraju se jedna pjesma renderira u WAV i provjerava da ima tocno onoliko uzoraka koliko ih je enkoder kodirao.
+ * Izlazi sa kodom 1 ako nesto nije u redu, pa se moze pokretati na CI masini.
+ *
+ * Run with: java -cp out:lib/* Benchmark.HeadlessPlayerCheck
+ */
+public class HeadlessPlayerCheck {
+
+    private static final int SECONDS = 300;
+    private static final long TIMEOUT_MILLISECONDS = 5000;
+
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("headlessPlayerCheck");
+        List<Path> files = new ArrayList<>();
+        try {
+            List<String> lines = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                Path file = directory.resolve("song" + i + ".mp3");
+                SyntheticMp3.write(file, SyntheticMp3.framesFor(SECONDS), i == 1, "Song " + i, "Artist", 0, i);
+                files.add(file);
+                lines.add(file.toString());
+            }
+            Path playlistFile = directory.resolve("playlist.txt");
+            files.add(playlistFile);
+            Files.write(playlistFile, lines);
+
+            checkCommands(directory, playlistFile);
+            Path badPlaylistFile = directory.resolve("bad-playlist.txt");
+            files.add(badPlaylistFile);
+            Files.write(badPlaylistFile, List.of(directory.resolve("missing.mp3").toString(), lines.get(0)));
+            checkMissingSong(directory, badPlaylistFile);
+            Path wavFile = directory.resolve("render.wav");
+            files.add(wavFile);
+            checkWav(directory, files.get(0), wavFile);
+        } finally {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory.resolve("unused.cache"));
+            Files.delete(directory);
+        }
+
+        System.out.println(failures == 0 ? "All checks passed" : failures + " checks failed");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * A song that cannot be opened is reported and skipped, the playlist goes on with the next one.
+     */
+    private static void checkMissingSong(Path directory, Path playlistFile) throws Exception {
+        MusicPlayer player = new MusicPlayer(null, new RenderOutput(), new LibraryCache(directory.resolve("unused.cache")));
+        List<String> errors = new java.util.concurrent.CopyOnWriteArrayList<>();
+        player.getEventBus().subscribe(PlayerEvent.Error.class, event -> errors.add(event.getMessage()));
+        ClockLog log = new ClockLog();
+        player.getPlaybackClock().subscribe(log, Runnable::run);
+        try {
+            player.loadPlaylist(playlistFile.toFile());
+            check("a missing song is skipped", await(() -> log.containsFrom(0, "Song 0", 0, 0)
+                    && "Song 0".equals(title(player)) && player.getState() == MusicPlayer.State.PLAYING));
+            check("a missing song is reported", await(() -> !errors.isEmpty() && errors.get(0).contains("missing.mp3")));
+        } finally {
+            player.shutdown();
+        }
+    }
+
+    private static void checkCommands(Path directory, Path playlistFile) throws Exception {
+        RenderOutput output = new RenderOutput();
+        MusicPlayer player = new MusicPlayer(null, output, new LibraryCache(directory.resolve("unused.cache")));
+        player.setGapless(false);
+        // every position the clock publishes, delivered right on the output thread
+        ClockLog log = new ClockLog();
+        player.getPlaybackClock().subscribe(log, Runnable::run);
+        try {
+            player.loadPlaylist(playlistFile.toFile());
+            check("playSong starts the first song", await(() -> log.containsFrom(0, "Song 0", 0, 0)));
+            check("state is PLAYING", await(() -> player.getState() == MusicPlayer.State.PLAYING));
+
+            int mark = log.size();
+            player.seekTo(60);
+            check("seekTo(60) plays from 60 s", await(() -> log.containsFrom(mark, "Song 0", 59_900, 60_000)));
+
+            int next = log.size();
+            player.nextSong();
+            check("nextSong plays the second song", await(() -> log.containsFrom(next, "Song 1", 0, 0)
+                    && "Song 1".equals(title(player))));
+
+            int previous = log.size();
+            player.prevSong();
+            check("prevSong plays the first song again", await(() -> log.containsFrom(previous, "Song 0", 0, 0)
+                    && "Song 0".equals(title(player))));
+
+            int queued = log.size();
+            player.playNext(player.getPlaylist().get(2));
+            player.nextSong();
+            check("playNext is played before the rest of the playlist", await(() -> log.containsFrom(queued, "Song 2", 0, 0)
+                    && "Song 2".equals(title(player))));
+
+            int back = log.size();
+            player.prevSong();
+            check("prevSong goes back through the history", await(() -> log.containsFrom(back, "Song 0", 0, 0)
+                    && "Song 0".equals(title(player))));
+
+            player.pauseSong();
+            check("pauseSong pauses", await(() -> player.getState() == MusicPlayer.State.PAUSED));
+            long pausedAt = output.getFramesRendered();
+            Thread.sleep(100);
+            check("nothing is rendered while paused", output.getFramesRendered() == pausedAt);
+
+            player.resumeSong();
+            check("resumeSong renders again", await(() -> output.getFramesRendered() > pausedAt));
+
+            player.stopSong();
+            check("stopSong stops", await(() -> player.getState() == MusicPlayer.State.STOPPED));
+        } finally {
+            player.shutdown();
+        }
+    }
+
+    private static void checkWav(Path directory, Path mp3File, Path wavFile) throws Exception {
+        Song song = new Song(mp3File.toString(), new LibraryCache(directory.resolve("unused.cache")));
+        RenderOutput output = new RenderOutput(wavFile);
+        CountDownLatch finished = new CountDownLatch(1);
+        PlaybackEngine engine = new PlaybackEngine(output, new PlaybackEngine.Listener() {
+            @Override
+            public void trackStarted(Song started) {
+            }
+
+            @Override
+            public void trackFinished(Song ended) {
+                finished.countDown();
+            }
+
+            @Override
+            public Song nextTrack(Song current) {
+                return null;
+            }
+        });
+        long start = System.nanoTime();
+        engine.play(song, 0);
+        boolean ended = finished.await(TIMEOUT_MILLISECONDS * 10, TimeUnit.MILLISECONDS);
+        long wall = System.nanoTime() - start;
+        engine.shutdown();
+        check("the song renders to its end", ended);
+
+        long expectedFrames = (long) song.getFrameLength() * SyntheticMp3.SAMPLES_PER_FRAME
+                - SyntheticMp3.ENCODER_DELAY - SyntheticMp3.ENCODER_PADDING;
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(wavFile), 0, 44).order(ByteOrder.LITTLE_ENDIAN);
+        long dataBytes = header.getInt(40) & 0xFFFFFFFFL;
+        check("WAV holds every encoded sample (" + dataBytes / 4 + " of " + expectedFrames + " frames)",
+                dataBytes == expectedFrames * 4 && Files.size(wavFile) == 44 + dataBytes);
+        System.out.printf("rendered %d s of audio in %.1f ms, %.0f mp3 frames/s%n", SECONDS, wall / 1e6,
+                song.getFrameLength() / (wall / 1e9));
+    }
+
+    private static String title(MusicPlayer player) {
+        Song song = player.getCurrentSong();
+        return song == null ? null : song.getSongTitle();
+    }
+
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLISECONDS);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    private static void check(String name, boolean passed) {
+        System.out.println((passed ? "ok      " : "FAILED  ") + name);
+        if (!passed) {
+            failures++;
+        }
+    }
+
+
+    /**
+     * Positions published by the playback clock, in order.
+     */
+    private static final class ClockLog implements PlaybackClock.Listener {
+        private final List<String> titles = new ArrayList<>();
+        private final List<Long> positions = new ArrayList<>();
+
+        @Override
+        public synchronized void positionChanged(Song song, long positionInMilliseconds) {
+            titles.add(song == null ? null : song.getSongTitle());
+            positions.add(positionInMilliseconds);
+        }
+
+        synchronized int size() {
+            return titles.size();
+        }
+
+        synchronized boolean containsFrom(int index, String title, long from, long to) {
+            for (int i = index; i < titles.size(); i++) {
+                if (title.equals(titles.get(i)) && positions.get(i) >= from && positions.get(i) <= to) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
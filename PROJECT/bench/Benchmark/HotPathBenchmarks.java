@@ -0,0 +1,344 @@
+package Benchmark;
+
+import Model.LibraryCache;
+import Model.Mp3MetadataReader;
+import Model.MusicPlayer;
+import Model.PlaylistReader;
+import Model.RenderOutput;
+import Model.Song;
+import Model.TrackDecoder;
+import View.AlbumArtCache;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Skup mikro benchmarka za vruce putanje plejera: metapodaci i konstrukcija Song-a, omot albuma,
+ * plejliste od 100, 10 000 i 100 000 pjesama (citanje svih pjesama, otvaranje M3U8 i vrijeme do prvog zvuka),
+ * propusnost dekodiranja, otvaranje dekodera kod premotavanja i kasnjenje seek/resume.
+ * Svi mp3 fajlovi se generiraju lokalno (SyntheticMp3) i brisu na kraju, a rezultati se zapisuju
+ * u JSON formatu JMH-a da se mogu usporediti prije i poslije neke promjene.
+ *
+ * Run with: java -cp out:lib/* Benchmark.HotPathBenchmarks [--quick] [--out results.json]
+ */
+public class HotPathBenchmarks {
+
+    private static final int SONG_SECONDS = 300;
+    private static final int DECODE_SECONDS = 60;
+    private static final int PLAYER_SONG_SECONDS = 120;
+    private static final int FILES_PER_DIRECTORY = 1000;
+    private static final int ARTWORK_SIZE = 600;
+    private static final int SKIPPED_SONGS = 8;
+
+    public static void main(String[] args) throws Exception {
+        Logger.getLogger("org.jaudiotagger").setLevel(Level.OFF);
+        boolean quick = false;
+        Path resultFile = Paths.get("hotpath-results.json");
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--quick")) {
+                quick = true;
+            } else if (args[i].equals("--out") && i + 1 < args.length) {
+                resultFile = Paths.get(args[++i]);
+            }
+        }
+
+        int warmups = quick ? 2 : 5;
+        int iterations = quick ? 3 : 10;
+        Harness harness = new Harness(quick ? 300 : 1000);
+        Path directory = Files.createTempDirectory("hotPathBenchmarks");
+        try {
+            metadata(harness, directory, warmups, iterations);
+            albumArt(harness, directory, warmups, iterations);
+            decode(harness, directory, warmups, iterations);
+            player(harness, directory, quick ? 5 : 10, quick ? 20 : 50);
+            int[] sizes = quick ? new int[]{100, 10_000} : new int[]{100, 10_000, 100_000};
+            for (int size : sizes) {
+                playlist(harness, directory, size, quick);
+            }
+        } finally {
+            delete(directory);
+        }
+        harness.writeJson(resultFile);
+        System.out.println("Results written to " + resultFile.toAbsolutePath());
+    }
+
+    private static void metadata(Harness harness, Path directory, int warmups, int iterations) throws Exception {
+        Path xing = directory.resolve("xing.mp3");
+        Path noXing = directory.resolve("noXing.mp3");
+        SyntheticMp3.write(xing, SyntheticMp3.framesFor(SONG_SECONDS), true, true, "Xing", "Artist", "Album", null, 4096, 1);
+        SyntheticMp3.write(noXing, SyntheticMp3.framesFor(SONG_SECONDS), true, false, "No Xing", "Artist", "Album", null, 4096, 2);
+
+        for (Path file : new Path[]{xing, noXing}) {
+            String path = file.toString();
+            String name = file.getFileName().toString().replace(".mp3", "");
+            harness.averageTime("metadata.read", Harness.params("file", name), TimeUnit.MICROSECONDS,
+                    warmups, iterations, () -> Mp3MetadataReader.read(path).getFrameCount());
+            // a new empty cache parses the file like the first start of the application
+            harness.averageTime("song.construct", Harness.params("file", name, "cache", "cold"), TimeUnit.MICROSECONDS,
+                    warmups, iterations, () -> new Song(path, new LibraryCache(directory.resolve("unused.cache"))).getFrameLength());
+            LibraryCache warm = new LibraryCache(directory.resolve("unused.cache"));
+            harness.averageTime("song.construct", Harness.params("file", name, "cache", "warm"), TimeUnit.MICROSECONDS,
+                    warmups, iterations, () -> new Song(path, warm).getFrameLength());
+        }
+    }
+
+    private static void albumArt(Harness harness, Path directory, int warmups, int iterations) throws Exception {
+        Path file = directory.resolve("artwork.mp3");
+        SyntheticMp3.write(file, SyntheticMp3.framesFor(10), false, true, "Artwork", "Artist", "Album", artwork(), 0, 3);
+        Song song = new Song(file.toString(), new LibraryCache(directory.resolve("unused.cache")));
+
+        harness.averageTime("albumArt.extract", Harness.params(), TimeUnit.MICROSECONDS,
+                warmups, iterations, () -> song.readAlbumArt().length);
+        // a new cache every time, so the image is read, decoded and scaled on every call
+        harness.averageTime("albumArt.decodeScale", Harness.params("size", ARTWORK_SIZE + "x" + ARTWORK_SIZE),
+                TimeUnit.MILLISECONDS, warmups, iterations, () -> new AlbumArtCache().get(song).getWidth());
+
+        // drawing the cached image into an opaque back buffer, as Swing paints the label
+        BufferedImage compatible = new AlbumArtCache().get(song);
+        BufferedImage argb = new BufferedImage(compatible.getWidth(), compatible.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        argb.createGraphics().drawImage(compatible, 0, 0, null);
+        BufferedImage backBuffer = new BufferedImage(AlbumArtCache.SIZE, AlbumArtCache.SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D backGraphics = backBuffer.createGraphics();
+        harness.averageTime("albumArt.paint", Harness.params("image", "argb"), TimeUnit.MICROSECONDS,
+                warmups, iterations, () -> backGraphics.drawImage(argb, 0, 0, null) ? 1 : 0);
+        harness.averageTime("albumArt.paint", Harness.params("image", "compatible"), TimeUnit.MICROSECONDS,
+                warmups, iterations, () -> backGraphics.drawImage(compatible, 0, 0, null) ? 1 : 0);
+
+        // skipping through songs faster than their artwork loads, only the last one has to be decoded
+        List<Song> skipped = new ArrayList<>();
+        for (int i = 0; i < SKIPPED_SONGS; i++) {
+            Path copy = directory.resolve("artwork" + i + ".mp3");
+            Files.copy(file, copy, StandardCopyOption.REPLACE_EXISTING);
+            skipped.add(new Song(copy.toString(), new LibraryCache(directory.resolve("unused.cache"))));
+        }
+        harness.averageTime("albumArt.skip", Harness.params("songs", String.valueOf(SKIPPED_SONGS)),
+                TimeUnit.MILLISECONDS, warmups, iterations, () -> {
+                    AlbumArtCache cache = new AlbumArtCache();
+                    CompletableFuture<BufferedImage> last = null;
+                    for (Song skippedSong : skipped) {
+                        last = cache.load(skippedSong);
+                    }
+                    int width = last.get().getWidth();
+                    cache.shutdown();
+                    return width;
+                });
+    }
+
+    private static void decode(Harness harness, Path directory, int warmups, int iterations) throws Exception {
+        Path file = directory.resolve("decode.mp3");
+        SyntheticMp3.write(file, SyntheticMp3.framesFor(DECODE_SECONDS), false, "Decode", "Artist", 0, 4);
+        Song song = new Song(file.toString(), new LibraryCache(directory.resolve("unused.cache")));
+
+        // the synthetic frames have empty main data, so this is the floor of the decoder, not real music
+        harness.throughput("decode.throughput", Harness.params("seconds", String.valueOf(DECODE_SECONDS)), "frames",
+                warmups, iterations, () -> {
+                    long frames = 0;
+                    try (TrackDecoder decoder = new TrackDecoder(song, 0)) {
+                        while (decoder.decodeFrame() >= 0) {
+                            frames++;
+                        }
+                    }
+                    return frames;
+                });
+
+        // what a seek costs before decoding: a new file and mapping, or the source of the playing decoder
+        try (TrackDecoder playing = new TrackDecoder(song, 0)) {
+            long[] seekMillis = {0};
+            for (boolean shared : new boolean[]{false, true}) {
+                harness.averageTime("decoder.seekOpen", Harness.params("source", shared ? "shared" : "fresh"),
+                        TimeUnit.MICROSECONDS, warmups, iterations, () -> {
+                            seekMillis[0] = (seekMillis[0] + 7_000) % (DECODE_SECONDS * 1000L);
+                            try (TrackDecoder decoder = new TrackDecoder(song, seekMillis[0],
+                                    shared ? playing.getSource() : null)) {
+                                return decoder.getStartMillis();
+                            }
+                        });
+            }
+        }
+    }
+
+    private static void player(Harness harness, Path directory, int warmups, int samples) throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Path file = directory.resolve("player" + i + ".mp3");
+            SyntheticMp3.write(file, SyntheticMp3.framesFor(PLAYER_SONG_SECONDS), i % 2 == 0, "Song " + i, "Artist", 0, 10 + i);
+            lines.add(file.toString());
+        }
+        Path playlistFile = directory.resolve("player.txt");
+        Files.write(playlistFile, lines);
+
+        SimulatedDeviceOutput output = new SimulatedDeviceOutput(250);
+        MusicPlayer player = new MusicPlayer(null, output, new LibraryCache(directory.resolve("unused.cache")));
+        try {
+            long before = player.getLastSwitchLatencyNanos();
+            player.loadPlaylist(playlistFile.toFile());
+            awaitSwitch(player, before);
+
+            int[] position = {0};
+            // from the command to the first sample of the new position on the device
+            harness.latency("player.seek", Harness.params(), TimeUnit.MILLISECONDS, warmups, samples, () -> {
+                position[0] = (position[0] + 37) % (PLAYER_SONG_SECONDS - 10);
+                long previous = player.getLastSwitchLatencyNanos();
+                player.seekTo(position[0]);
+                return awaitSwitch(player, previous);
+            });
+            // from the command until the device plays again
+            harness.latency("player.resume", Harness.params(), TimeUnit.MILLISECONDS, warmups, samples, () -> {
+                player.pauseSong();
+                awaitState(player, MusicPlayer.State.PAUSED);
+                long framePosition = output.getFramePosition();
+                long start = System.nanoTime();
+                player.resumeSong();
+                while (output.getFramePosition() == framePosition) {
+                    Thread.onSpinWait();
+                }
+                long latency = System.nanoTime() - start;
+                Thread.sleep(20);
+                return latency;
+            });
+        } finally {
+            player.shutdown();
+        }
+    }
+
+    private static void playlist(Harness harness, Path directory, int size, boolean quick) throws Exception {
+        Path songs = directory.resolve("playlist" + size);
+        List<String> paths = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Path subdirectory = songs.resolve(String.valueOf(i / FILES_PER_DIRECTORY));
+            if (i % FILES_PER_DIRECTORY == 0) {
+                Files.createDirectories(subdirectory);
+            }
+            Path file = subdirectory.resolve("s" + i + ".mp3");
+            SyntheticMp3.write(file, 2, false, "Song " + i, "Artist " + (i % 100), 0, i);
+            paths.add(file.toString());
+        }
+        Path cacheFile = directory.resolve("playlist" + size + ".cache");
+        int iterations = size >= 100_000 || quick ? 3 : 5;
+        String entries = String.valueOf(size);
+
+        Path m3u = directory.resolve("playlist" + size + ".m3u8");
+        List<String> lines = new ArrayList<>(size * 2 + 1);
+        lines.add("#EXTM3U");
+        for (int i = 0; i < size; i++) {
+            lines.add("#EXTINF:0,Artist " + (i % 100) + " - Song " + i);
+            lines.add(paths.get(i));
+        }
+        Files.write(m3u, lines);
+        // opening reads only the playlist file, songs are resolved when they are needed
+        harness.singleShot("playlist.open", Harness.params("entries", entries), TimeUnit.MILLISECONDS,
+                2, iterations, () -> PlaylistReader.read(m3u.toFile()).size());
+        MusicPlayer player = new MusicPlayer(null, new RenderOutput(), new LibraryCache(cacheFile));
+        harness.latency("playlist.firstAudio", Harness.params("entries", entries), TimeUnit.MILLISECONDS,
+                2, iterations, () -> {
+                    long previous = player.getLastSwitchLatencyNanos();
+                    player.loadPlaylist(m3u.toFile());
+                    long latency;
+                    while ((latency = player.getLastSwitchLatencyNanos()) == previous) {
+                        Thread.sleep(1);
+                    }
+                    player.stopSong(); // the tiny songs would otherwise play through the playlist
+                    return latency;
+                });
+        player.shutdown();
+        Files.delete(m3u);
+
+        // every iteration starts with an empty cache, like the first start with a new library
+        harness.singleShot("playlist.load", Harness.params("entries", entries, "cache", "cold"), TimeUnit.MILLISECONDS,
+                1, iterations, () -> load(paths, new LibraryCache(cacheFile)));
+
+        LibraryCache saved = new LibraryCache(cacheFile);
+        load(paths, saved);
+        saved.save();
+        // the cache file is loaded as part of the measurement, like the next start of the application
+        harness.singleShot("playlist.load", Harness.params("entries", entries, "cache", "warm"), TimeUnit.MILLISECONDS,
+                1, iterations, () -> {
+                    LibraryCache cache = new LibraryCache(cacheFile);
+                    cache.load();
+                    return load(paths, cache);
+                });
+        delete(songs);
+        Files.deleteIfExists(cacheFile);
+    }
+
+    /**
+     * Reads the metadata of every song with OrderedPlaylistLoader and waits until the last one is loaded.
+     */
+    private static long load(List<String> paths, LibraryCache cache) throws InterruptedException {
+        OrderedPlaylistLoader loader = new OrderedPlaylistLoader(Runtime.getRuntime().availableProcessors(), cache);
+        CountDownLatch finished = new CountDownLatch(1);
+        loader.load(paths, new OrderedPlaylistLoader.Listener() {
+            @Override
+            public void songLoaded(int index, Song song) {
+            }
+
+            @Override
+            public void loadingFinished(int songCount) {
+                finished.countDown();
+            }
+        });
+        finished.await();
+        loader.shutdown();
+        return cache.getMisses();
+    }
+
+    private static long awaitSwitch(MusicPlayer player, long previous) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (player.getLastSwitchLatencyNanos() == previous && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(20); // let events of the old position settle
+        return player.getLastSwitchLatencyNanos();
+    }
+
+    private static void awaitState(MusicPlayer player, MusicPlayer.State state) throws InterruptedException {
+        while (player.getState() != state) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(20); // the engine pauses the device right after the state changes
+    }
+
+    private static byte[] artwork() throws IOException {
+        BufferedImage image = new BufferedImage(ARTWORK_SIZE, ARTWORK_SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, Color.ORANGE, ARTWORK_SIZE, ARTWORK_SIZE, Color.BLUE));
+        graphics.fillRect(0, 0, ARTWORK_SIZE, ARTWORK_SIZE);
+        graphics.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    private static void delete(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.delete(file);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package Benchmark;
+
+import Model.LibraryCache;
+import Model.LibraryScanner;
+import Model.Song;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Mjeri koliko fajlova u sekundi LibraryScanner skenira na stablu foldera (po defaultu 100 000 mp3 fajlova),
+ * za razlicit broj niti: prvo skeniranje sa praznim cache-om, skeniranje sa punim cache-om
+ * i ponovno skeniranje kad se nista nije promijenilo. Na kraju mjeri koliko brzo WatchService javi
+ * dodane, promijenjene i obrisane pjesme.
+ *
+ * Run with: java -cp out:lib/* Benchmark.LibraryScanBenchmark [files]
+ */
+public class LibraryScanBenchmark {
+
+    private static final int FILES_PER_DIRECTORY = 1000;
+    private static final int DIRECTORIES_PER_FOLDER = 10;
+
+    public static void main(String[] args) throws Exception {
+        Logger.getLogger("org.jaudiotagger").setLevel(Level.OFF);
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        Path directory = Files.createTempDirectory("libraryScanBenchmark");
+        try {
+            Path root = directory.resolve("music");
+            long created = System.nanoTime();
+            createTree(root, files);
+            System.out.printf("%d files in %d folders created in %d ms, %d cores%n", files,
+                    (files + FILES_PER_DIRECTORY - 1) / FILES_PER_DIRECTORY,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - created), cores);
+
+            System.out.println("threads  cold files/s  cached files/s  rescan files/s");
+            for (int threads = 1; threads <= cores; threads *= 2) {
+                run(root, directory, threads);
+            }
+            if (Integer.bitCount(cores) != 1) {
+                run(root, directory, cores);
+            }
+            watch(root, directory);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static void run(Path root, Path directory, int threads) throws IOException {
+        Path cacheFile = directory.resolve("library" + threads + ".cache");
+        Counter counter = new Counter();
+
+        // cold: every file is new and its tag is parsed
+        LibraryCache cache = new LibraryCache(cacheFile);
+        double cold;
+        try (LibraryScanner scanner = new LibraryScanner(threads, cache, counter)) {
+            cold = filesPerSecond(scanner, root);
+        }
+        cache.save();
+
+        // cached: a new scanner (like a new start of the player), the metadata comes from the cache
+        LibraryCache savedCache = new LibraryCache(cacheFile);
+        double cached;
+        double rescan;
+        try (LibraryScanner scanner = new LibraryScanner(threads, savedCache, counter)) {
+            cached = filesPerSecond(scanner, root);
+            // rescan: nothing changed, only the folders are listed
+            rescan = filesPerSecond(scanner, root);
+        }
+        System.out.printf("%7d  %12.0f  %14.0f  %14.0f%n", threads, cold, cached, rescan);
+    }
+
+    private static double filesPerSecond(LibraryScanner scanner, Path root) {
+        long start = System.nanoTime();
+        int scanned = scanner.scan(root);
+        return scanned / ((System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Adds, changes and deletes files in a watched library and measures how long until the scanner reports them.
+     */
+    private static void watch(Path root, Path directory) throws Exception {
+        Counter counter = new Counter();
+        try (LibraryScanner scanner = new LibraryScanner(new LibraryCache(directory.resolve("watch.cache")), counter)) {
+            scanner.watch();
+            scanner.scan(root);
+            counter.reset(12, 1); // 10 new files, one new folder with one file, one changed file; one deleted file
+
+            long start = System.nanoTime();
+            Path first = root.resolve("0").resolve("0");
+            for (int i = 0; i < 10; i++) {
+                SyntheticMp3.write(first.resolve("new" + i + ".mp3"), 2, false, "New " + i, "Artist", 0, i);
+            }
+            Path newFolder = Files.createDirectories(root.resolve("new folder"));
+            SyntheticMp3.write(newFolder.resolve("song.mp3"), 2, false, "Song", "Artist", 0, 0);
+            Path changed = first.resolve("s1.mp3");
+            SyntheticMp3.write(changed, 3, false, "Changed", "Artist", 0, 1);
+            Files.setLastModifiedTime(changed, FileTime.fromMillis(System.currentTimeMillis() + 2000));
+            Files.delete(first.resolve("s2.mp3"));
+
+            boolean reported = counter.await(10);
+            System.out.printf("watch: %d songs found, %d removed, reported in %d ms (%s, includes the settle time)%n",
+                    counter.found.get(), counter.removed.get(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), reported ? "all" : "timed out");
+        }
+    }
+
+    private static void createTree(Path root, int files) throws IOException {
+        for (int i = 0; i < files; i++) {
+            int folder = i / FILES_PER_DIRECTORY;
+            Path subdirectory = root.resolve(String.valueOf(folder / DIRECTORIES_PER_FOLDER))
+                    .resolve(String.valueOf(folder % DIRECTORIES_PER_FOLDER));
+            if (i % FILES_PER_DIRECTORY == 0) {
+                Files.createDirectories(subdirectory);
+            }
+            SyntheticMp3.write(subdirectory.resolve("s" + (i % FILES_PER_DIRECTORY) + ".mp3"), 2, false,
+                    "Song " + i, "Artist " + (i % 100), 0, i);
+        }
+    }
+
+    private static void delete(Path path) throws IOException {
+        try (Stream<Path> files = Files.walk(path)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.delete(file);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+        }
+    }
+
+
+    private static final class Counter implements LibraryScanner.Listener {
+        final AtomicInteger found = new AtomicInteger();
+        final AtomicInteger removed = new AtomicInteger();
+        private volatile CountDownLatch expected = new CountDownLatch(0);
+
+        void reset(int songsFound, int songsRemoved) {
+            found.set(0);
+            removed.set(0);
+            expected = new CountDownLatch(songsFound + songsRemoved);
+        }
+
+        boolean await(int seconds) throws InterruptedException {
+            return expected.await(seconds, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void songsFound(List<Song> songs) {
+            found.addAndGet(songs.size());
+            for (int i = 0; i < songs.size(); i++) {
+                expected.countDown();
+            }
+        }
+
+        @Override
+        public void songsRemoved(List<String> paths) {
+            removed.addAndGet(paths.size());
+            for (int i = 0; i < paths.size(); i++) {
+                expected.countDown();
+            }
+        }
+
+        @Override
+        public void scanFinished(Path root, int files, long nanos) {
+        }
+    }
+}
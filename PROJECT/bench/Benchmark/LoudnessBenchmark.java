@@ -0,0 +1,111 @@
+package Benchmark;
+
+import Model.GainStage;
+import Model.LibraryCache;
+import Model.LoudnessAnalyzer;
+import Model.Song;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Mjeri analizu glasnoce (LoudnessAnalyzer) u pjesmama po minuti, sa jednom niti i sa jednom niti po jezgri,
+ * te GainStage na izlazu: vrijeme po komadu od 2048 uzoraka za smanjenje (bez limitera) i pojacanje
+ * (sa limiterom) i koliko bajtova pri tome alocira.
+ *
+ * Run with: java -cp out:lib/* Benchmark.LoudnessBenchmark [--out results.json]
+ */
+public class LoudnessBenchmark {
+
+    private static final int TRACKS = 12;
+    private static final int TRACKS_PER_ALBUM = 4;
+    private static final int SECONDS = 180;
+    private static final int CHUNK = 2048;
+
+    public static void main(String[] args) throws Exception {
+        Logger.getLogger("org.jaudiotagger").setLevel(Level.OFF);
+        Path resultFile = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--out") && i + 1 < args.length) {
+                resultFile = Paths.get(args[++i]);
+            }
+        }
+        Harness harness = new Harness(1000);
+
+        Path directory = Files.createTempDirectory("loudnessBenchmark");
+        try {
+            List<Path> files = new ArrayList<>();
+            for (int i = 0; i < TRACKS; i++) {
+                Path album = directory.resolve("album" + i / TRACKS_PER_ALBUM);
+                Files.createDirectories(album);
+                Path file = album.resolve("track" + i + ".mp3");
+                SyntheticMp3.write(file, SyntheticMp3.framesFor(SECONDS), i % 2 == 0, "Track " + i, "Artist", 0, i);
+                files.add(file);
+            }
+
+            int cores = Runtime.getRuntime().availableProcessors();
+            for (int threads : cores > 1 ? new int[]{1, cores} : new int[]{1}) {
+                int[] run = {0};
+                harness.singleShot("loudness.analyze", Harness.params("tracks", String.valueOf(TRACKS),
+                        "seconds", String.valueOf(SECONDS), "threads", String.valueOf(threads)),
+                        TimeUnit.MILLISECONDS, 1, 3, () -> {
+                            // a new cache every time, so no song counts as analyzed
+                            LibraryCache cache = new LibraryCache(directory.resolve("run" + threads + "-" + run[0]++ + ".cache"));
+                            List<Song> songs = new ArrayList<>();
+                            for (Path file : files) {
+                                songs.add(new Song(file.toString(), cache));
+                            }
+                            return new LoudnessAnalyzer(cache, threads).analyze(songs, null);
+                        });
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(file);
+                }
+            }
+        }
+
+        // a loud stereo sine, so the limiter has to work when the gain is raised
+        short[] source = new short[CHUNK * 64];
+        for (int i = 0; i < source.length; i += 2) {
+            short sample = (short) (30000 * Math.sin(2 * Math.PI * 440 * (i / 2) / 44100.0));
+            source[i] = sample;
+            source[i + 1] = sample;
+        }
+        short[] chunk = new short[CHUNK];
+        GainStage gainStage = new GainStage();
+        gainStage.setSampleRate(44100);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (float gain : new float[]{0.5f, 2f}) {
+            int[] position = {0};
+            harness.averageTime("gain.process", Harness.params("gain", String.valueOf(gain)), TimeUnit.NANOSECONDS, 3, 5, () -> {
+                System.arraycopy(source, position[0], chunk, 0, CHUNK);
+                position[0] = (position[0] + CHUNK) % source.length;
+                gainStage.process(chunk, 0, CHUNK, 2, gain);
+                return chunk[CHUNK - 1];
+            });
+            long before = threadBean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < 100_000; i++) {
+                System.arraycopy(source, (i * CHUNK) % source.length, chunk, 0, CHUNK);
+                gainStage.process(chunk, 0, CHUNK, 2, gain);
+            }
+            System.out.printf("  gain %.1f: %d bytes allocated by 100000 chunks%n", gain,
+                    threadBean.getCurrentThreadAllocatedBytes() - before);
+        }
+
+        if (resultFile != null) {
+            harness.writeJson(resultFile);
+            System.out.println("Results written to " + resultFile.toAbsolutePath());
+        }
+    }
+}
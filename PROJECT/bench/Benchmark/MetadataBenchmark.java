@@ -0,0 +1,94 @@
+package Benchmark;
+
+import Model.Mp3Metadata;
+import Model.Mp3MetadataReader;
+import com.mpatric.mp3agic.Mp3File;
+import org.jaudiotagger.audio.AudioFile;
+import org.jaudiotagger.audio.AudioFileIO;
+import org.jaudiotagger.tag.FieldKey;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Usporeduje citanje metapodataka preko Mp3MetadataReader-a sa starim nacinom iz Song konstruktora
+ * (mp3agic Mp3File pa jaudiotagger AudioFileIO.read), na fajlovima sa i bez Xing/Info zaglavlja.
+ *
+ * Run with: java -cp out:lib/* Benchmark.MetadataBenchmark [tracks]
+ */
+public class MetadataBenchmark {
+
+    private static final int SECONDS_PER_TRACK = 240;
+
+    public static void main(String[] args) throws Exception {
+        Logger.getLogger("org.jaudiotagger").setLevel(Level.OFF);
+        int tracks = args.length > 0 ? Integer.parseInt(args[0]) : 40;
+
+        Path directory = Files.createTempDirectory("metadataBenchmark");
+        try {
+            List<String> withHeader = new ArrayList<>();
+            List<String> withoutHeader = new ArrayList<>();
+            for (int i = 0; i < tracks; i++) {
+                Path file = directory.resolve("info" + i + ".mp3");
+                SyntheticMp3.write(file, SyntheticMp3.framesFor(SECONDS_PER_TRACK), i % 2 == 1, true,
+                        "Track " + i, "Artist", "Album", null, 1024, i);
+                withHeader.add(file.toString());
+                file = directory.resolve("plain" + i + ".mp3");
+                SyntheticMp3.write(file, SyntheticMp3.framesFor(SECONDS_PER_TRACK), i % 2 == 1, false,
+                        "Track " + i, "Artist", "Album", null, 1024, i);
+                withoutHeader.add(file.toString());
+            }
+
+            for (int round = 0; round < 2; round++) { // first round warms up
+                boolean print = round == 1;
+                report(print, "Xing/Info, old", oldWay(withHeader), tracks);
+                report(print, "Xing/Info, new", newWay(withHeader), tracks);
+                report(print, "no header, old", oldWay(withoutHeader), tracks);
+                report(print, "no header, new", newWay(withoutHeader), tracks);
+            }
+        } finally {
+            for (Path file : Files.newDirectoryStream(directory)) {
+                Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static long oldWay(List<String> paths) throws Exception {
+        long start = System.nanoTime();
+        long checksum = 0;
+        for (String path : paths) {
+            Mp3File mp3File = new Mp3File(path);
+            AudioFile audioFile = AudioFileIO.read(new File(path));
+            checksum += mp3File.getFrameCount() + audioFile.getTag().getFirst(FieldKey.TITLE).length();
+        }
+        if (checksum == 0) {
+            throw new IllegalStateException();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long newWay(List<String> paths) throws Exception {
+        long start = System.nanoTime();
+        long checksum = 0;
+        for (String path : paths) {
+            Mp3Metadata metadata = Mp3MetadataReader.read(path);
+            checksum += metadata.getFrameCount() + metadata.getTitle().length();
+        }
+        if (checksum == 0) {
+            throw new IllegalStateException();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void report(boolean print, String name, long nanos, int tracks) {
+        if (print) {
+            System.out.printf("%-16s %8.3f ms/track%n", name, nanos / 1e6 / tracks);
+        }
+    }
+}
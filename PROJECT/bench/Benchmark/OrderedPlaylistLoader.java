@@ -0,0 +1,87 @@
+package Benchmark;
+
+import Model.LibraryCache;
+import Model.Song;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ucitava sve pjesme plejliste paralelno na ogranicenom broju niti i javlja ih slusatelju u redoslijedu
+ * plejliste. Plejer to vise ne radi (stavke se citaju tek kad zatrebaju), ali benchmarkovi ovako mjere
+ * propusnost citanja metapodataka i cache-a na cijeloj plejlisti.
+ */
+class OrderedPlaylistLoader {
+
+    /**
+     * Receives the songs of a playlist in playlist order. Called from the loader threads.
+     */
+    interface Listener {
+        void songLoaded(int index, Song song);
+
+        void loadingFinished(int songCount);
+    }
+
+    private final ExecutorService executor;
+    private final LibraryCache libraryCache;
+
+    OrderedPlaylistLoader(int threads, LibraryCache libraryCache) {
+        this.libraryCache = libraryCache;
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "playlist-loader-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    //Methods
+
+    void load(List<String> songPaths, Listener listener) {
+        Loading loading = new Loading(songPaths.size(), listener);
+        if (songPaths.isEmpty()) {
+            listener.loadingFinished(0);
+            return;
+        }
+        for (int i = 0; i < songPaths.size(); i++) {
+            int index = i;
+            String songPath = songPaths.get(i);
+            executor.execute(() -> loading.complete(index, new Song(songPath, libraryCache)));
+        }
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+
+    /**
+     * One playlist that is being loaded. Finished songs wait in their slot until every song
+     * before them is done, then the whole ready prefix is handed to the listener.
+     */
+    private static final class Loading {
+
+        private final Song[] slots;
+        private final Listener listener;
+        private int nextToPublish;
+
+        Loading(int songCount, Listener listener) {
+            this.slots = new Song[songCount];
+            this.listener = listener;
+        }
+
+        synchronized void complete(int index, Song song) {
+            slots[index] = song;
+            while (nextToPublish < slots.length && slots[nextToPublish] != null) {
+                listener.songLoaded(nextToPublish, slots[nextToPublish]);
+                slots[nextToPublish] = null; // the listener owns it now
+                nextToPublish++;
+            }
+            if (nextToPublish == slots.length) {
+                listener.loadingFinished(slots.length);
+            }
+        }
+    }
+}
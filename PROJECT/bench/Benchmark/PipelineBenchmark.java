@@ -0,0 +1,98 @@
+package Benchmark;
+
+import Model.LibraryCache;
+import Model.PlaybackEngine;
+import Model.Song;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provjerava PlaybackEngine u stvarnom vremenu: koliko memorije alociraju niti dekodera i izlaza
+ * u stabilnom stanju, da li pauza zaustavlja sat bez zatvaranja linije, koliko brzo izlaz nastavlja
+ * nakon resume, koliko sat odstupa od uzoraka koje je uredjaj odsvirao i koliko cesto javlja promjene,
+ * te broji underrun-e i zastoje dekodera.
+ *
+ * Run with: java -cp out:lib/* Benchmark.PipelineBenchmark
+ */
+public class PipelineBenchmark {
+
+    private static final int SECONDS = 8;
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("pipelineBenchmark");
+        Path file = directory.resolve("track.mp3");
+        try {
+            SyntheticMp3.write(file, SyntheticMp3.framesFor(SECONDS), true, "Track", "Artist", 0, 1);
+            Song song = new Song(file.toString(), new LibraryCache(directory.resolve("unused.cache")));
+            SimulatedDeviceOutput output = new SimulatedDeviceOutput(250);
+            PlaybackEngine engine = new PlaybackEngine(output, new PlaybackEngine.Listener() {
+                @Override
+                public void trackStarted(Song started) {
+                }
+
+                @Override
+                public void trackFinished(Song finished) {
+                }
+
+                @Override
+                public Song nextTrack(Song current) {
+                    return null;
+                }
+            });
+
+            AtomicInteger deliveries = new AtomicInteger();
+            engine.getClock().subscribe((playing, position) -> deliveries.incrementAndGet(), Runnable::run);
+            engine.play(song, 0);
+            Thread.sleep(1000); // warm-up, the ring is full after this
+            com.sun.management.ThreadMXBean threads =
+                    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long[] ids = stageThreadIds();
+            long[] before = threads.getThreadAllocatedBytes(ids);
+            Thread.sleep(2000);
+            long[] after = threads.getThreadAllocatedBytes(ids);
+            System.out.printf("steady state allocation over 2 s: decoder %d bytes, output %d bytes%n",
+                    after[0] - before[0], after[1] - before[1]);
+            System.out.printf("buffered %d of %d samples%n", engine.getBufferedSamples(), engine.getBufferCapacity());
+
+            long paused = engine.pause();
+            Thread.sleep(500);
+            long stillPaused = engine.getPositionInMilliseconds();
+            System.out.printf("pause at %d ms, after 500 ms paused %d ms%n", paused, stillPaused);
+
+            long framesBefore = output.getFramePosition();
+            long resumed = System.nanoTime();
+            engine.resume();
+            while (output.getFramePosition() == framesBefore) {
+                Thread.onSpinWait();
+            }
+            System.out.printf("resume to first played sample: %.2f ms%n", (System.nanoTime() - resumed) / 1e6);
+
+            Thread.sleep(1000);
+            long deviceMillis = output.getFramePosition() * 1000 / SyntheticMp3.SAMPLE_RATE;
+            System.out.printf("clock %d ms, device played %d ms, %d deliveries to the subscriber%n",
+                    engine.getClock().getPositionInMilliseconds(), deviceMillis, deliveries.get());
+            System.out.printf("underruns %d, decoder stalls %d, slowest frame %.1f us%n",
+                    engine.getUnderruns(), engine.getDecoderStalls(), engine.getMaxDecodeNanos() / 1e3);
+            engine.shutdown();
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(directory.resolve("unused.cache"));
+            Files.delete(directory);
+        }
+    }
+
+    private static long[] stageThreadIds() {
+        long[] ids = new long[2];
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("playback-decoder")) {
+                ids[0] = thread.getId();
+            } else if (thread.getName().equals("playback-output")) {
+                ids[1] = thread.getId();
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,88 @@
+package Benchmark;
+
+import Model.PlayQueue;
+import Model.PlaylistEntry;
+import Model.PlaylistStore;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mjeri operacije PlayQueue-a na plejlistama od 1000 i milion pjesama: otvaranje plejliste, sljedeca pjesma
+ * redom i nasumicno, prethodna pjesma iz historije, ukljucivanje shuffle-a usred plejliste, "play next"
+ * i pjesme koje se citaju unaprijed. Sve operacije trebaju trajati jednako bez obzira na velicinu plejliste.
+ *
+ * Run with: java -cp out:lib/* Benchmark.PlayQueueBenchmark [--out results.json]
+ */
+public class PlayQueueBenchmark {
+
+    private static final int[] SIZES = {1000, 1_000_000};
+
+    public static void main(String[] args) throws Exception {
+        Path resultFile = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--out") && i + 1 < args.length) {
+                resultFile = Paths.get(args[++i]);
+            }
+        }
+
+        Harness harness = new Harness(500);
+        for (int size : SIZES) {
+            PlaylistStore playlist = new PlaylistStore();
+            for (int i = 0; i < size; i++) {
+                playlist.add("/music/" + (i / 12) + "/" + i + ".mp3", "Song " + i, "Artist " + i / 60, 200);
+            }
+            playlist.trimToSize();
+            measure(harness, playlist);
+        }
+
+        if (resultFile != null) {
+            harness.writeJson(resultFile);
+            System.out.println("Results written to " + resultFile.toAbsolutePath());
+        }
+    }
+
+    private static void measure(Harness harness, List<PlaylistEntry> playlist) throws Exception {
+        String size = String.valueOf(playlist.size());
+        PlayQueue queue = new PlayQueue(new Random(42));
+
+        harness.singleShot("queue.reset", Harness.params("size", size, "shuffle", "true"), TimeUnit.MICROSECONDS,
+                5, 20, () -> {
+                    queue.setShuffle(true);
+                    return queue.reset(playlist).getDurationInSeconds();
+                });
+
+        for (boolean shuffle : new boolean[]{false, true}) {
+            queue.setShuffle(shuffle);
+            queue.reset(playlist);
+            harness.averageTime("queue.next", Harness.params("size", size, "shuffle", String.valueOf(shuffle)),
+                    TimeUnit.NANOSECONDS, 3, 5, () -> queue.next(false).getDurationInSeconds());
+        }
+
+        // back through the history and forward again
+        int[] steps = {0};
+        harness.averageTime("queue.previous", Harness.params("size", size), TimeUnit.NANOSECONDS, 3, 5, () -> {
+            PlaylistEntry entry = steps[0]++ % 200 < 100 ? queue.previous() : queue.next(false);
+            return entry.getDurationInSeconds();
+        });
+
+        boolean[] on = {false};
+        harness.averageTime("queue.toggleShuffle", Harness.params("size", size), TimeUnit.NANOSECONDS, 3, 5, () -> {
+            on[0] = !on[0];
+            queue.setShuffle(on[0]);
+            return queue.getCurrentIndex();
+        });
+
+        PlaylistEntry queued = playlist.get(playlist.size() / 2);
+        harness.averageTime("queue.playNext", Harness.params("size", size), TimeUnit.NANOSECONDS, 3, 5, () -> {
+            queue.playNext(queued);
+            return queue.next(false).getDurationInSeconds();
+        });
+
+        harness.averageTime("queue.upcoming", Harness.params("size", size), TimeUnit.NANOSECONDS, 3, 5,
+                () -> queue.upcoming(3).size());
+    }
+}
@@ -0,0 +1,86 @@
+package Benchmark;
+
+import Model.LibraryCache;
+import Model.Song;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Mjeri propusnost OrderedPlaylistLoader-a (pjesama u sekundi) za razlicit broj niti,
+ * i vrijeme do trenutka kad je prva pjesma spremna za sviranje.
+ *
+ * Run with: java -cp out:lib/* Benchmark.PlaylistLoadBenchmark [tracks]
+ */
+public class PlaylistLoadBenchmark {
+
+    private static final int SECONDS_PER_TRACK = 60;
+
+    public static void main(String[] args) throws Exception {
+        Logger.getLogger("org.jaudiotagger").setLevel(Level.OFF);
+        int tracks = args.length > 0 ? Integer.parseInt(args[0]) : 120;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        Path directory = Files.createTempDirectory("playlistBenchmark");
+        try {
+            List<String> paths = new ArrayList<>();
+            for (int i = 0; i < tracks; i++) {
+                Path file = directory.resolve("track" + i + ".mp3");
+                SyntheticMp3.write(file, SyntheticMp3.framesFor(SECONDS_PER_TRACK), i % 2 == 1,
+                        "Track " + i, "Artist " + (i % 10), 1024, i);
+                paths.add(file.toString());
+            }
+
+            run(paths, 1, false); // warm up
+            System.out.printf("%d tracks, %d cores%n", tracks, cores);
+            System.out.println("threads  tracks/s  first track ms  total ms");
+            for (int threads = 1; threads <= cores; threads *= 2) {
+                run(paths, threads, true);
+            }
+            if (Integer.bitCount(cores) != 1) {
+                run(paths, cores, true);
+            }
+        } finally {
+            for (Path file : Files.newDirectoryStream(directory)) {
+                Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static void run(List<String> paths, int threads, boolean print) throws InterruptedException {
+        // an empty cache that is never saved, so every run parses every file
+        OrderedPlaylistLoader loader = new OrderedPlaylistLoader(threads, new LibraryCache(Path.of("unused.cache")));
+        CountDownLatch finished = new CountDownLatch(1);
+        long[] firstTrack = new long[1];
+        long start = System.nanoTime();
+
+        loader.load(paths, new OrderedPlaylistLoader.Listener() {
+            @Override
+            public void songLoaded(int index, Song song) {
+                if (index == 0) {
+                    firstTrack[0] = System.nanoTime() - start;
+                }
+            }
+
+            @Override
+            public void loadingFinished(int songCount) {
+                finished.countDown();
+            }
+        });
+        finished.await();
+        long total = System.nanoTime() - start;
+        loader.shutdown();
+
+        if (print) {
+            System.out.printf("%7d  %8.1f  %14.1f  %8.1f%n",
+                    threads, paths.size() / (total / 1e9), firstTrack[0] / 1e6, total / 1e6);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package Benchmark;
+
+import Model.LibraryCache;
+import Model.PlaylistEntry;
+import Model.PlaylistStore;
+import Model.Song;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Mjeri koliko memorije zauzima plejlista od milion stavki kao lista PlaylistEntry objekata
+ * i kao PlaylistStore, koliko traje dodavanje i citanje stavki, te koliko zauzima jedna ucitana pjesma (Song).
+ * Memorija se mjeri kao razlika zauzetog heap-a nakon GC-a, pa je rezultat priblizan.
+ *
+ * Run with: java -cp out:lib/* Benchmark.PlaylistMemoryBenchmark [entries]
+ */
+public class PlaylistMemoryBenchmark {
+
+    private static final int SONGS_PER_ALBUM = 12;
+    private static final int ALBUMS_PER_ARTIST = 5;
+    private static final int LOADED_SONGS = 2000;
+
+    public static void main(String[] args) throws Exception {
+        Logger.getLogger("org.jaudiotagger").setLevel(Level.OFF);
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        long before = usedHeap();
+        long start = System.nanoTime();
+        List<PlaylistEntry> objects = new ArrayList<>();
+        for (int i = 0; i < entries; i++) {
+            objects.add(new PlaylistEntry(path(i), title(i), artist(i), 180 + i % 120));
+        }
+        long objectsNanos = System.nanoTime() - start;
+        long objectsBytes = usedHeap() - before;
+        report("List<PlaylistEntry>", entries, objectsBytes, objectsNanos);
+        objects = null;
+
+        before = usedHeap();
+        start = System.nanoTime();
+        PlaylistStore store = new PlaylistStore();
+        for (int i = 0; i < entries; i++) {
+            store.add(path(i), title(i), artist(i), 180 + i % 120);
+        }
+        store.trimToSize();
+        long storeNanos = System.nanoTime() - start;
+        long storeBytes = usedHeap() - before;
+        report("PlaylistStore", entries, storeBytes, storeNanos);
+
+        start = System.nanoTime();
+        long characters = 0;
+        for (int i = 0; i < entries; i++) {
+            characters += store.getPath(i).length() + store.getTitle(i).length();
+        }
+        System.out.printf("PlaylistStore read of every path and title: %.0f ns per entry (%d chars)%n",
+                (System.nanoTime() - start) / (double) entries, characters);
+        if (!store.getPath(entries - 1).equals(path(entries - 1)) || !store.getTitle(7).equals(title(7))
+                || !store.getArtist(7).equals(artist(7))) {
+            throw new IllegalStateException("PlaylistStore returned a different entry");
+        }
+
+        // 100 store entries touched by the player and the visible rows
+        before = usedHeap();
+        for (int i = 0; i < 100; i++) {
+            store.get(i * (entries / 100));
+        }
+        System.out.printf("100 entries materialized: %d KB more%n", (usedHeap() - before) / 1024);
+
+        loadedSongs();
+    }
+
+    private static void loadedSongs() throws Exception {
+        Path directory = Files.createTempDirectory("playlistMemoryBenchmark");
+        try {
+            LibraryCache cache = new LibraryCache(directory.resolve("unused.cache"));
+            List<String> paths = new ArrayList<>();
+            for (int i = 0; i < LOADED_SONGS; i++) {
+                Path file = directory.resolve("s" + i + ".mp3");
+                SyntheticMp3.write(file, 2, false, title(i), artist(i), 0, i);
+                paths.add(file.toString());
+            }
+            for (String path : paths) {
+                cache.read(path); // the files are parsed once, the songs below are built from the cache
+            }
+            long before = usedHeap();
+            List<Song> songs = new ArrayList<>(LOADED_SONGS);
+            for (String path : paths) {
+                songs.add(new Song(path, cache));
+            }
+            System.out.printf("Song: %d bytes per loaded song with its metadata, without the path%n",
+                    (usedHeap() - before) / LOADED_SONGS);
+            if (songs.get(0).getSongArtist() != songs.get(1).getSongArtist()) { // read from two records of the cache
+                throw new IllegalStateException("artists are not shared");
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private static String path(int i) {
+        int album = i / SONGS_PER_ALBUM;
+        return "/home/user/Music/" + artist(i) + "/Album " + album + "/" + (i % SONGS_PER_ALBUM + 1) + " " + title(i) + ".mp3";
+    }
+
+    private static String title(int i) {
+        return "Song Title " + i;
+    }
+
+    private static String artist(int i) {
+        return "Artist " + (i / (SONGS_PER_ALBUM * ALBUMS_PER_ARTIST)) % 10_000;
+    }
+
+    private static void report(String layout, int entries, long bytes, long nanos) {
+        System.out.printf("%-20s %8d entries: %6.1f MB (%d bytes per entry), built in %d ms%n", layout, entries,
+                bytes / 1e6, bytes / entries, nanos / 1_000_000);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
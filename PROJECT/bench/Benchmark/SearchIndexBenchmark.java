@@ -0,0 +1,140 @@
+package Benchmark;
+
+import Model.PlaylistEntry;
+import Model.SearchIndex;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mjeri SearchIndex na sinteticnoj biblioteci (po defaultu 500 000 pjesama): vrijeme gradjenja indeksa
+ * i kasnjenje pretrage dok korisnik tipka, slovo po slovo, za upise koji pogadjaju pjesme,
+ * za kratke prefikse sa puno pogodaka i za upise bez pogodaka.
+ * Metapodaci se generiraju u memoriji (rijeci od slogova, cesce rijeci se ponavljaju vise), bez mp3 fajlova.
+ *
+ * Run with: java -cp out:lib/* Benchmark.SearchIndexBenchmark [tracks] [--out results.json]
+ */
+public class SearchIndexBenchmark {
+
+    private static final String[] SYLLABLES = {"ka", "lo", "mi", "ne", "ra", "to", "su", "ve", "di", "jo",
+            "ba", "ze", "pu", "gri", "sta", "lu", "mo", "ni", "te", "ko", "an", "el", "or", "is"};
+    private static final int WORDS = 30_000;
+    private static final int TYPING_SESSIONS = 200;
+
+    private static volatile int resultCount; // consumes the results, so the search cannot be dropped
+
+    public static void main(String[] args) throws Exception {
+        int tracks = 500_000;
+        Path resultFile = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--out") && i + 1 < args.length) {
+                resultFile = Paths.get(args[++i]);
+            } else {
+                tracks = Integer.parseInt(args[i]);
+            }
+        }
+
+        Random random = new Random(42);
+        String[] words = new String[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            StringBuilder word = new StringBuilder();
+            int syllables = 1 + random.nextInt(3);
+            for (int s = 0; s < syllables; s++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            word.append(i % 7 == 0 ? "" : String.valueOf((char) ('a' + i % 26))); // many different words
+            words[i] = word.toString();
+        }
+        String[][] songs = new String[tracks][]; // title, artist, album
+        PlaylistEntry[] entries = new PlaylistEntry[tracks];
+        for (int i = 0; i < tracks; i++) {
+            songs[i] = new String[]{phrase(words, random, 1 + random.nextInt(4)),
+                    phrase(words, random, 1 + random.nextInt(2)), phrase(words, random, 1 + random.nextInt(3))};
+            entries[i] = new PlaylistEntry("/music/" + (i / 1000) + "/" + i + ".mp3", songs[i][0], songs[i][1], 200);
+        }
+        String tracksParam = String.valueOf(tracks);
+
+        Harness harness = new Harness(1000);
+        SearchIndex[] built = new SearchIndex[1];
+        harness.singleShot("search.build", Harness.params("tracks", tracksParam), TimeUnit.MILLISECONDS, 1, 3, () -> {
+            SearchIndex index = new SearchIndex();
+            for (int i = 0; i < songs.length; i++) {
+                index.add(entries[i], songs[i][0], songs[i][1], songs[i][2]);
+            }
+            built[0] = index;
+            return index.size();
+        });
+        SearchIndex index = built[0];
+        System.out.printf("%d songs, %d words in the index%n", index.size(), index.getTermCount());
+
+        // typing "artist title" of random songs, one search per key
+        List<String> typed = new ArrayList<>();
+        for (int session = 0; session < TYPING_SESSIONS; session++) {
+            String[] song = songs[random.nextInt(tracks)];
+            String query = song[1].split(" ")[0] + " " + song[0].split(" ")[0];
+            for (int length = 1; length <= query.length(); length++) {
+                typed.add(query.substring(0, length));
+            }
+        }
+        measure(harness, index, "search.typing", tracksParam, typed);
+
+        // one or two letters, where most of the library matches and the limit stops the search
+        List<String> shortPrefixes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String syllable = SYLLABLES[random.nextInt(SYLLABLES.length)];
+            shortPrefixes.add(i % 2 == 0 ? syllable.substring(0, 1) : syllable);
+        }
+        measure(harness, index, "search.shortPrefix", tracksParam, shortPrefixes);
+
+        // common words that never appear together, so every candidate is checked and rejected
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            missing.add(words[random.nextInt(50)] + " zzz" + i);
+            missing.add(SYLLABLES[random.nextInt(SYLLABLES.length)] + " " + words[random.nextInt(WORDS)] + "q");
+        }
+        measure(harness, index, "search.noMatch", tracksParam, missing);
+
+        if (resultFile != null) {
+            harness.writeJson(resultFile);
+            System.out.println("Results written to " + resultFile.toAbsolutePath());
+        }
+    }
+
+    private static void measure(Harness harness, SearchIndex index, String benchmark, String tracks,
+                                List<String> queries) throws Exception {
+        int warmups = queries.size() * 5; // the JIT needs a while on a single core
+        long[] nanos = new long[queries.size()];
+        int[] next = {-warmups};
+        harness.latency(benchmark, Harness.params("tracks", tracks), TimeUnit.MICROSECONDS, warmups, queries.size(), () -> {
+            int i = next[0]++;
+            String query = queries.get(Math.floorMod(i, queries.size()));
+            long started = System.nanoTime();
+            resultCount = index.search(query).size();
+            long elapsed = System.nanoTime() - started;
+            if (i >= 0) {
+                nanos[i] = elapsed;
+            }
+            return elapsed;
+        });
+        Arrays.sort(nanos);
+        System.out.printf("  p50 %.1f us, p99 %.1f us, max %.1f us%n", nanos[nanos.length / 2] / 1e3,
+                nanos[(int) (nanos.length * 0.99)] / 1e3, nanos[nanos.length - 1] / 1e3);
+    }
+
+    private static String phrase(String[] words, Random random, int count) {
+        StringBuilder phrase = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                phrase.append(' ');
+            }
+            double skew = random.nextDouble();
+            phrase.append(words[(int) (words.length * skew * skew * skew)]); // a few words are very common
+        }
+        return phrase.toString();
+    }
+}
@@ -0,0 +1,121 @@
+package Benchmark;
+
+import Model.FrameIndex;
+import Model.Mp3MetadataReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Mjeri brzinu i tocnost premotavanja preko FrameIndex-a na CBR i VBR fajlu,
+ * i preko Xing tablice (TOC) bez skeniranja frejmova,
+ * te usporeduje tocnost sa starom procjenom (vrijeme / trajanje * broj frejmova).
+ *
+ * Run with: java -cp out:lib/* Benchmark.SeekBenchmark
+ */
+public class SeekBenchmark {
+
+    private static final int SECONDS = 300;
+    private static final int SEEKS = 10_000;
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("seekBenchmark");
+        try {
+            run(directory, "CBR", false);
+            run(directory, "VBR", true);
+        } finally {
+            for (Path file : Files.newDirectoryStream(directory)) {
+                Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static void run(Path directory, String name, boolean vbr) throws IOException {
+        Path file = directory.resolve(name + ".mp3");
+        int frames = SyntheticMp3.framesFor(SECONDS);
+        long[] truth = SyntheticMp3.write(file, frames, vbr, name, "Benchmark", 32 * 1024, 42);
+
+        long[] scanTimes = new long[7];
+        FrameIndex index = null;
+        for (int i = 0; i < scanTimes.length; i++) {
+            long start = System.nanoTime();
+            index = FrameIndex.scan(file.toString());
+            scanTimes[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(scanTimes);
+
+        if (index.getFrameCount() != frames) {
+            throw new IllegalStateException(name + ": indexed " + index.getFrameCount() + " of " + frames + " frames");
+        }
+
+        Random random = new Random(7);
+        ByteBuffer header = ByteBuffer.allocate(4);
+        FrameIndex table = Mp3MetadataReader.read(file.toString()).getFrameIndex();
+        long[] seekTimes = new long[SEEKS];
+        long[] tableSeekTimes = new long[SEEKS];
+        int wrongOffsets = 0;
+        int tableMissedFrames = 0;
+        double tableErrorSum = 0;
+        long tableErrorMax = 0;
+        double legacyErrorSum = 0;
+        long legacyErrorMax = 0;
+        int durationInSeconds = (int) (index.getDurationInMilliseconds() / 1000);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int i = 0; i < SEEKS; i++) {
+                long target = (long) (random.nextDouble() * index.getDurationInMilliseconds());
+
+                long start = System.nanoTime();
+                int frame = index.frameAtMillis(target);
+                long offset = index.offsetOfFrame(frame);
+                header.clear();
+                channel.read(header, offset);
+                seekTimes[i] = System.nanoTime() - start;
+
+                if (offset != truth[frame] || (header.getInt(0) >>> 21) != 0x7FF) {
+                    wrongOffsets++;
+                }
+
+                start = System.nanoTime();
+                long tableOffset = table.seekOffset(table.frameAtMillis(target), channel);
+                tableSeekTimes[i] = System.nanoTime() - start;
+                int landed = Arrays.binarySearch(truth, tableOffset);
+                if (landed < 0) {
+                    tableMissedFrames++;
+                } else {
+                    long error = Math.abs(index.millisOfFrame(landed) - target);
+                    tableErrorSum += error;
+                    tableErrorMax = Math.max(tableErrorMax, error);
+                }
+
+                // the old estimate from MusicPlayer.playCurrentSong
+                long legacyBytes = (long) ((target / (double) durationInSeconds) * frames);
+                long legacyMillis = index.millisOfFrame(index.frameAtOffset(legacyBytes));
+                long error = Math.abs(legacyMillis - target);
+                legacyErrorSum += error;
+                legacyErrorMax = Math.max(legacyErrorMax, error);
+            }
+        }
+        Arrays.sort(seekTimes);
+        Arrays.sort(tableSeekTimes);
+
+        long frameMillis = index.millisOfFrame(1);
+        System.out.printf("%s: %d frames, %d KB index scan median %.2f ms%n",
+                name, frames, Files.size(file) / 1024, scanTimes[scanTimes.length / 2] / 1e6);
+        System.out.printf("  seek latency p50 %.1f us, p99 %.1f us, max %.1f us%n",
+                seekTimes[SEEKS / 2] / 1e3, seekTimes[SEEKS * 99 / 100] / 1e3, seekTimes[SEEKS - 1] / 1e3);
+        System.out.printf("  frame index: %d wrong offsets of %d, error <= %d ms (one frame)%n",
+                wrongOffsets, SEEKS, frameMillis);
+        System.out.printf("  Xing/Info table: p50 %.1f us, %d seeks off a frame start, mean error %.0f ms, max error %d ms%n",
+                tableSeekTimes[SEEKS / 2] / 1e3, tableMissedFrames, tableErrorSum / SEEKS, tableErrorMax);
+        System.out.printf("  old estimate: mean error %.0f ms, max error %d ms%n",
+                legacyErrorSum / SEEKS, legacyErrorMax);
+    }
+}
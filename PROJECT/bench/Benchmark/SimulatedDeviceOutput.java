@@ -0,0 +1,161 @@
+package Benchmark;
+
+import Model.AudioOutput;
+
+/**
+ * Izlaz koji se ponasa kao zvucna kartica: "svira" uzorke u stvarnom vremenu iz ogranicenog buffera,
+ * a write blokira dok u bufferu nema mjesta. Ne treba mu zvucna kartica, pa radi i na serveru.
+ * Broji uzorke tisine koje bi kartica odsvirala jer je buffer ostao prazan izmedju dva pisanja (underrun).
+ */
+public class SimulatedDeviceOutput implements AudioOutput {
+
+    private final int bufferMilliseconds;
+    private int sampleRate;
+    private int channels;
+    private boolean open;
+    private boolean paused;
+    private long written;        // sample frames
+    private long played;
+    private long lastUpdate;     // nanoTime up to which playback was simulated
+    private long emptySince = -1; // nanoTime at which the buffer ran empty
+    private long underrunFrames;
+
+    public SimulatedDeviceOutput(int bufferMilliseconds) {
+        this.bufferMilliseconds = bufferMilliseconds;
+    }
+
+    public synchronized long getUnderrunFrames() {
+        return underrunFrames;
+    }
+
+    public synchronized long getFramesWritten() {
+        return written;
+    }
+
+    @Override
+    public synchronized void open(int sampleRate, int channels) {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        open = true;
+        paused = false;
+        written = 0;
+        played = 0;
+        lastUpdate = System.nanoTime();
+        // the time the previous line was closed is still silence, so emptySince is kept
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public synchronized int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public synchronized int getChannels() {
+        return channels;
+    }
+
+    @Override
+    public void write(short[] samples, int offset, int length) {
+        long frames = length / channels;
+        long capacity = (long) sampleRate * bufferMilliseconds / 1000;
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                update();
+                if (!open) {
+                    return;
+                }
+                if (written - played + frames <= capacity) {
+                    if (emptySince >= 0) {
+                        underrunFrames += (System.nanoTime() - emptySince) * sampleRate / 1_000_000_000L;
+                        emptySince = -1;
+                    }
+                    written += frames;
+                    return;
+                }
+                waitNanos = (written - played + frames - capacity) * 1_000_000_000L / sampleRate;
+            }
+            sleep(waitNanos);
+        }
+    }
+
+    @Override
+    public synchronized long getFramePosition() {
+        update();
+        return played;
+    }
+
+    @Override
+    public synchronized void pause() {
+        update();
+        paused = true;
+    }
+
+    @Override
+    public synchronized void resume() {
+        update();
+        paused = false;
+        lastUpdate = System.nanoTime();
+    }
+
+    @Override
+    public void drain() {
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                update();
+                if (!open || paused || played == written) {
+                    return;
+                }
+                waitNanos = (written - played) * 1_000_000_000L / sampleRate;
+            }
+            sleep(waitNanos);
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        update();
+        written = played;
+    }
+
+    @Override
+    public synchronized void close() {
+        update();
+        open = false;
+    }
+
+    /**
+     * Plays, in simulated time, everything the device would have played since the last update.
+     */
+    private void update() {
+        long now = System.nanoTime();
+        if (open && !paused) {
+            long frames = (now - lastUpdate) * sampleRate / 1_000_000_000L;
+            long queued = written - played;
+            if (frames >= queued) {
+                if (queued > 0 || (emptySince < 0 && written > 0)) {
+                    emptySince = lastUpdate + queued * 1_000_000_000L / sampleRate;
+                }
+                played = written;
+            } else {
+                played += frames;
+            }
+            // advance only by whole frames so rounding does not lose time
+            lastUpdate += frames * 1_000_000_000L / sampleRate;
+        }
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            Thread.sleep(Math.max(1, nanos / 1_000_000), 0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
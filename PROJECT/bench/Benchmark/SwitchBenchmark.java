@@ -0,0 +1,94 @@
+package Benchmark;
+
+import Model.LibraryCache;
+import Model.MusicPlayer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mjeri koliko traje prebacivanje pjesme preko MusicPlayer komandi, od klika do prvog uzorka na izlazu,
+ * za pojedinacne klikove na next i za brze nizove next/next/seek koji se spajaju u jedno prebacivanje.
+ * Plejer radi bez prozora, sa SimulatedDeviceOutput umjesto zvucne kartice.
+ *
+ * Run with: java -cp out:lib/* Benchmark.SwitchBenchmark
+ */
+public class SwitchBenchmark {
+
+    private static final int SONGS = 20;
+    private static final int SECONDS = 30;
+    private static final int SWITCHES = 20;
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("switchBenchmark");
+        List<Path> files = new ArrayList<>();
+        try {
+            List<String> lines = new ArrayList<>();
+            for (int i = 0; i < SONGS; i++) {
+                Path file = directory.resolve("song" + i + ".mp3");
+                SyntheticMp3.write(file, SyntheticMp3.framesFor(SECONDS), i % 2 == 0, "Song " + i, "Artist", 0, i);
+                files.add(file);
+                lines.add(file.toString());
+            }
+            Path playlistFile = directory.resolve("playlist.txt");
+            files.add(playlistFile);
+            Files.write(playlistFile, lines);
+
+            MusicPlayer player = new MusicPlayer(null, new SimulatedDeviceOutput(250),
+                    new LibraryCache(directory.resolve("unused.cache")));
+            player.loadPlaylist(playlistFile.toFile());
+            awaitSwitch(player, -1);
+
+            // single clicks, each one waits for the song to start
+            long[] single = new long[SWITCHES];
+            for (int i = 0; i < SWITCHES; i++) {
+                long before = player.getLastSwitchLatencyNanos();
+                player.nextSong();
+                single[i] = awaitSwitch(player, before);
+            }
+            report("single next", single);
+
+            // bursts of next, next, next, seek
+            long[] burst = new long[SWITCHES];
+            for (int i = 0; i < SWITCHES; i++) {
+                long before = player.getLastSwitchLatencyNanos();
+                player.nextSong();
+                player.nextSong();
+                player.nextSong();
+                player.seekTo(10);
+                burst[i] = awaitSwitch(player, before);
+            }
+            report("next x3 + seek", burst);
+            System.out.printf("merged commands: %d, song %s at %d s, max switch %.1f ms%n",
+                    player.getMergedCommands(), player.getCurrentSong().getSongTitle(),
+                    player.getPlaybackPositionInSeconds(), player.getMaxSwitchLatencyNanos() / 1e6);
+            player.shutdown();
+        } finally {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory.resolve("unused.cache"));
+            Files.delete(directory);
+        }
+    }
+
+    private static long awaitSwitch(MusicPlayer player, long previous) throws InterruptedException {
+        while (player.getLastSwitchLatencyNanos() == previous) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(50); // let events of the old song settle
+        return player.getLastSwitchLatencyNanos();
+    }
+
+    private static void report(String name, long[] latencies) {
+        long sum = 0;
+        long max = 0;
+        for (long latency : latencies) {
+            sum += latency;
+            max = Math.max(max, latency);
+        }
+        System.out.printf("%-16s mean %6.2f ms, max %6.2f ms%n", name, sum / 1e6 / latencies.length, max / 1e6);
+    }
+}
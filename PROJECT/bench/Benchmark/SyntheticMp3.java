@@ -0,0 +1,188 @@
+package Benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Generates MP3 files for the benchmarks so that no real music has to be shipped with the repo.
+ * Frames are valid MPEG1 Layer III frames (44.1 kHz, joint stereo) with an empty payload,
+ * which the decoder plays back as silence. Like LAME, files start with a Xing (VBR) or Info (CBR)
+ * frame with a TOC and a LAME tag carrying the encoder delay and padding.
+ */
+public final class SyntheticMp3 {
+
+    public static final int SAMPLE_RATE = 44100;
+    public static final int SAMPLES_PER_FRAME = 1152;
+    public static final int ENCODER_DELAY = 576;
+    public static final int ENCODER_PADDING = 1000;
+    private static final int CBR_BITRATE_INDEX = 9; // 128 kbps
+    private static final int[] BITRATES = {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320};
+
+    private SyntheticMp3() {
+    }
+
+    /**
+     * Number of frames needed for the given duration.
+     */
+    public static int framesFor(int seconds) {
+        return (int) ((long) seconds * SAMPLE_RATE / SAMPLES_PER_FRAME);
+    }
+
+    /**
+     * Writes an mp3 file and returns the byte offset of every audio frame, as the ground truth
+     * for index and seek checks.
+     *
+     * @param path       where to write the file
+     * @param frames     number of audio frames
+     * @param vbr        random bitrate per frame (with a Xing header) instead of constant 128 kbps
+     * @param title      TIT2 frame of the ID3v2 tag
+     * @param artist     TPE1 frame of the ID3v2 tag
+     * @param tagPadding extra zero bytes in the ID3v2 tag, to simulate large tags
+     * @param seed       seed for the VBR bitrate sequence
+     */
+    public static long[] write(Path path, int frames, boolean vbr, String title, String artist,
+                               int tagPadding, long seed) throws IOException {
+        return write(path, frames, vbr, true, title, artist, null, null, tagPadding, seed);
+    }
+
+    /**
+     * @param infoFrame write the Xing/Info frame; without it readers have to scan the frames
+     * @param album     TALB frame, or null
+     * @param artwork   image for an APIC frame, or null
+     */
+    public static long[] write(Path path, int frames, boolean vbr, boolean infoFrame, String title, String artist,
+                               String album, byte[] artwork, int tagPadding, long seed) throws IOException {
+        Random random = new Random(seed);
+        int[] lengths = new int[frames];
+        int[] headers = new int[frames];
+        int paddingRest = 0;
+        for (int i = 0; i < frames; i++) {
+            int index = vbr ? 1 + random.nextInt(14) : CBR_BITRATE_INDEX;
+            int slots = 144 * BITRATES[index] * 1000;
+            paddingRest += slots % SAMPLE_RATE;
+            int padding = 0;
+            if (paddingRest >= SAMPLE_RATE) {
+                padding = 1;
+                paddingRest -= SAMPLE_RATE;
+            }
+            lengths[i] = slots / SAMPLE_RATE + padding;
+            headers[i] = header(index, padding);
+        }
+
+        byte[] tag = id3v2(title, artist, album, artwork, tagPadding);
+        byte[] xing = infoFrame ? xingFrame(lengths, vbr) : new byte[0];
+        long[] offsets = new long[frames];
+        long position = tag.length + xing.length;
+
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), 64 * 1024)) {
+            out.write(tag);
+            out.write(xing);
+            byte[] frame = new byte[1441];
+            for (int i = 0; i < frames; i++) {
+                writeInt(frame, 0, headers[i]);
+                out.write(frame, 0, lengths[i]);
+                offsets[i] = position;
+                position += lengths[i];
+            }
+        }
+        return offsets;
+    }
+
+    private static int header(int bitrateIndex, int padding) {
+        // sync, MPEG1, Layer III, no CRC | bitrate | 44.1 kHz | padding | joint stereo, original
+        return 0xFFFB0000 | (bitrateIndex << 12) | (padding << 9) | 0x44;
+    }
+
+    private static byte[] xingFrame(int[] lengths, boolean vbr) {
+        byte[] frame = new byte[417]; // 128 kbps frame
+        int frames = lengths.length;
+        long totalBytes = frame.length; // counted from the start of this frame
+        long[] starts = new long[frames];
+        for (int i = 0; i < frames; i++) {
+            starts[i] = totalBytes;
+            totalBytes += lengths[i];
+        }
+
+        writeInt(frame, 0, header(CBR_BITRATE_INDEX, 0));
+        int offset = 4 + 32;
+        writeInt(frame, offset, vbr ? 0x58696E67 : 0x496E666F); // "Xing" / "Info"
+        writeInt(frame, offset + 4, 0xF);  // frames, bytes, TOC and quality present
+        writeInt(frame, offset + 8, frames);
+        writeInt(frame, offset + 12, (int) totalBytes);
+        for (int i = 0; i < 100; i++) {
+            long start = starts[Math.min(frames - 1, (int) ((long) i * frames / 100))];
+            frame[offset + 16 + i] = (byte) Math.min(255, start * 256 / totalBytes);
+        }
+        writeInt(frame, offset + 116, 100); // quality
+
+        int lame = offset + 120;
+        byte[] version = "LAME3.100".getBytes(StandardCharsets.ISO_8859_1);
+        System.arraycopy(version, 0, frame, lame, version.length);
+        frame[lame + 21] = (byte) (ENCODER_DELAY >> 4);
+        frame[lame + 22] = (byte) (((ENCODER_DELAY & 0xF) << 4) | (ENCODER_PADDING >> 8));
+        frame[lame + 23] = (byte) ENCODER_PADDING;
+        return frame;
+    }
+
+    private static byte[] id3v2(String title, String artist, String album, byte[] artwork, int padding) throws IOException {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        textFrame(frames, "TIT2", title);
+        textFrame(frames, "TPE1", artist);
+        if (album != null) {
+            textFrame(frames, "TALB", album);
+        }
+        if (artwork != null) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            body.write(0); // ISO-8859-1
+            body.write("image/png".getBytes(StandardCharsets.ISO_8859_1));
+            body.write(0);
+            body.write(3); // front cover
+            body.write(0); // empty description
+            body.write(artwork);
+            frame(frames, "APIC", body.toByteArray());
+        }
+        frames.write(new byte[padding]);
+
+        byte[] body = frames.toByteArray();
+        byte[] tag = new byte[10 + body.length];
+        tag[0] = 'I';
+        tag[1] = 'D';
+        tag[2] = '3';
+        tag[3] = 3; // ID3v2.3
+        int size = body.length;
+        tag[6] = (byte) ((size >> 21) & 0x7F);
+        tag[7] = (byte) ((size >> 14) & 0x7F);
+        tag[8] = (byte) ((size >> 7) & 0x7F);
+        tag[9] = (byte) (size & 0x7F);
+        System.arraycopy(body, 0, tag, 10, body.length);
+        return tag;
+    }
+
+    private static void textFrame(ByteArrayOutputStream out, String id, String text) throws IOException {
+        byte[] value = text.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] body = new byte[value.length + 1];
+        System.arraycopy(value, 0, body, 1, value.length); // encoding byte 0 = ISO-8859-1
+        frame(out, id, body);
+    }
+
+    private static void frame(ByteArrayOutputStream out, String id, byte[] body) throws IOException {
+        byte[] header = new byte[10];
+        System.arraycopy(id.getBytes(StandardCharsets.ISO_8859_1), 0, header, 0, 4);
+        writeInt(header, 4, body.length);
+        out.write(header);
+        out.write(body);
+    }
+
+    private static void writeInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+}
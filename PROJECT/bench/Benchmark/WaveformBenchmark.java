@@ -0,0 +1,84 @@
+package Benchmark;
+
+import Model.LibraryCache;
+import Model.Song;
+import Model.Waveform;
+import Model.WaveformCache;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Mjeri pregled talasnog oblika (Waveform) pjesme od 5 minuta: racunanje dekodiranjem sa jednom radnom niti
+ * i sa jednom niti po jezgri, citanje gotovog peak fajla i uzimanje pregleda iz memorije.
+ *
+ * Run with: java -cp out:lib/* Benchmark.WaveformBenchmark [--out results.json]
+ */
+public class WaveformBenchmark {
+
+    private static final int SECONDS = 300;
+
+    public static void main(String[] args) throws Exception {
+        Logger.getLogger("org.jaudiotagger").setLevel(Level.OFF);
+        Path resultFile = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--out") && i + 1 < args.length) {
+                resultFile = Paths.get(args[++i]);
+            }
+        }
+
+        Path directory = Files.createTempDirectory("waveformBenchmark");
+        try {
+            Path file = directory.resolve("song.mp3");
+            SyntheticMp3.write(file, SyntheticMp3.framesFor(SECONDS), false, "Song", "Artist", 0, 1);
+            Song song = new Song(file.toString(), new LibraryCache(directory.resolve("unused.cache")));
+            String seconds = String.valueOf(SECONDS);
+            Harness harness = new Harness(1000);
+
+            int cores = Runtime.getRuntime().availableProcessors();
+            for (int threads : cores > 1 ? new int[]{1, cores} : new int[]{1}) {
+                int[] run = {0};
+                harness.singleShot("waveform.compute", Harness.params("seconds", seconds, "threads", String.valueOf(threads)),
+                        TimeUnit.MILLISECONDS, 1, 3, () -> {
+                            // a new folder every time, so nothing is read from an earlier peak file
+                            WaveformCache cache = new WaveformCache(directory.resolve("peaks" + threads + "-" + run[0]++), threads);
+                            try {
+                                return cache.load(song).get().getBucketCount();
+                            } finally {
+                                cache.shutdown();
+                            }
+                        });
+            }
+
+            Path peaks = directory.resolve("peaks1-0");
+            WaveformCache cache = new WaveformCache(peaks, 1);
+            try (Stream<Path> files = Files.list(peaks)) {
+                System.out.println("Peak file: " + Files.size(files.findFirst().orElseThrow()) + " bytes");
+            }
+            harness.averageTime("waveform.readPeakFile", Harness.params("seconds", seconds), TimeUnit.MICROSECONDS, 3, 5,
+                    () -> cache.read(song).getBucketCount());
+            harness.averageTime("waveform.memory", Harness.params("seconds", seconds), TimeUnit.NANOSECONDS, 3, 5, () -> {
+                Waveform waveform = cache.load(song).getNow(null);
+                return waveform.getBucketCount();
+            });
+            cache.shutdown();
+
+            if (resultFile != null) {
+                harness.writeJson(resultFile);
+                System.out.println("Results written to " + resultFile.toAbsolutePath());
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+}
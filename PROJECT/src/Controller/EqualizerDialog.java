@@ -0,0 +1,101 @@
+package Controller;
+
+import Model.Equalizer;
+import View.MainFrame;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Dijalog ekvilajzera: ukljucivanje, gotova podesavanja i po jedan vertikalni slajder za svaki od 10 opsega.
+ * Pomjeranje slajdera odmah mijenja pojacanje opsega; koeficijenti filtera se racunaju na EDT-u, a izlazna nit
+ * ih preuzima na pocetku sljedeceg bloka, pa se promjena cuje poslije buffera audio linije.
+ */
+public class EqualizerDialog extends JDialog {
+
+    private MainFrame mainFrame;
+    private Equalizer equalizer;
+    private JSlider[] bandSliders = new JSlider[Equalizer.BANDS];
+    private boolean applyingPreset; // the sliders are moved by a preset, not by the user
+
+    // Constructor
+    public EqualizerDialog(MainFrame mainFrame, Equalizer equalizer) {
+        this.mainFrame = mainFrame;
+        this.equalizer = equalizer;
+
+        // Configure dialog
+        setTitle("Equalizer");
+        setSize(520, 300);
+        setResizable(false);
+        getContentPane().setBackground(Color.DARK_GRAY);
+        setLayout(new BorderLayout());
+        setLocationRelativeTo(mainFrame);
+        addDialogComponents();
+    }
+
+    private void addDialogComponents() {
+        JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        topPanel.setBackground(Color.DARK_GRAY);
+
+        JCheckBox enabled = new JCheckBox("Enabled", equalizer.isEnabled());
+        enabled.setBackground(Color.DARK_GRAY);
+        enabled.setForeground(Color.WHITE);
+        enabled.addActionListener(e -> equalizer.setEnabled(enabled.isSelected()));
+        topPanel.add(enabled);
+
+        JComboBox<Equalizer.Preset> presets = new JComboBox<>(Equalizer.Preset.values());
+        presets.setSelectedItem(null); // the current gains need not be a preset
+        presets.addActionListener(e -> {
+            Equalizer.Preset preset = (Equalizer.Preset) presets.getSelectedItem();
+            if (preset != null) {
+                applyPreset(preset);
+            }
+        });
+        topPanel.add(presets);
+        add(topPanel, BorderLayout.NORTH);
+
+        JPanel bandPanel = new JPanel(new GridLayout(1, Equalizer.BANDS));
+        bandPanel.setBackground(Color.DARK_GRAY);
+        for (int band = 0; band < Equalizer.BANDS; band++) {
+            int maxGain = (int) Equalizer.MAX_GAIN;
+            JSlider slider = new JSlider(JSlider.VERTICAL, -maxGain, maxGain, Math.round(equalizer.getGain(band)));
+            slider.setBackground(Color.DARK_GRAY);
+            slider.setMajorTickSpacing(maxGain);
+            slider.setPaintTicks(true);
+            int sliderBand = band;
+            slider.addChangeListener(e -> {
+                if (!applyingPreset) {
+                    presets.setSelectedItem(null);
+                    equalizer.setGain(sliderBand, slider.getValue());
+                }
+            });
+            bandSliders[band] = slider;
+
+            int frequency = Equalizer.FREQUENCIES[band];
+            JLabel label = new JLabel(frequency < 1000 ? String.valueOf(frequency) : frequency / 1000 + "k",
+                    SwingConstants.CENTER);
+            label.setForeground(Color.WHITE);
+            label.setFont(new Font("Dialog", Font.BOLD, 11));
+
+            JPanel column = new JPanel(new BorderLayout());
+            column.setBackground(Color.DARK_GRAY);
+            column.add(slider, BorderLayout.CENTER);
+            column.add(label, BorderLayout.SOUTH);
+            bandPanel.add(column);
+        }
+        add(bandPanel, BorderLayout.CENTER);
+    }
+
+    /**
+     * Sets all bands at once, so the filters are computed once and not for every slider.
+     */
+    private void applyPreset(Equalizer.Preset preset) {
+        equalizer.setPreset(preset);
+        applyingPreset = true;
+        float[] gains = preset.getGains();
+        for (int band = 0; band < Equalizer.BANDS; band++) {
+            bandSliders[band].setValue(Math.round(gains[band]));
+        }
+        applyingPreset = false;
+    }
+}
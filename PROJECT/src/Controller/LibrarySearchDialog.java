@@ -0,0 +1,175 @@
+package Controller;
+
+import Model.LibraryCache;
+import Model.MusicLibrary;
+import Model.MusicPlayer;
+import Model.PlaylistEntry;
+import Model.Song;
+import View.MainFrame;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+
+/**
+ * Dijalog za pretragu biblioteke dok korisnik tipka.
+ * Svaki upis u polje pretrazuje SearchIndex biblioteke direktno na EDT-u, jer odgovor stize ispod milisekunde.
+ * Dvoklik ili Enter na rezultat pusta tu pjesmu, a Ctrl+Enter ili desni klik je stavlja da svira sljedeca.
+ */
+public class LibrarySearchDialog extends JDialog {
+
+    private MainFrame mainFrame;
+    private MusicPlayer musicPlayer;
+    private MusicLibrary musicLibrary;
+    private JTextField searchField;
+    private DefaultListModel<PlaylistEntry> resultsModel;
+    private JList<PlaylistEntry> resultsList;
+
+    // Constructor
+    public LibrarySearchDialog(MainFrame mainFrame, MusicPlayer musicPlayer, MusicLibrary musicLibrary) {
+        this.mainFrame = mainFrame;
+        this.musicPlayer = musicPlayer;
+        this.musicLibrary = musicLibrary;
+
+        // Configure dialog
+        setTitle("Search Library (" + musicLibrary.getSongCount() + " songs)");
+        setSize(400, 400);
+        getContentPane().setBackground(Color.DARK_GRAY);
+        setLayout(new BorderLayout());
+        setLocationRelativeTo(mainFrame);
+        addDialogComponents();
+    }
+
+    private void addDialogComponents() {
+        searchField = new JTextField();
+        searchField.setFont(new Font("Dialog", Font.BOLD, 14));
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                search();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                search();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                search();
+            }
+        });
+        add(searchField, BorderLayout.NORTH);
+
+        resultsModel = new DefaultListModel<>();
+        resultsList = new JList<>(resultsModel);
+        resultsList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        resultsList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected,
+                                                          boolean cellHasFocus) {
+                PlaylistEntry entry = (PlaylistEntry) value;
+                String text = entry.getArtist() == null ? entry.getTitle() : entry.getTitle() + " - " + entry.getArtist();
+                return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+            }
+        });
+        JPopupMenu resultMenu = new JPopupMenu();
+        JMenuItem playNextItem = new JMenuItem("Play Next");
+        playNextItem.addActionListener(e -> playSelectedNext());
+        resultMenu.add(playNextItem);
+        resultsList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    playSelected();
+                }
+            }
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                showResultMenu(e);
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                showResultMenu(e);
+            }
+
+            private void showResultMenu(MouseEvent e) {
+                if (e.isPopupTrigger()) {
+                    int row = resultsList.locationToIndex(e.getPoint());
+                    if (row >= 0) {
+                        resultsList.setSelectedIndex(row);
+                        resultMenu.show(resultsList, e.getX(), e.getY());
+                    }
+                }
+            }
+        });
+        resultsList.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0), "play");
+        resultsList.getActionMap().put("play", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                playSelected();
+            }
+        });
+        resultsList.getInputMap(JComponent.WHEN_FOCUSED).put(
+                KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, InputEvent.CTRL_DOWN_MASK), "playNext");
+        resultsList.getActionMap().put("playNext", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                playSelectedNext();
+            }
+        });
+        // Down arrow moves from the search field to the results, Enter in the field plays the first result
+        searchField.addActionListener(e -> {
+            if (!resultsModel.isEmpty()) {
+                resultsList.setSelectedIndex(0);
+                playSelected();
+            }
+        });
+        searchField.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, 0), "results");
+        searchField.getActionMap().put("results", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (!resultsModel.isEmpty()) {
+                    resultsList.setSelectedIndex(0);
+                    resultsList.requestFocusInWindow();
+                }
+            }
+        });
+
+        JScrollPane scrollPane = new JScrollPane(resultsList);
+        scrollPane.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        scrollPane.setBackground(Color.DARK_GRAY);
+        add(scrollPane, BorderLayout.CENTER);
+    }
+
+    private void search() {
+        List<PlaylistEntry> results = musicLibrary.getSearchIndex().search(searchField.getText());
+        resultsModel.clear();
+        resultsModel.addAll(results);
+    }
+
+    private void playSelected() {
+        PlaylistEntry entry = resultsList.getSelectedValue();
+        if (entry == null) {
+            return;
+        }
+        Song song = entry.resolve(LibraryCache.getDefault()); // songs of the library are already read
+        musicPlayer.loadSong(song); // the views update from the events of the player
+    }
+
+    private void playSelectedNext() {
+        PlaylistEntry entry = resultsList.getSelectedValue();
+        if (entry != null) {
+            musicPlayer.playNext(entry); // read in the background by the player
+        }
+    }
+}
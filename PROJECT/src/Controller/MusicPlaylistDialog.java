@@ -1,37 +1,57 @@
 package Controller;
 
+import Model.PlaylistEntry;
+import Model.PlaylistLoader;
 import View.MainFrame;
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Ova klasa predstavlja dijalog za kreiranje plejliste.
- * Korisnik preko ovog dijaloga moze dodavati pjesme u plejlistu i sacuvati je u .txt fajl.
+ * Korisnik preko ovog dijaloga moze dodavati pjesme (vise odjednom ili cijeli folder) u plejlistu,
+ * brisati odabrane pjesme i sacuvati je u .txt fajl.
+ * Pjesme su u tablici koja crta samo vidljive redove, a metapodaci (naslov, izvodjac, trajanje)
+ * se u pozadini citaju samo za redove koji se vide, pa dijalog radi i sa 100 000 pjesama.
  * Klasa je bitna jer omogucava korisniku da kreira plejlistu i da je sacuva.
  */
 public class MusicPlaylistDialog extends JDialog {
 
+    private static final int FOLDER_BATCH = 1000; // songs of a folder added to the table at once
+    private static PlaylistLoader playlistLoader; // reads the metadata of the visible rows, shared by every dialog
+
     private MainFrame mainFrame;
-    private ArrayList<String> songPaths; // Store all of the paths to be written to a txt file (when we load a playlist)
+    private PlaylistTableModel playlistModel; // Store all of the songs to be written to a txt file (when we load a playlist)
+    private JTable playlistTable;
 
     // Constructor
     public MusicPlaylistDialog(MainFrame mainFrame) {
         this.mainFrame = mainFrame;
-        songPaths = new ArrayList<>();
+        playlistModel = new PlaylistTableModel();
+        if (playlistLoader == null) {
+            playlistLoader = new PlaylistLoader(); // the dialog is modal, so only one uses it at a time
+        }
 
         // Configure dialog
         setTitle("The greatest playlist: ");
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE); // the X button also drops the rows waiting to be read
         setSize(400, 400);
         setResizable(false);
         getContentPane().setBackground(Color.DARK_GRAY);
-        setLayout(null);
+        setLayout(new BorderLayout());
         setModal(true);
         setLocationRelativeTo(mainFrame);
         addDialogComponents();
@@ -39,8 +59,9 @@ public class MusicPlaylistDialog extends JDialog {
 
     /**
      * Metoda koja dodaje komponente u dijalog.
-     * Dodaje dugme za dodavanje pjesme u plejlistu i dugme za cuvanje plejliste.
-     * Dugme za dodavanje pjesme otvara file chooser dijalog i omogucava korisniku da odabere pjesmu.
+     * Dodaje tablicu sa pjesmama i dugmad za dodavanje pjesama, dodavanje foldera, brisanje i cuvanje plejliste.
+     * Dugme za dodavanje pjesama otvara file chooser dijalog i omogucava korisniku da odabere jednu ili vise pjesama.
+     * Dugme za dodavanje foldera dodaje sve mp3 fajlove iz foldera i njegovih podfoldera.
      * Dugme za cuvanje plejliste otvara file chooser dijalog i omogucava korisniku da sacuva plejlistu u .txt fajl.
      * Ukoliko korisnik odabere fajl i sacuva plejlistu, dijalog se zatvara i plejlista se ucitava u glavni prozor.
      * Ukoliko korisnik odabere fajl i ne sacuva plejlistu, dijalog se zatvara.
@@ -48,13 +69,29 @@ public class MusicPlaylistDialog extends JDialog {
      */
 
     private void addDialogComponents() {
-        JPanel songContainer = new JPanel();
-        songContainer.setLayout(new BoxLayout(songContainer, BoxLayout.Y_AXIS));
-        songContainer.setBounds((int) (getWidth() * 0.025), 10, (int) (getWidth() * 0.90), (int) (getHeight() * 0.75));
-        add(songContainer);
+        playlistTable = new JTable(playlistModel);
+        playlistTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        playlistTable.setFillsViewportHeight(true);
+        playlistTable.setFont(new Font("Arial", Font.BOLD, 12));
+        playlistTable.getColumnModel().getColumn(0).setPreferredWidth(180);
+        playlistTable.getColumnModel().getColumn(1).setPreferredWidth(120);
+        playlistTable.getColumnModel().getColumn(2).setPreferredWidth(50);
+        playlistTable.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke(KeyEvent.VK_DELETE, 0), "removeSongs");
+        playlistTable.getActionMap().put("removeSongs", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                removeSelectedSongs();
+            }
+        });
+
+        JScrollPane scrollPane = new JScrollPane(playlistTable);
+        scrollPane.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        scrollPane.getViewport().addChangeListener(e -> resolveVisibleRows()); // scrolled or resized
+        playlistModel.addTableModelListener(e -> SwingUtilities.invokeLater(this::resolveVisibleRows));
+        scrollPane.setBackground(Color.DARK_GRAY);
+        add(scrollPane, BorderLayout.CENTER);
 
         JButton addSongButton = new JButton("Add");
-        addSongButton.setBounds(60, (int) (getHeight() * 0.80), 100, 25);
         addSongButton.setFont(new Font("Ariel", Font.BOLD, 14));
         addSongButton.addActionListener(new ActionListener() {
             @Override
@@ -62,30 +99,45 @@ public class MusicPlaylistDialog extends JDialog {
                 JFileChooser jFileChooser = new JFileChooser();
                 jFileChooser.setFileFilter(new FileNameExtensionFilter("MP3", "mp3"));
                 jFileChooser.setCurrentDirectory(new File("PROJECT/src/assets"));
+                jFileChooser.setMultiSelectionEnabled(true);
                 int result = jFileChooser.showOpenDialog(MusicPlaylistDialog.this);
 
                 if (result == JFileChooser.APPROVE_OPTION) {
-                    File selectedFile = jFileChooser.getSelectedFile();
-                    if (selectedFile != null) {
-                        String filePath = selectedFile.getPath();
-                        if (!songPaths.contains(filePath)) {  // Check for duplicates
-                            JLabel filePathLabel = new JLabel(filePath);
-                            filePathLabel.setFont(new Font("Arial", Font.BOLD, 12));
-                            filePathLabel.setBorder(BorderFactory.createLineBorder(Color.BLACK));
-
-                            songPaths.add(filePath);
-                            songContainer.add(filePathLabel);
-                            songContainer.revalidate(); //this method is used to notify the layout manager to recalculate the layout of the components
-                            songContainer.repaint();  // Repaint to update UI
-                        }
+                    List<String> filePaths = new ArrayList<>();
+                    for (File selectedFile : jFileChooser.getSelectedFiles()) {
+                        filePaths.add(selectedFile.getPath());
                     }
+                    playlistModel.addAll(filePaths); // duplicates are skipped
+                }
+            }
+        });
+
+        JButton addFolderButton = new JButton("Folder");
+        addFolderButton.setFont(new Font("Dialog", Font.BOLD, 14));
+        addFolderButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                JFileChooser jFileChooser = new JFileChooser();
+                jFileChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+                jFileChooser.setCurrentDirectory(new File("PROJECT/src/assets"));
+                int result = jFileChooser.showOpenDialog(MusicPlaylistDialog.this);
+
+                if (result == JFileChooser.APPROVE_OPTION && jFileChooser.getSelectedFile() != null) {
+                    addFolder(jFileChooser.getSelectedFile().toPath(), addFolderButton);
                 }
             }
         });
-        add(addSongButton);
+
+        JButton removeSongButton = new JButton("Remove");
+        removeSongButton.setFont(new Font("Dialog", Font.BOLD, 14));
+        removeSongButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                removeSelectedSongs();
+            }
+        });
 
         JButton savePlaylistButton = new JButton("Save");
-        savePlaylistButton.setBounds(215, (int) (getHeight() * 0.80), 100, 25);
         savePlaylistButton.setFont(new Font("Dialog", Font.BOLD, 14));
         savePlaylistButton.addActionListener(new ActionListener() {
             @Override
@@ -93,12 +145,101 @@ public class MusicPlaylistDialog extends JDialog {
                 savePlaylist();
             }
         });
-        add(savePlaylistButton);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 6, 8));
+        buttonPanel.setBackground(Color.DARK_GRAY);
+        buttonPanel.add(addSongButton);
+        buttonPanel.add(addFolderButton);
+        buttonPanel.add(removeSongButton);
+        buttonPanel.add(savePlaylistButton);
+        add(buttonPanel, BorderLayout.SOUTH);
+    }
+
+    @Override
+    public void dispose() {
+        playlistLoader.cancel();
+        super.dispose();
+    }
+
+    /**
+     * Reads the metadata of the rows that are on screen. Rows that scrolled away before they were read are dropped.
+     */
+    private void resolveVisibleRows() {
+        Rectangle visible = playlistTable.getVisibleRect();
+        int first = playlistTable.rowAtPoint(visible.getLocation());
+        if (first < 0) {
+            return;
+        }
+        int last = playlistTable.rowAtPoint(new Point(visible.x, visible.y + visible.height - 1));
+        if (last < 0) {
+            last = playlistModel.getRowCount() - 1;
+        }
+        playlistLoader.cancel();
+        playlistLoader.resolve(playlistModel.getEntries().subList(first, last + 1),
+                entry -> SwingUtilities.invokeLater(playlistTable::repaint));
+    }
+
+    private void removeSelectedSongs() {
+        int[] selectedRows = playlistTable.getSelectedRows();
+        playlistTable.clearSelection();
+        playlistModel.removeRows(selectedRows);
+    }
+
+    /**
+     * Collects the mp3 files of the folder and its subfolders in the background and adds them in batches,
+     * so the dialog stays responsive for folders with thousands of songs. Files come in the order of the walk,
+     * each batch is sorted by path.
+     */
+    private void addFolder(Path folder, JButton addFolderButton) {
+        addFolderButton.setEnabled(false);
+        new SwingWorker<Integer, List<String>>() {
+            @Override
+            protected Integer doInBackground() throws IOException {
+                int found = 0;
+                List<String> batch = new ArrayList<>(FOLDER_BATCH);
+                try (Stream<Path> files = Files.walk(folder)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        if (file.getFileName().toString().toLowerCase().endsWith(".mp3") && Files.isRegularFile(file)) {
+                            batch.add(file.toString());
+                            found++;
+                            if (batch.size() == FOLDER_BATCH) {
+                                Collections.sort(batch);
+                                publish(batch);
+                                batch = new ArrayList<>(FOLDER_BATCH);
+                            }
+                        }
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    Collections.sort(batch);
+                    publish(batch);
+                }
+                return found;
+            }
+
+            @Override
+            protected void process(List<List<String>> batches) {
+                for (List<String> batch : batches) {
+                    playlistModel.addAll(batch);
+                }
+            }
+
+            @Override
+            protected void done() {
+                addFolderButton.setEnabled(true);
+                try {
+                    get();
+                } catch (Exception exception) {
+                    exception.printStackTrace();
+                    JOptionPane.showMessageDialog(MusicPlaylistDialog.this, "Error reading folder " + folder);
+                }
+            }
+        }.execute();
     }
 
     private void savePlaylist() {
         try {
-            if (songPaths.isEmpty()) {
+            if (playlistModel.getRowCount() == 0) {
                 JOptionPane.showMessageDialog(this, "First add songs to playlist");
                 return;
             }
@@ -115,8 +256,8 @@ public class MusicPlaylistDialog extends JDialog {
                 selectedFile.createNewFile();
 
                 BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(selectedFile));
-                for (String songPath : songPaths) {
-                    bufferedWriter.write(songPath + "\n");
+                for (PlaylistEntry entry : playlistModel.getEntries()) {
+                    bufferedWriter.write(entry.getPath() + "\n");
                 }
                 bufferedWriter.close();
 
@@ -130,4 +271,4 @@ public class MusicPlaylistDialog extends JDialog {
             exception.printStackTrace();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,113 @@
+package Controller;
+
+import Model.PlaylistEntry;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Model tablice za plejlistu u MusicPlaylistDialog-u. JTable crta samo redove koji se vide,
+ * pa je dodavanje i prikaz jednako brz za 10 i za 100 000 pjesama.
+ * Duplikati se provjeravaju preko HashSet-a putanja, a ne pretrazivanjem cijele liste.
+ * Koristi se samo na EDT-u.
+ */
+public class PlaylistTableModel extends AbstractTableModel {
+
+    private static final String[] COLUMNS = {"Title", "Artist", "Time"};
+
+    private List<PlaylistEntry> entries = new ArrayList<>();
+    private final Set<String> paths = new HashSet<>();
+
+    // Getters
+
+    public PlaylistEntry getEntry(int row) {
+        return entries.get(row);
+    }
+
+    public List<PlaylistEntry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    public boolean contains(String path) {
+        return paths.contains(path);
+    }
+
+    @Override
+    public int getRowCount() {
+        return entries.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        PlaylistEntry entry = entries.get(row);
+        switch (column) {
+            case 0:
+                return entry.getTitle();
+            case 1:
+                return entry.getArtist();
+            default:
+                int duration = entry.getDurationInSeconds();
+                return duration < 0 ? "" : String.format("%02d:%02d", duration / 60, duration % 60);
+        }
+    }
+
+    //Methods
+
+    /**
+     * Adds the songs that are not in the playlist yet, with one insert event for all of them.
+     *
+     * @return how many songs were added
+     */
+    public int addAll(Collection<String> songPaths) {
+        int firstRow = entries.size();
+        for (String songPath : songPaths) {
+            if (paths.add(songPath)) {
+                entries.add(new PlaylistEntry(songPath));
+            }
+        }
+        int added = entries.size() - firstRow;
+        if (added > 0) {
+            fireTableRowsInserted(firstRow, entries.size() - 1);
+        }
+        return added;
+    }
+
+    /**
+     * Removes the given rows in one pass over the playlist.
+     */
+    public void removeRows(int[] rows) {
+        if (rows.length == 0) {
+            return;
+        }
+        BitSet removed = new BitSet(entries.size());
+        for (int row : rows) {
+            removed.set(row);
+        }
+        List<PlaylistEntry> kept = new ArrayList<>(Math.max(entries.size() - rows.length, 10));
+        for (int i = 0; i < entries.size(); i++) {
+            if (removed.get(i)) {
+                paths.remove(entries.get(i).getPath());
+            } else {
+                kept.add(entries.get(i));
+            }
+        }
+        entries = kept;
+        fireTableDataChanged();
+    }
+}
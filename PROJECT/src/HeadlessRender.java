@@ -0,0 +1,133 @@
+import Model.LibraryCache;
+import Model.PlaybackEngine;
+import Model.RenderOutput;
+import Model.Song;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Pusta pjesme bez prozora i bez zvucne kartice, brze od stvarnog vremena, kroz isti PlaybackEngine kao plejer.
+ * Uzorci se odbacuju ili zapisuju u WAV fajl. Za svaku pjesmu ispisuje koliko je trajala i koliko
+ * mp3 frejmova u sekundi je dekodirano, sto su brojke za propusnost dekodiranja na masini bez zvuka.
+ *
+ * Usage: java -cp out:lib/* HeadlessRender [--wav out.wav] [--playlist playlist.txt] [file.mp3 ...]
+ */
+public class HeadlessRender {
+
+    public static void main(String[] args) throws Exception {
+        Path wavFile = null;
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--wav") && i + 1 < args.length) {
+                wavFile = Paths.get(args[++i]);
+            } else if (args[i].equals("--playlist") && i + 1 < args.length) {
+                paths.addAll(readPlaylist(Paths.get(args[++i])));
+            } else {
+                paths.add(args[i]);
+            }
+        }
+
+        List<Song> songs = new ArrayList<>();
+        for (String path : paths) {
+            Song song = new Song(path, LibraryCache.getDefault());
+            if (song.getFrameLength() > 0) {
+                songs.add(song);
+            } else {
+                System.out.println("Skipping " + path + ", no audio frames");
+            }
+        }
+        if (songs.isEmpty()) {
+            System.out.println("Usage: HeadlessRender [--wav out.wav] [--playlist playlist.txt] [file.mp3 ...]");
+            return;
+        }
+
+        RenderOutput output = wavFile == null ? new RenderOutput() : new RenderOutput(wavFile);
+        Report report = new Report(songs, output);
+        PlaybackEngine engine = new PlaybackEngine(output, report);
+        engine.setGapless(true); // one continuous stream, the next song is decoded while this one ends
+        System.out.printf("%-40s %9s %10s %12s %9s%n", "song", "audio s", "wall ms", "frames/s", "realtime");
+        long start = System.nanoTime();
+        engine.play(songs.get(0), 0);
+        report.finished.await();
+        long wall = System.nanoTime() - start;
+        engine.shutdown();
+
+        System.out.printf("%d songs, %.1f s of audio in %.1f ms, %.1fx realtime, max frame decode %.2f ms, decoder stalls %d%n",
+                report.reported, output.getFramesRendered() / (double) output.getSampleRate(), wall / 1e6,
+                output.getFramesRendered() / (double) output.getSampleRate() / (wall / 1e9),
+                engine.getMaxDecodeNanos() / 1e6, engine.getDecoderStalls());
+        if (wavFile != null) {
+            System.out.println("Written to " + wavFile.toAbsolutePath());
+        }
+    }
+
+    private static List<String> readPlaylist(Path playlistFile) throws IOException {
+        List<String> paths = new ArrayList<>();
+        for (String line : Files.readAllLines(playlistFile)) {
+            if (!line.trim().isEmpty()) {
+                paths.add(line.trim());
+            }
+        }
+        return paths;
+    }
+
+
+    /**
+     * Plays the songs one after another and prints a line for each one when the next one starts.
+     * The engine calls trackStarted and trackFinished from one event thread, in order.
+     */
+    private static final class Report implements PlaybackEngine.Listener {
+        final CountDownLatch finished = new CountDownLatch(1);
+        private final List<Song> songs;
+        private final RenderOutput output;
+        private Song current;
+        private long startedNanos;
+        private long startedFrames;
+        private int reported;
+
+        Report(List<Song> songs, RenderOutput output) {
+            this.songs = songs;
+            this.output = output;
+        }
+
+        @Override
+        public void trackStarted(Song song) {
+            report();
+            current = song;
+            startedNanos = System.nanoTime();
+            startedFrames = output.getFramesRendered();
+        }
+
+        @Override
+        public void trackFinished(Song song) {
+            report();
+            finished.countDown();
+        }
+
+        @Override
+        public Song nextTrack(Song song) {
+            int index = songs.indexOf(song);
+            return index >= 0 && index + 1 < songs.size() ? songs.get(index + 1) : null;
+        }
+
+        private void report() {
+            if (current == null) {
+                return;
+            }
+            long wall = System.nanoTime() - startedNanos;
+            double audioSeconds = (output.getFramesRendered() - startedFrames) / (double) output.getSampleRate();
+            String name = current.getSongTitle() == null ? Paths.get(current.getFile()).getFileName().toString()
+                    : current.getSongTitle();
+            System.out.printf("%-40.40s %9.1f %10.1f %12.0f %8.1fx%n", name, audioSeconds, wall / 1e6,
+                    current.getFrameLength() / (wall / 1e9), audioSeconds / (wall / 1e9));
+            current = null;
+            reported++;
+        }
+    }
+}
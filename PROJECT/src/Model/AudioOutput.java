@@ -0,0 +1,50 @@
+package Model;
+
+import java.io.IOException;
+
+/**
+ * Odrediste dekodiranog zvuka (16-bitni PCM, kanali isprepleteni).
+ * PlaybackEngine pise u izlaz i ne zna da li je to zvucna kartica ili nesto drugo.
+ */
+public interface AudioOutput {
+
+    /**
+     * Opens the output for the given format. An output that is already open is reopened.
+     */
+    void open(int sampleRate, int channels) throws IOException;
+
+    boolean isOpen();
+
+    int getSampleRate();
+
+    int getChannels();
+
+    /**
+     * Writes interleaved samples, blocking while the output buffer is full.
+     */
+    void write(short[] samples, int offset, int length) throws IOException;
+
+    /**
+     * Returns the number of sample frames (one sample per channel) played since the output was opened.
+     */
+    long getFramePosition();
+
+    /**
+     * Stops playing without losing what was written; a blocked write keeps waiting.
+     */
+    void pause();
+
+    void resume();
+
+    /**
+     * Blocks until everything written so far has been played.
+     */
+    void drain();
+
+    /**
+     * Throws away everything that was written but not played yet and wakes up a blocked write.
+     */
+    void flush();
+
+    void close();
+}
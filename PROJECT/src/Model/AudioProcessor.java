@@ -0,0 +1,23 @@
+package Model;
+
+/**
+ * Jedan korak obrade zvuka u DspChain-u (npr. ekvilajzer). Radi na izlaznoj niti, na mjestu, nad
+ * 16-bitnim uzorcima isprepletenim po kanalima, i u process() ne smije alocirati memoriju niti cekati lock.
+ */
+public interface AudioProcessor {
+
+    /**
+     * Called on the output thread before the first block of a new format, and when the processor is added.
+     */
+    void setFormat(int sampleRate, int channels);
+
+    /**
+     * Processes interleaved samples in place. length is a whole number of sample frames.
+     */
+    void process(short[] samples, int offset, int length);
+
+    /**
+     * Forgets the filter state, e.g. when the buffered audio was dropped by a seek.
+     */
+    void reset();
+}
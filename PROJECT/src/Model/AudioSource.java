@@ -0,0 +1,179 @@
+package Model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Otvoren mp3 fajl iz kojeg dekoder cita audio frejmove.
+ * Fajl se otvara jednom kao FileChannel i mapira u memoriju (MappedByteBuffer), pa citanje frejma
+ * kopira bajtove direktno iz page cache-a u Bitstream, bez sistemskih poziva i medjubafera.
+ * Ako se fajl ne moze mapirati, cita se preko FileChannel.read na zadanoj poziciji.
+ * Citanja su pozicionirana i ne mijenjaju stanje izvora, pa vise dekodera iste pjesme (npr. stari i novi
+ * nakon premotavanja) koristi isti izvor, svaki sa svojim stream-om. Izvor broji korisnike i zatvara
+ * se kad ga pusti zadnji.
+ */
+public class AudioSource {
+
+    private final String path;
+    private final FileChannel channel;
+    private final long size;
+    private final MappedByteBuffer mapped; // null if the file could not be mapped
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private AudioSource(String path, FileChannel channel) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.size = channel.size();
+        MappedByteBuffer buffer = null;
+        if (size <= Integer.MAX_VALUE) {
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } catch (IOException | UnsupportedOperationException e) {
+                // e.g. a file system without mmap support, read through the channel instead
+            }
+        }
+        this.mapped = buffer;
+    }
+
+    /**
+     * Opens the file. The caller holds the first reference and releases it with release().
+     */
+    public static AudioSource open(String path) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        try {
+            return new AudioSource(path, channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Getters
+
+    public String getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public boolean isMapped() {
+        return mapped != null;
+    }
+
+    /**
+     * The open channel, for positioned reads like FrameIndex.seekOffset(). Its position is not used.
+     */
+    public FileChannel getChannel() {
+        return channel;
+    }
+
+    public boolean isOpen() {
+        return references.get() > 0;
+    }
+
+    //Methods
+
+    /**
+     * Takes another reference if the source is still open.
+     *
+     * @return false if the last reference was already released
+     */
+    public boolean retain() {
+        int count;
+        do {
+            count = references.get();
+            if (count <= 0) {
+                return false;
+            }
+        } while (!references.compareAndSet(count, count + 1));
+        return true;
+    }
+
+    /**
+     * Drops one reference and closes the file when it was the last one.
+     */
+    public void release() {
+        if (references.decrementAndGet() == 0) {
+            try {
+                channel.close(); // the mapping stays valid until it is garbage collected
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Reads up to length bytes at the given position of the file.
+     *
+     * @return number of bytes read, or -1 at the end of the file
+     */
+    public int read(long position, byte[] bytes, int offset, int length) throws IOException {
+        if (position >= size) {
+            return -1;
+        }
+        int count = (int) Math.min(length, size - position);
+        if (mapped != null) {
+            try {
+                mapped.get((int) position, bytes, offset, count); // absolute, so streams do not share a position
+            } catch (InternalError e) {
+                throw new IOException("File changed while playing: " + path, e); // truncated under the mapping
+            }
+            return count;
+        }
+        return channel.read(ByteBuffer.wrap(bytes, offset, count), position);
+    }
+
+    /**
+     * A stream over the file from the given offset, with its own position, for one decoder.
+     */
+    public InputStream openStream(long offset) {
+        return new SourceStream(offset);
+    }
+
+
+    private final class SourceStream extends InputStream {
+        private long position;
+
+        SourceStream(long position) {
+            this.position = position;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            int read = AudioSource.this.read(position, bytes, offset, length);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long count) {
+            long skipped = Math.max(0, Math.min(count, size - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0, size - position));
+        }
+    }
+}
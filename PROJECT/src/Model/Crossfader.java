@@ -0,0 +1,192 @@
+package Model;
+
+import java.io.IOException;
+
+/**
+ * Pretapanje dvije pjesme: dok zadnje sekunde pjesme koja odlazi i prve sekunde sljedece pjesme dekodiraju
+ * istovremeno, uzorci obje se mnoze krivuljom pretapanja i sabiraju u float buffer, koji se zatim
+ * (sa ogranicenjem na 16 bita) prepisuje u izlazni short buffer. Oba buffera se alociraju jednom,
+ * pa mijesanje ne pravi smece. Pojacanje se unutar jednog frejma mijenja linearno izmedju vrijednosti
+ * krivulje na pocetku i na kraju frejma, pa se krivulja racuna samo dva puta po frejmu.
+ */
+public class Crossfader {
+
+    /**
+     * Oblik pretapanja: linearno, sa jednakom snagom (glasnoca se u sredini ne spusta) ili S krivulja.
+     */
+    public enum Curve {
+        LINEAR, EQUAL_POWER, S_CURVE;
+
+        /**
+         * Gain of the incoming song at the given point of the fade, from 0 to 1.
+         */
+        double fadeIn(double t) {
+            switch (this) {
+                case EQUAL_POWER:
+                    return Math.sin(t * Math.PI / 2);
+                case S_CURVE:
+                    return (1 - Math.cos(t * Math.PI)) / 2;
+                default:
+                    return t;
+            }
+        }
+
+        /**
+         * Gain of the outgoing song, the mirror image of fadeIn.
+         */
+        double fadeOut(double t) {
+            return fadeIn(1 - t);
+        }
+    }
+
+    private static final int CAPACITY = 2 * 1152 * 2; // twice the largest mp3 frame of stereo samples
+
+    private final float[] mix = new float[CAPACITY];
+    private final short[] output = new short[CAPACITY];
+
+    private TrackDecoder incoming;
+    private int incomingOffset;
+    private int incomingLength;
+    private boolean incomingEnded;
+    private Curve curve;
+    private int channels;
+    private long fadeFrames;       // sample frames of the whole fade
+    private long position;         // sample frames mixed so far
+    private float outgoingGain;    // relative ReplayGain of the outgoing song
+
+    // Getters
+
+    public boolean isActive() {
+        return incoming != null;
+    }
+
+    /**
+     * The whole fade was mixed, the incoming song plays on by itself.
+     */
+    public boolean isFinished() {
+        return position >= fadeFrames;
+    }
+
+    /**
+     * Mixed samples of the last call to mix(), from index 0.
+     */
+    public short[] getBuffer() {
+        return output;
+    }
+
+    /**
+     * Sample frames mixed since start().
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    public int getIncomingOffset() {
+        return incomingOffset;
+    }
+
+    public int getIncomingLength() {
+        return incomingLength;
+    }
+
+    //Methods
+
+    /**
+     * Starts a fade into the given decoder, which must have the sample rate and channels of the outgoing song.
+     *
+     * @param frames       length of the fade in sample frames
+     * @param outgoingGain extra gain of the outgoing song, its ReplayGain relative to the incoming one, because
+     *                     the output applies the gain of the incoming song from the start of the fade
+     */
+    public void start(TrackDecoder incoming, long frames, Curve curve, float outgoingGain) {
+        this.incoming = incoming;
+        this.channels = incoming.getChannels();
+        this.curve = curve;
+        this.fadeFrames = Math.max(1, frames);
+        this.outgoingGain = outgoingGain;
+        position = 0;
+        incomingOffset = 0;
+        incomingLength = 0;
+        incomingEnded = false;
+    }
+
+    /**
+     * Mixes a frame of the outgoing song with as many samples of the incoming one into getBuffer().
+     * Past the end of the fade the outgoing samples are silenced.
+     *
+     * @param length samples, a whole number of sample frames and at most two mp3 frames
+     * @return number of mixed samples
+     */
+    public int mix(short[] outgoing, int offset, int length) throws IOException {
+        int frames = length / channels;
+        double from = Math.min(1, (double) position / fadeFrames);
+        double to = Math.min(1, (double) (position + frames) / fadeFrames);
+        float outStart = (float) curve.fadeOut(from) * outgoingGain;
+        float outStep = ((float) curve.fadeOut(to) * outgoingGain - outStart) / frames;
+        float inStart = (float) curve.fadeIn(from);
+        float inStep = ((float) curve.fadeIn(to) - inStart) / frames;
+
+        // the outgoing song, with its gain falling from frame to frame
+        float gain = outStart;
+        for (int i = 0; i < length; i += channels) {
+            for (int channel = 0; channel < channels; channel++) {
+                mix[i + channel] = outgoing[offset + i + channel] * gain;
+            }
+            gain += outStep;
+        }
+
+        // the incoming song, taken from as many of its frames as needed
+        int mixed = 0;
+        gain = inStart;
+        while (mixed < length && !incomingEnded) {
+            if (incomingLength == 0) {
+                int decoded = incoming.decodeFrame();
+                if (decoded < 0) {
+                    incomingEnded = true; // a song shorter than the fade, the rest is silence
+                    break;
+                }
+                incomingOffset = incoming.getOffset();
+                incomingLength = decoded;
+                continue;
+            }
+            short[] samples = incoming.getBuffer();
+            int count = Math.min(length - mixed, incomingLength);
+            for (int i = 0; i < count; i += channels) {
+                for (int channel = 0; channel < channels; channel++) {
+                    mix[mixed + i + channel] += samples[incomingOffset + i + channel] * gain;
+                }
+                gain += inStep;
+            }
+            mixed += count;
+            incomingOffset += count;
+            incomingLength -= count;
+        }
+
+        for (int i = 0; i < length; i++) {
+            output[i] = (short) Math.max(-32768, Math.min(32767, mix[i]));
+        }
+        position += frames;
+        return length;
+    }
+
+    /**
+     * Ends the fade and hands over the incoming decoder. Its samples that were decoded but not mixed yet are
+     * in its buffer from getIncomingOffset(), getIncomingLength() of them.
+     */
+    public TrackDecoder finish() {
+        TrackDecoder finished = incoming;
+        incoming = null;
+        return finished;
+    }
+
+    /**
+     * Drops the fade and closes the incoming decoder, e.g. on a seek.
+     */
+    public void cancel() {
+        if (incoming != null) {
+            incoming.close();
+            incoming = null;
+        }
+        incomingLength = 0;
+    }
+}
@@ -0,0 +1,79 @@
+package Model;
+
+import java.util.Arrays;
+
+/**
+ * Lanac obrade zvuka izmedju dekodera i audio linije: AudioProcessor-i se izvrsavaju redom na izlaznoj niti,
+ * prije pojacanja i limitera (GainStage). Lista se mijenja kopiranjem niza (copy-on-write), pa izlazna nit
+ * cita uvijek cijeli niz bez locka, a dodavanje i uklanjanje sa drugih niti je rijetko.
+ */
+public class DspChain {
+
+    private static final AudioProcessor[] EMPTY = new AudioProcessor[0];
+
+    private volatile AudioProcessor[] processors = EMPTY;
+    private volatile boolean formatChanged; // a processor was added and does not know the format yet
+    private int sampleRate;  // owned by the output thread
+    private int channels;
+
+    // Getters
+
+    public boolean isEmpty() {
+        return processors.length == 0;
+    }
+
+    //Methods
+
+    public synchronized void add(AudioProcessor processor) {
+        AudioProcessor[] current = processors;
+        AudioProcessor[] added = Arrays.copyOf(current, current.length + 1);
+        added[current.length] = processor;
+        processors = added;
+        formatChanged = true;
+    }
+
+    public synchronized void remove(AudioProcessor processor) {
+        AudioProcessor[] current = processors;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == processor) {
+                AudioProcessor[] removed = new AudioProcessor[current.length - 1];
+                System.arraycopy(current, 0, removed, 0, i);
+                System.arraycopy(current, i + 1, removed, i, current.length - i - 1);
+                processors = removed;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tells the processors the format of the samples that follow. Called on the output thread.
+     */
+    public void setFormat(int sampleRate, int channels) {
+        if (sampleRate != this.sampleRate || channels != this.channels) {
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+            formatChanged = true;
+        }
+    }
+
+    /**
+     * Runs the samples through every processor in place. Called on the output thread.
+     */
+    public void process(short[] samples, int offset, int length) {
+        if (formatChanged && sampleRate > 0) {
+            formatChanged = false; // cleared before the array is read, so an added processor is not missed
+            for (AudioProcessor processor : processors) {
+                processor.setFormat(sampleRate, channels);
+            }
+        }
+        for (AudioProcessor processor : processors) {
+            processor.process(samples, offset, length);
+        }
+    }
+
+    public void reset() {
+        for (AudioProcessor processor : processors) {
+            processor.reset();
+        }
+    }
+}
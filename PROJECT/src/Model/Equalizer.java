@@ -0,0 +1,218 @@
+package Model;
+
+import java.util.Arrays;
+
+/**
+ * Ekvilajzer sa 10 opsega (oktave od 31 Hz do 16 kHz): svaki opseg je peaking biquad filter (RBJ cookbook),
+ * a filteri opsega sa pojacanjem 0 dB se preskacu. Koeficijenti se racunaju na niti koja mijenja pojacanje
+ * (EDT kad korisnik pomjeri slajder) i objavljuju se kao cijeli nepromjenjivi skup, koji izlazna nit
+ * preuzima na pocetku sljedeceg bloka. Ispred filtera je predpojacalo koje oduzima najvece pojacanje,
+ * pa pojacani opsezi ne izazivaju kliping prije limitera.
+ */
+public class Equalizer implements AudioProcessor {
+
+    /**
+     * Gotova podesavanja, pojacanje svakog opsega u dB.
+     */
+    public enum Preset {
+        FLAT("Flat", 0, 0, 0, 0, 0, 0, 0, 0, 0, 0),
+        ROCK("Rock", 5, 4, 3, 1, -1, -1, 1, 3, 4, 5),
+        POP("Pop", -1, 1, 3, 4, 3, 0, -1, -1, 1, 2),
+        JAZZ("Jazz", 3, 2, 1, 2, -1, -1, 0, 1, 2, 3),
+        CLASSICAL("Classical", 4, 3, 2, 1, -1, -1, 0, 2, 3, 4),
+        BASS_BOOST("Bass Boost", 7, 6, 5, 3, 1, 0, 0, 0, 0, 0),
+        TREBLE_BOOST("Treble Boost", 0, 0, 0, 0, 0, 1, 3, 5, 6, 7),
+        VOCAL("Vocal", -2, -2, -1, 1, 3, 4, 3, 1, 0, -1);
+
+        private final String name;
+        private final float[] gains;
+
+        Preset(String name, float... gains) {
+            this.name = name;
+            this.gains = gains;
+        }
+
+        public float[] getGains() {
+            return gains.clone();
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    public static final int[] FREQUENCIES = {31, 62, 125, 250, 500, 1000, 2000, 4000, 8000, 16000};
+    public static final int BANDS = FREQUENCIES.length;
+    public static final float MAX_GAIN = 12;
+    private static final double Q = 1.41; // about one octave wide
+    private static final int MAX_CHANNELS = 2;
+    private static final double DENORMAL = 1e-15; // filter state this small is flushed to 0
+
+    private final float[] gains = new float[BANDS]; // guarded by this
+    private volatile Coefficients coefficients = new Coefficients(0, new float[BANDS]);
+    private volatile boolean enabled = true;
+    private volatile int sampleRate;
+
+    // output thread
+    private final double[] state = new double[MAX_CHANNELS * BANDS * 2]; // per channel and band: z1 z2
+    private double[] work = new double[4096];
+    private int channels;
+
+    // Getters and Setters
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public synchronized float getGain(int band) {
+        return gains[band];
+    }
+
+    /**
+     * Sets the gain of one band, from -MAX_GAIN to MAX_GAIN dB. The filter is computed on the calling thread.
+     */
+    public synchronized void setGain(int band, float decibels) {
+        gains[band] = Math.max(-MAX_GAIN, Math.min(MAX_GAIN, decibels));
+        coefficients = new Coefficients(sampleRate, gains);
+    }
+
+    public synchronized float[] getGains() {
+        return gains.clone();
+    }
+
+    public synchronized void setPreset(Preset preset) {
+        System.arraycopy(preset.gains, 0, gains, 0, BANDS);
+        coefficients = new Coefficients(sampleRate, gains);
+    }
+
+    //Methods
+
+    @Override
+    public void setFormat(int sampleRate, int channels) {
+        this.channels = Math.min(channels, MAX_CHANNELS);
+        if (sampleRate != this.sampleRate) {
+            this.sampleRate = sampleRate;
+            synchronized (this) { // only when the format of the songs changes
+                coefficients = new Coefficients(sampleRate, gains);
+            }
+            reset();
+        }
+    }
+
+    @Override
+    public void process(short[] samples, int offset, int length) {
+        Coefficients current = coefficients;
+        if (!enabled || current.count == 0 || current.sampleRate == 0 || channels == 0) {
+            return;
+        }
+        if (work.length < length) {
+            work = new double[length]; // only if the output starts writing larger blocks
+        }
+        for (int i = 0; i < length; i++) {
+            work[i] = samples[offset + i] * current.preamp;
+        }
+
+        // one band at a time over the whole block, so the filter state stays in registers
+        for (int k = 0; k < current.count; k++) {
+            double b0 = current.b0[k], b1 = current.b1[k], b2 = current.b2[k], a1 = current.a1[k], a2 = current.a2[k];
+            if (channels == 2) {
+                filterStereo(length, current.band[k] * 2, b0, b1, b2, a1, a2);
+                continue;
+            }
+            for (int channel = 0; channel < channels; channel++) {
+                int s = (channel * BANDS + current.band[k]) * 2;
+                double z1 = state[s];
+                double z2 = state[s + 1];
+                for (int i = channel; i < length; i += channels) {
+                    double x = work[i];
+                    double y = b0 * x + z1;
+                    z1 = b1 * x - a1 * y + z2;
+                    z2 = b2 * x - a2 * y;
+                    work[i] = y;
+                }
+                state[s] = Math.abs(z1) < DENORMAL ? 0 : z1;
+                state[s + 1] = Math.abs(z2) < DENORMAL ? 0 : z2;
+            }
+        }
+
+        for (int i = 0; i < length; i++) {
+            samples[offset + i] = (short) Math.max(-32768, Math.min(32767, Math.round(work[i])));
+        }
+    }
+
+    // both channels in one loop, the two filters do not wait for each other
+    private void filterStereo(int length, int s, double b0, double b1, double b2, double a1, double a2) {
+        int r = s + BANDS * 2;
+        double l1 = state[s], l2 = state[s + 1];
+        double r1 = state[r], r2 = state[r + 1];
+        for (int i = 0; i < length; i += 2) {
+            double xl = work[i];
+            double xr = work[i + 1];
+            double yl = b0 * xl + l1;
+            double yr = b0 * xr + r1;
+            l1 = b1 * xl - a1 * yl + l2;
+            r1 = b1 * xr - a1 * yr + r2;
+            l2 = b2 * xl - a2 * yl;
+            r2 = b2 * xr - a2 * yr;
+            work[i] = yl;
+            work[i + 1] = yr;
+        }
+        state[s] = Math.abs(l1) < DENORMAL ? 0 : l1;
+        state[s + 1] = Math.abs(l2) < DENORMAL ? 0 : l2;
+        state[r] = Math.abs(r1) < DENORMAL ? 0 : r1;
+        state[r + 1] = Math.abs(r2) < DENORMAL ? 0 : r2;
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(state, 0);
+    }
+
+
+    /**
+     * Koeficijenti filtera opsega koji nisu na 0 dB, za jednu frekvenciju uzorkovanja.
+     */
+    private static final class Coefficients {
+        final int sampleRate;
+        final double preamp;
+        final int count;
+        final int[] band = new int[BANDS];
+        final double[] b0 = new double[BANDS];
+        final double[] b1 = new double[BANDS];
+        final double[] b2 = new double[BANDS];
+        final double[] a1 = new double[BANDS];
+        final double[] a2 = new double[BANDS];
+
+        Coefficients(int sampleRate, float[] gains) {
+            this.sampleRate = sampleRate;
+            float loudest = 0;
+            int active = 0;
+            for (int i = 0; i < BANDS; i++) {
+                // a band above the usable range of a low sample rate is left out
+                if (gains[i] == 0 || sampleRate == 0 || FREQUENCIES[i] >= sampleRate * 0.45) {
+                    continue;
+                }
+                loudest = Math.max(loudest, gains[i]);
+                double a = Math.pow(10, gains[i] / 40.0);
+                double w0 = 2 * Math.PI * FREQUENCIES[i] / sampleRate;
+                double alpha = Math.sin(w0) / (2 * Q);
+                double cos = Math.cos(w0);
+                double a0 = 1 + alpha / a;
+                band[active] = i;
+                b0[active] = (1 + alpha * a) / a0;
+                b1[active] = -2 * cos / a0;
+                b2[active] = (1 - alpha * a) / a0;
+                a1[active] = -2 * cos / a0;
+                a2[active] = (1 - alpha / a) / a0;
+                active++;
+            }
+            count = active;
+            preamp = Math.pow(10, -loudest / 20.0);
+        }
+    }
+}
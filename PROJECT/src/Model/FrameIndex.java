@@ -0,0 +1,206 @@
+package Model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Indeks pocetaka audio frejmova u MP3 fajlu.
+ * Tocni indeks se gradi jednim prolazom kroz fajl i cuva niz int pomaka (offseta) svakog frejma,
+ * pa je za pjesmu od 5 minuta velik oko 45 KB.
+ * Ako fajl ima Xing ili VBRI zaglavlje, indeks se gradi iz njegove tablice (TOC) bez citanja frejmova;
+ * tada svaki unos pokriva vise frejmova, a pozicija frejma se procjenjuje i poravnava na prvo zaglavlje.
+ * Posto svaki frejm u jednom fajlu nosi isti broj uzoraka, vrijeme se pretvara u frejm jednim dijeljenjem.
+ */
+public class FrameIndex {
+
+    private static final int SYNC_WINDOW = 16 * 1024; // several frames of the largest kind
+
+    private final int[] entryOffsets;     // byte offset of every entry, in file order
+    private final double framesPerEntry;  // 1 for an exact index
+    private final int frameCount;
+    private final long audioStart;        // first audio frame
+    private final long audioEnd;          // first byte after the last audio frame
+    private final int referenceHeader;    // header of the first audio frame, used to resync
+    private final int sampleRate;
+    private final int samplesPerFrame;
+
+    private FrameIndex(int[] entryOffsets, double framesPerEntry, int frameCount, long audioStart, long audioEnd,
+                       int referenceHeader) {
+        this.entryOffsets = entryOffsets;
+        this.framesPerEntry = framesPerEntry;
+        this.frameCount = frameCount;
+        this.audioStart = audioStart;
+        this.audioEnd = audioEnd;
+        this.referenceHeader = referenceHeader;
+        this.sampleRate = Mp3Header.sampleRate(referenceHeader);
+        this.samplesPerFrame = Mp3Header.samplesPerFrame(referenceHeader);
+    }
+
+    static FrameIndex exact(int[] frameOffsets, long audioEnd, int referenceHeader) {
+        long audioStart = frameOffsets.length > 0 ? frameOffsets[0] : audioEnd;
+        return new FrameIndex(frameOffsets, 1, frameOffsets.length, audioStart, audioEnd, referenceHeader);
+    }
+
+    /**
+     * Builds a sparse index from a seek table. Entry i is the offset of frame i * frameCount / entries.
+     */
+    static FrameIndex fromTable(int[] entryOffsets, int frameCount, long audioStart, long audioEnd, int referenceHeader) {
+        double framesPerEntry = entryOffsets.length == 0 ? 1 : (double) frameCount / entryOffsets.length;
+        return new FrameIndex(entryOffsets, framesPerEntry, frameCount, audioStart, audioEnd, referenceHeader);
+    }
+
+    /**
+     * Scans the file once and records where every audio frame starts.
+     * The ID3v2 tag, the Xing/Info/VBRI header frame and any trailing ID3v1 tag are skipped,
+     * so frame 0 is the first frame that actually carries audio.
+     *
+     * @param filePath path to the mp3 file
+     * @return the exact frame index of the file
+     * @throws IOException if the file cannot be read or contains no MPEG audio frames
+     */
+    public static FrameIndex scan(String filePath) throws IOException {
+        return Mp3MetadataReader.scanFrames(filePath);
+    }
+
+    // Getters
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getSamplesPerFrame() {
+        return samplesPerFrame;
+    }
+
+    public long getDurationInMilliseconds() {
+        return millisOfFrame(frameCount);
+    }
+
+    /**
+     * An exact index knows the offset of every frame, a table index only estimates it.
+     */
+    public boolean isExact() {
+        return framesPerEntry == 1;
+    }
+
+    // used by LibraryCache to store a table index
+    int[] getEntryOffsets() {
+        return entryOffsets;
+    }
+
+    int getReferenceHeader() {
+        return referenceHeader;
+    }
+
+    //Methods
+
+    /**
+     * Returns the frame that is playing at the given time, clamped to the frames of the file.
+     */
+    public int frameAtMillis(long milliseconds) {
+        if (milliseconds <= 0 || frameCount == 0) {
+            return 0;
+        }
+        long frame = milliseconds * sampleRate / (samplesPerFrame * 1000L);
+        return (int) Math.min(frame, frameCount - 1);
+    }
+
+    /**
+     * Returns the time at which the given frame starts playing.
+     */
+    public long millisOfFrame(int frame) {
+        return (long) frame * samplesPerFrame * 1000L / sampleRate;
+    }
+
+    /**
+     * Returns the byte offset of the given frame in the file, interpolated for a table index.
+     * Frames past the end map to the end of the audio data.
+     */
+    public long offsetOfFrame(int frame) {
+        if (frame <= 0 || entryOffsets.length == 0) {
+            return audioStart;
+        }
+        if (frame >= frameCount) {
+            return audioEnd;
+        }
+        if (isExact()) {
+            return entryOffsets[frame];
+        }
+        double position = frame / framesPerEntry;
+        int entry = (int) position;
+        long from = entryOffsets[entry];
+        long to = entry + 1 < entryOffsets.length ? entryOffsets[entry + 1] : audioEnd;
+        return Math.max(audioStart, from + (long) ((to - from) * (position - entry)));
+    }
+
+    /**
+     * Returns the frame that contains the given byte offset (binary search over the index).
+     */
+    public int frameAtOffset(long offset) {
+        if (entryOffsets.length == 0 || offset <= entryOffsets[0]) {
+            return 0;
+        }
+        int low = 0;
+        int high = entryOffsets.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (entryOffsets[middle] <= offset) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (isExact()) {
+            return low;
+        }
+        long from = entryOffsets[low];
+        long to = low + 1 < entryOffsets.length ? entryOffsets[low + 1] : audioEnd;
+        double fraction = to > from ? (double) (offset - from) / (to - from) : 0;
+        return (int) Math.min(frameCount - 1, (low + Math.min(1, fraction)) * framesPerEntry);
+    }
+
+    /**
+     * Returns the offset to start reading from to play the given frame.
+     * For an exact index this is the frame itself; for a table index the estimated offset is moved
+     * forward to the next frame header that is confirmed by the header after it.
+     *
+     * @param frame   frame to seek to
+     * @param channel open channel of the same file, used only for a table index
+     */
+    public long seekOffset(int frame, FileChannel channel) throws IOException {
+        long estimate = offsetOfFrame(frame);
+        if (isExact() || estimate >= audioEnd) {
+            return estimate;
+        }
+
+        ByteBuffer window = ByteBuffer.allocate(SYNC_WINDOW);
+        int length = 0;
+        while (window.hasRemaining()) {
+            int read = channel.read(window, estimate + length);
+            if (read < 0) {
+                break;
+            }
+            length += read;
+        }
+
+        for (int i = 0; i + 4 <= length; i++) {
+            int header = window.getInt(i);
+            if (Mp3Header.isValid(header) && Mp3Header.isCompatible(referenceHeader, header)) {
+                int next = i + Mp3Header.frameLength(header);
+                if (next + 4 > length || estimate + next >= audioEnd) {
+                    return estimate + i;
+                }
+                int nextHeader = window.getInt(next);
+                if (Mp3Header.isValid(nextHeader) && Mp3Header.isCompatible(referenceHeader, nextHeader)) {
+                    return estimate + i;
+                }
+            }
+        }
+        return estimate;
+    }
+}
@@ -0,0 +1,91 @@
+package Model;
+
+/**
+ * Pojacanje PCM uzoraka na izlazu: ReplayGain pojacanje pjesme pomnozeno sa jacinom zvuka,
+ * sa limiterom koji sprjecava kliping kad je pojacanje vece od 1.
+ * Limiter smanjuje pojacanje odmah kad bi uzorak presao prag (-0.3 dBFS) i vraca ga postepeno (50 ms),
+ * isto za sve kanale, da se slika zvuka ne pomjeri.
+ * Uzorci se obradjuju na mjestu, bez ijedne alokacije, jer radi na izlaznoj niti za svaki komad zvuka.
+ */
+public class GainStage {
+
+    /**
+     * Koje pojacanje se primjenjuje: nijedno, pjesme ili albuma (ako nije poznato, pjesme).
+     */
+    public enum Mode {
+        OFF, TRACK, ALBUM
+    }
+
+    private static final float THRESHOLD = 0.966f * 32767; // -0.3 dBFS
+    private static final double RELEASE_SECONDS = 0.05;
+
+    private float envelope = 1;    // limiter reduction, 1 when it is not limiting
+    private float release;         // per sample frame, how much of the reduction is left
+    private int sampleRate;
+
+    //Methods
+
+    /**
+     * Linear gain of the loudness in the given mode, 1 without one.
+     */
+    public static float gainOf(Loudness loudness, Mode mode) {
+        if (loudness == null || mode == Mode.OFF) {
+            return 1;
+        }
+        float decibels = mode == Mode.ALBUM && !Float.isNaN(loudness.getAlbumGain())
+                ? loudness.getAlbumGain() : loudness.getTrackGain();
+        return (float) Math.pow(10, decibels / 20);
+    }
+
+    /**
+     * Sets the release of the limiter for the sample rate of the output.
+     */
+    public void setSampleRate(int sampleRate) {
+        if (sampleRate != this.sampleRate && sampleRate > 0) {
+            this.sampleRate = sampleRate;
+            release = (float) Math.exp(-1 / (RELEASE_SECONDS * sampleRate));
+        }
+    }
+
+    /**
+     * Applies the gain to interleaved samples in place.
+     *
+     * @param gain linear gain, the song gain times the user's volume
+     */
+    public void process(short[] samples, int offset, int length, int channels, float gain) {
+        int end = offset + length;
+        if (gain <= 1 && envelope == 1) {
+            if (gain == 1) {
+                return;
+            }
+            for (int i = offset; i < end; i++) {
+                samples[i] = (short) (samples[i] * gain); // cannot clip
+            }
+            return;
+        }
+        for (int i = offset; i < end; i += channels) {
+            int loudest = 0;
+            for (int channel = 0; channel < channels; channel++) {
+                loudest = Math.max(loudest, Math.abs(samples[i + channel]));
+            }
+            if (loudest * gain * envelope > THRESHOLD) {
+                envelope = THRESHOLD / (loudest * gain); // instant attack
+            }
+            float applied = gain * envelope;
+            for (int channel = 0; channel < channels; channel++) {
+                samples[i + channel] = (short) (samples[i + channel] * applied);
+            }
+            envelope = 1 - (1 - envelope) * release;
+            if (envelope > 0.9999f) {
+                envelope = 1;
+            }
+        }
+    }
+
+    /**
+     * Forgets the limiter reduction, e.g. when the buffered audio was dropped.
+     */
+    public void reset() {
+        envelope = 1;
+    }
+}
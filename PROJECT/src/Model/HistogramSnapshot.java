@@ -0,0 +1,57 @@
+package Model;
+
+import javax.management.ConstructorParameters;
+
+/**
+ * Stanje jednog LatencyHistogram-a u trenutku citanja, u mikrosekundama, kako ga prikazuju JMX i overlay.
+ */
+public class HistogramSnapshot {
+
+    private final long count;
+    private final double meanMicros;
+    private final double p50Micros;
+    private final double p99Micros;
+    private final double maxMicros;
+
+    @ConstructorParameters({"count", "meanMicros", "p50Micros", "p99Micros", "maxMicros"})
+    public HistogramSnapshot(long count, double meanMicros, double p50Micros, double p99Micros, double maxMicros) {
+        this.count = count;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    public static HistogramSnapshot of(LatencyHistogram histogram) {
+        return new HistogramSnapshot(histogram.getCount(), histogram.getMeanNanos() / 1e3,
+                histogram.getPercentileNanos(50) / 1e3, histogram.getPercentileNanos(99) / 1e3,
+                histogram.getMaxNanos() / 1e3);
+    }
+
+    // Getters
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public double getP50Micros() {
+        return p50Micros;
+    }
+
+    public double getP99Micros() {
+        return p99Micros;
+    }
+
+    public double getMaxMicros() {
+        return maxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.1f p50=%.1f p99=%.1f max=%.1f us", count, meanMicros, p50Micros, p99Micros, maxMicros);
+    }
+}
@@ -0,0 +1,117 @@
+package Model;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.io.IOException;
+
+/**
+ * Izlaz na zvucnu karticu preko Java Sound SourceDataLine-a.
+ * Linija ostaje otvorena izmedju pjesama istog formata, pa izmedju njih nema pauze.
+ */
+public class JavaSoundOutput implements AudioOutput {
+
+    private static final int BUFFER_MILLISECONDS = 250;
+
+    private SourceDataLine line;
+    private byte[] bytes = new byte[0]; // conversion buffer, grows to the largest frame once
+    private int sampleRate;
+    private int channels;
+
+    @Override
+    public void open(int sampleRate, int channels) throws IOException {
+        close();
+        AudioFormat format = new AudioFormat(sampleRate, 16, channels, true, false);
+        try {
+            line = AudioSystem.getSourceDataLine(format);
+            line.open(format, sampleRate * channels * 2 * BUFFER_MILLISECONDS / 1000);
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            line = null;
+            throw new IOException("Audio line unavailable for " + format, e);
+        }
+        line.start();
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return line != null;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int getChannels() {
+        return channels;
+    }
+
+    @Override
+    public void write(short[] samples, int offset, int length) {
+        if (bytes.length < length * 2) {
+            bytes = new byte[length * 2];
+        }
+        for (int i = 0; i < length; i++) { // signed 16-bit little endian, like jlayer's JavaSoundAudioDevice
+            short sample = samples[offset + i];
+            bytes[i * 2] = (byte) sample;
+            bytes[i * 2 + 1] = (byte) (sample >>> 8);
+        }
+        SourceDataLine current = line;
+        if (current != null) {
+            current.write(bytes, 0, length * 2);
+        }
+    }
+
+    @Override
+    public long getFramePosition() {
+        SourceDataLine current = line;
+        return current == null ? 0 : current.getLongFramePosition();
+    }
+
+    @Override
+    public void pause() {
+        SourceDataLine current = line;
+        if (current != null) {
+            current.stop();
+        }
+    }
+
+    @Override
+    public void resume() {
+        SourceDataLine current = line;
+        if (current != null) {
+            current.start();
+        }
+    }
+
+    @Override
+    public void drain() {
+        SourceDataLine current = line;
+        if (current != null) {
+            current.drain();
+        }
+    }
+
+    @Override
+    public void flush() {
+        SourceDataLine current = line;
+        if (current != null) {
+            current.flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        SourceDataLine current = line;
+        line = null;
+        if (current != null) {
+            current.stop();
+            current.flush();
+            current.close();
+        }
+    }
+}
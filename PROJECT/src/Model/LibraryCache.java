@@ -0,0 +1,472 @@
+package Model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Trajni cache metapodataka pjesama na disku.
+ * Kljuc je putanja do fajla, a zapis vrijedi dok se velicina i vrijeme izmjene fajla ne promijene.
+ *
+ * Fajl je kompaktan binarni format: zaglavlje, hash tablica (hash putanje -> polozaj zapisa) i zapisi.
+ * Pri pokretanju se fajl procita u memoriju jednim citanjem i kopira se samo hash tablica,
+ * a pojedini zapis se dekodira tek kad ga Song zatrazi. Zato ucitavanje traje milisekunde i za 50k pjesama.
+ * Tocni indeks frejmova se ne cuva (prevelik je), nego se gradi kod prvog premotavanja.
+ * Novo procitane pjesme se drze u memoriji samo do sljedeceg save(); poslije toga se citaju iz zapisanog fajla.
+ * Zajednicki cache (getDefault) se sam snima nekoliko sekundi poslije zadnje promjene, a najkasnije minut
+ * poslije prve, pa pad ili gasenje aplikacije ne brise procitane pjesme i analize glasnoce.
+ * Uz metapodatke se cuva i glasnoca pjesme (Loudness) kad je analizirana.
+ */
+public class LibraryCache {
+
+    private static final int MAGIC = 0x4A534D50; // "JSMP"
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 16;
+    private static final long SAVE_DELAY_NANOS = TimeUnit.SECONDS.toNanos(5);     // quiet time before a save
+    private static final long SAVE_MAX_DELAY_NANOS = TimeUnit.SECONDS.toNanos(60); // during a long scan
+    private static LibraryCache defaultCache;
+
+    private final Path cacheFile;
+    private final Map<String, Entry> changed = new ConcurrentHashMap<>(); // parsed since the cache file was written
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile boolean dirty;
+    private volatile ScheduledExecutorService saver; // null unless the cache saves itself, see getDefault()
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+    private volatile long firstChangeNanos;
+    private volatile long lastChangeNanos;
+
+    private volatile Table table = new Table(ByteBuffer.allocate(0), new long[0], new int[0], 0); // replaced as a whole
+
+    public LibraryCache(Path cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * Cache shared by all songs, stored in the user's home folder and saved when the application exits.
+     */
+    public static synchronized LibraryCache getDefault() {
+        if (defaultCache == null) {
+            defaultCache = new LibraryCache(Paths.get(System.getProperty("user.home"), ".javaswingmusicplayer", "library.cache"));
+            defaultCache.load();
+            LibraryCache cache = defaultCache;
+            Runtime.getRuntime().addShutdownHook(new Thread(cache::save, "library-cache-save"));
+            cache.saver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "library-cache-autosave");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return defaultCache;
+    }
+
+    // Getters
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    //Methods
+
+    /**
+     * Returns the metadata of the file, parsing it only if it is not cached or has changed on disk.
+     */
+    public Mp3Metadata read(String filePath) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(Paths.get(filePath), BasicFileAttributes.class);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+
+        Entry entry = changed.get(filePath);
+        if (entry == null) {
+            entry = lookup(filePath);
+        }
+        if (entry != null && entry.size == size && entry.lastModified == lastModified) {
+            hits.increment();
+            return entry.metadata;
+        }
+
+        misses.increment();
+        Mp3Metadata metadata = Mp3MetadataReader.read(filePath);
+        changed.put(filePath, new Entry(size, lastModified, metadata, null));
+        changed();
+        return metadata;
+    }
+
+    /**
+     * The loudness stored with the metadata of the file, or null if it was not analyzed since the file changed.
+     * The file is not checked again, its metadata were read through read() before.
+     */
+    public Loudness getLoudness(String filePath) {
+        Entry entry = changed.get(filePath);
+        if (entry == null) {
+            entry = lookup(filePath);
+        }
+        return entry == null ? null : entry.loudness;
+    }
+
+    /**
+     * Stores the loudness with the metadata of the file, which was read through read() before.
+     */
+    public void putLoudness(String filePath, Loudness loudness) {
+        Entry entry = changed.get(filePath);
+        if (entry == null) {
+            entry = lookup(filePath);
+        }
+        if (entry != null) {
+            changed.put(filePath, new Entry(entry.size, entry.lastModified, entry.metadata, loudness));
+            changed();
+        }
+    }
+
+    /**
+     * Loads the cache file. A missing, old or damaged file just leaves the cache empty.
+     */
+    public synchronized void load() {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(cacheFile));
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return;
+            }
+            int count = buffer.getInt();
+            int capacity = buffer.getInt();
+            if (Integer.bitCount(capacity) != 1 || (long) capacity * 12 > buffer.remaining()) {
+                throw new IOException("Bad table size");
+            }
+            long[] hashes = new long[capacity];
+            int[] records = new int[capacity];
+            buffer.asLongBuffer().get(hashes);
+            buffer.position(buffer.position() + capacity * 8);
+            buffer.asIntBuffer().get(records);
+
+            table = new Table(buffer, hashes, records, count);
+        } catch (NoSuchFileException e) {
+            // first start
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Library cache is damaged, starting with an empty cache");
+        }
+    }
+
+    /**
+     * Writes the cache if anything was parsed since it was written. Unchanged records are copied as they are.
+     * The file is written next to the old one and then moved over it, so a crash never leaves a half written cache.
+     * The written file then replaces the loaded one in memory and the saved songs are dropped from the changed map.
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        try {
+            // songs parsed up to now; anything that changes while saving stays in the map for the next save
+            Map<String, Entry> saving = new HashMap<>(changed);
+            Table loaded = table;
+            ByteBuffer data = loaded.data;
+
+            // records of the loaded file that were not re-parsed, followed by the new ones
+            int maxCount = loaded.count + saving.size();
+            long[] hashes = new long[maxCount];
+            int[] starts = new int[maxCount];
+            int count = 0;
+            ByteArrayOutputStream records = new ByteArrayOutputStream(Math.max(1024, data.capacity()));
+            DataOutputStream out = new DataOutputStream(records);
+
+            for (int slot = 0; slot < loaded.hashes.length; slot++) {
+                if (loaded.hashes[slot] != 0) {
+                    int record = loaded.records[slot];
+                    if (!saving.containsKey(readString(data, record + 4))) {
+                        hashes[count] = loaded.hashes[slot];
+                        starts[count++] = records.size();
+                        records.write(data.array(), record, 4 + data.getInt(record));
+                    }
+                }
+            }
+            for (Map.Entry<String, Entry> mapEntry : saving.entrySet()) {
+                hashes[count] = hash(mapEntry.getKey());
+                starts[count++] = records.size();
+                writeRecord(out, mapEntry.getKey(), mapEntry.getValue());
+            }
+
+            int capacity = Integer.highestOneBit(Math.max(16, count * 2 - 1)) << 1; // load factor <= 0.5
+            long[] tableHash = new long[capacity];
+            int[] tableRecord = new int[capacity];
+            int base = HEADER_SIZE + capacity * 12;
+            for (int i = 0; i < count; i++) {
+                int slot = (int) hashes[i] & (capacity - 1);
+                while (tableHash[slot] != 0) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                tableHash[slot] = hashes[i];
+                tableRecord[slot] = base + starts[i];
+            }
+
+            // the whole file in memory, it becomes the loaded cache once it is on disk
+            ByteBuffer file = ByteBuffer.allocate(base + records.size());
+            file.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(capacity);
+            file.asLongBuffer().put(tableHash);
+            file.position(file.position() + capacity * 8);
+            file.asIntBuffer().put(tableRecord);
+            file.position(base);
+            file.put(records.toByteArray());
+
+            Files.createDirectories(cacheFile.getParent());
+            Path temporary = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+            try (OutputStream fileOut = Files.newOutputStream(temporary)) {
+                fileOut.write(file.array());
+            }
+            Files.move(temporary, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            table = new Table(file, tableHash, tableRecord, count);
+            for (Map.Entry<String, Entry> saved : saving.entrySet()) {
+                changed.remove(saved.getKey(), saved.getValue()); // a newer entry stays for the next save
+            }
+        } catch (IOException e) {
+            dirty = true;
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Marks the cache as changed and, for a cache that saves itself, schedules a save once the changes stop.
+     * A burst of parsed songs (a scan, a playlist, an analysis) costs one CAS per song and one save.
+     */
+    private void changed() {
+        dirty = true;
+        if (saver == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        lastChangeNanos = now;
+        if (saveScheduled.compareAndSet(false, true)) {
+            firstChangeNanos = now;
+            saver.schedule(this::saveWhenQuiet, SAVE_DELAY_NANOS, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void saveWhenQuiet() {
+        long now = System.nanoTime();
+        long quiet = now - lastChangeNanos;
+        if (quiet < SAVE_DELAY_NANOS && now - firstChangeNanos < SAVE_MAX_DELAY_NANOS) {
+            saver.schedule(this::saveWhenQuiet, SAVE_DELAY_NANOS - quiet, TimeUnit.NANOSECONDS); // still changing
+            return;
+        }
+        saveScheduled.set(false); // a change from now on schedules the next save
+        save();
+    }
+
+    /**
+     * Finds the record of the path in the loaded file and decodes it.
+     */
+    private Entry lookup(String filePath) {
+        Table loaded = table;
+        int capacity = loaded.hashes.length;
+        if (capacity == 0) {
+            return null;
+        }
+        long hash = hash(filePath);
+        int slot = (int) hash & (capacity - 1);
+        while (loaded.hashes[slot] != 0) {
+            if (loaded.hashes[slot] == hash) {
+                int record = loaded.records[slot];
+                if (filePath.equals(readString(loaded.data, record + 4))) {
+                    return readRecord(loaded.data.duplicate(), record + 4);
+                }
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+        return null;
+    }
+
+    // 64-bit FNV-1a over the characters of the path, never 0
+    static long hash(String filePath) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < filePath.length(); i++) {
+            hash ^= filePath.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+
+    // Record format: length, path, size, last modified, metadata, loudness
+
+    private static void writeRecord(DataOutputStream out, String filePath, Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream record = new DataOutputStream(bytes);
+        Mp3Metadata metadata = entry.metadata;
+        writeString(record, filePath);
+        record.writeLong(entry.size);
+        record.writeLong(entry.lastModified);
+        writeString(record, metadata.getTitle());
+        writeString(record, metadata.getArtist());
+        writeString(record, metadata.getAlbum());
+        record.writeInt(metadata.getFrameCount());
+        record.writeInt(metadata.getSampleRate());
+        record.writeShort(metadata.getSamplesPerFrame());
+        record.writeByte(metadata.getChannels());
+        record.writeInt((int) metadata.getAudioStart());
+        record.writeInt((int) metadata.getAudioEnd());
+        record.writeShort(metadata.getEncoderDelay());
+        record.writeShort(metadata.getEncoderPadding());
+        record.writeInt((int) metadata.getArtOffset());
+        record.writeInt(metadata.getArtLength());
+        record.writeByte(metadata.getArtFlags());
+
+        // only a table index is small enough to keep, stored as growing offsets in variable length deltas
+        FrameIndex frameIndex = metadata.getFrameIndex();
+        if (frameIndex != null && !frameIndex.isExact()) {
+            int[] table = frameIndex.getEntryOffsets();
+            record.writeInt(frameIndex.getReferenceHeader());
+            record.writeShort(table.length);
+            int previous = 0;
+            for (int offset : table) {
+                writeVarInt(record, offset - previous);
+                previous = offset;
+            }
+        } else {
+            record.writeInt(0);
+        }
+
+        Loudness loudness = entry.loudness;
+        record.writeBoolean(loudness != null);
+        if (loudness != null) {
+            record.writeFloat(loudness.getTrackGain());
+            record.writeFloat(loudness.getTrackPeak());
+            record.writeFloat(loudness.getAlbumGain());
+            record.writeFloat(loudness.getAlbumPeak());
+        }
+
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    private static Entry readRecord(ByteBuffer in, int position) {
+        in.position(position);
+        readString(in); // path, already checked
+        long size = in.getLong();
+        long lastModified = in.getLong();
+        String title = readString(in);
+        String artist = readString(in);
+        String album = readString(in);
+        int frameCount = in.getInt();
+        int sampleRate = in.getInt();
+        int samplesPerFrame = in.getShort();
+        int channels = in.get();
+        long audioStart = in.getInt();
+        long audioEnd = in.getInt();
+        int encoderDelay = in.getShort() & 0xFFFF;
+        int encoderPadding = in.getShort() & 0xFFFF;
+        long artOffset = in.getInt();
+        int artLength = in.getInt();
+        int artFlags = in.get();
+
+        FrameIndex frameIndex = null;
+        int referenceHeader = in.getInt();
+        if (referenceHeader != 0) {
+            int[] table = new int[in.getShort() & 0xFFFF];
+            int previous = 0;
+            for (int i = 0; i < table.length; i++) {
+                previous += readVarInt(in);
+                table[i] = previous;
+            }
+            frameIndex = FrameIndex.fromTable(table, frameCount, audioStart, audioEnd, referenceHeader);
+        }
+        Loudness loudness = null;
+        if (in.get() != 0) {
+            loudness = new Loudness(in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat());
+        }
+        Mp3Metadata metadata = new Mp3Metadata(title, artist, album, frameCount, sampleRate, samplesPerFrame, channels,
+                audioStart, audioEnd, encoderDelay, encoderPadding, artOffset, artLength, artFlags, frameIndex);
+        return new Entry(size, lastModified, metadata, loudness);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static String readString(ByteBuffer in, int position) {
+        int length = in.getShort(position) & 0xFFFF;
+        return new String(in.array(), position + 2, length, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+
+    /**
+     * The cache file in memory: hash table and records, never modified.
+     */
+    private static final class Table {
+        final ByteBuffer data;
+        final long[] hashes;  // open addressing, 0 = empty slot
+        final int[] records;  // position of the record in data
+        final int count;
+
+        Table(ByteBuffer data, long[] hashes, int[] records, int count) {
+            this.data = data;
+            this.hashes = hashes;
+            this.records = records;
+            this.count = count;
+        }
+    }
+
+    private static final class Entry {
+        final long size;
+        final long lastModified;
+        final Mp3Metadata metadata;
+        final Loudness loudness; // null if not analyzed
+
+        Entry(long size, long lastModified, Mp3Metadata metadata, Loudness loudness) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.metadata = metadata;
+            this.loudness = loudness;
+        }
+    }
+}
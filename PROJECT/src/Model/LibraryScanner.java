@@ -0,0 +1,345 @@
+package Model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Skenira foldere biblioteke paralelno: svaki folder je jedan zadatak u ForkJoinPool-u, pa vise niti
+ * istovremeno cita razlicite foldere preko NIO DirectoryStream-a.
+ * Novi ili promijenjeni mp3 fajlovi se skupljaju u pakete od BATCH_SIZE i citaju preko LibraryCache-a
+ * na istim nitima, dok se skeniranje nastavlja.
+ * Nakon watch() WatchService prati sve skenirane foldere, pa se nove, promijenjene i obrisane pjesme
+ * javljaju bez ponovnog skeniranja cijele biblioteke.
+ */
+public class LibraryScanner implements Closeable {
+
+    /**
+     * Receives the changes of the library. Called from the scanner and watcher threads.
+     */
+    public interface Listener {
+        /**
+         * New songs, or songs whose file changed since they were last reported.
+         */
+        void songsFound(List<Song> songs);
+
+        void songsRemoved(List<String> paths);
+
+        void scanFinished(Path root, int files, long nanos);
+    }
+
+    static final int BATCH_SIZE = 256;
+    private static final long SETTLE_MILLISECONDS = 500; // a file that is still being copied sends many events
+
+    private final LibraryCache libraryCache;
+    private final Listener listener;
+    private final ForkJoinPool pool;
+    private final Map<String, Long> known = new ConcurrentHashMap<>(); // path -> last modified time
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private volatile WatchService watchService;
+    private volatile boolean closed;
+
+    public LibraryScanner(LibraryCache libraryCache, Listener listener) {
+        this(Runtime.getRuntime().availableProcessors(), libraryCache, listener);
+    }
+
+    public LibraryScanner(int threads, LibraryCache libraryCache, Listener listener) {
+        this.libraryCache = libraryCache;
+        this.listener = listener;
+        this.pool = new ForkJoinPool(threads, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("library-scanner-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    // Getters
+
+    public int getKnownSongCount() {
+        return known.size();
+    }
+
+    public boolean isWatching() {
+        return watchService != null;
+    }
+
+    //Methods
+
+    /**
+     * Walks the folder and everything below it and reports the mp3 files that are new or changed.
+     * Files that were found under this folder before and are gone now are reported as removed.
+     * Blocks until the songs of the last batch are read.
+     *
+     * @return number of mp3 files in the folder
+     */
+    public int scan(Path root) {
+        long started = System.nanoTime();
+        Scan scan = new Scan();
+        pool.invoke(new DirectoryTask(root, scan));
+        List<String> rest = scan.takeBatch();
+        if (!rest.isEmpty()) {
+            scan.metadataTasks.add(pool.submit(() -> readBatch(rest)));
+        }
+        for (ForkJoinTask<?> task : scan.metadataTasks) {
+            task.join();
+        }
+
+        String prefix = root.toString() + File.separator;
+        List<String> removed = new ArrayList<>();
+        for (Iterator<String> paths = known.keySet().iterator(); paths.hasNext(); ) {
+            String path = paths.next();
+            if (path.startsWith(prefix) && !scan.seen.contains(path)) {
+                paths.remove();
+                removed.add(path);
+            }
+        }
+        if (!removed.isEmpty()) {
+            listener.songsRemoved(removed);
+        }
+        listener.scanFinished(root, scan.seen.size(), System.nanoTime() - started);
+        return scan.seen.size();
+    }
+
+    /**
+     * Starts following changes in every folder scanned from now on. Call it before scan(), so nothing
+     * that changes during the scan is missed.
+     */
+    public synchronized void watch() throws IOException {
+        if (watchService != null || closed) {
+            return;
+        }
+        WatchService service = Path.of("").toAbsolutePath().getFileSystem().newWatchService();
+        watchService = service;
+        Thread watcher = new Thread(() -> watchLoop(service), "library-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        WatchService service = watchService;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        pool.shutdownNow();
+    }
+
+    private void readBatch(List<String> paths) {
+        List<Song> songs = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            if (closed) {
+                return;
+            }
+            songs.add(new Song(path, libraryCache));
+        }
+        listener.songsFound(songs);
+    }
+
+    private void register(Path directory) {
+        WatchService service = watchService;
+        if (service == null) {
+            return;
+        }
+        try {
+            WatchKey key = directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            watchedDirectories.put(key, directory);
+        } catch (IOException | ClosedWatchServiceException e) {
+            System.out.println("Cannot watch folder " + directory + ": " + e.getMessage()); // e.g. the inotify limit
+        }
+    }
+
+    /**
+     * Runs on the watcher thread. Created and modified paths wait until they are quiet for SETTLE_MILLISECONDS,
+     * then a new folder is scanned and a file is read again.
+     */
+    private void watchLoop(WatchService service) {
+        Map<Path, Long> pending = new HashMap<>(); // path -> time of its last event
+        try {
+            while (!closed) {
+                WatchKey key = service.poll(SETTLE_MILLISECONDS / 5, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    Path directory = watchedDirectories.get(key);
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (directory == null) {
+                            continue;
+                        }
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            pending.put(directory, System.currentTimeMillis()); // events were lost, rescan the folder
+                        } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                            Path path = directory.resolve((Path) event.context());
+                            pending.remove(path);
+                            removed(path);
+                        } else {
+                            pending.put(directory.resolve((Path) event.context()), System.currentTimeMillis());
+                        }
+                    }
+                    if (!key.reset()) {
+                        watchedDirectories.remove(key); // the folder was deleted
+                    }
+                }
+                processSettled(pending);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private void processSettled(Map<Path, Long> pending) {
+        long now = System.currentTimeMillis();
+        List<String> changedFiles = new ArrayList<>();
+        for (Iterator<Map.Entry<Path, Long>> entries = pending.entrySet().iterator(); entries.hasNext(); ) {
+            Map.Entry<Path, Long> entry = entries.next();
+            if (now - entry.getValue() < SETTLE_MILLISECONDS) {
+                continue;
+            }
+            entries.remove();
+            Path path = entry.getKey();
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class,
+                        LinkOption.NOFOLLOW_LINKS);
+                if (attributes.isDirectory()) {
+                    scan(path); // registers the new folder and everything in it
+                } else if (attributes.isRegularFile() && isMp3(path)) {
+                    Long previous = known.put(path.toString(), attributes.lastModifiedTime().toMillis());
+                    if (previous == null || previous != attributes.lastModifiedTime().toMillis()) {
+                        changedFiles.add(path.toString());
+                    }
+                }
+            } catch (IOException e) {
+                // deleted again before it settled
+            }
+        }
+        if (!changedFiles.isEmpty()) {
+            readBatch(changedFiles);
+        }
+    }
+
+    private void removed(Path path) {
+        String removedPath = path.toString();
+        List<String> removed = new ArrayList<>();
+        if (known.remove(removedPath) != null) {
+            removed.add(removedPath);
+        } else {
+            String prefix = removedPath + File.separator; // a whole folder
+            for (Iterator<String> paths = known.keySet().iterator(); paths.hasNext(); ) {
+                String knownPath = paths.next();
+                if (knownPath.startsWith(prefix)) {
+                    paths.remove();
+                    removed.add(knownPath);
+                }
+            }
+        }
+        if (!removed.isEmpty()) {
+            listener.songsRemoved(removed);
+        }
+    }
+
+    private static boolean isMp3(Path file) {
+        String name = file.getFileName().toString();
+        return name.regionMatches(true, name.length() - 4, ".mp3", 0, 4);
+    }
+
+
+    /**
+     * State of one scan, shared by its directory tasks.
+     */
+    private final class Scan {
+        final Set<String> seen = ConcurrentHashMap.newKeySet();
+        final Queue<ForkJoinTask<?>> metadataTasks = new ConcurrentLinkedQueue<>();
+        private List<String> batch = new ArrayList<>(BATCH_SIZE);
+
+        void fileFound(Path file, long lastModified) {
+            String path = file.toString();
+            seen.add(path);
+            Long previous = known.put(path, lastModified);
+            if (previous != null && previous == lastModified) {
+                return; // reported before and not changed since
+            }
+            List<String> full = null;
+            synchronized (this) {
+                batch.add(path);
+                if (batch.size() == BATCH_SIZE) {
+                    full = batch;
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if (full != null) {
+                List<String> paths = full;
+                metadataTasks.add(ForkJoinTask.adapt(() -> readBatch(paths)).fork());
+            }
+        }
+
+        synchronized List<String> takeBatch() {
+            List<String> rest = batch;
+            batch = new ArrayList<>(0);
+            return rest;
+        }
+    }
+
+    /**
+     * Lists one folder, forks a task for every subfolder and hands the mp3 files to the scan.
+     */
+    private final class DirectoryTask extends RecursiveAction {
+        private final Path directory;
+        private final Scan scan;
+
+        DirectoryTask(Path directory, Scan scan) {
+            this.directory = directory;
+            this.scan = scan;
+        }
+
+        @Override
+        protected void compute() {
+            if (closed) {
+                return;
+            }
+            register(directory);
+            List<DirectoryTask> subdirectories = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS); // symbolic links are not followed, so there are no cycles
+                    if (attributes.isDirectory()) {
+                        subdirectories.add(new DirectoryTask(entry, scan));
+                    } else if (attributes.isRegularFile() && isMp3(entry)) {
+                        scan.fileFound(entry, attributes.lastModifiedTime().toMillis());
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("Cannot read folder " + directory + ": " + e.getMessage());
+            }
+            invokeAll(subdirectories);
+        }
+    }
+}
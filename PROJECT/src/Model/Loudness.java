@@ -0,0 +1,53 @@
+package Model;
+
+/**
+ * Rezultat analize glasnoce pjesme: pojacanje pjesme i albuma (ReplayGain 2.0, u odnosu na -18 LUFS)
+ * i najveci uzorak, da pojacanje ne izazove kliping. Cuva se u LibraryCache-u uz metapodatke.
+ */
+public class Loudness {
+
+    public static final double REFERENCE_LUFS = -18;
+
+    private final float trackGain;  // dB
+    private final float trackPeak;  // 0 to 1
+    private final float albumGain;
+    private final float albumPeak;
+
+    public Loudness(float trackGain, float trackPeak, float albumGain, float albumPeak) {
+        this.trackGain = trackGain;
+        this.trackPeak = trackPeak;
+        this.albumGain = albumGain;
+        this.albumPeak = albumPeak;
+    }
+
+    /**
+     * The gain in dB that brings the given integrated loudness to the reference, 0 for silence.
+     */
+    public static float gainFor(double integratedLoudness) {
+        return Double.isInfinite(integratedLoudness) ? 0 : (float) (REFERENCE_LUFS - integratedLoudness);
+    }
+
+    // Getters
+
+    public float getTrackGain() {
+        return trackGain;
+    }
+
+    public float getTrackPeak() {
+        return trackPeak;
+    }
+
+    public float getAlbumGain() {
+        return albumGain;
+    }
+
+    public float getAlbumPeak() {
+        return albumPeak;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("track %+.2f dB (peak %.3f), album %+.2f dB (peak %.3f)", trackGain, trackPeak,
+                albumGain, albumPeak);
+    }
+}
@@ -0,0 +1,211 @@
+package Model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Analiza glasnoce pjesama u pozadini: svaka pjesma se dekodira cijela i mjeri LoudnessMeter-om,
+ * po jedna pjesma na svakoj jezgri. Pjesme istog albuma (isti folder i isti naziv albuma) se na kraju
+ * mjere i zajedno, iz blokova svih njihovih pjesama, za pojacanje albuma.
+ * Rezultat se upisuje u LibraryCache. Album cije su sve pjesme vec analizirane se preskace, a album kome
+ * fali ijedna pjesma (npr. dodana je nova) se mjeri ponovo cijeli, da pojacanje albuma vrijedi za sve njegove pjesme.
+ */
+public class LoudnessAnalyzer {
+
+    /**
+     * Obavjestenja o napretku analize, sa radnih niti.
+     */
+    public interface Listener {
+        void trackAnalyzed(Song song, Loudness loudness, int done, int total);
+    }
+
+    private final LibraryCache libraryCache;
+    private final int threads;
+
+    public LoudnessAnalyzer(LibraryCache libraryCache) {
+        this(libraryCache, Runtime.getRuntime().availableProcessors());
+    }
+
+    public LoudnessAnalyzer(LibraryCache libraryCache, int threads) {
+        this.libraryCache = libraryCache;
+        this.threads = threads;
+    }
+
+    //Methods
+
+    /**
+     * Analyzes the albums that have a song without stored loudness, every song of such an album, and waits
+     * for all of them.
+     *
+     * @param listener told about every analyzed song, or null
+     * @return number of songs whose loudness was stored
+     */
+    public int analyze(List<Song> songs, Listener listener) throws InterruptedException {
+        // songs grouped by album, so an album is finished (and its blocks freed) before the next one starts
+        Map<String, List<Song>> albums = new HashMap<>();
+        List<List<Song>> all = new ArrayList<>();
+        for (Song song : songs) {
+            if (song.getMetadata() == null) {
+                continue;
+            }
+            albums.computeIfAbsent(albumKey(song), key -> {
+                List<Song> created = new ArrayList<>();
+                all.add(created);
+                return created;
+            }).add(song);
+        }
+        List<List<Song>> order = new ArrayList<>();
+        int total = 0;
+        for (List<Song> album : all) {
+            for (Song song : album) {
+                if (libraryCache.getLoudness(song.getFile()) == null) {
+                    order.add(album); // its album gain must cover the new song too
+                    total += album.size();
+                    break;
+                }
+            }
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long started = System.nanoTime();
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "loudness-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY); // playback comes first
+            return thread;
+        });
+        AtomicInteger done = new AtomicInteger(); // songs whose loudness was stored
+        int songCount = total;
+        try {
+            for (List<Song> album : order) {
+                AlbumResult result = new AlbumResult(album.size());
+                for (int i = 0; i < album.size(); i++) {
+                    Song song = album.get(i);
+                    int position = i;
+                    workers.execute(() -> {
+                        LoudnessMeter meter = measure(song);
+                        if (result.finished(position, meter)) {
+                            store(album, result, listener, done, songCount);
+                        }
+                    });
+                }
+            }
+        } finally {
+            workers.shutdown();
+            try {
+                while (!workers.awaitTermination(1, TimeUnit.SECONDS)) {
+                    // an album of long songs takes a while
+                }
+            } catch (InterruptedException e) {
+                workers.shutdownNow();
+                throw e;
+            }
+        }
+        int stored = done.get(); // songs that could not be decoded are not counted
+        double minutes = (System.nanoTime() - started) / 60e9;
+        System.out.printf("Loudness of %d songs analyzed in %.1f s, %.0f tracks/min%n", stored, minutes * 60,
+                stored / Math.max(minutes, 1e-9));
+        return stored;
+    }
+
+    /**
+     * Decodes the whole song through the meter.
+     *
+     * @return the meter, or null if the song could not be decoded
+     */
+    static LoudnessMeter measure(Song song) {
+        try (TrackDecoder decoder = new TrackDecoder(song, 0)) {
+            LoudnessMeter meter = new LoudnessMeter(decoder.getSampleRate(), decoder.getChannels());
+            int samples;
+            while ((samples = decoder.decodeFrame()) >= 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return null;
+                }
+                meter.add(decoder.getBuffer(), decoder.getOffset(), samples);
+            }
+            return meter;
+        } catch (IOException e) {
+            System.out.println("Error analyzing " + song.getFile());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private void store(List<Song> album, AlbumResult result, Listener listener, AtomicInteger done, int total) {
+        List<double[]> blocks = new ArrayList<>();
+        float albumPeak = 0;
+        int blockCount = 0;
+        int measured = 0;
+        for (LoudnessMeter meter : result.meters) {
+            if (meter != null) {
+                measured++;
+                double[] energies = meter.getBlockEnergies();
+                blocks.add(energies);
+                blockCount += energies.length;
+                albumPeak = Math.max(albumPeak, meter.getPeak());
+            }
+        }
+        double[] all = new double[blockCount];
+        int position = 0;
+        for (double[] energies : blocks) {
+            System.arraycopy(energies, 0, all, position, energies.length);
+            position += energies.length;
+        }
+        float albumGain = measured > 1 ? Loudness.gainFor(LoudnessMeter.integrated(all, blockCount)) : Float.NaN;
+
+        for (int i = 0; i < album.size(); i++) {
+            LoudnessMeter meter = result.meters[i];
+            if (meter == null) {
+                continue;
+            }
+            Song song = album.get(i);
+            Loudness loudness = new Loudness(Loudness.gainFor(meter.getIntegratedLoudness()), meter.getPeak(),
+                    albumGain, measured > 1 ? albumPeak : Float.NaN);
+            libraryCache.putLoudness(song.getFile(), loudness);
+            int stored = done.incrementAndGet();
+            if (listener != null) {
+                listener.trackAnalyzed(song, loudness, stored, total);
+            }
+        }
+    }
+
+    private static String albumKey(Song song) {
+        String album = song.getMetadata().getAlbum();
+        if (album == null || album.isEmpty()) {
+            return song.getFile(); // a song without an album is an album of its own
+        }
+        return new File(song.getFile()).getParent() + File.separator + album;
+    }
+
+
+    /**
+     * Meters of the songs of one album, filled in by the worker threads.
+     */
+    private static final class AlbumResult {
+        final LoudnessMeter[] meters;
+        private int finished;
+
+        AlbumResult(int songs) {
+            meters = new LoudnessMeter[songs];
+        }
+
+        /**
+         * @return true for the last song of the album
+         */
+        synchronized boolean finished(int position, LoudnessMeter meter) {
+            meters[position] = meter;
+            return ++finished == meters.length;
+        }
+    }
+}
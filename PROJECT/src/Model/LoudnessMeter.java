@@ -0,0 +1,162 @@
+package Model;
+
+import java.util.Arrays;
+
+/**
+ * Mjerac glasnoce po EBU R128 (ITU-R BS.1770): signal se filtrira K-filterom (dva biquad filtra po kanalu),
+ * energija se racuna u blokovima od 400 ms koji se preklapaju 75 %, a integrisana glasnoca je prosjek blokova
+ * iznad apsolutnog praga (-70 LUFS) i relativnog praga (10 LU ispod prosjeka).
+ * Pamti i najveci uzorak (sample peak) za limiter.
+ */
+public class LoudnessMeter {
+
+    static final double ABSOLUTE_GATE = -70;
+    static final double RELATIVE_GATE = -10;
+
+    private final int channels;
+    private final int subBlockFrames;       // 100 ms, four of them make one gating block
+    private final double[] b = new double[6]; // shelf b0 b1 b2, high pass b0 b1 b2
+    private final double[] a = new double[4]; // shelf a1 a2, high pass a1 a2
+    private final double[] state;            // per channel: shelf z1 z2, high pass z1 z2
+
+    private final double[] subBlocks = new double[4]; // energy of the last four sub-blocks, summed over channels
+    private int subBlockCount;
+    private double subBlockSum;
+    private int subBlockFill;
+    private double[] blockEnergies = new double[256];
+    private int blockCount;
+    private int peak;
+
+    public LoudnessMeter(int sampleRate, int channels) {
+        this.channels = channels;
+        this.subBlockFrames = sampleRate / 10;
+        this.state = new double[channels * 4];
+
+        // stage 1, high shelf of the head, coefficients for any sample rate as in libebur128
+        double k = Math.tan(Math.PI * 1681.974450955533 / sampleRate);
+        double q = 0.7071752369554196;
+        double vh = Math.pow(10, 3.999843853973347 / 20);
+        double vb = Math.pow(vh, 0.4996667741545416);
+        double a0 = 1 + k / q + k * k;
+        b[0] = (vh + vb * k / q + k * k) / a0;
+        b[1] = 2 * (k * k - vh) / a0;
+        b[2] = (vh - vb * k / q + k * k) / a0;
+        a[0] = 2 * (k * k - 1) / a0;
+        a[1] = (1 - k / q + k * k) / a0;
+
+        // stage 2, RLB high pass
+        k = Math.tan(Math.PI * 38.13547087602444 / sampleRate);
+        q = 0.5003270373238773;
+        a0 = 1 + k / q + k * k;
+        b[3] = 1;
+        b[4] = -2;
+        b[5] = 1;
+        a[2] = 2 * (k * k - 1) / a0;
+        a[3] = (1 - k / q + k * k) / a0;
+    }
+
+    // Getters
+
+    /**
+     * Integrated loudness in LUFS, or negative infinity if everything was below the absolute gate (silence).
+     */
+    public double getIntegratedLoudness() {
+        return integrated(blockEnergies, blockCount);
+    }
+
+    /**
+     * Highest absolute sample, from 0 to 1.
+     */
+    public float getPeak() {
+        return peak / 32768f;
+    }
+
+    /**
+     * Energy of every gating block, for the loudness of an album that is measured over all its songs.
+     */
+    double[] getBlockEnergies() {
+        return Arrays.copyOf(blockEnergies, blockCount);
+    }
+
+    //Methods
+
+    /**
+     * Measures interleaved samples. length is a whole number of sample frames.
+     */
+    public void add(short[] samples, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end; i += channels) {
+            double energy = 0;
+            for (int channel = 0; channel < channels; channel++) {
+                int sample = samples[i + channel];
+                peak = Math.max(peak, Math.abs(sample));
+                double filtered = filter(sample / 32768.0, channel * 4);
+                energy += filtered * filtered; // left, right and mono channels all weigh 1
+            }
+            subBlockSum += energy;
+            if (++subBlockFill == subBlockFrames) {
+                endSubBlock();
+            }
+        }
+    }
+
+    /**
+     * Integrated loudness of the given block energies, with both gates.
+     */
+    static double integrated(double[] energies, int count) {
+        double absolute = energyOf(ABSOLUTE_GATE);
+        double sum = 0;
+        int gated = 0;
+        for (int i = 0; i < count; i++) {
+            if (energies[i] > absolute) {
+                sum += energies[i];
+                gated++;
+            }
+        }
+        if (gated == 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        double relative = energyOf(loudnessOf(sum / gated) + RELATIVE_GATE);
+        sum = 0;
+        gated = 0;
+        for (int i = 0; i < count; i++) {
+            if (energies[i] > absolute && energies[i] > relative) {
+                sum += energies[i];
+                gated++;
+            }
+        }
+        return gated == 0 ? Double.NEGATIVE_INFINITY : loudnessOf(sum / gated);
+    }
+
+    private static double loudnessOf(double energy) {
+        return -0.691 + 10 * Math.log10(energy);
+    }
+
+    private static double energyOf(double loudness) {
+        return Math.pow(10, (loudness + 0.691) / 10);
+    }
+
+    // both biquads in transposed direct form II
+    private double filter(double x, int s) {
+        double y = b[0] * x + state[s];
+        state[s] = b[1] * x - a[0] * y + state[s + 1];
+        state[s + 1] = b[2] * x - a[1] * y;
+        double z = b[3] * y + state[s + 2];
+        state[s + 2] = b[4] * y - a[2] * z + state[s + 3];
+        state[s + 3] = b[5] * y - a[3] * z;
+        return z;
+    }
+
+    private void endSubBlock() {
+        subBlocks[subBlockCount % 4] = subBlockSum / subBlockFrames;
+        subBlockCount++;
+        subBlockSum = 0;
+        subBlockFill = 0;
+        if (subBlockCount >= 4) { // a 400 ms block ends every 100 ms
+            if (blockCount == blockEnergies.length) {
+                blockEnergies = Arrays.copyOf(blockEnergies, blockCount * 2);
+            }
+            blockEnergies[blockCount++] = (subBlocks[0] + subBlocks[1] + subBlocks[2] + subBlocks[3]) / 4;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package Model;
+
+/**
+ * Pomocne metode za citanje 4-bajtnog zaglavlja MPEG audio frejma.
+ * Zaglavlje se cuva kao int (big-endian) kako se ne bi alocirao objekt po frejmu.
+ */
+final class Mp3Header {
+
+    // MPEG1 bitrates (kbps), indexed by [layer - 1][bitrateIndex]
+    private static final int[][] MPEG1_BITRATES = {
+            {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448, 0},
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384, 0},
+            {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 0}
+    };
+
+    // MPEG2 / MPEG2.5 bitrates (kbps), Layer I and Layers II/III
+    private static final int[][] MPEG2_BITRATES = {
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256, 0},
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160, 0}
+    };
+
+    private static final int[] MPEG1_SAMPLE_RATES = {44100, 48000, 32000};
+
+    static final int VERSION_25 = 0;
+    static final int VERSION_2 = 2;
+    static final int VERSION_1 = 3;
+
+    private Mp3Header() {
+    }
+
+    static boolean isValid(int header) {
+        return (header >>> 21) == 0x7FF        // 11-bit frame sync
+                && version(header) != 1         // reserved version
+                && layer(header) != 0           // reserved layer
+                && bitrateIndex(header) != 0    // free format is not supported
+                && bitrateIndex(header) != 15
+                && ((header >>> 10) & 0x3) != 3; // reserved sample rate
+    }
+
+    /**
+     * Two headers belong to the same stream if version, layer and sample rate match.
+     * Used to reject false syncs inside tag data or garbage between frames.
+     */
+    static boolean isCompatible(int first, int second) {
+        return (first & 0xFFFE0C00) == (second & 0xFFFE0C00);
+    }
+
+    static int version(int header) {
+        return (header >>> 19) & 0x3;
+    }
+
+    // 1 = Layer I, 2 = Layer II, 3 = Layer III
+    static int layer(int header) {
+        return 4 - ((header >>> 17) & 0x3);
+    }
+
+    static int bitrateIndex(int header) {
+        return (header >>> 12) & 0xF;
+    }
+
+    static int bitrate(int header) {
+        int layer = layer(header);
+        if (version(header) == VERSION_1) {
+            return MPEG1_BITRATES[layer - 1][bitrateIndex(header)] * 1000;
+        }
+        return MPEG2_BITRATES[layer == 1 ? 0 : 1][bitrateIndex(header)] * 1000;
+    }
+
+    static int sampleRate(int header) {
+        int rate = MPEG1_SAMPLE_RATES[(header >>> 10) & 0x3];
+        switch (version(header)) {
+            case VERSION_2:
+                return rate / 2;
+            case VERSION_25:
+                return rate / 4;
+            default:
+                return rate;
+        }
+    }
+
+    static boolean isMono(int header) {
+        return ((header >>> 6) & 0x3) == 3;
+    }
+
+    static int samplesPerFrame(int header) {
+        switch (layer(header)) {
+            case 1:
+                return 384;
+            case 2:
+                return 1152;
+            default:
+                return version(header) == VERSION_1 ? 1152 : 576;
+        }
+    }
+
+    static int frameLength(int header) {
+        int padding = (header >>> 9) & 0x1;
+        int bitrate = bitrate(header);
+        int sampleRate = sampleRate(header);
+        if (layer(header) == 1) {
+            return (12 * bitrate / sampleRate + padding) * 4;
+        }
+        int coefficient = layer(header) == 3 && version(header) != VERSION_1 ? 72 : 144;
+        return coefficient * bitrate / sampleRate + padding;
+    }
+
+    /**
+     * Offset of the Xing/Info tag inside a Layer III frame (right after the side information).
+     */
+    static int xingOffset(int header) {
+        boolean mono = isMono(header);
+        if (version(header) == VERSION_1) {
+            return mono ? 4 + 17 : 4 + 32;
+        }
+        return mono ? 4 + 9 : 4 + 17;
+    }
+}
@@ -0,0 +1,122 @@
+package Model;
+
+/**
+ * Podaci o MP3 fajlu koje Mp3MetadataReader procita u jednom prolazu:
+ * tekstualni tagovi, trajanje, broj frejmova, podaci za gapless reprodukciju i polozaj omota albuma u fajlu.
+ * Omot se ne cita ovdje, pamti se samo gdje se nalazi pa ga je moguce procitati kasnije.
+ * Izvodjac i album se interniraju, jer se ponavljaju u svim pjesmama istog albuma.
+ */
+public class Mp3Metadata {
+
+    static final int ART_UNSYNCHRONISED = 1; // APIC body uses ID3 unsynchronisation
+    static final int ART_ID3V22 = 2;         // PIC frame of an ID3v2.2 tag (3-char image format)
+
+    private final String title;
+    private final String artist;
+    private final String album;
+    private final int frameCount;
+    private final int sampleRate;
+    private final int samplesPerFrame;
+    private final int channels;
+    private final long audioStart;   // first audio frame
+    private final long audioEnd;
+    private final int encoderDelay;  // samples added by the encoder at the start (LAME tag)
+    private final int encoderPadding; // samples added by the encoder at the end (LAME tag)
+    private final long artOffset;    // start of the APIC/PIC frame body, -1 if there is no artwork
+    private final int artLength;
+    private final int artFlags;
+    private final FrameIndex frameIndex; // Xing/VBRI table index, null if the file has none
+
+    Mp3Metadata(String title, String artist, String album, int frameCount, int sampleRate, int samplesPerFrame,
+                int channels, long audioStart, long audioEnd, int encoderDelay, int encoderPadding,
+                long artOffset, int artLength, int artFlags, FrameIndex frameIndex) {
+        this.title = title;
+        this.artist = artist == null ? null : artist.intern(); // shared by all songs of the artist
+        this.album = album == null ? null : album.intern();
+        this.frameCount = frameCount;
+        this.sampleRate = sampleRate;
+        this.samplesPerFrame = samplesPerFrame;
+        this.channels = channels;
+        this.audioStart = audioStart;
+        this.audioEnd = audioEnd;
+        this.encoderDelay = encoderDelay;
+        this.encoderPadding = encoderPadding;
+        this.artOffset = artOffset;
+        this.artLength = artLength;
+        this.artFlags = artFlags;
+        this.frameIndex = frameIndex;
+    }
+
+    // Getters
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getArtist() {
+        return artist;
+    }
+
+    public String getAlbum() {
+        return album;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getSamplesPerFrame() {
+        return samplesPerFrame;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public long getAudioStart() {
+        return audioStart;
+    }
+
+    public long getAudioEnd() {
+        return audioEnd;
+    }
+
+    public int getEncoderDelay() {
+        return encoderDelay;
+    }
+
+    public int getEncoderPadding() {
+        return encoderPadding;
+    }
+
+    public boolean hasArtwork() {
+        return artOffset >= 0;
+    }
+
+    long getArtOffset() {
+        return artOffset;
+    }
+
+    int getArtLength() {
+        return artLength;
+    }
+
+    int getArtFlags() {
+        return artFlags;
+    }
+
+    /**
+     * The Xing/VBRI table index, or null. An exact index is never kept here, see Song.getFrameIndex().
+     */
+    public FrameIndex getFrameIndex() {
+        return frameIndex;
+    }
+
+    public long getDurationInMilliseconds() {
+        return sampleRate == 0 ? 0 : (long) frameCount * samplesPerFrame * 1000L / sampleRate;
+    }
+}
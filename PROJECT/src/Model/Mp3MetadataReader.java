@@ -0,0 +1,557 @@
+package Model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Cita sve sto Song treba iz MP3 fajla u jednom prolazu kroz jedan FileChannel:
+ * ID3v2 tag (naslov, izvodjac, album i polozaj omota), Xing/Info/VBRI i LAME zaglavlje prvog frejma,
+ * te broj frejmova. Ako fajl ima Xing ili VBRI tablicu, frejmovi se uopce ne citaju;
+ * inace se jednom prodje kroz zaglavlja frejmova da se prebroje. Tocni FrameIndex iz tog prolaza se ne cuva
+ * u metapodacima (za pjesmu od 5 minuta ima desetine KB), Song ga gradi tek kod premotavanja.
+ * Omot albuma se ne dekodira, pamti se samo gdje se nalazi (vidi readArtwork).
+ */
+public final class Mp3MetadataReader {
+
+    private static final int WINDOW_SIZE = 64 * 1024;
+    private static final int XING = 0x58696E67; // "Xing"
+    private static final int INFO = 0x496E666F; // "Info"
+    private static final int VBRI = 0x56425249; // "VBRI"
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private ByteBuffer window = ByteBuffer.allocate(WINDOW_SIZE);
+    private long windowStart = 0;
+    private int windowLength = 0;
+    private boolean pinned; // window holds a decoded tag instead of file data, never refill it
+    private final boolean hasId3v1;
+
+    // ID3 tag results
+    private boolean hasTag;
+    private String title;
+    private String artist;
+    private String album;
+    private long artOffset = -1;
+    private int artLength;
+    private int artFlags;
+
+    // Xing/Info/VBRI/LAME results
+    private int headerFrames;
+    private long headerBytes;
+    private int[] seekTable;
+    private boolean constantBitrate; // "Info" instead of "Xing"
+    private int encoderDelay;
+    private int encoderPadding;
+
+    private Mp3MetadataReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.fileSize = channel.size();
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException("File is too large: " + fileSize + " bytes");
+        }
+        long tag = fileSize - 128;
+        this.hasId3v1 = tag >= 0 && ensure(tag, 3) && byteAt(tag) == 'T' && byteAt(tag + 1) == 'A' && byteAt(tag + 2) == 'G';
+    }
+
+    /**
+     * Reads the tags and stream information of an mp3 file.
+     *
+     * @param filePath path to the mp3 file
+     * @return metadata of the file, with the Xing/VBRI table index if the file has one
+     * @throws IOException if the file cannot be read or contains no MPEG audio frames
+     */
+    public static Mp3Metadata read(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            return new Mp3MetadataReader(channel).readMetadata();
+        }
+    }
+
+    static FrameIndex scanFrames(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            Mp3MetadataReader reader = new Mp3MetadataReader(channel);
+            long first = reader.findFirstFrame(reader.skipId3v2());
+            int header = reader.headerAt(first);
+            if (reader.isInfoFrame(first, header)) {
+                first += Mp3Header.frameLength(header);
+            }
+            return reader.scanFrom(first, header);
+        }
+    }
+
+    /**
+     * Reads the embedded image (JPEG/PNG bytes) of the file, or null if it has none.
+     * Only the APIC/PIC frame is read, the rest of the file is not touched.
+     */
+    public static byte[] readArtwork(String filePath, Mp3Metadata metadata) throws IOException {
+        if (!metadata.hasArtwork()) {
+            return null;
+        }
+        byte[] body = new byte[metadata.getArtLength()];
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.wrap(body);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, metadata.getArtOffset() + buffer.position()) < 0) {
+                    throw new IOException("Artwork is truncated");
+                }
+            }
+        }
+        int length = body.length;
+        if ((metadata.getArtFlags() & Mp3Metadata.ART_UNSYNCHRONISED) != 0) {
+            length = removeUnsynchronisation(body, length);
+        }
+
+        int encoding = body[0];
+        int position = 1;
+        if ((metadata.getArtFlags() & Mp3Metadata.ART_ID3V22) != 0) {
+            position += 3; // image format, e.g. "JPG"
+        } else {
+            while (position < length && body[position] != 0) {
+                position++; // MIME type
+            }
+            position++;
+        }
+        position++; // picture type
+        position = skipTerminatedString(body, position, length, encoding);
+        return position < length ? Arrays.copyOfRange(body, position, length) : null;
+    }
+
+
+    //Methods
+
+    private Mp3Metadata readMetadata() throws IOException {
+        long audioSearchStart = readId3v2();
+        long first = findFirstFrame(audioSearchStart);
+        int header = headerAt(first);
+        if (title == null && artist == null) {
+            readId3v1();
+        }
+
+        long audioEnd = fileSize - (hasId3v1 ? 128 : 0);
+        FrameIndex frameIndex;
+        if (isInfoFrame(first, header)) {
+            long audioStart = first + Mp3Header.frameLength(header);
+            if (headerFrames > 0) {
+                if (headerBytes > 0) {
+                    audioEnd = Math.min(audioEnd, first + headerBytes);
+                }
+                // For CBR the frames are evenly spread, interpolating over the whole stream beats the 1/256 TOC steps
+                int[] table = seekTable != null && !constantBitrate ? seekTable : new int[]{(int) audioStart};
+                frameIndex = FrameIndex.fromTable(table, headerFrames, audioStart, audioEnd, header);
+            } else {
+                frameIndex = scanFrom(audioStart, header);
+            }
+        } else {
+            frameIndex = scanFrom(first, header);
+        }
+
+        if (!hasTag && title == null) {
+            title = "N/A";
+            artist = "N/A";
+        }
+        return new Mp3Metadata(title, artist, album, frameIndex.getFrameCount(), frameIndex.getSampleRate(),
+                frameIndex.getSamplesPerFrame(), Mp3Header.isMono(header) ? 1 : 2,
+                frameIndex.offsetOfFrame(0), audioEnd, encoderDelay, encoderPadding,
+                artOffset, artLength, artFlags, frameIndex.isExact() ? null : frameIndex);
+    }
+
+    /**
+     * Walks from frame header to frame header and records where every frame starts.
+     * Frame payloads are never copied, only the headers are looked at.
+     */
+    private FrameIndex scanFrom(long position, int reference) throws IOException {
+        int[] offsets = new int[(int) Math.max(16, (fileSize - position) / 400)]; // ~one 128 kbps frame per 418 bytes
+        int count = 0;
+        while (ensure(position, 4)) {
+            int header = intAt(position);
+            if (!Mp3Header.isValid(header) || !Mp3Header.isCompatible(reference, header)) {
+                if (hasId3v1 && position >= fileSize - 128) {
+                    break;
+                }
+                position++; // lost sync, search for the next header
+                continue;
+            }
+            int length = Mp3Header.frameLength(header);
+            if (position + length > fileSize) {
+                break; // truncated last frame
+            }
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count + (count >> 1));
+            }
+            offsets[count++] = (int) position;
+            position += length;
+        }
+        return FrameIndex.exact(Arrays.copyOf(offsets, count), position, reference);
+    }
+
+    /**
+     * Finds the first frame header that is followed by another header of the same stream,
+     * to avoid false syncs in garbage after the tag.
+     */
+    private long findFirstFrame(long position) throws IOException {
+        while (ensure(position, 4)) {
+            int header = intAt(position);
+            if (Mp3Header.isValid(header)) {
+                long next = position + Mp3Header.frameLength(header);
+                if (next == fileSize || (next + 4 <= fileSize && ensure(next, 4)
+                        && Mp3Header.isValid(intAt(next)) && Mp3Header.isCompatible(header, intAt(next)))) {
+                    return position;
+                }
+            }
+            position++;
+        }
+        throw new IOException("No MPEG audio frames found");
+    }
+
+    /**
+     * Checks the first frame for a Xing/Info or VBRI header and reads its frame count,
+     * seek table and the LAME encoder delay/padding.
+     */
+    private boolean isInfoFrame(long position, int header) throws IOException {
+        if (Mp3Header.layer(header) != 3) {
+            return false;
+        }
+        int frameLength = Mp3Header.frameLength(header);
+        long xing = position + Mp3Header.xingOffset(header);
+        if (ensure(xing, 8) && (intAt(xing) == XING || intAt(xing) == INFO)) {
+            constantBitrate = intAt(xing) == INFO;
+            int flags = intAt(xing + 4);
+            long field = xing + 8;
+            if ((flags & 0x1) != 0 && ensure(field, 4)) {
+                headerFrames = intAt(field);
+                field += 4;
+            }
+            if ((flags & 0x2) != 0 && ensure(field, 4)) {
+                headerBytes = intAt(field) & 0xFFFFFFFFL;
+                field += 4;
+            }
+            if ((flags & 0x4) != 0 && ensure(field, 100)) {
+                if (headerBytes > 0) {
+                    // TOC entry i is the position at i% of the duration, in 1/256 of the stream size
+                    seekTable = new int[100];
+                    for (int i = 0; i < 100; i++) {
+                        seekTable[i] = (int) (position + byteAt(field + i) * headerBytes / 256);
+                    }
+                }
+                field += 100;
+            }
+            if ((flags & 0x8) != 0) {
+                field += 4; // quality
+            }
+            if (field + 24 <= position + frameLength && ensure(field, 24) && isLameTag(field)) {
+                int delayAndPadding = (byteAt(field + 21) << 16) | (byteAt(field + 22) << 8) | byteAt(field + 23);
+                encoderDelay = delayAndPadding >>> 12;
+                encoderPadding = delayAndPadding & 0xFFF;
+            }
+            return true;
+        }
+
+        long vbri = position + 36;
+        if (ensure(vbri, 26) && intAt(vbri) == VBRI) {
+            encoderDelay = (byteAt(vbri + 6) << 8) | byteAt(vbri + 7);
+            headerBytes = intAt(vbri + 10) & 0xFFFFFFFFL;
+            headerFrames = intAt(vbri + 14);
+            int entries = (byteAt(vbri + 18) << 8) | byteAt(vbri + 19);
+            int scale = (byteAt(vbri + 20) << 8) | byteAt(vbri + 21);
+            int entrySize = (byteAt(vbri + 22) << 8) | byteAt(vbri + 23);
+            if (entries > 0 && entrySize >= 1 && entrySize <= 4 && ensure(vbri + 26, entries * entrySize)) {
+                // entries are the sizes of consecutive blocks of frames
+                seekTable = new int[entries];
+                long offset = position + frameLength;
+                for (int i = 0; i < entries; i++) {
+                    seekTable[i] = (int) offset;
+                    long size = 0;
+                    for (int b = 0; b < entrySize; b++) {
+                        size = (size << 8) | byteAt(vbri + 26 + (long) i * entrySize + b);
+                    }
+                    offset += size * scale;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isLameTag(long position) {
+        int tag = intAt(position);
+        return tag == 0x4C414D45 || tag == 0x4C617663 || tag == 0x4C617666; // "LAME", "Lavc", "Lavf"
+    }
+
+
+    // ID3
+
+    private long skipId3v2() throws IOException {
+        if (!ensure(0, 10) || byteAt(0) != 'I' || byteAt(1) != 'D' || byteAt(2) != '3') {
+            return 0;
+        }
+        boolean hasFooter = (byteAt(5) & 0x10) != 0;
+        return 10 + syncsafe(6) + (hasFooter ? 10 : 0);
+    }
+
+    /**
+     * Reads the title, artist and album frames of an ID3v2.2/2.3/2.4 tag and remembers where the
+     * picture frame is. Returns the first byte after the tag.
+     */
+    private long readId3v2() throws IOException {
+        long tagEnd = skipId3v2();
+        if (tagEnd == 0) {
+            return 0;
+        }
+        hasTag = true;
+        int major = byteAt(3);
+        int flags = byteAt(5);
+        long position = 10;
+        long end = 10 + syncsafe(6);
+        if (major < 2 || major > 4) {
+            return tagEnd;
+        }
+
+        boolean unsynchronised = (flags & 0x80) != 0;
+        if (unsynchronised && major < 4) {
+            // In 2.2/2.3 the whole tag is unsynchronised, frame sizes included, so decode it first.
+            // The picture can't be located in the file then, it is skipped.
+            pinTag(end);
+        }
+        if (major >= 3 && (flags & 0x40) != 0 && ensure(position, 4)) {
+            position += major == 3 ? 4 + intAt(position) : syncsafe(position); // extended header
+        }
+
+        int headerSize = major == 2 ? 6 : 10;
+        while (position + headerSize <= end && ensure(position, headerSize) && byteAt(position) != 0) {
+            String id;
+            int size;
+            int frameFlags = 0;
+            if (major == 2) {
+                id = ascii(position, 3);
+                size = (byteAt(position + 3) << 16) | (byteAt(position + 4) << 8) | byteAt(position + 5);
+            } else {
+                id = ascii(position, 4);
+                size = major == 4 ? syncsafe(position + 4) : intAt(position + 4);
+                frameFlags = (byteAt(position + 8) << 8) | byteAt(position + 9);
+            }
+            long body = position + headerSize;
+            if (size <= 0 || body + size > end) {
+                break;
+            }
+            position = body + size;
+
+            int bodyLength = size;
+            boolean frameUnsynchronised = false;
+            if (major == 3) {
+                if ((frameFlags & 0x00C0) != 0) {
+                    continue; // compressed or encrypted
+                }
+                if ((frameFlags & 0x0020) != 0) {
+                    body++; // group id
+                    bodyLength--;
+                }
+            } else if (major == 4) {
+                if ((frameFlags & 0x000C) != 0) {
+                    continue; // compressed or encrypted
+                }
+                if ((frameFlags & 0x0040) != 0) {
+                    body++;
+                    bodyLength--;
+                }
+                if ((frameFlags & 0x0001) != 0) {
+                    body += 4; // data length indicator
+                    bodyLength -= 4;
+                }
+                frameUnsynchronised = unsynchronised || (frameFlags & 0x0002) != 0;
+            }
+            if (bodyLength <= 0) {
+                continue;
+            }
+
+            if (title == null && (id.equals("TIT2") || id.equals("TT2"))) {
+                title = readText(body, bodyLength, frameUnsynchronised);
+            } else if (artist == null && (id.equals("TPE1") || id.equals("TP1"))) {
+                artist = readText(body, bodyLength, frameUnsynchronised);
+            } else if (album == null && (id.equals("TALB") || id.equals("TAL"))) {
+                album = readText(body, bodyLength, frameUnsynchronised);
+            } else if (artOffset < 0 && !pinned && (id.equals("APIC") || id.equals("PIC"))) {
+                artOffset = body;
+                artLength = bodyLength;
+                artFlags = (frameUnsynchronised ? Mp3Metadata.ART_UNSYNCHRONISED : 0)
+                        | (major == 2 ? Mp3Metadata.ART_ID3V22 : 0);
+            }
+        }
+
+        if (pinned) {
+            unpin();
+        }
+        if (title == null) {
+            title = "";
+        }
+        if (artist == null) {
+            artist = "";
+        }
+        return tagEnd;
+    }
+
+    private void readId3v1() throws IOException {
+        if (!hasId3v1) {
+            return;
+        }
+        long tag = fileSize - 128;
+        title = latin1Field(tag + 3, 30);
+        artist = latin1Field(tag + 33, 30);
+        album = latin1Field(tag + 63, 30);
+        hasTag = true;
+    }
+
+    private String readText(long position, int length, boolean unsynchronised) throws IOException {
+        if (length < 2 || length > WINDOW_SIZE || !ensure(position, length)) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) byteAt(position + i);
+        }
+        if (unsynchronised) {
+            length = removeUnsynchronisation(bytes, length);
+        }
+        int encoding = bytes[0];
+        int end = findTerminator(bytes, 1, length, encoding); // only the first value of a multi-value frame
+        return new String(bytes, 1, end - 1, charset(encoding)).trim();
+    }
+
+    private String latin1Field(long position, int length) throws IOException {
+        ensure(position, length);
+        int end = 0;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) byteAt(position + i);
+            if (bytes[i] != 0 && end == i) {
+                end = i + 1;
+            }
+        }
+        return new String(bytes, 0, end, StandardCharsets.ISO_8859_1).trim();
+    }
+
+    private static Charset charset(int encoding) {
+        switch (encoding) {
+            case 1:
+                return StandardCharsets.UTF_16;
+            case 2:
+                return StandardCharsets.UTF_16BE;
+            case 3:
+                return StandardCharsets.UTF_8;
+            default:
+                return StandardCharsets.ISO_8859_1;
+        }
+    }
+
+    /**
+     * Returns the index of the terminator of a string that starts at position, or length if there is none.
+     */
+    private static int findTerminator(byte[] bytes, int position, int length, int encoding) {
+        if (encoding == 1 || encoding == 2) {
+            while (position + 1 < length && (bytes[position] != 0 || bytes[position + 1] != 0)) {
+                position += 2;
+            }
+            return Math.min(position, length);
+        }
+        while (position < length && bytes[position] != 0) {
+            position++;
+        }
+        return position;
+    }
+
+    private static int skipTerminatedString(byte[] bytes, int position, int length, int encoding) {
+        return findTerminator(bytes, position, length, encoding) + (encoding == 1 || encoding == 2 ? 2 : 1);
+    }
+
+    /**
+     * Undoes ID3 unsynchronisation (0xFF 0x00 -> 0xFF) in place and returns the new length.
+     */
+    private static int removeUnsynchronisation(byte[] bytes, int length) {
+        int out = 0;
+        for (int i = 0; i < length; i++) {
+            bytes[out++] = bytes[i];
+            if ((bytes[i] & 0xFF) == 0xFF && i + 1 < length && bytes[i + 1] == 0) {
+                i++;
+            }
+        }
+        return out;
+    }
+
+    private void pinTag(long end) throws IOException {
+        byte[] tag = new byte[(int) end];
+        ByteBuffer buffer = ByteBuffer.wrap(tag);
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+            // read the whole tag
+        }
+        byte[] body = Arrays.copyOfRange(tag, 10, tag.length);
+        int length = removeUnsynchronisation(body, body.length);
+        System.arraycopy(body, 0, tag, 10, length);
+        window = ByteBuffer.wrap(tag);
+        windowStart = 0;
+        windowLength = 10 + length;
+        pinned = true;
+    }
+
+    private void unpin() {
+        window = ByteBuffer.allocate(WINDOW_SIZE);
+        windowStart = 0;
+        windowLength = 0;
+        pinned = false;
+    }
+
+
+    // Window over the file
+
+    /**
+     * Makes sure bytes [position, position + length) are in the window, refilling it if needed.
+     */
+    private boolean ensure(long position, int length) throws IOException {
+        if (position >= windowStart && position + length <= windowStart + windowLength) {
+            return true;
+        }
+        if (pinned || position + length > fileSize || length > WINDOW_SIZE) {
+            return false;
+        }
+        window.clear();
+        windowStart = position;
+        windowLength = 0;
+        while (window.hasRemaining()) {
+            int read = channel.read(window, windowStart + windowLength);
+            if (read < 0) {
+                break;
+            }
+            windowLength += read;
+        }
+        return windowLength >= length;
+    }
+
+    private int byteAt(long position) {
+        return window.get((int) (position - windowStart)) & 0xFF;
+    }
+
+    private int intAt(long position) {
+        return window.getInt((int) (position - windowStart));
+    }
+
+    private int headerAt(long position) throws IOException {
+        ensure(position, 4);
+        return intAt(position);
+    }
+
+    private int syncsafe(long position) {
+        return (byteAt(position) & 0x7F) << 21 | (byteAt(position + 1) & 0x7F) << 14
+                | (byteAt(position + 2) & 0x7F) << 7 | (byteAt(position + 3) & 0x7F);
+    }
+
+    private String ascii(long position, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) byteAt(position + i);
+        }
+        return new String(chars);
+    }
+}
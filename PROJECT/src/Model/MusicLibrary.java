@@ -0,0 +1,181 @@
+package Model;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Biblioteka pjesama iz korisnikovih foldera. Folderi se pamte u fajlu (jedan po liniji) pored LibraryCache-a,
+ * pri pokretanju se skeniraju u pozadini preko LibraryScanner-a, a nakon toga ih WatchService drzi azurnim.
+ * Pjesme se citaju preko LibraryCache-a, pa je ponovno skeniranje nepromijenjene biblioteke brzo.
+ * Svaka pronadjena pjesma se odmah dodaje i u SearchIndex za pretragu po naslovu, izvodjacu i albumu.
+ */
+public class MusicLibrary implements LibraryScanner.Listener {
+
+    private final Path rootsFile;
+    private final List<Path> roots = new CopyOnWriteArrayList<>();
+    private final Map<String, PlaylistEntry> songs = new ConcurrentHashMap<>();
+    private final SearchIndex searchIndex = new SearchIndex();
+    private final LibraryCache libraryCache;
+    private final LibraryScanner scanner;
+    private final ExecutorService scanExecutor; // scans one folder after another, off the EDT
+    private final ExecutorService loudnessExecutor; // runs one loudness analysis after another
+
+    public MusicLibrary(LibraryCache libraryCache, Path rootsFile) {
+        this.rootsFile = rootsFile;
+        this.libraryCache = libraryCache;
+        this.scanner = new LibraryScanner(libraryCache, this);
+        this.scanExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "library-scan");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.loudnessExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "library-loudness");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static Path defaultRootsFile() {
+        return Paths.get(System.getProperty("user.home"), ".javaswingmusicplayer", "library.roots");
+    }
+
+    // Getters
+
+    public List<Path> getRoots() {
+        return new ArrayList<>(roots);
+    }
+
+    public SearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    public int getSongCount() {
+        return songs.size();
+    }
+
+    /**
+     * All songs of the library ordered by path, ready to be played as a playlist.
+     */
+    public List<PlaylistEntry> getEntries() {
+        List<PlaylistEntry> entries = new ArrayList<>(songs.values());
+        entries.sort(Comparator.comparing(PlaylistEntry::getPath));
+        return entries;
+    }
+
+    //Methods
+
+    /**
+     * Reads the saved folders, starts watching them and scans them in the background.
+     */
+    public void start() {
+        try {
+            scanner.watch();
+        } catch (IOException e) {
+            e.printStackTrace(); // the library is still scanned, only not kept up to date
+        }
+        if (Files.exists(rootsFile)) {
+            try {
+                for (String line : Files.readAllLines(rootsFile, StandardCharsets.UTF_8)) {
+                    if (!line.trim().isEmpty()) {
+                        addRootWithoutSaving(Paths.get(line.trim()));
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Adds a folder to the library, saves the list of folders and scans the new one in the background.
+     */
+    public void addRoot(Path root) {
+        if (addRootWithoutSaving(root)) {
+            try {
+                Files.createDirectories(rootsFile.getParent());
+                List<String> lines = new ArrayList<>();
+                for (Path path : roots) {
+                    lines.add(path.toString());
+                }
+                Files.write(rootsFile, lines, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Analyzes the loudness of the songs of the library that were not analyzed yet, in the background on all cores.
+     * The results are stored in the library cache.
+     *
+     * @param listener told about every analyzed song, or null
+     */
+    public void analyzeLoudness(LoudnessAnalyzer.Listener listener) {
+        loudnessExecutor.execute(() -> {
+            List<Song> library = new ArrayList<>();
+            for (PlaylistEntry entry : getEntries()) {
+                library.add(entry.resolve(libraryCache)); // already read by the scan
+            }
+            try {
+                new LoudnessAnalyzer(libraryCache).analyze(library, listener);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // shut down
+            }
+        });
+    }
+
+    public void shutdown() {
+        loudnessExecutor.shutdownNow();
+        scanExecutor.shutdownNow();
+        scanner.close();
+    }
+
+    private boolean addRootWithoutSaving(Path root) {
+        Path absolute = root.toAbsolutePath().normalize();
+        for (Path path : roots) {
+            if (absolute.startsWith(path)) {
+                return false; // already scanned as part of that folder
+            }
+        }
+        roots.add(absolute);
+        scanExecutor.execute(() -> scanner.scan(absolute));
+        return true;
+    }
+
+    @Override
+    public void songsFound(List<Song> found) {
+        for (Song song : found) {
+            PlaylistEntry entry = new PlaylistEntry(song);
+            songs.put(song.getFile(), entry);
+            Mp3Metadata metadata = song.getMetadata();
+            searchIndex.add(entry, song.getSongTitle(), song.getSongArtist(), metadata == null ? null : metadata.getAlbum());
+        }
+    }
+
+    @Override
+    public void songsRemoved(List<String> paths) {
+        for (String path : paths) {
+            songs.remove(path);
+        }
+        searchIndex.removeAll(paths);
+    }
+
+    @Override
+    public void scanFinished(Path root, int files, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("Library scanned: %s, %d songs in %.1f s (%.0f files/s)%n",
+                root, files, seconds, files / Math.max(seconds, 1e-9));
+    }
+}
@@ -1,42 +1,84 @@
 package Model;
 
-import View.MainFrame;
-import javazoom.jl.player.advanced.AdvancedPlayer;
-import javazoom.jl.player.advanced.PlaybackEvent;
-import javazoom.jl.player.advanced.PlaybackListener;
-
-import javax.swing.*;
 import java.io.*;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
- * This class handles the playback of songs using the JLAYER library.
- * It extends PlaybackListener to listen to playback events.
+ * This class handles the playback of songs using the JLAYER decoder through a PlaybackEngine.
+ * It implements PlaybackEngine.Listener to listen to playback events.
  * Implements the Functions interface for basic music control functions.
+ *
+ * Every operation is a command that runs on one player thread, so the state (STOPPED, PLAYING, PAUSED),
+ * the current song and the playlist index are only ever changed by that thread and no thread is created per action.
+ * Next, previous and seek commands that are already queued when the player gets to them are merged into
+ * one song switch, so clicking next five times opens one file instead of five.
+ * Which song comes next (shuffle, repeat, "play next", history for previous) is decided by a PlayQueue.
+ * The player knows nothing about the windows: song, state and error changes are published on a PlayerEventBus,
+ * which the views subscribe to.
  */
-public class MusicPlayer extends PlaybackListener implements Functions {
+public class MusicPlayer implements Functions, PlaybackEngine.Listener {
+
+    /**
+     * Stanja plejera. Mijenjaju se samo na niti plejera.
+     */
+    public enum State {
+        STOPPED, PLAYING, PAUSED
+    }
+
+    static final int RESOLVE_AHEAD = 3; // songs after the current one whose metadata is read in advance
 
     // Fields
-    private static final Object playSignal = new Object(); // Object used for synchronization
-    private MainFrame mainFrame;
-    private Song currentSong;  // The currently playing song
-    private ArrayList<Song> playlist;
-    private int currentPlaylistIndex;
-    private AdvancedPlayer advancedPlayer;
-    private boolean isPaused;
-    private boolean songFinished;
-    private boolean pressedNext, pressedPrev;
-    private int currentTimeInMilliseconds;
-    private Thread playbackSliderThread;
-    private Thread playerThread;
-
-    //postavili smo dva Threada koja ce se koristiti za azuriranje slajdera za reprodukciju i za pokretanje pjesme
+    private final PlayerEventBus eventBus;
+    private volatile Song currentSong;  // The currently playing song
+    private volatile List<PlaylistEntry> playlist = Collections.emptyList(); // replaced as a whole on the player thread
+    private final PlaylistLoader playlistLoader;
+    private final LibraryCache libraryCache;
+    private final PlayQueue playQueue = new PlayQueue();
+    private final Equalizer equalizer = new Equalizer();
+    private final PlaybackEngine playbackEngine;
+    private final ExecutorService playerExecutor; // the player thread, runs the commands one by one
+    private final Deque<Command> commands = new ArrayDeque<>(); // guarded by itself
+    private boolean drainScheduled; // guarded by commands
+    private volatile State state = State.STOPPED;
+    private volatile Song expectedNextSong; // what nextTrack() handed to the engine for a gapless transition
+    private int currentTimeInMilliseconds; // where the next start plays from, the playing position is in the clock
+
+    // song switch latency, from the (first merged) command to the first sample at the output
+    private long switchRequestedNanos = -1;
+    private volatile long lastSwitchLatencyNanos = -1;
+    private volatile long maxSwitchLatencyNanos;
+    private volatile long mergedCommands;
 
     // Constructor
-    public MusicPlayer(MainFrame mainFrame) {
-        this.mainFrame = mainFrame;
-        this.playlist = new ArrayList<>();
-        this.currentPlaylistIndex = 0;
+    /**
+     * @param eventExecutor where the subscribers of the events are called, e.g. SwingUtilities::invokeLater;
+     *                      null for the event thread of the player
+     */
+    public MusicPlayer(Executor eventExecutor) {
+        this(eventExecutor, new JavaSoundOutput(), LibraryCache.getDefault());
+    }
+
+    public MusicPlayer(Executor eventExecutor, AudioOutput output, LibraryCache libraryCache) {
+        this.eventBus = new PlayerEventBus(eventExecutor);
+        this.libraryCache = libraryCache;
+        this.playlistLoader = new PlaylistLoader(Runtime.getRuntime().availableProcessors(), libraryCache);
+        this.playbackEngine = new PlaybackEngine(output, this);
+        playbackEngine.setReplayGain(GainStage.Mode.TRACK, libraryCache); // songs that were not analyzed play as they are
+        playbackEngine.getDspChain().add(equalizer);
+        PlayerMetrics.getDefault().setPlaybackEngine(playbackEngine);
+        PlayerMetrics.getDefault().setLibraryCache(libraryCache);
+        this.playerExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "music-player");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     // Getters and Setters
@@ -44,99 +86,225 @@ public class MusicPlayer extends PlaybackListener implements Functions {
         return currentSong;
     }
 
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Song, state and error events of the player, coalesced to at most one dispatch per frame.
+     */
+    public PlayerEventBus getEventBus() {
+        return eventBus;
+    }
+
+    /**
+     * Stavke ucitane plejliste. Lista se ne mijenja; nova plejlista je nova lista.
+     */
+    public List<PlaylistEntry> getPlaylist() {
+        return playlist;
+    }
+
+    public int getCurrentPlaylistIndex() {
+        return playQueue.getCurrentIndex();
+    }
+
+    public boolean isShuffle() {
+        return playQueue.isShuffle();
+    }
+
+    public PlayQueue.RepeatMode getRepeatMode() {
+        return playQueue.getRepeatMode();
+    }
+
     public int getPlaybackPositionInSeconds() {
-        return currentTimeInMilliseconds / 1000;
+        return (int) (playbackEngine.getClock().getPositionInMilliseconds() / 1000);
+    }
+
+    /**
+     * Sat reprodukcije izracunat iz uzoraka koje je audio linija odsvirala; slajder se pretplacuje na njega.
+     */
+    public PlaybackClock getPlaybackClock() {
+        return playbackEngine.getClock();
+    }
+
+    public PlaybackEngine getPlaybackEngine() {
+        return playbackEngine;
+    }
+
+    /**
+     * Time from the last song switch command (next, previous, load, seek) until its first sample reached the output.
+     */
+    public long getLastSwitchLatencyNanos() {
+        return lastSwitchLatencyNanos;
+    }
+
+    public long getMaxSwitchLatencyNanos() {
+        return maxSwitchLatencyNanos;
     }
 
-    public void setCurrentTimeInMilliseconds(int timeInMilliseconds) {
-        this.currentTimeInMilliseconds = timeInMilliseconds;
+    /**
+     * Number of next/previous/seek commands that were merged into an earlier one instead of being executed.
+     */
+    public long getMergedCommands() {
+        return mergedCommands;
+    }
+
+    /**
+     * U gapless nacinu rada se sljedeca pjesma plejliste priprema unaprijed i svira bez pauze.
+     */
+    public void setGapless(boolean gapless) {
+        playbackEngine.setGapless(gapless);
+    }
+
+    public boolean isGapless() {
+        return playbackEngine.isGapless();
+    }
+
+    public int getCrossfadeMillis() {
+        return playbackEngine.getCrossfadeMillis();
+    }
+
+    public Crossfader.Curve getCrossfadeCurve() {
+        return playbackEngine.getCrossfadeCurve();
+    }
+
+    /**
+     * Pretapanje uzastopnih pjesama plejliste u zadanom trajanju (0 iskljucuje pretapanje) i po zadanoj krivulji.
+     */
+    public void setCrossfade(int millis, Crossfader.Curve curve) {
+        playbackEngine.setCrossfade(millis, curve);
+    }
+
+    /**
+     * Ekvilajzer na izlazu plejera, podesava se iz EqualizerDialog-a.
+     */
+    public Equalizer getEqualizer() {
+        return equalizer;
+    }
+
+    public float getVolume() {
+        return playbackEngine.getVolume();
+    }
+
+    /**
+     * Jacina zvuka od 0 do 1, cuje se odmah.
+     */
+    public void setVolume(float volume) {
+        playbackEngine.setVolume(volume);
+    }
+
+    public GainStage.Mode getReplayGainMode() {
+        return playbackEngine.getReplayGainMode();
+    }
+
+    /**
+     * Izjednacava glasnocu pjesama pojacanjem pjesme ili albuma iz analize glasnoce (LoudnessAnalyzer).
+     * Pjesme koje nisu analizirane sviraju bez pojacanja.
+     */
+    public void setReplayGainMode(GainStage.Mode mode) {
+        playbackEngine.setReplayGain(mode, libraryCache);
+    }
+
+    /**
+     * Nasumican redoslijed pjesama plejliste. Pjesma koja svira nastavlja, mijenjaju se one poslije nje.
+     */
+    public void setShuffle(boolean shuffle) {
+        submit(new Command(CommandType.SHUFFLE, shuffle ? 1 : 0, null));
+    }
+
+    public void setRepeatMode(PlayQueue.RepeatMode repeatMode) {
+        submit(new Command(CommandType.REPEAT, repeatMode.ordinal(), null));
     }
 
 
     @Override
     public void playSong() {
-        if (isPaused && advancedPlayer != null) {
-            resumeSong();
-        } else {
-            playCurrentSong();
-        }
+        submit(new Command(CommandType.PLAY, 0, null));
     }
 
     @Override
     public void pauseSong() {
-        if (advancedPlayer != null) {
-            isPaused = true;
-            advancedPlayer.close();
-        }
+        submit(new Command(CommandType.PAUSE, 0, null));
     }
 
     @Override
     public void resumeSong() {
-        if (isPaused) {
-            isPaused = false;
-            playCurrentSong();  // This should now start from the last known position
-        }
+        submit(new Command(CommandType.RESUME, 0, null));
     }
 
     @Override
     public void stopSong() {
-        if (advancedPlayer != null) {
-            advancedPlayer.close();
-            advancedPlayer = null;
-        }
-        songFinished = true;
-        isPaused = false;
-        currentTimeInMilliseconds = 0;
-
-        // Stop the slider thread
-        if (playbackSliderThread != null && playbackSliderThread.isAlive()) {
-            playbackSliderThread.interrupt();
-        }
-
-        // Stop the player thread
-        if (playerThread != null && playerThread.isAlive()) {
-            playerThread.interrupt();
-        }
+        submit(new Command(CommandType.STOP, 0, null));
     }
 
     @Override
     public void nextSong() {  // Move to the next song in the playlist
-        if (playlist != null && !playlist.isEmpty()) {
-            currentPlaylistIndex = (currentPlaylistIndex + 1) % playlist.size();
-            loadSong(playlist.get(currentPlaylistIndex));
-            mainFrame.getViewPanel().updateSongTitleAndArtist(currentSong); // Update song title and artist
-            playCurrentSong();  // Ensure the next song starts playing automatically
-        }
+        submit(new Command(CommandType.SKIP, 1, null));
     }
 
     @Override
     public void prevSong() {
-        pressedPrev = true;
-        if (playlist != null && !playlist.isEmpty()) {
-            currentPlaylistIndex = (currentPlaylistIndex - 1 + playlist.size()) % playlist.size();
-            loadSong(playlist.get(currentPlaylistIndex));
-        }
-        pressedPrev = false;
+        submit(new Command(CommandType.SKIP, -1, null));
+    }
+
+    /**
+     * This method is used to seek to a specific time in the song.
+     * The song plays from the frame that contains the new time, which is kept within the duration of the song.
+     *
+     * @param seconds
+     */
+    public void seekTo(int seconds) {
+        submit(new Command(CommandType.SEEK, seconds * 1000, null));
+    }
+
+    /**
+     * Ucitava i pusta pjesmu koja nije dio plejliste.
+     */
+    public void loadSong(Song song) {
+        submit(new Command(CommandType.LOAD, 0, song));
+    }
+
+    /**
+     * Stavlja pjesmu da svira odmah poslije trenutne.
+     */
+    public void playNext(PlaylistEntry entry) {
+        submit(new Command(CommandType.QUEUE, 0, null, null, Collections.singletonList(entry)));
     }
 
+    /**
+     * Stavlja pjesmu na kraj reda pjesama koje sviraju prije nastavka plejliste.
+     */
+    public void enqueue(PlaylistEntry entry) {
+        submit(new Command(CommandType.QUEUE, 1, null, null, Collections.singletonList(entry)));
+    }
 
 
-    //method overrides from PlaybackListener
+
+    //method overrides from PlaybackEngine.Listener
 
     @Override
-    public void playbackStarted(PlaybackEvent evt) {
-        System.out.println("Playback Started");
-        songFinished = false;
+    public void trackStarted(Song song) {
+        submit(new Command(CommandType.TRACK_STARTED, 0, song));
     }
 
     @Override
-    public void playbackFinished(PlaybackEvent evt) {
-        if (!isPaused && !pressedNext && !pressedPrev) {
-            // Automatically play the next song if not paused or if next/prev buttons are not pressed
-            nextSong();
-        } else if (isPaused) {
-            currentTimeInMilliseconds += evt.getFrame(); //ako je pauzirano vrijeme se povecava za vrijeme frejma
+    public void trackFinished(Song song) {
+        submit(new Command(CommandType.TRACK_FINISHED, 0, song));
+    }
+
+    @Override
+    public Song nextTrack(Song current) {
+        if (current != currentSong) {
+            return null;
+        }
+        PlaylistEntry entry = playQueue.peekNext(true);
+        if (entry == null) {
+            return null;
         }
+        // normally resolved in the background when the current song started, otherwise read here on the primer thread
+        Song next = entry.resolve(libraryCache);
+        expectedNextSong = next;
+        return next;
     }
 
 
@@ -146,152 +314,355 @@ public class MusicPlayer extends PlaybackListener implements Functions {
 
     // Methods
 
-    public void loadSong(Song song) {
-        stopSong();
-        currentSong = song;
-        if (currentSong != null) {
-            currentTimeInMilliseconds = 0;
-            mainFrame.getToolBar().setPlaybackSliderValue(0); // Update the slider value in the toolbar
-            mainFrame.getViewPanel().updateSongTitleAndArtist(currentSong); // Update song title and artist
-            playCurrentSong();
-        }
+    /**
+     * Ucitava plejlistu (M3U, M3U8 ili tekstualni fajl sa jednom putanjom po liniji) i pusta prvu pjesmu.
+     * Fajl se cita na niti plejera, pa metoda odmah vraca i ne blokira EDT.
+     * Stavke ostaju neprocitane dok ne zatrebaju: cita se pjesma koja svira i RESOLVE_AHEAD sljedecih,
+     * a prikaz plejliste trazi svoje vidljive redove preko resolveEntries(). Zato se i plejlista
+     * od 100 000 pjesama otvara odmah.
+     */
+    public void loadPlaylist(File playlistFile) {
+        submit(new Command(CommandType.PLAYLIST, 0, null, playlistFile, null));
     }
 
-    public void playCurrentSong() {
-        try {
-            if (currentSong != null) {
-                // Guard to check if the player is already playing
-                if (playerThread != null && playerThread.isAlive()) {
-                    playerThread.interrupt();  // Interrupt the current player thread
-                }
-
-                FileInputStream fileInputStream = new FileInputStream(currentSong.getFile()); //Serialize the file to bytes
+    /**
+     * Plays a list of songs that is already in memory, e.g. the music library, starting with the first one.
+     */
+    public void loadPlaylist(List<PlaylistEntry> entries) {
+        submit(new Command(CommandType.PLAYLIST, 0, null, null, new ArrayList<>(entries)));
+    }
 
-                long skipBytes = (long) ((currentTimeInMilliseconds / (double) currentSong.getDurationInSeconds()) * currentSong.getFrameLength());
-                //trenutno vrijeme u milisekundama podijeljeno sa ukupnim trajanjem pjesme u sekundama pomnozeno sa ukupnim brojem frejmova - dobijemo trenutni broj frejmova koji treba preskociti
-                //treba ih preskociti jer je pjesma vec bila pokrenuta i zelimo da se nastavi od trenutka gdje je stala
+    /**
+     * Reads the metadata of the given rows of the playlist in the background, for a view that shows them.
+     *
+     * @param listener told about each entry that was read, from a loader thread, or null
+     */
+    public void resolveEntries(int fromIndex, int toIndex, PlaylistLoader.ResolveListener listener) {
+        List<PlaylistEntry> entries = playlist;
+        int from = Math.max(0, fromIndex);
+        int to = Math.min(toIndex, entries.size());
+        if (from < to) {
+            playlistLoader.resolve(entries.subList(from, to), listener);
+        }
+    }
 
-                // Ensure skipBytes is within a valid range
-                if (skipBytes < 0) {
-                    skipBytes = 0;
-                } else if (skipBytes > fileInputStream.available()) {
-                    skipBytes = fileInputStream.available();
-                }
+    /**
+     * Stops playback and the player thread for good.
+     */
+    public void shutdown() {
+        playlistLoader.shutdown();
+        playerExecutor.shutdownNow();
+        playbackEngine.shutdown();
+        eventBus.shutdown();
+    }
 
-                fileInputStream.skip(skipBytes);
+    private void submit(Command command) {
+        synchronized (commands) {
+            commands.add(command);
+            if (!drainScheduled) {
+                drainScheduled = true;
+                playerExecutor.execute(this::drainCommands);
+            }
+        }
+    }
 
-                // Ensure previous player is stopped before creating a new one
-                if (advancedPlayer != null) {
-                    advancedPlayer.close();
+    /**
+     * Runs on the player thread until the queue is empty. A run of queued next/previous/seek commands
+     * becomes one switch: the skips are added up and only the last seek after them is kept.
+     */
+    private void drainCommands() {
+        while (true) {
+            Command command;
+            int skip = 0;
+            int seekMillis = -1;
+            synchronized (commands) {
+                command = commands.poll();
+                if (command == null) {
+                    drainScheduled = false;
+                    return;
                 }
-
-                advancedPlayer = new AdvancedPlayer(fileInputStream); //Create a new AdvancedPlayer object which will be used to play the song
-                advancedPlayer.setPlayBackListener(this);
-                songFinished = false;
-
-                playerThread = new Thread(() -> {
-                    try {
-                        startPlaybackSliderThread();
-                        advancedPlayer.play();
-                    } catch (Exception e) {
-                        System.out.println("Error playing song");
-                        e.printStackTrace();
-
+                if (command.type == CommandType.SKIP || command.type == CommandType.SEEK) {
+                    Command merged = command;
+                    while (true) {
+                        if (merged.type == CommandType.SKIP) {
+                            skip += merged.value;
+                            seekMillis = -1; // a seek before a skip was meant for the song that is left
+                        } else {
+                            seekMillis = merged.value;
+                        }
+                        Command following = commands.peek();
+                        if (following == null
+                                || (following.type != CommandType.SKIP && following.type != CommandType.SEEK)) {
+                            break;
+                        }
+                        merged = commands.poll();
+                        mergedCommands++;
                     }
-                });
-                playerThread.start();
+                }
+            }
+            try {
+                execute(command, skip, seekMillis);
+            } catch (Exception e) {
+                System.out.println("Error executing " + command.type);
+                e.printStackTrace();
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
     }
 
-    public void loadPlaylist(File playlistFile) {
-        stopSong();  // Ensure any currently playing song is stopped
-        playlist.clear();
-
-        try (BufferedReader bufferedReader = new BufferedReader(new FileReader(playlistFile))) { //used for reading lines of text from a file
-            String songPath;
-            while ((songPath = bufferedReader.readLine()) != null) {
-                Song song = new Song(songPath);
-                playlist.add(song);
+    private void execute(Command command, int skip, int seekMillis) {
+        switch (command.type) {
+            case PLAY:
+                if (state == State.PAUSED) {
+                    resume();
+                } else if (state == State.STOPPED && currentSong != null) {
+                    start(command.requestedNanos);
+                }
+                break;
+            case PAUSE:
+                if (state == State.PLAYING) {
+                    currentTimeInMilliseconds = (int) playbackEngine.pause(); // only the output stops, nothing is closed
+                    setState(State.PAUSED);
+                }
+                break;
+            case RESUME:
+                if (state == State.PAUSED) {
+                    resume();
+                }
+                break;
+            case STOP:
+                playbackEngine.stop();
+                currentTimeInMilliseconds = 0;
+                setState(State.STOPPED);
+                break;
+            case SKIP:
+            case SEEK:
+                Song target = currentSong;
+                if (skip != 0) {
+                    PlaylistEntry entry = step(skip);
+                    if (entry == null) {
+                        break; // end of the playlist without repeat
+                    }
+                    target = entry.resolve(libraryCache);
+                }
+                if (target == null) {
+                    break;
+                }
+                int startMillis = seekMillis < 0 ? 0 : Math.min(seekMillis, target.getDurationInSeconds() * 1000);
+                switchTo(target, startMillis, command.requestedNanos);
+                if (skip != 0) {
+                    resolveAhead();
+                }
+                break;
+            case LOAD:
+                playQueue.jump(new PlaylistEntry(command.song));
+                switchTo(command.song, 0, command.requestedNanos);
+                break;
+            case QUEUE:
+                if (command.value == 0) {
+                    playQueue.playNext(command.entries.get(0));
+                } else {
+                    playQueue.enqueue(command.entries.get(0));
+                }
+                changedNext();
+                break;
+            case SHUFFLE:
+                playQueue.setShuffle(command.value == 1);
+                changedNext();
+                break;
+            case REPEAT:
+                playQueue.setRepeatMode(PlayQueue.RepeatMode.values()[command.value]);
+                changedNext();
+                break;
+            case PLAYLIST:
+                openPlaylist(command.file, command.entries, command.requestedNanos);
+                break;
+            case TRACK_STARTED:
+                trackStartedOnPlayerThread(command.song);
+                break;
+            case TRACK_FINISHED:
+                if (command.song == currentSong && state == State.PLAYING) {
+                    // Automatically play the next song, or the same one again with repeat one
+                    PlaylistEntry next = playQueue.next(true);
+                    if (next == null) {
+                        currentTimeInMilliseconds = 0;
+                        setState(State.STOPPED);
+                    } else {
+                        switchTo(next.resolve(libraryCache), 0, command.requestedNanos);
+                        resolveAhead();
+                    }
+                }
+                break;
+        }
+    }
+
+    private void openPlaylist(File playlistFile, List<PlaylistEntry> entries, long requestedNanos) {
+        playlistLoader.cancel(); // rows of the old playlist that were waiting to be read are not needed any more
+        try {
+            if (entries == null) {
+                entries = PlaylistReader.read(playlistFile);
             }
         } catch (IOException e) { //IOException is thrown when an input or output operation is failed or interpreted
-            JOptionPane.showMessageDialog(mainFrame, "Error reading playlist file", "Error", JOptionPane.ERROR_MESSAGE);
             e.printStackTrace();
+            eventBus.publish(new PlayerEvent.Error("Error reading playlist file"));
+            return;
         }
-
-        if (!playlist.isEmpty()) {
-            currentPlaylistIndex = 0;
-            loadSong(playlist.get(currentPlaylistIndex));  // Load and play the first song
-            mainFrame.getViewPanel().updateSongTitleAndArtist(currentSong);
+        System.out.println("Playlist opened: " + entries.size() + " songs");
+        playlist = Collections.unmodifiableList(entries);
+        PlaylistEntry first = playQueue.reset(playlist);
+        if (first == null) {
+            playbackEngine.stop();
+            currentTimeInMilliseconds = 0;
+            setState(State.STOPPED);
+            return;
         }
+        switchTo(first.resolve(libraryCache), 0, requestedNanos);
+        resolveAhead();
     }
 
     /**
-     * Ova metode sluzi za pokretanje niti koja ce azurirati vrijeme pjesme u sekundama.
-     * Metoda se koristi za azuriranje slajdera za reprodukciju na korisnickom sucelju.
-     * Metoda se koristi za azuriranje trenutnog vremena u milisekundama.
-     * Thread je pokrenut dok se pjesma ne pauzira, dok se ne zavrsi pjesma, dok se ne pritisne sljedeca ili prethodna pjesma.
-     * Thread se takodjer koristi za azuriranje slajdera za reprodukciju.
-     *
+     * Reads the songs that come after the current one in the background, so next and gapless
+     * transitions never wait for a file.
      */
+    private void resolveAhead() {
+        playlistLoader.resolve(playQueue.upcoming(RESOLVE_AHEAD), null);
+    }
 
-    private void startPlaybackSliderThread() {
-        if (playbackSliderThread != null && playbackSliderThread.isAlive()) {
-            playbackSliderThread.interrupt();
+    /**
+     * Moves through the play queue, forward for a positive skip and back through the history for a negative one.
+     *
+     * @return the song to play, or null if there is none
+     */
+    private PlaylistEntry step(int skip) {
+        PlaylistEntry entry = null;
+        for (int i = 0; i < Math.abs(skip); i++) {
+            PlaylistEntry stepped = skip > 0 ? playQueue.next(false) : playQueue.previous();
+            if (stepped == null) {
+                break;
+            }
+            entry = stepped;
         }
+        return entry;
+    }
 
-        playbackSliderThread = new Thread(() -> { //nit koja se koristi za azuriranje slajdera za reprodukciju
-            while (!isPaused && !songFinished && !pressedNext && !pressedPrev) { //ako nije pauzirano, ako pjesma nije zavrsena, ako nije pritisnuta sljedeca ili prethodna pjesma
-                synchronized (playSignal) { //sinkronizacija
-                    try {
-                        // Update the current time in milliseconds
-                        currentTimeInMilliseconds += 1000;
-
-                        // Update the slider value on the UI thread
-                        SwingUtilities.invokeLater(() -> mainFrame.getToolBar().setPlaybackSliderValue(getPlaybackPositionInSeconds()));
-
-                        // Sleep for 1 second
-                        playSignal.wait(1000);
-                    } catch (InterruptedException e) {
-                        System.out.println("Thread interrupted");
-                        return;
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        System.out.println("Error updating playback slider");
-                    }
-                }
-            }
-        });
-        playbackSliderThread.start();
+    /**
+     * The song after the current one may be different now, so the engine primes it again and it is read ahead.
+     */
+    private void changedNext() {
+        playbackEngine.invalidateNext();
+        resolveAhead();
     }
 
+    private void switchTo(Song song, int startMillis, long requestedNanos) {
+        boolean songChanged = song != currentSong;
+        currentSong = song;
+        currentTimeInMilliseconds = startMillis;
+        if (songChanged) {
+            showSong(song);
+        }
+        start(requestedNanos);
+    }
 
     /**
-     * This method is used to seek to a specific time in the song.
-     * It stops the current song, sets the new time in milliseconds and plays the song from the new time.
-     * The new time is calculated in milliseconds and is within the duration of the song.
-     *
-     * @param seconds
+     * Plays the current song. A song that cannot be opened (deleted, unreadable, not an mp3) is reported and
+     * the queue moves on to the next one, so one bad file does not stop the playlist.
      */
+    private void start(long requestedNanos) {
+        int failed = 0;
+        while (true) {
+            //ako je pjesma vec bila pokrenuta, engine preko indeksa frejmova krece od frejma koji svira u trenutnom vremenu
+            long startedMillis = playbackEngine.play(currentSong, currentTimeInMilliseconds); // snapped to the frame boundary
+            expectedNextSong = null;
+            if (startedMillis >= 0) {
+                currentTimeInMilliseconds = (int) startedMillis;
+                switchRequestedNanos = requestedNanos;
+                setState(State.PLAYING);
+                return;
+            }
+            eventBus.publish(new PlayerEvent.Error("Cannot play " + currentSong.getFile()));
+            failed++;
+            // every song of the queue failed, with repeat all the queue would go round forever
+            PlaylistEntry next = failed <= playlist.size() + playQueue.getQueuedCount() ? playQueue.next(false) : null;
+            if (next == null) {
+                currentTimeInMilliseconds = 0;
+                setState(State.STOPPED);
+                return;
+            }
+            currentSong = next.resolve(libraryCache);
+            currentTimeInMilliseconds = 0;
+            showSong(currentSong);
+            resolveAhead();
+        }
+    }
 
+    private void resume() {
+        playbackEngine.resume();  // continues from the samples that are already decoded
+        setState(State.PLAYING);
+    }
 
-    public void seekTo(int seconds) {
-        try {
-            if (currentSong != null) {
-                stopSong();
+    private void trackStartedOnPlayerThread(Song song) {
+        if (song == currentSong) {
+            if (switchRequestedNanos >= 0) {
+                long latency = System.nanoTime() - switchRequestedNanos;
+                switchRequestedNanos = -1;
+                lastSwitchLatencyNanos = latency;
+                PlayerMetrics.getDefault().getTimeToFirstAudioHistogram().record(latency);
+                maxSwitchLatencyNanos = Math.max(maxSwitchLatencyNanos, latency);
+                System.out.println("Playback Started, switch took " + latency / 1_000_000 + " ms");
+            }
+        } else if (song == expectedNextSong) {
+            // gapless transition, the engine already plays the song that nextTrack returned
+            System.out.println("Gapless transition, gap: " + playbackEngine.getLastGapSamples() + " samples");
+            expectedNextSong = null;
+            PlaylistEntry entry = playQueue.next(true);
+            currentSong = song;
+            currentTimeInMilliseconds = 0;
+            showSong(song);
+            if (entry != null && entry.getSong() != song) {
+                // the queue changed right after the engine had moved on, play what it says now
+                switchTo(entry.resolve(libraryCache), 0, System.nanoTime());
+            }
+            resolveAhead();
+        }
+        // anything else is an event of a song that was already replaced
+    }
 
-                int newTimeInMilliseconds = Math.min(seconds * 1000, currentSong.getDurationInSeconds() * 1000);
-                // Convert seconds to milliseconds and ensure it is within the song duration
-                //min is used to ensure that the new time in milliseconds is not greater than the duration of the song
+    private void showSong(Song song) {
+        eventBus.publish(new PlayerEvent.SongChanged(song));
+    }
+
+    private void setState(State state) {
+        if (state != this.state) {
+            this.state = state;
+            eventBus.publish(new PlayerEvent.StateChanged(state));
+        }
+    }
 
-                setCurrentTimeInMilliseconds(newTimeInMilliseconds);
 
-                playCurrentSong();
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+    private enum CommandType {
+        PLAY, PAUSE, RESUME, STOP, SKIP, SEEK, LOAD, PLAYLIST, QUEUE, SHUFFLE, REPEAT, TRACK_STARTED, TRACK_FINISHED
+    }
+
+    /**
+     * One request to the player thread. value is the skip step, the seek time or the setting.
+     */
+    private static final class Command {
+        final CommandType type;
+        final int value;
+        final Song song;
+        final File file; // playlist to open
+        final List<PlaylistEntry> entries; // or the songs of the playlist
+        final long requestedNanos = System.nanoTime();
+
+        Command(CommandType type, int value, Song song) {
+            this(type, value, song, null, null);
+        }
+
+        Command(CommandType type, int value, Song song, File file, List<PlaylistEntry> entries) {
+            this.type = type;
+            this.value = value;
+            this.song = song;
+            this.file = file;
+            this.entries = entries;
         }
     }
-}
\ No newline at end of file
+}
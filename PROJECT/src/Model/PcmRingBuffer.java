@@ -0,0 +1,97 @@
+package Model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Kruzni buffer PCM uzoraka izmedju dekodera (jedini pisac) i izlaza (jedini citac), bez zakljucavanja.
+ * Niz uzoraka se alocira jednom; pozicije pisanja i citanja rastu stalno, a indeks u nizu je pozicija
+ * maskirana velicinom buffera (potencija broja 2). Svaka strana mijenja samo svoju poziciju.
+ */
+public final class PcmRingBuffer {
+
+    private final short[] samples;
+    private final int mask;
+    private final AtomicLong writePosition = new AtomicLong(); // samples ever written, changed only by the writer
+    private final AtomicLong readPosition = new AtomicLong();  // samples ever read, changed only by the reader
+
+    public PcmRingBuffer(int minimumCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, minimumCapacity) - 1) << 1;
+        samples = new short[capacity];
+        mask = capacity - 1;
+    }
+
+    // Getters
+
+    public int getCapacity() {
+        return samples.length;
+    }
+
+    public long getWritePosition() {
+        return writePosition.get();
+    }
+
+    public long getReadPosition() {
+        return readPosition.get();
+    }
+
+    /**
+     * Samples that can be read now.
+     */
+    public int available() {
+        return (int) (writePosition.get() - readPosition.get());
+    }
+
+    /**
+     * Samples that can be written now.
+     */
+    public int free() {
+        return samples.length - available();
+    }
+
+    //Methods
+
+    /**
+     * Copies as many samples as fit. Writer thread only.
+     *
+     * @return number of samples written
+     */
+    public int write(short[] source, int offset, int length) {
+        long position = writePosition.get();
+        int count = Math.min(length, samples.length - (int) (position - readPosition.get()));
+        if (count <= 0) {
+            return 0;
+        }
+        int index = (int) position & mask;
+        int first = Math.min(count, samples.length - index);
+        System.arraycopy(source, offset, samples, index, first);
+        System.arraycopy(source, offset + first, samples, 0, count - first);
+        writePosition.lazySet(position + count); // publishes the copied samples to the reader
+        return count;
+    }
+
+    /**
+     * Copies up to length available samples. Reader thread only.
+     *
+     * @return number of samples read
+     */
+    public int read(short[] target, int offset, int length) {
+        long position = readPosition.get();
+        int count = Math.min(length, (int) (writePosition.get() - position));
+        if (count <= 0) {
+            return 0;
+        }
+        int index = (int) position & mask;
+        int first = Math.min(count, samples.length - index);
+        System.arraycopy(samples, index, target, offset, first);
+        System.arraycopy(samples, 0, target, offset + first, count - first);
+        readPosition.lazySet(position + count); // frees the space for the writer
+        return count;
+    }
+
+    /**
+     * Drops everything that was not read yet. Only while neither side is using the buffer.
+     */
+    public void clear() {
+        readPosition.set(writePosition.get());
+    }
+}
@@ -0,0 +1,368 @@
+package Model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Redoslijed pustanja plejliste: redom ili nasumicno (shuffle), sa ponavljanjem jedne pjesme ili cijele plejliste,
+ * sa pjesmama koje je korisnik stavio da sviraju sljedece i sa historijom za prethodnu pjesmu.
+ * Nasumicni redoslijed se ne pravi unaprijed kao promijesana kopija plejliste nego korak po korak
+ * (Fisher-Yates nad virtualnim nizom indeksa, gdje se pamte samo zamijenjena mjesta), pa je svaka operacija
+ * O(1) i memorija raste samo sa brojem odsviranih pjesama, i za plejlistu od milion pjesama.
+ * Historija je prsten ogranicene velicine. Metode su sinhronizovane jer sljedecu pjesmu pita i nit dekodera.
+ */
+public class PlayQueue {
+
+    /**
+     * Ponavljanje: OFF staje na kraju plejliste, ALL krece ispocetka, ONE ponavlja pjesmu kad zavrsi.
+     */
+    public enum RepeatMode {
+        OFF, ALL, ONE
+    }
+
+    static final int HISTORY_SIZE = 500; // songs that previous() can go back to
+
+    private final Random random;
+    private List<PlaylistEntry> playlist = Collections.emptyList();
+    private PlaylistEntry current;           // null before the first song
+    private int position = -1;               // in the play order, of the last song that came from the order
+    private boolean shuffle;
+    private RepeatMode repeatMode = RepeatMode.ALL;
+
+    // shuffled order, order[0..generated) is drawn, the rest of the virtual array is the identity except swapped
+    private Map<Integer, Integer> swapped = new HashMap<>();
+    private int[] order = new int[16];
+    private int generated;
+    private int nextCycleFirst = -1;         // first song of the next shuffled round, once it was asked for
+
+    private final Deque<PlaylistEntry> upNext = new ArrayDeque<>();  // "play next" and queued songs
+    private final Deque<PlaylistEntry> forward = new ArrayDeque<>(); // left by previous(), next() plays them again
+    private final PlaylistEntry[] history = new PlaylistEntry[HISTORY_SIZE];
+    private int historyEnd;
+    private int historyCount;
+
+    public PlayQueue() {
+        this(new Random());
+    }
+
+    public PlayQueue(Random random) {
+        this.random = random;
+    }
+
+    // Getters
+
+    public synchronized PlaylistEntry getCurrent() {
+        return current;
+    }
+
+    /**
+     * Index in the playlist of the last song that came from the play order, or -1 if the playlist is empty.
+     * Queued songs and songs played again from the history do not change it.
+     */
+    public synchronized int getCurrentIndex() {
+        return position < 0 ? -1 : orderIndex(position);
+    }
+
+    public synchronized boolean isShuffle() {
+        return shuffle;
+    }
+
+    public synchronized RepeatMode getRepeatMode() {
+        return repeatMode;
+    }
+
+    /**
+     * Number of songs waiting in the "play next" queue.
+     */
+    public synchronized int getQueuedCount() {
+        return upNext.size();
+    }
+
+    //Methods
+
+    /**
+     * Starts a new playlist with the first song of the play order: the first row, or a random one in shuffle mode.
+     * The queue and the history of the old playlist are dropped.
+     *
+     * @return the first song, or null if the playlist is empty
+     */
+    public synchronized PlaylistEntry reset(List<PlaylistEntry> entries) {
+        playlist = entries;
+        upNext.clear();
+        forward.clear();
+        Arrays.fill(history, null);
+        historyEnd = 0;
+        historyCount = 0;
+        current = null;
+        position = -1;
+        if (entries.isEmpty()) {
+            return null;
+        }
+        if (shuffle) {
+            startShuffle(random.nextInt(entries.size()));
+        } else {
+            position = 0;
+        }
+        current = entries.get(orderIndex(position));
+        return current;
+    }
+
+    /**
+     * Plays a song outside of the play order now, e.g. one picked in the library. The order continues after it.
+     */
+    public synchronized void jump(PlaylistEntry entry) {
+        remember(current);
+        forward.clear();
+        current = entry;
+    }
+
+    /**
+     * Puts the song right after the current one, before the songs that were queued earlier.
+     */
+    public synchronized void playNext(PlaylistEntry entry) {
+        upNext.addFirst(entry);
+    }
+
+    /**
+     * Puts the song after the songs that are already queued.
+     */
+    public synchronized void enqueue(PlaylistEntry entry) {
+        upNext.addLast(entry);
+    }
+
+    /**
+     * Switches between the playlist order and a new shuffled order that starts with the song of the order
+     * that plays now, so the songs after it change but the current one keeps playing.
+     */
+    public synchronized void setShuffle(boolean shuffle) {
+        if (shuffle == this.shuffle) {
+            return;
+        }
+        int index = position < 0 ? -1 : orderIndex(position);
+        this.shuffle = shuffle;
+        if (index < 0) {
+            return;
+        }
+        if (shuffle) {
+            startShuffle(index);
+        } else {
+            position = index;
+        }
+    }
+
+    public synchronized void setRepeatMode(RepeatMode repeatMode) {
+        this.repeatMode = repeatMode;
+    }
+
+    /**
+     * The song that next() would return, without moving to it.
+     *
+     * @param automatic true when the current song ended by itself, where repeat one plays it again
+     * @return the next song, or null at the end of the playlist without repeat
+     */
+    public synchronized PlaylistEntry peekNext(boolean automatic) {
+        if (automatic && repeatMode == RepeatMode.ONE && current != null) {
+            return current;
+        }
+        if (!upNext.isEmpty()) {
+            return upNext.peekFirst();
+        }
+        if (!forward.isEmpty()) {
+            return forward.peekFirst();
+        }
+        int index = peekOrder();
+        return index < 0 ? null : playlist.get(index);
+    }
+
+    /**
+     * Moves to the next song: a queued one, then one that previous() went back from, then the next of the order.
+     *
+     * @param automatic true when the current song ended by itself, where repeat one plays it again
+     * @return the next song, or null at the end of the playlist without repeat, where nothing changes
+     */
+    public synchronized PlaylistEntry next(boolean automatic) {
+        if (automatic && repeatMode == RepeatMode.ONE && current != null) {
+            return current;
+        }
+        PlaylistEntry entry = upNext.pollFirst();
+        if (entry == null) {
+            entry = forward.pollFirst();
+        }
+        if (entry == null) {
+            entry = advanceOrder();
+        }
+        if (entry == null) {
+            return null;
+        }
+        remember(current);
+        current = entry;
+        return entry;
+    }
+
+    /**
+     * Moves back to the song that played before this one. Without history it goes back in the playlist order,
+     * or starts the current song again in shuffle mode and at the start of the playlist.
+     */
+    public synchronized PlaylistEntry previous() {
+        PlaylistEntry entry = null;
+        if (historyCount > 0) {
+            historyEnd = (historyEnd - 1 + history.length) % history.length;
+            entry = history[historyEnd];
+            history[historyEnd] = null;
+            historyCount--;
+        }
+        if (entry != null) {
+            if (current != null) {
+                forward.addFirst(current);
+            }
+            current = entry;
+            return entry;
+        }
+        if (shuffle || playlist.isEmpty()) {
+            return current;
+        }
+        if (position > 0) {
+            position--;
+        } else if (repeatMode != RepeatMode.OFF) {
+            position = playlist.size() - 1;
+        } else {
+            return current;
+        }
+        current = playlist.get(position);
+        return current;
+    }
+
+    /**
+     * The songs that come after the current one, without moving to them, for reading them in advance.
+     * Stops at the end of a shuffled round.
+     */
+    public synchronized List<PlaylistEntry> upcoming(int count) {
+        List<PlaylistEntry> ahead = new ArrayList<>(count);
+        for (PlaylistEntry entry : upNext) {
+            if (ahead.size() == count) {
+                return ahead;
+            }
+            ahead.add(entry);
+        }
+        for (PlaylistEntry entry : forward) {
+            if (ahead.size() == count) {
+                return ahead;
+            }
+            ahead.add(entry);
+        }
+        int size = playlist.size();
+        for (int next = position + 1; ahead.size() < count && next <= position + size; next++) {
+            if (next < size) {
+                ahead.add(playlist.get(orderIndex(next)));
+            } else if (repeatMode == RepeatMode.OFF || shuffle) {
+                break;
+            } else {
+                ahead.add(playlist.get(next - size));
+            }
+        }
+        return ahead;
+    }
+
+    private int orderIndex(int orderPosition) {
+        if (!shuffle) {
+            return orderPosition;
+        }
+        while (generated <= orderPosition) {
+            draw(-1);
+        }
+        return order[orderPosition];
+    }
+
+    /**
+     * The playlist index that follows the current position of the order, starting a new round at the end
+     * with repeat. -1 if there is none.
+     */
+    private int peekOrder() {
+        int size = playlist.size();
+        if (size == 0) {
+            return -1;
+        }
+        if (position + 1 < size) {
+            return orderIndex(position + 1);
+        }
+        if (repeatMode == RepeatMode.OFF) {
+            return -1;
+        }
+        if (!shuffle) {
+            return 0;
+        }
+        if (nextCycleFirst < 0) {
+            int last = orderIndex(position);
+            do {
+                nextCycleFirst = random.nextInt(size);
+            } while (size > 1 && nextCycleFirst == last); // the new round does not repeat the song that just ended
+        }
+        return nextCycleFirst;
+    }
+
+    private PlaylistEntry advanceOrder() {
+        int index = peekOrder();
+        if (index < 0) {
+            return null;
+        }
+        if (position + 1 < playlist.size()) {
+            position++;
+        } else if (shuffle) {
+            startShuffle(index);
+        } else {
+            position = 0;
+        }
+        return playlist.get(index);
+    }
+
+    /**
+     * Starts a new shuffled round with the given playlist index first.
+     */
+    private void startShuffle(int first) {
+        swapped = new HashMap<>(); // clear() would walk the whole table that a long round left behind
+        generated = 0;
+        nextCycleFirst = -1;
+        draw(first);
+        position = 0;
+    }
+
+    /**
+     * One step of Fisher-Yates: swaps a random slot of the rest of the virtual array into the next position.
+     *
+     * @param slot the slot to take, or -1 for a random one
+     */
+    private void draw(int slot) {
+        int k = generated;
+        int j = slot >= 0 ? slot : k + random.nextInt(playlist.size() - k);
+        int value = slot(j);
+        if (j != k) {
+            swapped.put(j, slot(k));
+        }
+        swapped.remove(k); // slot k is never read again, so the map only holds the slots ahead
+        if (generated == order.length) {
+            order = Arrays.copyOf(order, order.length * 2);
+        }
+        order[generated++] = value;
+    }
+
+    private int slot(int i) {
+        Integer value = swapped.get(i);
+        return value == null ? i : value;
+    }
+
+    private void remember(PlaylistEntry entry) {
+        if (entry == null) {
+            return;
+        }
+        history[historyEnd] = entry;
+        historyEnd = (historyEnd + 1) % history.length;
+        historyCount = Math.min(historyCount + 1, history.length);
+    }
+}
@@ -0,0 +1,86 @@
+package Model;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Jedini sat reprodukcije. Vrijeme se racuna iz broja uzoraka koje je audio linija stvarno odsvirala,
+ * a azurira ga izlazna nit PlaybackEngine-a nakon svakog pisanja u liniju.
+ * Sat ima jednog pretplatnika (slajder). Promjene se javljaju na njegovom executoru najvise jednom
+ * po TICK_MILLISECONDS, a dok jedna dojava ceka, nove se ne zakazuju nego ona procita najnovije vrijeme.
+ */
+public class PlaybackClock {
+
+    /**
+     * Receives the position of the playing song, on the executor given to subscribe().
+     */
+    public interface Listener {
+        void positionChanged(Song song, long positionInMilliseconds);
+    }
+
+    static final long TICK_MILLISECONDS = 250;
+
+    private final AtomicBoolean deliveryScheduled = new AtomicBoolean();
+    private final Runnable delivery = this::deliver; // allocated once, scheduled again and again
+    private volatile Song song;
+    private volatile long positionInMilliseconds;
+    private volatile Listener listener;
+    private volatile Executor executor;
+    private long publishedTick = -1; // a race between two updaters only costs one extra delivery
+    private volatile long scheduledNanos; // when the pending delivery was handed to the executor
+    private final LatencyHistogram deliveryLatency = PlayerMetrics.getDefault().getUiUpdateHistogram();
+
+    // Getters
+
+    public Song getSong() {
+        return song;
+    }
+
+    public long getPositionInMilliseconds() {
+        return positionInMilliseconds;
+    }
+
+    //Methods
+
+    /**
+     * Sets the single subscriber, replacing the previous one.
+     *
+     * @param executor where the listener is called, for example SwingUtilities::invokeLater
+     */
+    public void subscribe(Listener listener, Executor executor) {
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the clock. Cheap enough to call after every write to the line; the subscriber hears about
+     * it only when the song or the tick changes.
+     */
+    void update(Song song, long positionInMilliseconds) {
+        boolean songChanged = song != this.song;
+        this.positionInMilliseconds = positionInMilliseconds;
+        this.song = song;
+        long tick = positionInMilliseconds / TICK_MILLISECONDS;
+        if (songChanged || tick != publishedTick) {
+            publishedTick = tick;
+            publish();
+        }
+    }
+
+    private void publish() {
+        Executor currentExecutor = executor;
+        if (currentExecutor != null && listener != null && deliveryScheduled.compareAndSet(false, true)) {
+            scheduledNanos = System.nanoTime();
+            currentExecutor.execute(delivery);
+        }
+    }
+
+    private void deliver() {
+        deliveryLatency.record(System.nanoTime() - scheduledNanos);
+        deliveryScheduled.set(false); // an update from now on schedules another delivery
+        Listener currentListener = listener;
+        if (currentListener != null) {
+            currentListener.positionChanged(song, positionInMilliseconds);
+        }
+    }
+}
@@ -0,0 +1,781 @@
+package Model;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reprodukcija pjesama vlastitom petljom dekodiranja umjesto jlayer AdvancedPlayer-a.
+ * Engine ima dvije stalne niti: dekoder puni PcmRingBuffer uzorcima, a izlaz ih iz buffera pise u audio liniju.
+ * Pauza samo zaustavlja izlaz (linija i fajl ostaju otvoreni), a seek i stop prazne buffer.
+ * U stabilnom stanju nijedna nit ne alocira memoriju niti uzima lock.
+ *
+ * U gapless nacinu rada se u zadnjim sekundama pjesme u pozadini otvara i unaprijed dekodira pocetak
+ * sljedece pjesme, pa se PCM nastavlja pisati u istu audio liniju koja se izmedju pjesama nikad ne isprazni.
+ * Za svaki prijelaz se mjeri koliko je uzoraka tisine kartica morala odsvirati (gap),
+ * a broje se i zastoji dekodera i prazni buffer (underrun).
+ *
+ * Sa ukljucenim pretapanjem (crossfade) dekoder u zadnjim sekundama pjesme dekodira i sljedecu pjesmu
+ * i u ring buffer pise njihovu mjesavinu (Crossfader); sljedeca pjesma za izlaz pocinje na pocetku pretapanja.
+ * Izlazna nit prije pisanja u liniju propusta uzorke kroz DspChain (ekvilajzer) i GainStage.
+ */
+public class PlaybackEngine {
+
+    /**
+     * Receives playback events. trackStarted and trackFinished are called from an event thread, so they may
+     * call back into the engine; nextTrack is called from the primer thread, so it may read a file.
+     */
+    public interface Listener {
+        /**
+         * The first sample of the song reached the output, either after play() or after a gapless transition.
+         */
+        void trackStarted(Song song);
+
+        /**
+         * The song played to its end and there is no next song.
+         */
+        void trackFinished(Song song);
+
+        /**
+         * Asked during the last seconds of a song in gapless mode, returns the song to prime or null.
+         */
+        Song nextTrack(Song current);
+    }
+
+    static final long PRIME_AHEAD_MILLISECONDS = 5000;
+    private static final int RING_SAMPLES = 1 << 18;       // ~3 s of 44.1 kHz stereo
+    private static final int OUTPUT_CHUNK = 2048;          // samples per write to the line, ~23 ms of stereo
+    private static final int PREBUFFER_SAMPLES = 1 << 15;  // decoded before the output starts, ~370 ms of stereo
+    private static final long PREBUFFER_MAX_NANOS = 50_000_000; // but never wait longer than this to start
+    private static final long FULL_PARK_NANOS = 5_000_000; // the decoder is seconds ahead, polling is cheap
+    private static final long EMPTY_PARK_NANOS = 1_000_000;
+
+    private final AudioOutput output;
+    private final Listener listener;
+    private final PcmRingBuffer ring = new PcmRingBuffer(RING_SAMPLES);
+    private final PlaybackClock clock = new PlaybackClock();
+    private final LatencyHistogram frameDecodeHistogram = PlayerMetrics.getDefault().getFrameDecodeHistogram();
+    private final Queue<TrackMark> marks = new ConcurrentLinkedQueue<>(); // where in the ring each song starts
+    private final Object control = new Object();
+    private final Thread decoderThread;
+    private final Thread outputThread;
+    private final ExecutorService primer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "playback-primer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService events = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "playback-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean gapless = true;
+    private volatile boolean paused;
+    private volatile boolean shutdown;
+    private volatile boolean resetRequested;
+    private volatile boolean endQueued; // the decoder has no more songs, the ring will not fill up
+    private volatile boolean nextChanged; // the primed next song is stale, ask the listener again
+    private volatile int crossfadeMillis;  // 0 for no crossfade
+    private volatile Crossfader.Curve crossfadeCurve = Crossfader.Curve.EQUAL_POWER;
+    private volatile float volume = 1;
+    private volatile float trackGain = 1;  // ReplayGain of the song at the output
+    private volatile GainStage.Mode replayGainMode = GainStage.Mode.OFF;
+    private volatile LibraryCache loudnessCache; // where the gains are stored, null for none
+    private int resetAcknowledged; // guarded by control
+    private long resetsCompleted;  // guarded by control
+
+    // open file of the song decoded last, reused when that song is played again from another position
+    private final Object sourceLock = new Object();
+    private AudioSource lastSource; // guarded by sourceLock
+
+    // decoder stage, owned by the decoder thread (and by reset() while that thread waits)
+    private TrackDecoder decoder;
+    private Future<TrackDecoder> next;
+    private final Crossfader crossfader = new Crossfader();
+    private long crossfadeNanos;   // decoder thread time spent in the current crossfade
+    private short[] pendingBuffer;
+    private int pendingOffset;
+    private int pendingLength;
+
+    // output stage, owned by the output thread (and by reset() while that thread waits)
+    private final short[] chunk = new short[OUTPUT_CHUNK];
+    private final DspChain dspChain = new DspChain();
+    private final GainStage gainStage = new GainStage();
+    private Song outputSong;
+    private long framesWritten;    // sample frames handed to the output since it was opened
+    private boolean starving = true; // the ring is empty and that was already counted
+    private boolean prebuffering = true;
+    private long prebufferStarted;
+    private long boundaryNanos = -1; // when the last sample of the previous song was written
+    private long queuedAtBoundary;
+
+    // clock and statistics, written by one stage and read by anyone
+    private volatile long trackOriginFrame;  // output frame position at which the current song started
+    private volatile long trackStartMillis;
+    private volatile long lastGapSamples = -1;
+    private volatile long underruns;
+    private volatile long decoderStalls;
+    private volatile long maxDecodeNanos;
+    private volatile long crossfadeCost = -1;
+
+    public PlaybackEngine(AudioOutput output, Listener listener) {
+        this.output = output;
+        this.listener = listener;
+        decoderThread = new Thread(this::decodeLoop, "playback-decoder");
+        outputThread = new Thread(this::outputLoop, "playback-output");
+        decoderThread.setDaemon(true);
+        outputThread.setDaemon(true);
+        outputThread.setPriority(Thread.MAX_PRIORITY); // the line must never wait for the scheduler
+        decoderThread.start();
+        outputThread.start();
+    }
+
+    // Getters and Setters
+
+    public boolean isGapless() {
+        return gapless;
+    }
+
+    public void setGapless(boolean gapless) {
+        this.gapless = gapless;
+    }
+
+    public float getVolume() {
+        return volume;
+    }
+
+    /**
+     * Sets the volume from 0 to 1. It is applied to the samples that are written to the line, so it is
+     * heard after the line buffer, not after the seconds in the ring buffer.
+     */
+    public void setVolume(float volume) {
+        this.volume = Math.max(0, Math.min(1, volume));
+    }
+
+    public int getCrossfadeMillis() {
+        return crossfadeMillis;
+    }
+
+    public Crossfader.Curve getCrossfadeCurve() {
+        return crossfadeCurve;
+    }
+
+    /**
+     * Sets the length of the crossfade between consecutive songs, 0 to switch it off, and its curve.
+     * The next song is then prepared before the fade even without gapless playback.
+     */
+    public void setCrossfade(int millis, Crossfader.Curve curve) {
+        crossfadeCurve = curve;
+        crossfadeMillis = Math.max(0, millis);
+    }
+
+    /**
+     * The processors the samples go through on the output thread, before the gain. Changes are heard
+     * after the line buffer, not after the seconds in the ring buffer.
+     */
+    public DspChain getDspChain() {
+        return dspChain;
+    }
+
+    public GainStage.Mode getReplayGainMode() {
+        return replayGainMode;
+    }
+
+    /**
+     * Applies the stored loudness of the songs, looked up in the given cache. Also changes the current song.
+     */
+    public void setReplayGain(GainStage.Mode mode, LibraryCache libraryCache) {
+        replayGainMode = mode;
+        loudnessCache = libraryCache;
+        Song song = clock.getSong();
+        trackGain = song == null ? 1 : gainOf(song);
+    }
+
+    /**
+     * Tells the engine that the listener would now return a different next song, e.g. after shuffle was
+     * switched on. A song that was already primed is dropped and nextTrack() is asked again.
+     */
+    public void invalidateNext() {
+        nextChanged = true;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Silence in sample frames that the output played between the last two songs of a gapless transition,
+     * or -1 if there was no transition yet.
+     */
+    public long getLastGapSamples() {
+        return lastGapSamples;
+    }
+
+    /**
+     * How many times the output found the ring buffer empty while a song was still being decoded.
+     */
+    public long getUnderruns() {
+        return underruns;
+    }
+
+    /**
+     * How many frames took longer to decode than to play.
+     */
+    public long getDecoderStalls() {
+        return decoderStalls;
+    }
+
+    public long getMaxDecodeNanos() {
+        return maxDecodeNanos;
+    }
+
+    /**
+     * Decoder thread time per second of audio during the last crossfade, decoding both songs and mixing
+     * them, in nanoseconds, or -1 if there was no crossfade yet.
+     */
+    public long getLastCrossfadeCost() {
+        return crossfadeCost;
+    }
+
+    /**
+     * Decoded samples waiting in the ring buffer.
+     */
+    public int getBufferedSamples() {
+        return ring.available();
+    }
+
+    public int getBufferCapacity() {
+        return ring.getCapacity();
+    }
+
+    /**
+     * The clock of the current song, updated from the samples the line has played.
+     */
+    public PlaybackClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Position of the current song from the samples the output has actually played.
+     */
+    public long getPositionInMilliseconds() {
+        int sampleRate = output.getSampleRate();
+        if (sampleRate == 0) {
+            return trackStartMillis;
+        }
+        long played = Math.max(0, output.getFramePosition() - trackOriginFrame);
+        return trackStartMillis + played * 1000 / sampleRate;
+    }
+
+    //Methods
+
+    /**
+     * Starts playing the song from the given time, dropping whatever is playing or buffered now.
+     *
+     * @return the time playback actually starts at, snapped to a frame boundary, or -1 if the song could not
+     *         be opened; the engine is stopped then
+     */
+    public synchronized long play(Song song, long startMillis) {
+        TrackDecoder newDecoder;
+        try {
+            newDecoder = new TrackDecoder(song, startMillis, lastSource()); // a seek does not reopen the file
+        } catch (IOException e) {
+            System.out.println("Error playing song");
+            e.printStackTrace();
+            reset(null);
+            return -1;
+        }
+        keepSource(newDecoder.getSource());
+        reset(newDecoder);
+        resume();
+        return newDecoder.getStartMillis();
+    }
+
+    /**
+     * Stops the output stage; the decoder fills the ring buffer and waits. Nothing is closed.
+     *
+     * @return the position that was reached
+     */
+    public synchronized long pause() {
+        paused = true;
+        output.pause();
+        long position = getPositionInMilliseconds();
+        clock.update(clock.getSong(), position);
+        return position;
+    }
+
+    public synchronized void resume() {
+        paused = false;
+        output.resume();
+        LockSupport.unpark(outputThread);
+    }
+
+    /**
+     * Stops playback and returns the position that was reached. The audio line stays open.
+     */
+    public synchronized long stop() {
+        long position = getPositionInMilliseconds();
+        reset(null);
+        return position;
+    }
+
+    public synchronized void shutdown() {
+        reset(null);
+        shutdown = true;
+        LockSupport.unpark(decoderThread);
+        LockSupport.unpark(outputThread);
+        synchronized (control) {
+            control.notifyAll();
+        }
+        primer.shutdownNow();
+        events.shutdown();
+        keepSource(null);
+        output.close();
+    }
+
+    /**
+     * Parks both stages, drops the buffered audio and installs the new decoder (or none).
+     */
+    private void reset(TrackDecoder newDecoder) {
+        synchronized (control) {
+            resetAcknowledged = 0;
+            resetRequested = true;
+            output.flush(); // wakes an output write that waits for space in the line
+            LockSupport.unpark(decoderThread);
+            LockSupport.unpark(outputThread);
+            try {
+                while (resetAcknowledged < 2 && !shutdown) {
+                    control.wait(10);
+                    output.flush(); // in case the output started another write into a paused line
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            // both stages are waiting in awaitReset()
+            if (decoder != null) {
+                decoder.close();
+            }
+            closePrimed();
+            crossfader.cancel();
+            marks.clear();
+            ring.clear();
+            output.flush();
+            decoder = newDecoder;
+            pendingLength = 0;
+            framesWritten = output.getFramePosition(); // what was flushed was never played
+            starving = true;
+            prebuffering = true;
+            prebufferStarted = System.nanoTime();
+            endQueued = false;
+            boundaryNanos = -1;
+            outputSong = null;
+            dspChain.reset();
+            gainStage.reset();
+            if (newDecoder != null) {
+                marks.add(new TrackMark(ring.getWritePosition(), newDecoder, gainOf(newDecoder.getSong())));
+                trackOriginFrame = framesWritten;
+                trackStartMillis = newDecoder.getStartMillis();
+                clock.update(newDecoder.getSong(), trackStartMillis);
+            } else {
+                clock.update(null, 0);
+            }
+            resetRequested = false;
+            resetsCompleted++;
+            control.notifyAll();
+        }
+    }
+
+    /**
+     * Called by a stage at the top of its loop. Waits while reset() works on the stage state.
+     *
+     * @return true if the stage waited, so its local view of the state is stale
+     */
+    private boolean awaitReset() {
+        if (!resetRequested) {
+            return false;
+        }
+        synchronized (control) {
+            try {
+                while (resetRequested && !shutdown) {
+                    // acknowledge each reset once, another one may start before this thread wakes up
+                    long completed = resetsCompleted;
+                    resetAcknowledged++;
+                    control.notifyAll();
+                    while (resetsCompleted == completed && !shutdown) {
+                        control.wait();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return true;
+    }
+
+    // decoder stage
+
+    private void decodeLoop() {
+        while (!shutdown) {
+            if (awaitReset()) {
+                continue;
+            }
+            if (decoder == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            try {
+                if (pendingLength == 0 && !decodeNextFrame()) {
+                    continue;
+                }
+            } catch (IOException e) {
+                System.out.println("Error playing song");
+                e.printStackTrace();
+                finishDecoding();
+                continue;
+            }
+
+            int channels = decoder.getChannels();
+            int space = ring.free() / channels * channels; // whole sample frames only
+            int written = ring.write(pendingBuffer, pendingOffset, Math.min(pendingLength, space));
+            pendingOffset += written;
+            pendingLength -= written;
+            if (written > 0) {
+                LockSupport.unpark(outputThread);
+            }
+            if (pendingLength > 0) {
+                LockSupport.parkNanos(this, FULL_PARK_NANOS); // ring is full, the output is seconds behind
+            }
+        }
+    }
+
+    /**
+     * Decodes one frame into the pending samples, or moves on to the next song at the end of this one.
+     *
+     * @return false if there is nothing to write yet
+     */
+    private boolean decodeNextFrame() throws IOException {
+        int fadeMillis = crossfadeMillis;
+        long remaining = decoder.getSong().getMetadata().getDurationInMilliseconds() - decoder.getDecodedMillis();
+        if (!crossfader.isActive() && fadeMillis > 0 && remaining <= fadeMillis && next != null && next.isDone()) {
+            startCrossfade(remaining);
+        }
+        if (crossfader.isActive()) {
+            return crossfadeFrame();
+        }
+
+        long started = System.nanoTime();
+        int samples = decoder.decodeFrame();
+        long took = System.nanoTime() - started;
+        if (samples < 0) {
+            advanceTrack();
+            return false;
+        }
+        frameDecodeHistogram.record(took);
+        if (took > maxDecodeNanos) {
+            maxDecodeNanos = took;
+        }
+        if (samples > 0 && took > samples / decoder.getChannels() * 1_000_000_000L / decoder.getSampleRate()) {
+            decoderStalls++; // decoding is slower than playing, the buffer shrinks
+        }
+        pendingBuffer = decoder.getBuffer();
+        pendingOffset = decoder.getOffset();
+        pendingLength = samples;
+
+        if (nextChanged) {
+            nextChanged = false;
+            closePrimed();
+        }
+        if ((gapless || fadeMillis > 0) && next == null && remaining < PRIME_AHEAD_MILLISECONDS + fadeMillis) {
+            next = primeNext(decoder.getSong());
+        }
+        return samples > 0;
+    }
+
+    /**
+     * Starts mixing the primed next song into the last milliseconds of the current one, if it has the same
+     * format. Otherwise the songs follow each other as without a crossfade.
+     */
+    private void startCrossfade(long remaining) {
+        TrackDecoder primed = awaitPrimed(next); // done, does not wait
+        if (primed == null || primed.getSampleRate() != decoder.getSampleRate()
+                || primed.getChannels() != decoder.getChannels()) {
+            return;
+        }
+        next = null;
+        long millis = Math.min(remaining, primed.getSong().getMetadata().getDurationInMilliseconds() / 2);
+        float incomingGain = gainOf(primed.getSong());
+        crossfader.start(primed, millis * primed.getSampleRate() / 1000, crossfadeCurve,
+                gainOf(decoder.getSong()) / incomingGain);
+        crossfadeNanos = 0;
+        // for the output the next song starts with the fade
+        marks.add(new TrackMark(ring.getWritePosition(), primed, incomingGain));
+    }
+
+    /**
+     * Decodes a frame of the outgoing song and mixes it with the incoming one into the pending samples.
+     *
+     * @return false if there is nothing to write yet
+     */
+    private boolean crossfadeFrame() throws IOException {
+        long started = System.nanoTime();
+        int samples = crossfader.isFinished() ? -1 : decoder.decodeFrame();
+        if (samples < 0) {
+            // the fade is over, or the outgoing song ended a little early and the incoming one plays on at full gain
+            finishCrossfade();
+            return pendingLength > 0;
+        }
+        pendingBuffer = crossfader.getBuffer();
+        pendingOffset = 0;
+        pendingLength = samples == 0 ? 0 : crossfader.mix(decoder.getBuffer(), decoder.getOffset(), samples);
+        crossfadeNanos += System.nanoTime() - started;
+        return pendingLength > 0;
+    }
+
+    private void finishCrossfade() {
+        long frames = crossfader.getPosition();
+        if (frames > 0) {
+            crossfadeCost = crossfadeNanos * decoder.getSampleRate() / frames;
+            System.out.printf("Crossfade of %.1f s took %.2f ms per second of audio%n",
+                    (double) frames / decoder.getSampleRate(), crossfadeCost / 1e6);
+        }
+        decoder.close();
+        decoder = crossfader.finish();
+        keepSource(decoder.getSource());
+        // samples of the incoming song that were decoded but not needed for the last mixed frame
+        pendingBuffer = decoder.getBuffer();
+        pendingOffset = crossfader.getIncomingOffset();
+        pendingLength = crossfader.getIncomingLength();
+    }
+
+    private void advanceTrack() {
+        if ((gapless || crossfadeMillis > 0) && next == null) {
+            next = primeNext(decoder.getSong()); // song shorter than the priming time
+        }
+        TrackDecoder primed = next == null ? null : awaitPrimed(next);
+        next = null;
+        decoder.close();
+        if (primed == null) {
+            finishDecoding();
+            return;
+        }
+        decoder = primed;
+        keepSource(primed.getSource());
+        // gapless: samples follow in the same ring
+        marks.add(new TrackMark(ring.getWritePosition(), primed, gainOf(primed.getSong())));
+    }
+
+    private void finishDecoding() {
+        if (decoder != null) {
+            decoder.close();
+        }
+        decoder = null;
+        closePrimed();
+        marks.add(new TrackMark(ring.getWritePosition(), null, 1));
+        endQueued = true;
+        LockSupport.unpark(outputThread);
+    }
+
+    /**
+     * Asks for, opens, parses and pre-decodes the next song on the primer thread while the current one keeps
+     * playing. The decoder thread never waits for the listener, which may still have to read the song.
+     */
+    private Future<TrackDecoder> primeNext(Song current) {
+        return primer.submit(() -> {
+            Song nextSong = listener.nextTrack(current);
+            if (nextSong == null) {
+                return null;
+            }
+            TrackDecoder primed = new TrackDecoder(nextSong, 0);
+            primed.prime();
+            return primed;
+        });
+    }
+
+    /**
+     * Linear ReplayGain of the song in the current mode, 1 if the song was not analyzed.
+     */
+    private float gainOf(Song song) {
+        LibraryCache cache = loudnessCache;
+        if (cache == null || replayGainMode == GainStage.Mode.OFF) {
+            return 1;
+        }
+        return GainStage.gainOf(cache.getLoudness(song.getFile()), replayGainMode);
+    }
+
+    private AudioSource lastSource() {
+        synchronized (sourceLock) {
+            return lastSource;
+        }
+    }
+
+    /**
+     * Holds a reference to the source of the song that plays now, so a seek or a replay opens no file.
+     * It is released when another song plays or the engine shuts down.
+     */
+    private void keepSource(AudioSource source) {
+        AudioSource previous;
+        synchronized (sourceLock) {
+            if (source == lastSource) {
+                return;
+            }
+            if (source != null && !source.retain()) {
+                source = null;
+            }
+            previous = lastSource;
+            lastSource = source;
+        }
+        if (previous != null) {
+            previous.release();
+        }
+    }
+
+    private void closePrimed() {
+        if (next != null) {
+            TrackDecoder primed = awaitPrimed(next);
+            if (primed != null) {
+                primed.close();
+            }
+            next = null;
+        }
+    }
+
+    private static TrackDecoder awaitPrimed(Future<TrackDecoder> next) {
+        try {
+            return next.get();
+        } catch (ExecutionException e) {
+            System.out.println("Error preparing next song");
+            e.getCause().printStackTrace();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    // output stage
+
+    private void outputLoop() {
+        while (!shutdown) {
+            if (awaitReset()) {
+                continue;
+            }
+            if (paused) {
+                LockSupport.park(this);
+                continue;
+            }
+            if (prebuffering) {
+                if (ring.available() < PREBUFFER_SAMPLES && !endQueued
+                        && System.nanoTime() - prebufferStarted < PREBUFFER_MAX_NANOS) {
+                    LockSupport.parkNanos(this, EMPTY_PARK_NANOS); // a fresh start has nothing to play ahead yet
+                    continue;
+                }
+                prebuffering = false;
+            }
+            try {
+                TrackMark mark = marks.peek();
+                long readPosition = ring.getReadPosition();
+                if (mark != null && mark.position == readPosition) {
+                    marks.poll();
+                    passMark(mark);
+                    continue;
+                }
+
+                int channels = output.isOpen() ? output.getChannels() : 1;
+                int limit = mark == null ? chunk.length : (int) Math.min(chunk.length, mark.position - readPosition);
+                int count = ring.read(chunk, 0, Math.min(limit, ring.available()) / channels * channels);
+                if (count == 0) {
+                    if (!starving) {
+                        starving = true;
+                        underruns++; // the decoder fell behind, the line is about to run dry
+                    }
+                    LockSupport.parkNanos(this, EMPTY_PARK_NANOS);
+                    continue;
+                }
+                starving = false;
+                LockSupport.unpark(decoderThread);
+                dspChain.process(chunk, 0, count);
+                gainStage.process(chunk, 0, count, channels, trackGain * volume);
+                output.write(chunk, 0, count);
+                framesWritten += count / channels;
+                clock.update(outputSong, getPositionInMilliseconds());
+                if (boundaryNanos >= 0) {
+                    long silentFrames = (System.nanoTime() - boundaryNanos) * output.getSampleRate() / 1_000_000_000L
+                            - queuedAtBoundary;
+                    lastGapSamples = Math.max(0, silentFrames);
+                    boundaryNanos = -1;
+                }
+            } catch (IOException e) {
+                System.out.println("Error playing song");
+                e.printStackTrace();
+                LockSupport.parkNanos(this, FULL_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * The output reached the start of a song or the end of playback.
+     */
+    private void passMark(TrackMark mark) throws IOException {
+        if (mark.song == null) {
+            output.drain();
+            Song finished = outputSong;
+            outputSong = null;
+            starving = true;
+            if (finished != null) {
+                events.execute(() -> listener.trackFinished(finished));
+            }
+            return;
+        }
+
+        if (outputSong != null) {
+            // gapless transition, measured when the first sample of the new song is written
+            boundaryNanos = System.nanoTime();
+            queuedAtBoundary = framesWritten - output.getFramePosition();
+        }
+        if (!output.isOpen() || output.getSampleRate() != mark.sampleRate || output.getChannels() != mark.channels) {
+            if (output.isOpen()) {
+                output.drain(); // the line has to be reopened for another format
+            }
+            output.open(mark.sampleRate, mark.channels);
+            framesWritten = output.getFramePosition();
+        }
+        outputSong = mark.song;
+        trackGain = mark.gain;
+        dspChain.setFormat(mark.sampleRate, mark.channels);
+        gainStage.setSampleRate(mark.sampleRate);
+        trackOriginFrame = framesWritten;
+        trackStartMillis = mark.startMillis;
+        clock.update(mark.song, mark.startMillis);
+        Song started = mark.song;
+        events.execute(() -> listener.trackStarted(started));
+    }
+
+
+    /**
+     * Position in the ring buffer where a song starts (or, without a song, where playback ends).
+     */
+    private static final class TrackMark {
+        final long position;
+        final Song song;
+        final long startMillis;
+        final int sampleRate;
+        final int channels;
+        final float gain; // linear ReplayGain of the song
+
+        TrackMark(long position, TrackDecoder decoder, float gain) {
+            this.position = position;
+            this.gain = gain;
+            this.song = decoder == null ? null : decoder.getSong();
+            this.startMillis = decoder == null ? 0 : decoder.getStartMillis();
+            this.sampleRate = decoder == null ? 0 : decoder.getSampleRate();
+            this.channels = decoder == null ? 0 : decoder.getChannels();
+        }
+    }
+}
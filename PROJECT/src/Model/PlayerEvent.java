@@ -0,0 +1,54 @@
+package Model;
+
+/**
+ * Dogadjaji plejera koje MusicPlayer objavljuje na PlayerEventBus-u, a prozori ih slusaju.
+ * Svaki tip nosi cijelo stanje koje opisuje (ne razliku), pa se od vise dogadjaja istog tipa
+ * moze dostaviti samo zadnji.
+ */
+public abstract class PlayerEvent {
+
+    /**
+     * Pjesma koja svira (ili je spremna da svira) se promijenila.
+     */
+    public static final class SongChanged extends PlayerEvent {
+        private final Song song;
+
+        public SongChanged(Song song) {
+            this.song = song;
+        }
+
+        public Song getSong() {
+            return song;
+        }
+    }
+
+    /**
+     * Plejer je poceo da svira, pauzirao ili stao.
+     */
+    public static final class StateChanged extends PlayerEvent {
+        private final MusicPlayer.State state;
+
+        public StateChanged(MusicPlayer.State state) {
+            this.state = state;
+        }
+
+        public MusicPlayer.State getState() {
+            return state;
+        }
+    }
+
+    /**
+     * Greska koju treba pokazati korisniku, npr. plejlista koja se ne moze procitati.
+     */
+    public static final class Error extends PlayerEvent {
+        private final String message;
+
+        public Error(String message) {
+            this.message = message;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package Model;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Sabirnica dogadjaja izmedju MusicPlayer-a i prozora: plejer objavljuje dogadjaje sa svoje niti, a pretplatnici
+ * ih dobijaju na executoru sabirnice (EDT za Swing). Dogadjaji se skupljaju: od vise dogadjaja istog tipa
+ * dostavlja se samo zadnji, a svi tipovi koji cekaju dostavljaju se zajedno, najvise jednom po frejmu (16 ms).
+ * Prvi dogadjaj poslije mirnog perioda ide odmah, pa jedna komanda nema kasnjenje, a niz next-next-next
+ * prozor osvjezi jednom. Plejer ne zna nista o Swing-u.
+ */
+public class PlayerEventBus {
+
+    static final long FRAME_NANOS = 16_000_000; // one frame at 60 Hz
+
+    private final Map<Class<?>, List<Consumer<Object>>> subscribers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, PlayerEvent> pending = new LinkedHashMap<>(); // guarded by itself, latest per type
+    private final AtomicBoolean deliveryScheduled = new AtomicBoolean();
+    private final Runnable delivery = this::deliver;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "player-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Executor executor;
+    private final Runnable handOver;
+    private volatile long lastDeliveryNanos;
+    private long published;   // guarded by pending
+    private volatile long dispatches;
+
+    /**
+     * @param executor where the subscribers are called, for example SwingUtilities::invokeLater;
+     *                 null to call them on the bus's own thread
+     */
+    public PlayerEventBus(Executor executor) {
+        this.executor = executor != null ? executor : timer;
+        this.handOver = () -> this.executor.execute(delivery);
+        lastDeliveryNanos = System.nanoTime() - FRAME_NANOS;
+    }
+
+    // Getters
+
+    public long getPublishedCount() {
+        synchronized (pending) {
+            return published;
+        }
+    }
+
+    /**
+     * How many times the subscribers were called with a batch of events.
+     */
+    public long getDispatchCount() {
+        return dispatches;
+    }
+
+    //Methods
+
+    /**
+     * Calls the listener with every event of the given type, on the executor of the bus.
+     */
+    @SuppressWarnings("unchecked")
+    public <E extends PlayerEvent> void subscribe(Class<E> type, Consumer<? super E> listener) {
+        subscribers.computeIfAbsent(type, key -> new CopyOnWriteArrayList<>()).add((Consumer<Object>) listener);
+    }
+
+    public <E extends PlayerEvent> void unsubscribe(Class<E> type, Consumer<? super E> listener) {
+        List<Consumer<Object>> listeners = subscribers.get(type);
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Queues the event, replacing an undelivered one of the same type. Callable from any thread.
+     */
+    public void publish(PlayerEvent event) {
+        synchronized (pending) {
+            pending.put(event.getClass(), event);
+            published++;
+        }
+        if (deliveryScheduled.compareAndSet(false, true)) {
+            long wait = lastDeliveryNanos + FRAME_NANOS - System.nanoTime();
+            if (wait <= 0) {
+                executor.execute(delivery);
+            } else {
+                timer.schedule(handOver, wait, TimeUnit.NANOSECONDS); // the last delivery was less than a frame ago
+            }
+        }
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private void deliver() {
+        lastDeliveryNanos = System.nanoTime();
+        deliveryScheduled.set(false); // an event from now on schedules another delivery, a frame later
+        PlayerEvent[] events;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return; // taken by the delivery before this one
+            }
+            events = pending.values().toArray(new PlayerEvent[0]);
+            pending.clear();
+        }
+        dispatches++;
+        for (PlayerEvent event : events) {
+            List<Consumer<Object>> listeners = subscribers.get(event.getClass());
+            if (listeners != null) {
+                for (Consumer<Object> listener : listeners) {
+                    listener.accept(event);
+                }
+            }
+        }
+    }
+}
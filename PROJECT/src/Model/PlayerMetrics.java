@@ -0,0 +1,150 @@
+package Model;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Mjerenja plejera na jednom mjestu: vrijeme citanja metapodataka, vrijeme do prvog zvuka, dekodiranje frejma
+ * i kasnjenje osvjezavanja slajdera na EDT-u, te popunjenost buffera i broj underrun-a iz PlaybackEngine-a.
+ * Histogrami se pune bez alokacija, a citaju se preko JMX-a (JavaSwingMusicPlayer:type=PlayerMetrics)
+ * ili preko overlay-a u glavnom prozoru.
+ */
+public class PlayerMetrics implements PlayerMetricsMXBean {
+
+    public static final String OBJECT_NAME = "JavaSwingMusicPlayer:type=PlayerMetrics";
+
+    private final LatencyHistogram metadataLoad = new LatencyHistogram();
+    private final LatencyHistogram timeToFirstAudio = new LatencyHistogram();
+    private final LatencyHistogram frameDecode = new LatencyHistogram();
+    private final LatencyHistogram uiUpdate = new LatencyHistogram();
+    private volatile PlaybackEngine playbackEngine;
+    private volatile LibraryCache libraryCache;
+
+    /**
+     * The metrics of the application, registered with the platform MBean server the first time they are used.
+     */
+    public static PlayerMetrics getDefault() {
+        return Holder.DEFAULT;
+    }
+
+    // Getters and Setters
+
+    public LatencyHistogram getMetadataLoadHistogram() {
+        return metadataLoad;
+    }
+
+    public LatencyHistogram getTimeToFirstAudioHistogram() {
+        return timeToFirstAudio;
+    }
+
+    public LatencyHistogram getFrameDecodeHistogram() {
+        return frameDecode;
+    }
+
+    public LatencyHistogram getUiUpdateHistogram() {
+        return uiUpdate;
+    }
+
+    /**
+     * The engine whose buffer and underruns are reported, the one of the last MusicPlayer that was created.
+     */
+    public void setPlaybackEngine(PlaybackEngine playbackEngine) {
+        this.playbackEngine = playbackEngine;
+    }
+
+    /**
+     * The cache whose hits and misses are reported, the one of the last MusicPlayer that was created.
+     */
+    public void setLibraryCache(LibraryCache libraryCache) {
+        this.libraryCache = libraryCache;
+    }
+
+    @Override
+    public HistogramSnapshot getMetadataLoad() {
+        return HistogramSnapshot.of(metadataLoad);
+    }
+
+    @Override
+    public HistogramSnapshot getTimeToFirstAudio() {
+        return HistogramSnapshot.of(timeToFirstAudio);
+    }
+
+    @Override
+    public HistogramSnapshot getFrameDecode() {
+        return HistogramSnapshot.of(frameDecode);
+    }
+
+    @Override
+    public HistogramSnapshot getUiUpdate() {
+        return HistogramSnapshot.of(uiUpdate);
+    }
+
+    @Override
+    public int getBufferFillPercent() {
+        PlaybackEngine engine = playbackEngine;
+        return engine == null ? 0 : (int) (100L * engine.getBufferedSamples() / engine.getBufferCapacity());
+    }
+
+    @Override
+    public long getUnderruns() {
+        PlaybackEngine engine = playbackEngine;
+        return engine == null ? 0 : engine.getUnderruns();
+    }
+
+    @Override
+    public long getDecoderStalls() {
+        PlaybackEngine engine = playbackEngine;
+        return engine == null ? 0 : engine.getDecoderStalls();
+    }
+
+    @Override
+    public long getLibraryCacheHits() {
+        LibraryCache cache = libraryCache;
+        return cache == null ? 0 : cache.getHits();
+    }
+
+    @Override
+    public long getLibraryCacheMisses() {
+        LibraryCache cache = libraryCache;
+        return cache == null ? 0 : cache.getMisses();
+    }
+
+    @Override
+    public long getCrossfadeMicrosPerSecond() {
+        PlaybackEngine engine = playbackEngine;
+        long cost = engine == null ? -1 : engine.getLastCrossfadeCost();
+        return cost < 0 ? -1 : cost / 1000;
+    }
+
+    //Methods
+
+    /**
+     * Clears the histograms. The underrun and stall counters belong to the engine and the cache counters
+     * to the cache, they keep counting.
+     */
+    @Override
+    public void reset() {
+        metadataLoad.reset();
+        timeToFirstAudio.reset();
+        frameDecode.reset();
+        uiUpdate.reset();
+    }
+
+    private static PlayerMetrics createAndRegister() {
+        PlayerMetrics metrics = new PlayerMetrics();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(metrics, new ObjectName(OBJECT_NAME));
+        } catch (JMException | SecurityException e) {
+            e.printStackTrace(); // the player works without JMX
+        }
+        return metrics;
+    }
+
+
+    private static final class Holder {
+        static final PlayerMetrics DEFAULT = createAndRegister();
+    }
+}
@@ -0,0 +1,47 @@
+package Model;
+
+/**
+ * JMX pogled na PlayerMetrics (jconsole, VisualVM): histogrami kasnjenja i stanje buffera reprodukcije.
+ */
+public interface PlayerMetricsMXBean {
+
+    /**
+     * Reading the metadata of one song when a Song is created, from the cache or the file.
+     */
+    HistogramSnapshot getMetadataLoad();
+
+    /**
+     * From a play, next, previous or seek command to the first sample of the song on the output.
+     */
+    HistogramSnapshot getTimeToFirstAudio();
+
+    /**
+     * Decoding one mp3 frame on the decoder thread.
+     */
+    HistogramSnapshot getFrameDecode();
+
+    /**
+     * From a change of the playback clock until its subscriber runs, which is the slider on the EDT.
+     */
+    HistogramSnapshot getUiUpdate();
+
+    int getBufferFillPercent();
+
+    long getUnderruns();
+
+    long getDecoderStalls();
+
+    /**
+     * Songs whose metadata came from LibraryCache, and songs that had to be parsed.
+     */
+    long getLibraryCacheHits();
+
+    long getLibraryCacheMisses();
+
+    /**
+     * Decoder thread time per second of audio during the last crossfade, in microseconds, -1 before the first.
+     */
+    long getCrossfadeMicrosPerSecond();
+
+    void reset();
+}
@@ -0,0 +1,117 @@
+package Model;
+
+import java.io.File;
+
+/**
+ * Jedna stavka plejliste: putanja do fajla i ono sto pise u #EXTINF liniji (trajanje, izvodjac i naslov).
+ * Pjesma (Song sa svim metapodacima) se ne cita dok ne zatreba: za pjesmu koja svira, za par sljedecih
+ * i za redove koji se vide u prikazu. Do tada stavka zauzima samo nekoliko desetaka bajtova.
+ */
+public final class PlaylistEntry {
+
+    private final String path;
+    private final String title;    // from #EXTINF, or null
+    private final String artist;   // from #EXTINF, or null
+    private final int durationInSeconds; // from #EXTINF, -1 if unknown
+    private volatile Song song;    // null until resolved
+
+    public PlaylistEntry(String path) {
+        this(path, null, null, -1);
+    }
+
+    public PlaylistEntry(String path, String title, String artist, int durationInSeconds) {
+        this.path = path;
+        this.title = title;
+        this.artist = artist;
+        this.durationInSeconds = durationInSeconds;
+    }
+
+    /**
+     * Entry for a song that is already loaded.
+     */
+    public PlaylistEntry(Song song) {
+        this(song.getFile(), song.getSongTitle(), song.getSongArtist(), song.getDurationInSeconds());
+        this.song = song;
+    }
+
+    // Getters
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Title of the resolved song, otherwise the #EXTINF title, otherwise the file name.
+     */
+    public String getTitle() {
+        Song resolved = song;
+        if (resolved != null && resolved.getSongTitle() != null) {
+            return resolved.getSongTitle();
+        }
+        return title != null ? title : new File(path).getName();
+    }
+
+    public String getArtist() {
+        Song resolved = song;
+        return resolved != null && resolved.getSongArtist() != null ? resolved.getSongArtist() : artist;
+    }
+
+    /**
+     * Duration of the resolved song, otherwise the #EXTINF duration, or -1 if neither is known.
+     */
+    public int getDurationInSeconds() {
+        Song resolved = song;
+        return resolved != null ? resolved.getDurationInSeconds() : durationInSeconds;
+    }
+
+    /**
+     * The title written in the #EXTINF line, or null. Unlike getTitle() this never looks at the song or the file name.
+     */
+    public String getExtinfTitle() {
+        return title;
+    }
+
+    public String getExtinfArtist() {
+        return artist;
+    }
+
+    public int getExtinfDurationInSeconds() {
+        return durationInSeconds;
+    }
+
+    public boolean isResolved() {
+        return song != null;
+    }
+
+    /**
+     * The song if it is resolved, null otherwise. Never reads the file.
+     */
+    public Song getSong() {
+        return song;
+    }
+
+    //Methods
+
+    /**
+     * Returns the song, reading its metadata the first time. Threads that ask at the same time wait for one read.
+     */
+    public Song resolve(LibraryCache libraryCache) {
+        Song resolved = song;
+        if (resolved == null) {
+            synchronized (this) {
+                resolved = song;
+                if (resolved == null) {
+                    resolved = new Song(path, libraryCache);
+                    song = resolved;
+                }
+            }
+        }
+        return resolved;
+    }
+
+    @Override
+    public String toString() {
+        String shownArtist = getArtist();
+        return shownArtist == null ? getTitle() : shownArtist + " - " + getTitle();
+    }
+}
@@ -0,0 +1,74 @@
+package Model;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cita pjesme plejliste u pozadini, na ogranicenom broju niti: preko resolve() se citaju samo stavke koje trebaju
+ * (sljedece pjesme i vidljivi redovi), a ostale ostaju neprocitane.
+ */
+public class PlaylistLoader {
+
+    /**
+     * Hears about entries that resolve() has read. Called from the loader threads.
+     */
+    public interface ResolveListener {
+        void entryResolved(PlaylistEntry entry);
+    }
+
+    private final ExecutorService executor;
+    private final LibraryCache libraryCache;
+    private volatile int generation; // resolve requests made before the last cancel() are dropped
+
+    public PlaylistLoader() {
+        this(Runtime.getRuntime().availableProcessors(), LibraryCache.getDefault());
+    }
+
+    public PlaylistLoader(int threads, LibraryCache libraryCache) {
+        this.libraryCache = libraryCache;
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "playlist-loader-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true); // never keep the application alive
+            return thread;
+        });
+    }
+
+    /**
+     * Reads the metadata of the given entries in the background, skipping the ones that are already resolved.
+     *
+     * @param listener told about every entry that was read, or null
+     */
+    public void resolve(List<PlaylistEntry> entries, ResolveListener listener) {
+        int requestGeneration = generation;
+        for (PlaylistEntry entry : entries) {
+            if (executor.isShutdown()) {
+                return; // a late request of a player that is shutting down
+            }
+            if (!entry.isResolved()) {
+                executor.execute(() -> {
+                    if (requestGeneration == generation && !entry.isResolved()) {
+                        entry.resolve(libraryCache);
+                        if (listener != null) {
+                            listener.entryResolved(entry);
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Drops resolve requests that did not start yet.
+     */
+    public synchronized void cancel() {
+        generation++;
+    }
+
+    public void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,125 @@
+package Model;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Cita plejlistu u PlaylistEntry stavke bez otvaranja ijednog mp3 fajla.
+ * Podrzani su M3U i M3U8 (#EXTM3U, #EXTINF:trajanje,Izvodjac - Naslov) i stari format ovog plejera,
+ * tekstualni fajl sa jednom putanjom po liniji. Relativne putanje su relativne prema folderu plejliste.
+ * Fajl se cita kao UTF-8 (M3U8), a ako to nije ispravan UTF-8, kao Latin-1 (stari M3U fajlovi).
+ * Stavke se spremaju u PlaylistStore, pa i plejlista od milion pjesama zauzima malo memorije.
+ */
+public final class PlaylistReader {
+
+    private static final String EXTINF = "#EXTINF:";
+
+    private PlaylistReader() {
+    }
+
+    public static PlaylistStore read(File playlistFile) throws IOException {
+        String text = decode(Files.readAllBytes(playlistFile.toPath()));
+        File directory = playlistFile.getAbsoluteFile().getParentFile();
+
+        PlaylistStore entries = new PlaylistStore();
+        String title = null;
+        String artist = null;
+        int duration = -1;
+        int start = text.startsWith("\uFEFF") ? 1 : 0; // byte order mark
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            if (end < 0) {
+                end = text.length();
+            }
+            String line = text.substring(start, end).trim();
+            start = end + 1;
+
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.startsWith("#")) {
+                if (line.regionMatches(true, 0, EXTINF, 0, EXTINF.length())) {
+                    int comma = infoComma(line);
+                    duration = parseDuration(line.substring(EXTINF.length(), comma < 0 ? line.length() : comma));
+                    String info = comma < 0 ? "" : line.substring(comma + 1).trim();
+                    int separator = info.indexOf(" - ");
+                    artist = separator > 0 ? info.substring(0, separator).trim() : null;
+                    title = separator > 0 ? info.substring(separator + 3).trim() : info;
+                    if (title.isEmpty()) {
+                        title = null;
+                    }
+                }
+                continue; // #EXTM3U and other directives
+            }
+
+            entries.add(resolvePath(directory, line), title, artist, duration);
+            title = null;
+            artist = null;
+            duration = -1;
+        }
+        entries.trimToSize();
+        return entries;
+    }
+
+    /**
+     * The comma that starts the title, skipping commas inside quoted attributes like tvg-name="a,b".
+     */
+    private static int infoComma(String line) {
+        boolean quoted = false;
+        for (int i = EXTINF.length(); i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int parseDuration(String field) {
+        int end = 0;
+        while (end < field.length() && (Character.isDigit(field.charAt(end)) || field.charAt(end) == '.'
+                || (end == 0 && field.charAt(end) == '-'))) {
+            end++; // attributes may follow the duration
+        }
+        try {
+            int seconds = (int) Double.parseDouble(field.substring(0, end));
+            return seconds < 0 ? -1 : seconds;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String resolvePath(File directory, String location) {
+        if (location.regionMatches(true, 0, "file:", 0, 5)) {
+            try {
+                return Paths.get(URI.create(location)).toString();
+            } catch (IllegalArgumentException e) {
+                return location;
+            }
+        }
+        File file = new File(location);
+        return file.isAbsolute() || directory == null ? location : new File(directory, location).getPath();
+    }
+
+    private static String decode(byte[] bytes) {
+        try {
+            CharBuffer chars = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(bytes));
+            return chars.toString();
+        } catch (CharacterCodingException e) {
+            return new String(bytes, StandardCharsets.ISO_8859_1); // an old M3U in a single byte code page
+        }
+    }
+}
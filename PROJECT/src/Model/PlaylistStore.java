@@ -0,0 +1,190 @@
+package Model;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Plejlista spremljena po kolonama: za svaku stavku samo nekoliko int vrijednosti u paralelnim nizovima.
+ * Folderi i izvodjaci se spremaju jednom u bazen stringova (pjesme istog albuma dijele folder i izvodjaca),
+ * a imena fajlova i naslovi kao UTF-8 bajtovi u jednom zajednickom nizu.
+ * Tako plejlista od milion pjesama zauzima desetine MB umjesto milion objekata sa stringovima.
+ * PlaylistEntry objekti se prave tek kad ih neko zatrazi (vidljivi redovi, pjesma koja svira i sljedece),
+ * i onda se cuvaju, pa procitana pjesma ostaje vezana za svoju stavku.
+ * Stavke se samo dodaju; citanje iz vise niti je sigurno kad je plejlista napunjena.
+ */
+public class PlaylistStore extends AbstractList<PlaylistEntry> implements RandomAccess {
+
+    private static final int PAGE_BITS = 10; // materialized entries are kept in pages of 1024
+
+    private final List<String> directories = new ArrayList<>();
+    private final Map<String, Integer> directoryIds = new HashMap<>();
+    private final List<String> artists = new ArrayList<>();
+    private final Map<String, Integer> artistIds = new HashMap<>();
+
+    private int size;
+    private int[] directoryOf = new int[16];
+    private int[] artistOf = new int[16];     // -1 if unknown
+    private int[] durations = new int[16];    // seconds, -1 if unknown
+    private int[] nameStart = new int[16];    // file name in text, the title follows it up to the next name
+    private int[] titleStart = new int[16];
+    private byte[] text = new byte[1024];
+    private int textLength;
+    private PlaylistEntry[][] entryPages = new PlaylistEntry[0][]; // pages of PAGE entries, created when asked for
+
+    // Getters
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public String getPath(int index) {
+        checkIndex(index);
+        return directories.get(directoryOf[index]) + string(nameStart[index], titleStart[index]);
+    }
+
+    /**
+     * The #EXTINF title, or null.
+     */
+    public String getTitle(int index) {
+        checkIndex(index);
+        int end = index + 1 < size ? nameStart[index + 1] : textLength;
+        return end == titleStart[index] ? null : string(titleStart[index], end);
+    }
+
+    public String getArtist(int index) {
+        checkIndex(index);
+        return artistOf[index] < 0 ? null : artists.get(artistOf[index]);
+    }
+
+    public int getDurationInSeconds(int index) {
+        checkIndex(index);
+        return durations[index];
+    }
+
+    /**
+     * The entry of the given row, created on the first call and the same object afterwards.
+     */
+    @Override
+    public PlaylistEntry get(int index) {
+        checkIndex(index);
+        synchronized (this) {
+            PlaylistEntry[] page = entryPage(index);
+            PlaylistEntry entry = page[index & ((1 << PAGE_BITS) - 1)];
+            if (entry == null) {
+                entry = new PlaylistEntry(getPath(index), getTitle(index), getArtist(index), durations[index]);
+                page[index & ((1 << PAGE_BITS) - 1)] = entry;
+            }
+            return entry;
+        }
+    }
+
+    //Methods
+
+    /**
+     * Adds an entry at the end of the playlist.
+     *
+     * @param title  #EXTINF title, or null
+     * @param artist #EXTINF artist, or null
+     */
+    public synchronized void add(String path, String title, String artist, int durationInSeconds) {
+        if (size == directoryOf.length) {
+            int capacity = Math.max(16, size * 2);
+            directoryOf = Arrays.copyOf(directoryOf, capacity);
+            artistOf = Arrays.copyOf(artistOf, capacity);
+            durations = Arrays.copyOf(durations, capacity);
+            nameStart = Arrays.copyOf(nameStart, capacity);
+            titleStart = Arrays.copyOf(titleStart, capacity);
+        }
+        int cut = Math.max(path.lastIndexOf('/'), path.lastIndexOf(File.separatorChar)) + 1;
+        directoryOf[size] = pool(path.substring(0, cut), directories, directoryIds);
+        artistOf[size] = artist == null ? -1 : pool(artist, artists, artistIds);
+        durations[size] = durationInSeconds;
+        nameStart[size] = append(path.substring(cut));
+        titleStart[size] = textLength;
+        if (title != null) {
+            append(title);
+        }
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Adds the entry itself at the end of the playlist, so get() returns it with its song if it is resolved.
+     * Only the #EXTINF fields go into the columns.
+     */
+    @Override
+    public synchronized boolean add(PlaylistEntry entry) {
+        add(entry.getPath(), entry.getExtinfTitle(), entry.getExtinfArtist(), entry.getExtinfDurationInSeconds());
+        int index = size - 1;
+        entryPage(index)[index & ((1 << PAGE_BITS) - 1)] = entry;
+        return true;
+    }
+
+    /**
+     * Drops the spare capacity that was left by growing the arrays.
+     */
+    public synchronized void trimToSize() {
+        directoryOf = Arrays.copyOf(directoryOf, size);
+        artistOf = Arrays.copyOf(artistOf, size);
+        durations = Arrays.copyOf(durations, size);
+        nameStart = Arrays.copyOf(nameStart, size);
+        titleStart = Arrays.copyOf(titleStart, size);
+        text = Arrays.copyOf(text, textLength);
+    }
+
+    // the page of materialized entries that holds the row, created if needed; guarded by this
+    private PlaylistEntry[] entryPage(int index) {
+        int page = index >>> PAGE_BITS;
+        if (page >= entryPages.length) {
+            entryPages = Arrays.copyOf(entryPages, ((size - 1) >>> PAGE_BITS) + 1);
+        }
+        if (entryPages[page] == null) {
+            entryPages[page] = new PlaylistEntry[1 << PAGE_BITS];
+        }
+        return entryPages[page];
+    }
+
+    private static int pool(String value, List<String> values, Map<String, Integer> ids) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = values.size();
+            values.add(value);
+            ids.put(value, id);
+        }
+        return id;
+    }
+
+    /**
+     * Appends the UTF-8 bytes of the value to the text.
+     *
+     * @return where the value starts
+     */
+    private int append(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (textLength + bytes.length > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + bytes.length));
+        }
+        int start = textLength;
+        System.arraycopy(bytes, 0, text, start, bytes.length);
+        textLength += bytes.length;
+        return start;
+    }
+
+    private String string(int start, int end) {
+        return new String(text, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package Model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Izlaz bez zvucne kartice: uzorci se odbacuju ili zapisuju u WAV fajl, i to odmah, bez cekanja na stvarno vrijeme.
+ * Plejer tada svira onoliko brzo koliko dekoder stigne, pa se isti put dekodiranja moze mjeriti i testirati
+ * na serveru ili CI masini koja nema zvucnu karticu.
+ * Pozicija izlaza je broj zapisanih uzoraka, jer "odsvirano" je sve sto je zapisano.
+ */
+public class RenderOutput implements AudioOutput {
+
+    private static final int WAV_HEADER_BYTES = 44;
+
+    private final Path wavFile;  // null for a sink that discards everything
+    private FileChannel channel;
+    private ByteBuffer bytes = ByteBuffer.allocate(0); // conversion buffer, grows to the largest chunk once
+    private volatile boolean open;
+    private volatile int sampleRate;
+    private volatile int channels;
+    private volatile long framePosition;  // since the output was opened, like a line
+    private volatile long framesRendered; // since the output was created
+    private long dataBytes;
+
+    /**
+     * Null sink, every sample is discarded.
+     */
+    public RenderOutput() {
+        this(null);
+    }
+
+    /**
+     * Writes all samples into one 16-bit PCM WAV file. All songs have to be in the same format.
+     */
+    public RenderOutput(Path wavFile) {
+        this.wavFile = wavFile;
+    }
+
+    // Getters
+
+    public Path getWavFile() {
+        return wavFile;
+    }
+
+    /**
+     * Sample frames written since the output was created, over all songs.
+     */
+    public long getFramesRendered() {
+        return framesRendered;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int getChannels() {
+        return channels;
+    }
+
+    @Override
+    public long getFramePosition() {
+        return framePosition;
+    }
+
+    //Methods
+
+    @Override
+    public synchronized void open(int sampleRate, int channels) throws IOException {
+        if (wavFile != null) {
+            if (channel == null) {
+                channel = FileChannel.open(wavFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+                dataBytes = 0;
+                channel.write(header(sampleRate, channels, 0), 0);
+                channel.position(WAV_HEADER_BYTES);
+            } else if (sampleRate != this.sampleRate || channels != this.channels) {
+                throw new IOException("A WAV file holds one format, cannot switch from " + this.sampleRate + " Hz/"
+                        + this.channels + " ch to " + sampleRate + " Hz/" + channels + " ch");
+            }
+        }
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        framePosition = 0;
+        open = true;
+    }
+
+    @Override
+    public synchronized void write(short[] samples, int offset, int length) throws IOException {
+        if (!open) {
+            return;
+        }
+        if (channel != null) {
+            if (bytes.capacity() < length * 2) {
+                bytes = ByteBuffer.allocate(length * 2).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            bytes.clear();
+            for (int i = 0; i < length; i++) {
+                bytes.putShort(samples[offset + i]);
+            }
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            dataBytes += length * 2L;
+        }
+        long frames = length / channels;
+        framePosition += frames;
+        framesRendered += frames;
+    }
+
+    @Override
+    public void pause() {
+        // the engine stops writing while paused, and nothing is queued here
+    }
+
+    @Override
+    public void resume() {
+    }
+
+    @Override
+    public void drain() {
+        // everything written is already "played"
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Closes the WAV file with the final sizes in its header. Opening the output again starts a new file.
+     */
+    @Override
+    public synchronized void close() {
+        open = false;
+        FileChannel current = channel;
+        channel = null;
+        if (current != null) {
+            try {
+                current.write(header(sampleRate, channels, dataBytes), 0);
+                current.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.out.println("Error closing WAV file: " + wavFile);
+            }
+        }
+    }
+
+    private static ByteBuffer header(int sampleRate, int channels, long dataBytes) {
+        long dataSize = Math.min(dataBytes, 0xFFFFFFFFL - 36); // a RIFF chunk cannot be larger than 4 GB
+        ByteBuffer header = ByteBuffer.allocate(WAV_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[]{'R', 'I', 'F', 'F'}).putInt((int) (36 + dataSize));
+        header.put(new byte[]{'W', 'A', 'V', 'E'});
+        header.put(new byte[]{'f', 'm', 't', ' '}).putInt(16);
+        header.putShort((short) 1);                          // PCM
+        header.putShort((short) channels);
+        header.putInt(sampleRate);
+        header.putInt(sampleRate * channels * 2);            // bytes per second
+        header.putShort((short) (channels * 2));             // bytes per sample frame
+        header.putShort((short) 16);
+        header.put(new byte[]{'d', 'a', 't', 'a'}).putInt((int) dataSize);
+        header.flip();
+        return header;
+    }
+}
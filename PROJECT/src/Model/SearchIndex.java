@@ -0,0 +1,348 @@
+package Model;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Invertirani indeks za pretragu pjesama po naslovu, izvodjacu i albumu dok korisnik tipka.
+ * Svaka rijec (token) ima listu rednih brojeva pjesama u kojima se pojavljuje, a rijeci su sortirane
+ * u TreeMap-u, pa se pjesme koje pocinju nekim prefiksom nalaze bez prolaska kroz cijelu biblioteku.
+ * Pretraga krece od najrjedjeg tokena upita, ostale provjerava na rijecima te pjesme i staje kad ima dovoljno
+ * rezultata, pa i na 500 000 pjesama odgovara ispod milisekunde.
+ * Pjesme se dodaju i brisu postepeno, kako ih LibraryScanner javlja: obrisana pjesma se odmah vadi iz lista
+ * svojih rijeci, a kad se nakupi dovoljno praznih rednih brojeva, pjesme se prenumerisu i nizovi skrate.
+ * Indeks se moze koristiti iz vise niti.
+ */
+public class SearchIndex {
+
+    public static final int DEFAULT_LIMIT = 100;
+    private static final int MIN_COMPACT = 1024; // fewer unused document numbers than this are never compacted
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Term> terms = new TreeMap<>(); // sorted, so a prefix is a range of keys
+    private final Map<String, Integer> documentIds = new HashMap<>(); // path -> document
+    private PlaylistEntry[] documents = new PlaylistEntry[1024];
+    private Term[][] documentTerms = new Term[1024][];
+    private long[] signatures = new long[1024]; // first letters and letter pairs of the words of each song
+    private int documentCount; // document numbers handed out, including the ones of removed songs
+
+    // Getters
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //Methods
+
+    public void add(Song song) {
+        Mp3Metadata metadata = song.getMetadata();
+        add(new PlaylistEntry(song), song.getSongTitle(), song.getSongArtist(),
+                metadata == null ? null : metadata.getAlbum());
+    }
+
+    /**
+     * Indexes a song by its title, artist and album. A song with the same path is replaced.
+     */
+    public void add(PlaylistEntry entry, String title, String artist, String album) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(title != null ? title : entry.getTitle(), tokens);
+        tokenize(artist, tokens);
+        tokenize(album, tokens);
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(entry.getPath());
+            int document = documentCount++;
+            if (document == documents.length) {
+                documents = Arrays.copyOf(documents, document * 2);
+                documentTerms = Arrays.copyOf(documentTerms, document * 2);
+                signatures = Arrays.copyOf(signatures, document * 2);
+            }
+            Term[] songTerms = new Term[tokens.size()];
+            int count = 0;
+            long signature = 0;
+            for (String token : tokens) {
+                signature |= signature(token);
+                Term term = terms.get(token);
+                if (term == null) {
+                    term = new Term(token);
+                    terms.put(token, term);
+                }
+                if (term.add(document)) { // false if the word is repeated in the song
+                    songTerms[count++] = term;
+                }
+            }
+            documents[document] = entry;
+            signatures[document] = signature;
+            documentTerms[document] = count == songTerms.length ? songTerms : Arrays.copyOf(songTerms, count);
+            documentIds.put(entry.getPath(), document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String path) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(path);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeAll(Collection<String> paths) {
+        lock.writeLock().lock();
+        try {
+            for (String path : paths) {
+                removeLocked(path);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<PlaylistEntry> search(String query) {
+        return search(query, DEFAULT_LIMIT);
+    }
+
+    /**
+     * Finds the songs where every word of the query starts a word of the title, artist or album,
+     * so "bea yest" finds "Yesterday" by "The Beatles". Case and diacritics are ignored.
+     *
+     * @return at most limit songs, grouped by the matching word of the rarest query word
+     */
+    public List<PlaylistEntry> search(String query, int limit) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(query, tokens);
+        if (tokens.isEmpty() || limit <= 0) {
+            return new ArrayList<>(0);
+        }
+
+        lock.readLock().lock();
+        try {
+            // the query word with the fewest songs drives the search, the others are only checked
+            tokens.sort((a, b) -> b.length() - a.length()); // longer prefixes are usually rarer, so they go first
+            int driver = 0;
+            long fewest = Long.MAX_VALUE;
+            for (int i = 0; i < tokens.size() && tokens.size() > 1; i++) {
+                long count = countPostings(tokens.get(i), fewest);
+                if (count < fewest) {
+                    fewest = count;
+                    driver = i;
+                }
+            }
+            String driverToken = tokens.get(driver);
+            tokens.remove(driver);
+            long required = 0;
+            for (String token : tokens) {
+                required |= signature(token);
+            }
+
+            Set<Integer> found = new LinkedHashSet<>();
+            for (Term term : range(driverToken).values()) {
+                for (int i = 0; i < term.size; i++) {
+                    int document = term.postings[i];
+                    if ((signatures[document] & required) == required && matchesAll(documentTerms[document], tokens)) {
+                        found.add(document);
+                        if (found.size() == limit) {
+                            return entries(found);
+                        }
+                    }
+                }
+            }
+            return entries(found);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(String path) {
+        Integer document = documentIds.remove(path);
+        if (document == null) {
+            return;
+        }
+        for (Term term : documentTerms[document]) {
+            term.remove(document);
+            if (term.size == 0) {
+                terms.remove(term.text);
+            }
+        }
+        documents[document] = null;
+        documentTerms[document] = null;
+        int unused = documentCount - documentIds.size();
+        if (unused >= MIN_COMPACT && unused > documentCount / 4) {
+            compact();
+        }
+    }
+
+    /**
+     * Numbers the remaining songs from 0 in their old order, so the postings stay sorted, and shrinks the arrays.
+     */
+    private void compact() {
+        int[] renumbered = new int[documentCount];
+        int live = 0;
+        for (int document = 0; document < documentCount; document++) {
+            if (documents[document] != null) {
+                renumbered[document] = live;
+                documents[live] = documents[document];
+                documentTerms[live] = documentTerms[document];
+                signatures[live] = signatures[document];
+                live++;
+            }
+        }
+        Arrays.fill(documents, live, documentCount, null);
+        Arrays.fill(documentTerms, live, documentCount, null);
+        int capacity = Math.max(1024, live * 2);
+        documents = Arrays.copyOf(documents, capacity);
+        documentTerms = Arrays.copyOf(documentTerms, capacity);
+        signatures = Arrays.copyOf(signatures, capacity);
+        documentCount = live;
+        for (Term term : terms.values()) {
+            for (int i = 0; i < term.size; i++) {
+                term.postings[i] = renumbered[term.postings[i]];
+            }
+        }
+        for (Map.Entry<String, Integer> documentId : documentIds.entrySet()) {
+            documentId.setValue(renumbered[documentId.getValue()]);
+        }
+    }
+
+    private NavigableMap<String, Term> range(String prefix) {
+        return terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * Number of postings of the words that start with the prefix, or any number above limit once it is exceeded.
+     */
+    private long countPostings(String prefix, long limit) {
+        long count = 0;
+        for (Term term : range(prefix).values()) {
+            count += term.size;
+            if (count >= limit) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * One bit for the first letter and one for the first two letters of the word. A song can contain a word
+     * with a given prefix only if it has all of its bits, so most candidates are rejected without comparing words.
+     */
+    private static long signature(String word) {
+        long first = 1L << (word.charAt(0) & 31);
+        return word.length() < 2 ? first : first | 1L << (32 + (word.charAt(0) * 31 + word.charAt(1)) % 32);
+    }
+
+    private static boolean matchesAll(Term[] songTerms, List<String> prefixes) {
+        for (String prefix : prefixes) {
+            boolean matched = false;
+            for (Term term : songTerms) {
+                if (term.text.startsWith(prefix)) {
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<PlaylistEntry> entries(Set<Integer> found) {
+        List<PlaylistEntry> entries = new ArrayList<>(found.size());
+        for (int document : found) {
+            entries.add(documents[document]);
+        }
+        return entries;
+    }
+
+    /**
+     * Splits the text into lower case words of letters and digits, without diacritics.
+     */
+    static void tokenize(String text, List<String> tokens) {
+        if (text == null) {
+            return;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT); // not the default locale, a Turkish one lowers I to a dotless i
+        for (int i = 0; i < normalized.length(); i++) {
+            if (normalized.charAt(i) > 127) {
+                normalized = Normalizer.normalize(normalized.replace('\u0111', 'd'), Normalizer.Form.NFD)
+                        .replaceAll("\\p{M}", ""); // letters with diacritics match the plain ones
+                break;
+            }
+        }
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean letterOrDigit = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (letterOrDigit && start < 0) {
+                start = i;
+            } else if (!letterOrDigit && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+    }
+
+
+    /**
+     * A word and the ascending list of the songs that contain it.
+     */
+    private static final class Term {
+        final String text;
+        int[] postings = new int[2];
+        int size;
+
+        Term(String text) {
+            this.text = text;
+        }
+
+        boolean add(int document) {
+            if (size > 0 && postings[size - 1] == document) {
+                return false;
+            }
+            if (size == postings.length) {
+                postings = Arrays.copyOf(postings, size * 2);
+            }
+            postings[size++] = document;
+            return true;
+        }
+
+        void remove(int document) {
+            int i = Arrays.binarySearch(postings, 0, size, document);
+            if (i >= 0) {
+                System.arraycopy(postings, i + 1, postings, i, size - i - 1);
+                size--;
+                if (size > 8 && size < postings.length / 4) {
+                    postings = Arrays.copyOf(postings, size * 2);
+                }
+            }
+        }
+    }
+}
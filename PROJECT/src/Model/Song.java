@@ -1,77 +1,76 @@
 package Model;
 
-import com.mpatric.mp3agic.Mp3File;
-import org.jaudiotagger.audio.AudioFile;
-import org.jaudiotagger.audio.AudioFileIO;
-import org.jaudiotagger.tag.FieldKey;
-import org.jaudiotagger.tag.Tag;
-
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.File;
-import java.nio.file.Files;
-import java.util.List;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 
 /**
  * Klasa koja predstavlja pjesmu.
- * Pjesma ima svoj naziv, izvodjaca, duzinu, putanju do fajla, mp3 fajl, frame rate po milisekundi, putanju do album arta i trajanje.
- * Klasa sadrzi konstruktor koji prima putanju do fajla i na osnovu nje popunjava sve atribute pjesme.
- * Koristimo listu za cuvanje podataka o album artu.
+ * Pjesma je mali nepromjenjivi zapis: putanja do fajla i metapodaci mp3 fajla (Mp3Metadata),
+ * iz kojih se racunaju naziv, izvodjac i trajanje. Izvodjac i album su internirani stringovi,
+ * pa ih pjesme istog albuma dijele. Tocni indeks frejmova (za fajlove bez Xing/VBRI tablice) se gradi
+ * pri prvom premotavanju i cuva se samo za nekoliko zadnjih pjesama, ne u samoj pjesmi.
+ * Svi podaci se citaju u jednom prolazu kroz fajl preko Mp3MetadataReader-a, ili iz LibraryCache-a.
  *
  */
 
 public class Song {
 
-    private String songTitle;
-    private String songArtist;
-    private String songLength;
-    private String filePath;
-    private Mp3File mp3File;
-    private double frameRatePerMilliseconds;
-    private String albumArtPath;
-    private int duration;
+    private static final int EXACT_INDEXES = 8; // songs that keep their exact index, about 45 KB per 5 minutes
+
+    // exact indexes of the songs that were seeked last, the playing song and a few before it
+    private static final Map<Song, FrameIndex> exactIndexes = new LinkedHashMap<Song, FrameIndex>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Song, FrameIndex> eldest) {
+            return size() > EXACT_INDEXES;
+        }
+    };
+
+    private final String filePath;
+    private final Mp3Metadata metadata; // null if the file could not be read
 
     public Song(String filePath) {
+        this(filePath, LibraryCache.getDefault());
+    }
+
+    public Song(String filePath, LibraryCache libraryCache) {
         this.filePath = filePath;
+        long started = System.nanoTime();
+        metadata = readMetadata(filePath, libraryCache);
+        PlayerMetrics.getDefault().getMetadataLoadHistogram().record(System.nanoTime() - started);
+    }
+
+    private static Mp3Metadata readMetadata(String filePath, LibraryCache libraryCache) {
         try {
-            mp3File = new Mp3File(filePath);
-            frameRatePerMilliseconds = (double) mp3File.getFrameCount() / mp3File.getLengthInMilliseconds();
-            songLength = convertToSongLengthFormat();
-            duration = (int) mp3File.getLengthInSeconds();
-
-            // Use the jaudiotagger library to read the mp3 file's metadata
-            AudioFile audioFile = AudioFileIO.read(new File(filePath));
-            Tag tag = audioFile.getTag();
-
-            if (tag != null) {
-                songTitle = tag.getFirst(FieldKey.TITLE);
-                songArtist = tag.getFirst(FieldKey.ARTIST);
-                albumArtPath = extractAlbumArt(tag);
-            } else {
-                songTitle = "N/A";
-                songArtist = "N/A";
-                albumArtPath = null;
-            }
+            return libraryCache.read(filePath); // parses the file only if it changed since the last start
         } catch (Exception e) {
             e.printStackTrace();
             System.out.println("Error reading file: " + filePath);
+            return null;
         }
     }
 
     // Getters
     public String getSongTitle() {
-        return songTitle;
+        return metadata == null ? null : metadata.getTitle();
     }
 
     public String getSongArtist() {
-        return songArtist;
+        return metadata == null ? null : metadata.getArtist();
     }
 
 
-    public String getAlbumArtPath() {
-        return albumArtPath;
+    public boolean hasAlbumArt() {
+        return metadata != null && metadata.hasArtwork();
+    }
+
+    /**
+     * Cita bajtove omota albuma (JPEG/PNG) direktno iz mp3 fajla, bez privremenih fajlova.
+     * Citanje nije besplatno, pa se omoti cuvaju u AlbumArtCache-u.
+     */
+    public byte[] readAlbumArt() throws IOException {
+        return hasAlbumArt() ? Mp3MetadataReader.readArtwork(filePath, metadata) : null;
     }
 
 
@@ -81,38 +80,38 @@ public class Song {
 
 
     public int getDurationInSeconds() {
-        return (int) mp3File.getLengthInSeconds();
+        return metadata == null ? 0 : (int) (metadata.getDurationInMilliseconds() / 1000);
     }
 
     public int getFrameLength() {
-        return mp3File.getFrameCount();
+        return metadata == null ? 0 : metadata.getFrameCount();
     }
 
-
-    private String convertToSongLengthFormat() {
-        long minutes = mp3File.getLengthInSeconds() / 60;
-        long seconds = mp3File.getLengthInSeconds() % 60;
-        return String.format("%02d:%02d", minutes, seconds);
+    public Mp3Metadata getMetadata() {
+        return metadata;
     }
 
-
-    private String extractAlbumArt(Tag tag) {
-        try {
-            List<?> albumArtData = tag.getArtworkList();
-            if (!albumArtData.isEmpty()) {
-                byte[] imageData = tag.getFirstArtwork().getBinaryData();
-                BufferedImage img = ImageIO.read(new ByteArrayInputStream(imageData));
-
-                File tempFile = Files.createTempFile("albumArt", ".png").toFile();
-                ImageIO.write(img, "png", tempFile);
-
-                return tempFile.getAbsolutePath();
+    /**
+     * Vraca indeks frejmova pjesme. Ako fajl ima Xing/VBRI tablicu, koristi se ona.
+     * Inace se tocni indeks gradi pri prvom pozivu i cuva medju zadnjih EXACT_INDEXES pjesama.
+     */
+    public synchronized FrameIndex getFrameIndex() throws IOException { // one scan if two threads seek at once
+        FrameIndex table = metadata == null ? null : metadata.getFrameIndex();
+        if (table != null) {
+            return table;
+        }
+        FrameIndex exact;
+        synchronized (exactIndexes) {
+            exact = exactIndexes.get(this);
+        }
+        if (exact == null) {
+            exact = FrameIndex.scan(filePath);
+            synchronized (exactIndexes) {
+                exactIndexes.put(this, exact);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
-        return null;
+        return exact;
     }
 
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,206 @@
+package Model;
+
+import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.BitstreamException;
+import javazoom.jl.decoder.Decoder;
+import javazoom.jl.decoder.DecoderException;
+import javazoom.jl.decoder.Header;
+import javazoom.jl.decoder.SampleBuffer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Dekodira jednu pjesmu frejm po frejm u 16-bitni PCM preko jlayer Decoder-a.
+ * Citanje pocinje od prvog audio frejma, pa se Xing/Info frejm nikad ne dekodira kao tisina.
+ * Ako fajl ima LAME tag, odbacuju se uzorci koje je dodao enkoder (encoder delay i padding)
+ * i kasnjenje samog dekodera, pa se pjesme albuma nastavljaju jedna na drugu bez pauze.
+ * Bajtovi se citaju iz AudioSource-a (mapirani fajl), koji se kod premotavanja iste pjesme
+ * ne otvara ponovo nego dijeli sa prethodnim dekoderom.
+ */
+public class TrackDecoder implements Closeable {
+
+    static final int DECODER_DELAY = 529; // samples of delay added by every standard mp3 decoder
+
+    private final Song song;
+    private final AudioSource source;
+    private final Bitstream bitstream;
+    private final Decoder decoder = new Decoder();
+    private final int sampleRate;
+    private final int channels;
+    private final long startMillis;
+    private final long firstValidSample;  // per channel, counted from the first audio frame
+    private final long endOfValidSamples;
+
+    private long decodedSamples;          // per channel, position of the next decoded frame
+    private short[] buffer;
+    private int offset;
+    private int length;
+    private boolean primed;               // the current buffer was decoded ahead and not returned yet
+    private boolean closed;
+
+    /**
+     * Opens the song and positions the decoder at the frame that plays at the given time.
+     */
+    public TrackDecoder(Song song, long startMillis) throws IOException {
+        this(song, startMillis, null);
+    }
+
+    /**
+     * Like TrackDecoder(song, startMillis), but reads from an already open source of the same file if it is
+     * still open. The decoder takes its own reference, so the caller keeps (and releases) its one.
+     */
+    public TrackDecoder(Song song, long startMillis, AudioSource shared) throws IOException {
+        Mp3Metadata metadata = song.getMetadata();
+        if (metadata == null || metadata.getFrameCount() == 0) {
+            throw new IOException("No audio frames in " + song.getFile());
+        }
+        this.song = song;
+        this.sampleRate = metadata.getSampleRate();
+        this.channels = metadata.getChannels();
+
+        boolean reused = shared != null && shared.getPath().equals(song.getFile()) && shared.retain();
+        source = reused ? shared : AudioSource.open(song.getFile());
+        int frame = 0;
+        long offset = metadata.getAudioStart();
+        try {
+            if (startMillis > 0) {
+                FrameIndex frameIndex = song.getFrameIndex();
+                frame = frameIndex.frameAtMillis(startMillis);
+                offset = frameIndex.seekOffset(frame, source.getChannel());
+                startMillis = frameIndex.millisOfFrame(frame); // snap to the frame boundary
+            }
+        } catch (IOException e) {
+            source.release();
+            throw e;
+        }
+        this.startMillis = Math.max(0, startMillis);
+        this.decodedSamples = (long) frame * metadata.getSamplesPerFrame();
+        bitstream = new Bitstream(source.openStream(offset)); // no extra buffer, frames are copied from the mapping
+
+        long totalSamples = (long) metadata.getFrameCount() * metadata.getSamplesPerFrame();
+        if (metadata.getEncoderDelay() > 0 || metadata.getEncoderPadding() > 0) {
+            firstValidSample = metadata.getEncoderDelay() + DECODER_DELAY;
+            endOfValidSamples = Math.min(totalSamples, totalSamples - metadata.getEncoderPadding() + DECODER_DELAY);
+        } else {
+            firstValidSample = 0;
+            endOfValidSamples = totalSamples;
+        }
+    }
+
+    // Getters
+
+    public Song getSong() {
+        return song;
+    }
+
+    /**
+     * The open file this decoder reads, to be shared with the next decoder of the same song.
+     */
+    public AudioSource getSource() {
+        return source;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     * Time of the first sample this decoder returns, snapped to a frame boundary.
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * Time up to which the song has been decoded.
+     */
+    public long getDecodedMillis() {
+        return decodedSamples * 1000 / sampleRate;
+    }
+
+    public short[] getBuffer() {
+        return buffer;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    //Methods
+
+    /**
+     * Decodes the first frame that has audible samples ahead of time, so the first call to
+     * decodeFrame() returns without touching the file.
+     */
+    public void prime() throws IOException {
+        if (!primed) {
+            int decoded;
+            do {
+                decoded = decodeNext();
+            } while (decoded == 0);
+            primed = decoded > 0;
+        }
+    }
+
+    /**
+     * Decodes the next frame. The samples are in getBuffer() from getOffset(), interleaved by channel.
+     * Frames inside the encoder delay or padding return 0 samples.
+     *
+     * @return number of samples (not sample frames) decoded, or -1 at the end of the song
+     */
+    public int decodeFrame() throws IOException {
+        if (primed) {
+            primed = false;
+            return length;
+        }
+        return decodeNext();
+    }
+
+    private int decodeNext() throws IOException {
+        try {
+            Header header = bitstream.readFrame();
+            if (header == null) {
+                return -1;
+            }
+            SampleBuffer output = (SampleBuffer) decoder.decodeFrame(header, bitstream);
+            bitstream.closeFrame();
+
+            int outputChannels = output.getChannelCount();
+            int frameSamples = output.getBufferLength() / outputChannels;
+            long from = Math.max(firstValidSample - decodedSamples, 0);
+            long to = Math.min(endOfValidSamples - decodedSamples, frameSamples);
+            decodedSamples += frameSamples;
+
+            buffer = output.getBuffer();
+            if (to <= from) {
+                offset = 0;
+                length = 0;
+                return decodedSamples >= endOfValidSamples ? -1 : 0;
+            }
+            offset = (int) from * outputChannels;
+            length = (int) (to - from) * outputChannels;
+            return length;
+        } catch (BitstreamException | DecoderException e) {
+            throw new IOException("Error decoding " + song.getFile(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return; // the source reference must be released only once
+        }
+        closed = true;
+        try {
+            bitstream.close();
+        } catch (BitstreamException e) {
+            e.printStackTrace();
+        }
+        source.release();
+    }
+}
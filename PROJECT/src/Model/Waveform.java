@@ -0,0 +1,134 @@
+package Model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Pregled talasnog oblika pjesme: najveca amplituda za svaki od BUCKETS jednakih dijelova pjesme, kao jedan bajt,
+ * pa pregled zauzima 1 KB bez obzira na duzinu pjesme.
+ * Racuna se dekodiranjem cijele pjesme, podijeljene po indeksu frejmova na dijelove koji se dekodiraju paralelno,
+ * svaki svojim dekoderom nad istim otvorenim fajlom (AudioSource). Dekoder dijela krece dva frejma ranije,
+ * da se napuni bit rezervoar, i ti frejmovi se ne broje.
+ */
+public class Waveform {
+
+    public static final int BUCKETS = 1024;
+
+    private final byte[] peaks;
+
+    Waveform(byte[] peaks) {
+        this.peaks = peaks;
+    }
+
+    // Getters
+
+    public int getBucketCount() {
+        return peaks.length;
+    }
+
+    /**
+     * Highest absolute amplitude in the bucket, from 0 to 1.
+     */
+    public float getPeak(int bucket) {
+        return (peaks[bucket] & 0xFF) / 255f;
+    }
+
+    byte[] getPeaks() {
+        return peaks;
+    }
+
+    //Methods
+
+    /**
+     * Decodes the song in the given number of segments on the workers and waits for them.
+     *
+     * @param cancelled checked between frames, the segments stop early when it returns true
+     * @return the overview, or null if it was cancelled
+     * @throws IOException if the song cannot be opened or decoded
+     */
+    static Waveform compute(Song song, ExecutorService workers, int segments, BooleanSupplier cancelled)
+            throws IOException {
+        Mp3Metadata metadata = song.getMetadata();
+        if (metadata == null || metadata.getFrameCount() == 0) {
+            throw new IOException("No audio frames in " + song.getFile());
+        }
+        long duration = Math.max(1, metadata.getDurationInMilliseconds());
+        FrameIndex frameIndex = song.getFrameIndex(); // built once here, not by every segment
+        int frameCount = frameIndex.getFrameCount();
+        segments = Math.max(1, Math.min(segments, frameCount / 64)); // a segment is at least ~1.5 s of audio
+
+        AudioSource source = AudioSource.open(song.getFile());
+        try {
+            List<Future<byte[]>> parts = new ArrayList<>(segments);
+            for (int s = 0; s < segments; s++) {
+                long from = frameIndex.millisOfFrame((int) ((long) frameCount * s / segments));
+                long to = s + 1 == segments ? Long.MAX_VALUE : frameIndex.millisOfFrame((int) ((long) frameCount * (s + 1) / segments));
+                parts.add(workers.submit(() -> decodeSegment(song, source, from, to, duration, cancelled)));
+            }
+            byte[] peaks = new byte[BUCKETS];
+            for (Future<byte[]> part : parts) {
+                byte[] segment = part.get();
+                for (int i = 0; i < BUCKETS; i++) {
+                    if ((segment[i] & 0xFF) > (peaks[i] & 0xFF)) {
+                        peaks[i] = segment[i];
+                    }
+                }
+            }
+            return cancelled.getAsBoolean() ? null : new Waveform(peaks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause()
+                    : new IOException("Error decoding " + song.getFile(), e.getCause());
+        } finally {
+            source.release(); // the segment decoders hold their own references
+        }
+    }
+
+    private static byte[] decodeSegment(Song song, AudioSource source, long fromMillis, long toMillis, long duration,
+                                        BooleanSupplier cancelled) throws IOException {
+        byte[] peaks = new byte[BUCKETS];
+        Mp3Metadata metadata = song.getMetadata();
+        long frameMillis = metadata.getSamplesPerFrame() * 1000L / metadata.getSampleRate() + 1;
+        TrackDecoder decoder = new TrackDecoder(song, fromMillis > 0 ? fromMillis - 2 * frameMillis : 0, source);
+        try {
+            while (!cancelled.getAsBoolean()) {
+                long position = decoder.getDecodedMillis();
+                if (position >= toMillis) {
+                    break;
+                }
+                int samples = decoder.decodeFrame();
+                if (samples < 0) {
+                    break;
+                }
+                if (samples == 0 || position < fromMillis) {
+                    continue; // encoder delay, or a frame that only fills the bit reservoir
+                }
+                short[] buffer = decoder.getBuffer();
+                int offset = decoder.getOffset();
+                int peak = 0;
+                for (int i = offset; i < offset + samples; i++) {
+                    peak = Math.max(peak, Math.abs(buffer[i]));
+                }
+                byte value = (byte) Math.min(255, peak * 255 / Short.MAX_VALUE);
+                // a frame covers several buckets of a very short song
+                int first = (int) Math.min(BUCKETS - 1, position * BUCKETS / duration);
+                int last = (int) Math.min(BUCKETS - 1, (position + frameMillis - 1) * BUCKETS / duration);
+                for (int bucket = first; bucket <= last; bucket++) {
+                    if ((value & 0xFF) > (peaks[bucket] & 0xFF)) {
+                        peaks[bucket] = value;
+                    }
+                }
+            }
+        } finally {
+            decoder.close();
+        }
+        return peaks;
+    }
+}
@@ -0,0 +1,212 @@
+package Model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cache pregleda talasnog oblika (Waveform) pjesama.
+ * Svaki pregled je mali fajl (peak fajl, oko 1 KB) u folderu pored cache-a metapodataka, nazvan po hash-u putanje,
+ * i vrijedi dok se velicina i vrijeme izmjene mp3 fajla ne promijene. Zadnji pregledi se cuvaju i u memoriji.
+ * Pregled koji ne postoji racuna se u pozadini: jedna nit uzima pjesme jednu po jednu, a dijelove pjesme
+ * dekodiraju radne niti, po jedna na jezgru. Ako se u meduvremenu zatrazi druga pjesma, racunanje stare se prekida.
+ */
+public class WaveformCache {
+
+    private static final int MAGIC = 0x4A535746; // "JSWF"
+    private static final int VERSION = 1;
+    private static final int MEMORY_ENTRIES = 64;
+    private static WaveformCache defaultCache;
+
+    private final Path directory;
+    private final int segments;
+    private final Map<String, Waveform> memory = new LinkedHashMap<>(16, 0.75f, true) { // guarded by itself
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Waveform> eldest) {
+            return size() > MEMORY_ENTRIES;
+        }
+    };
+    private final ExecutorService requests;  // one song at a time
+    private final ExecutorService workers;   // segments of that song
+    private volatile String latest;          // path of the song asked for last, older requests are dropped
+    private volatile boolean shutdown;
+
+    public WaveformCache(Path directory) {
+        this(directory, Runtime.getRuntime().availableProcessors());
+    }
+
+    public WaveformCache(Path directory, int threads) {
+        this.directory = directory;
+        this.segments = threads * 2; // segments do not take equally long, smaller ones keep every core busy
+        this.requests = Executors.newSingleThreadExecutor(runnable -> newThread(runnable, "waveform"));
+        AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads,
+                runnable -> newThread(runnable, "waveform-worker-" + count.incrementAndGet()));
+    }
+
+    /**
+     * Cache shared by the whole application, next to the library cache in the user's home folder.
+     */
+    public static synchronized WaveformCache getDefault() {
+        if (defaultCache == null) {
+            defaultCache = new WaveformCache(Paths.get(System.getProperty("user.home"), ".javaswingmusicplayer", "waveforms"));
+        }
+        return defaultCache;
+    }
+
+    private static Thread newThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY); // playback and the EDT come first
+        return thread;
+    }
+
+    // Getters
+
+    /**
+     * The overview if it is in memory, without touching the disk.
+     */
+    public Waveform getLoaded(Song song) {
+        synchronized (memory) {
+            return memory.get(song.getFile());
+        }
+    }
+
+    //Methods
+
+    /**
+     * Returns the overview of the song: at once if it is in memory, otherwise read from its peak file or computed
+     * in the background. The future completes with null if the song could not be decoded or another song
+     * was asked for before this one was done.
+     */
+    public CompletableFuture<Waveform> load(Song song) {
+        Waveform loaded = getLoaded(song);
+        if (loaded != null) {
+            return CompletableFuture.completedFuture(loaded);
+        }
+        String path = song.getFile();
+        latest = path;
+        CompletableFuture<Waveform> result = new CompletableFuture<>();
+        requests.execute(() -> {
+            try {
+                result.complete(path.equals(latest) && !shutdown ? readOrCompute(song) : null);
+            } catch (IOException e) {
+                System.out.println("Error computing waveform of " + path);
+                e.printStackTrace();
+                result.complete(null);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Reads the peak file of the song.
+     *
+     * @return the overview, or null if there is no valid peak file for the song as it is on disk now
+     */
+    public Waveform read(Song song) throws IOException {
+        String path = song.getFile();
+        BasicFileAttributes attributes = Files.readAttributes(Paths.get(path), BasicFileAttributes.class);
+        ByteBuffer in;
+        try {
+            in = ByteBuffer.wrap(Files.readAllBytes(peakFile(path)));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        try {
+            if (in.getInt() != MAGIC || in.getInt() != VERSION || in.getLong() != attributes.size()
+                    || in.getLong() != attributes.lastModifiedTime().toMillis()) {
+                return null; // the song changed since
+            }
+            byte[] pathBytes = new byte[in.getShort() & 0xFFFF];
+            in.get(pathBytes);
+            if (!path.equals(new String(pathBytes, StandardCharsets.UTF_8))) {
+                return null; // another song with the same hash
+            }
+            byte[] peaks = new byte[in.getShort() & 0xFFFF];
+            in.get(peaks);
+            Waveform waveform = new Waveform(peaks);
+            remember(path, waveform);
+            return waveform;
+        } catch (RuntimeException e) {
+            System.out.println("Damaged waveform file of " + path);
+            return null;
+        }
+    }
+
+    /**
+     * Stops the background threads; computations that are running stop after their current frame.
+     */
+    public void shutdown() {
+        shutdown = true;
+        requests.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private Waveform readOrCompute(Song song) throws IOException {
+        Waveform waveform = read(song);
+        if (waveform != null) {
+            return waveform;
+        }
+        String path = song.getFile();
+        // the file attributes are taken before decoding, so a file changed meanwhile is computed again next time
+        BasicFileAttributes attributes = Files.readAttributes(Paths.get(path), BasicFileAttributes.class);
+        waveform = Waveform.compute(song, workers, segments, () -> shutdown || !path.equals(latest));
+        if (waveform == null) {
+            return null;
+        }
+        remember(path, waveform);
+        write(path, attributes, waveform);
+        return waveform;
+    }
+
+    private void write(String path, BasicFileAttributes attributes, Waveform waveform) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1100);
+            DataOutputStream out = new DataOutputStream(bytes);
+            byte[] pathBytes = path.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(attributes.size());
+            out.writeLong(attributes.lastModifiedTime().toMillis());
+            out.writeShort(pathBytes.length);
+            out.write(pathBytes);
+            out.writeShort(waveform.getBucketCount());
+            out.write(waveform.getPeaks());
+
+            Files.createDirectories(directory);
+            Path file = peakFile(path);
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temporary, bytes.toByteArray());
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace(); // computed again next time
+        }
+    }
+
+    private void remember(String path, Waveform waveform) {
+        synchronized (memory) {
+            memory.put(path, waveform);
+        }
+    }
+
+    private Path peakFile(String path) {
+        return directory.resolve(Long.toHexString(LibraryCache.hash(path)) + ".peaks");
+    }
+}
@@ -0,0 +1,203 @@
+package View;
+
+import Model.Song;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cache omota albuma spremnih za crtanje (vec skaliranih na 300x300).
+ * Omot se cita iz mp3 fajla tek kad je potreban, a slike se dijele po sadrzaju (SHA-1 hash bajtova),
+ * pa sve pjesme istog albuma koriste jednu sliku. Cache je LRU ogranicen brojem slika,
+ * a nista se ne zapisuje na disk.
+ * Citanje, dekodiranje i skaliranje rade na jednoj pozadinskoj niti, nikad na EDT-u. Kad korisnik brzo
+ * preskace pjesme, zahtjevi za ranije pjesme se odbacuju (izmedju svakog koraka), pa nit radi samo za zadnju.
+ * Skalirane slike su kompatibilne sa ekranom (isti raspored piksela i providnost), pa se crtaju bez konverzije.
+ */
+public class AlbumArtCache {
+
+    public static final int SIZE = 300;
+    private static final int MAX_IMAGES = 32;      // 32 * 300 * 300 * 4 bytes = ~11 MB
+    private static final int MAX_SONGS = 4096;
+
+    private final Map<String, String> songToHash = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_SONGS;
+        }
+    };
+    private final Map<String, BufferedImage> images = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest) {
+            return size() > MAX_IMAGES;
+        }
+    };
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> { // started by the first load
+        Thread thread = new Thread(runnable, "album-art");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile String latest; // path of the song asked for last, older requests are dropped
+
+    /**
+     * Returns the artwork of the song if it is already cached, without any I/O. Safe to call on the EDT.
+     */
+    public synchronized BufferedImage getIfCached(Song song) {
+        String hash = songToHash.get(song.getFile());
+        return hash == null ? null : images.get(hash);
+    }
+
+    /**
+     * Returns the scaled artwork of the song, or null if it has none.
+     * Reads, decodes and scales the image on a miss, so call it from a background thread.
+     */
+    public BufferedImage get(Song song) throws IOException {
+        return get(song, null);
+    }
+
+    /**
+     * Returns the artwork of the song: at once if it is cached, otherwise read, decoded and scaled on the
+     * album art thread. The future completes with null if the song has no artwork, or if another song was
+     * asked for before this one was done.
+     */
+    public CompletableFuture<BufferedImage> load(Song song) {
+        BufferedImage cached = getIfCached(song);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        String path = song.getFile();
+        latest = path;
+        CompletableFuture<BufferedImage> result = new CompletableFuture<>();
+        loader.execute(() -> {
+            try {
+                result.complete(path.equals(latest) ? get(song, path) : null);
+            } catch (IOException e) {
+                System.out.println("Error reading album art of " + path);
+                e.printStackTrace();
+                result.complete(null);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Reads and scales an image from the classpath on the album art thread, e.g. the default artwork.
+     */
+    public CompletableFuture<BufferedImage> loadResource(String resource) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                BufferedImage image = ImageIO.read(AlbumArtCache.class.getResource(resource));
+                return image == null ? null : scale(image, SIZE, SIZE);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }, loader);
+    }
+
+    /**
+     * @param path the song this work is for, it stops between the steps once another song is asked for;
+     *             null to always finish
+     */
+    private BufferedImage get(Song song, String path) throws IOException {
+        BufferedImage cached = getIfCached(song);
+        if (cached != null || !song.hasAlbumArt()) {
+            return cached;
+        }
+
+        byte[] imageData = song.readAlbumArt();
+        if (imageData == null || isStale(path)) {
+            return null;
+        }
+        String hash = contentHash(imageData);
+        synchronized (this) {
+            songToHash.put(song.getFile(), hash);
+            cached = images.get(hash);
+            if (cached != null) {
+                return cached; // same artwork as a song that was already shown
+            }
+        }
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageData));
+        if (image == null || isStale(path)) {
+            return null; // unsupported image format, or the user skipped to another song
+        }
+        BufferedImage scaled = scale(image, SIZE, SIZE);
+        synchronized (this) {
+            images.put(hash, scaled);
+        }
+        return scaled;
+    }
+
+    private boolean isStale(String path) {
+        return path != null && !path.equals(latest);
+    }
+
+    /**
+     * Stops the album art thread.
+     */
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+
+    /**
+     * Scales an image with bilinear filtering, halving it in steps while it is more than twice too large,
+     * which looks as good as SCALE_SMOOTH and is many times faster. The result is compatible with the screen.
+     */
+    public static BufferedImage scale(BufferedImage image, int width, int height) {
+        BufferedImage current = image;
+        int currentWidth = image.getWidth();
+        int currentHeight = image.getHeight();
+        do {
+            currentWidth = currentWidth / 2 >= width ? currentWidth / 2 : width;
+            currentHeight = currentHeight / 2 >= height ? currentHeight / 2 : height;
+            BufferedImage next = createCompatibleImage(currentWidth, currentHeight, image.getTransparency());
+            Graphics2D graphics = next.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            graphics.dispose();
+            current = next;
+        } while (currentWidth != width || currentHeight != height);
+        return current;
+    }
+
+    /**
+     * An image in the pixel layout of the default screen, which Java2D can keep in video memory and draw
+     * without converting it. Opaque artwork (JPEG) stays opaque, so it is drawn without blending.
+     */
+    static BufferedImage createCompatibleImage(int width, int height, int transparency) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(width, height, transparency == Transparency.OPAQUE
+                    ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        }
+        GraphicsConfiguration configuration = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDefaultConfiguration();
+        return configuration.createCompatibleImage(width, height, transparency);
+    }
+
+    private static String contentHash(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(data);
+            StringBuilder hash = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hash.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // SHA-1 is required on every Java platform
+        }
+    }
+}
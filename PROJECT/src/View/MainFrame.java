@@ -1,7 +1,9 @@
 package View;
 
+import Model.LibraryCache;
+import Model.MusicLibrary;
 import Model.MusicPlayer;
-import Model.Song;
+import Model.PlayerEvent;
 
 import javax.swing.*;
 import java.awt.*;
@@ -10,6 +12,7 @@ import java.io.File;
 /**
  * MainFrame klasa predstavlja glavni prozor aplikacije.
  * MainFrame sadrzi ViewPanel, MusicPlayer, ToolBar i MenuBar.
+ * Dogadjaje plejera (PlayerEventBus) prozor dobija na EDT-u; svaki dio prozora slusa samo one koji mu trebaju.
  */
 
 
@@ -19,13 +22,25 @@ public class MainFrame extends JFrame {
     private MusicPlayer musicPlayer; // This field is used to play songs and manage the playlist
     private ToolBar toolBar;
     private MenuBar menuBar;
+    private MetricsOverlay metricsOverlay; // debug overlay with the player metrics, hidden unless turned on
+    private MusicLibrary musicLibrary; // songs from the library folders, scanned and watched in the background
 
     public MainFrame() {
         // Initialize components
         viewPanel = new ViewPanel();
-        musicPlayer = new MusicPlayer(this);
+        musicPlayer = new MusicPlayer(SwingUtilities::invokeLater);
+        musicPlayer.getEventBus().subscribe(PlayerEvent.SongChanged.class,
+                event -> viewPanel.updateSongDetails(event.getSong()));
+        musicPlayer.getEventBus().subscribe(PlayerEvent.Error.class, event -> JOptionPane.showMessageDialog(this,
+                event.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
+        musicLibrary = new MusicLibrary(LibraryCache.getDefault(), MusicLibrary.defaultRootsFile());
+        musicLibrary.start();
         toolBar = new ToolBar(this, musicPlayer); // Toolbar instance
-        menuBar = new MenuBar(this, musicPlayer, new JFileChooser());
+        // Metrics overlay over the whole frame, also turned on with -Dplayer.metrics.overlay=true
+        metricsOverlay = new MetricsOverlay();
+        setGlassPane(metricsOverlay);
+        metricsOverlay.setVisible(Boolean.getBoolean("player.metrics.overlay"));
+        menuBar = new MenuBar(this, musicPlayer, musicLibrary, new JFileChooser());
 
         // Set up the frame
         setTitle("Music Player");
@@ -60,9 +75,8 @@ public class MainFrame extends JFrame {
         return toolBar;
     }
 
-
-    public MainFrame getViewPanel() {
-        return this;
+    public boolean isMetricsOverlayVisible() {
+        return metricsOverlay.isVisible();
     }
 
 
@@ -70,26 +84,14 @@ public class MainFrame extends JFrame {
 
     //Methods
 
-    public void updateSongTitleAndArtist(Song song) {
-        // Update the song title, artist, and album art in the view panel
-        viewPanel.updateSongDetails(song.getSongArtist(), song.getSongTitle(), song.getAlbumArtPath());
-    }
-
-    public void updatePlaybackSlider(Song song) {
-        // Update the playback slider in the toolbar
-        toolBar.updatePlaybackSlider(song);
-    }
-
-    public void enablePauseButtonDisablePlayButton() {
-        toolBar.enablePauseButtonDisablePlayButton();
+    public void setMetricsOverlayVisible(boolean visible) {
+        metricsOverlay.setVisible(visible);
     }
 
 
     public void loadPlaylist(File selectedFile) {
+        // The player starts the first song and updates the view once its metadata is loaded
         musicPlayer.loadPlaylist(selectedFile);
-        updateSongTitleAndArtist(musicPlayer.getCurrentSong());
-        updatePlaybackSlider(musicPlayer.getCurrentSong());
-        musicPlayer.playSong();
     }
 
 
@@ -1,19 +1,27 @@
 package View;
 
+import Controller.EqualizerDialog;
+import Controller.LibrarySearchDialog;
 import Controller.MusicPlaylistDialog;
+import Model.Crossfader;
+import Model.GainStage;
+import Model.MusicLibrary;
 import Model.MusicPlayer;
+import Model.PlayQueue;
 import Model.Song;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
 import java.io.File;
 
 
 /*
  * Klasa koja predstavlja meni traku u aplikaciji.
- * U njoj se nalaze opcije za ucitavanje pjesme i plejliste.
+ * U njoj se nalaze opcije za ucitavanje pjesme i plejliste i za foldere biblioteke.
  * Koristi metode createMenus.
  * Metoda createMenus se koristi za kreiranje menija i dodavanje opcija za ucitavanje pjesme i plejliste.
  * Takodjer koristi i akcije za ucitavanje pjesme i plejliste.
@@ -21,12 +29,14 @@ import java.io.File;
  */
 public class MenuBar extends JMenuBar {
     private MusicPlayer musicPlayer;
+    private MusicLibrary musicLibrary;
     private JFileChooser jFileChooser;
     private MainFrame mainFrame;
 
-    public MenuBar(MainFrame mainFrame, MusicPlayer musicPlayer, JFileChooser jFileChooser) {
+    public MenuBar(MainFrame mainFrame, MusicPlayer musicPlayer, MusicLibrary musicLibrary, JFileChooser jFileChooser) {
         this.mainFrame = mainFrame;
         this.musicPlayer = musicPlayer;
+        this.musicLibrary = musicLibrary;
         this.jFileChooser = jFileChooser;
 
         // Create and add menus
@@ -62,10 +72,7 @@ public class MenuBar extends JMenuBar {
 
                 if (result == JFileChooser.APPROVE_OPTION && selectedFile != null) {
                     Song song = new Song(selectedFile.getPath());
-                    musicPlayer.loadSong(song);
-                    mainFrame.updateSongTitleAndArtist(song);
-                    mainFrame.updatePlaybackSlider(song);
-                    mainFrame.enablePauseButtonDisablePlayButton();
+                    musicPlayer.loadSong(song); // the views update from the events of the player
                 }
             }
         });
@@ -91,7 +98,7 @@ public class MenuBar extends JMenuBar {
             @Override
             public void actionPerformed(ActionEvent e) {
                 JFileChooser jFileChooser = new JFileChooser();
-                jFileChooser.setFileFilter(new FileNameExtensionFilter("Playlist Files", "txt"));
+                jFileChooser.setFileFilter(new FileNameExtensionFilter("Playlist Files", "m3u", "m3u8", "txt"));
                 jFileChooser.setCurrentDirectory(new File("PROJECT/src/assets"));
 
                 int result = jFileChooser.showOpenDialog(mainFrame);
@@ -99,13 +106,182 @@ public class MenuBar extends JMenuBar {
 
                 if (result == JFileChooser.APPROVE_OPTION && selectedFile != null) {
                     musicPlayer.stopSong();
-                    musicPlayer.loadPlaylist(selectedFile);
-                    mainFrame.updateSongTitleAndArtist(musicPlayer.getCurrentSong());
-                    mainFrame.updatePlaybackSlider(musicPlayer.getCurrentSong());
-                    mainFrame.enablePauseButtonDisablePlayButton();
+                    musicPlayer.loadPlaylist(selectedFile); // loads in the background, the first song starts when ready
                 }
             }
         });
         playlistMenu.add(loadPlaylist);
+
+        // Library menu
+        JMenu libraryMenu = new JMenu("Library");
+        add(libraryMenu);
+
+        // Add Folder item, the folder is scanned in the background and watched for changes from then on
+        JMenuItem addFolder = new JMenuItem("Add Folder");
+        addFolder.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                JFileChooser jFileChooser = new JFileChooser();
+                jFileChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+
+                int result = jFileChooser.showOpenDialog(mainFrame);
+                File selectedFolder = jFileChooser.getSelectedFile();
+
+                if (result == JFileChooser.APPROVE_OPTION && selectedFolder != null) {
+                    musicLibrary.addRoot(selectedFolder.toPath());
+                }
+            }
+        });
+        libraryMenu.add(addFolder);
+
+        // Play Library item, plays every song found so far
+        JMenuItem playLibrary = new JMenuItem("Play Library");
+        playLibrary.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (musicLibrary.getSongCount() == 0) {
+                    JOptionPane.showMessageDialog(mainFrame, "First add a folder with songs to the library");
+                    return;
+                }
+                musicPlayer.stopSong();
+                musicPlayer.loadPlaylist(musicLibrary.getEntries());
+            }
+        });
+        libraryMenu.add(playLibrary);
+
+        // Search item, finds songs of the library by title, artist or album while typing
+        JMenuItem search = new JMenuItem("Search");
+        search.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F, InputEvent.CTRL_DOWN_MASK));
+        search.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                new LibrarySearchDialog(mainFrame, musicPlayer, musicLibrary).setVisible(true);
+            }
+        });
+        libraryMenu.add(search);
+
+        // Analyze Loudness item, measures the songs that were not analyzed yet in the background, for ReplayGain
+        JMenuItem analyzeLoudness = new JMenuItem("Analyze Loudness");
+        analyzeLoudness.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                musicLibrary.analyzeLoudness(null);
+            }
+        });
+        libraryMenu.add(analyzeLoudness);
+
+        // Playback menu
+        JMenu playbackMenu = new JMenu("Playback");
+        add(playbackMenu);
+
+        // Gapless item, the next song of the playlist is prepared in advance and follows without a pause
+        JCheckBoxMenuItem gapless = new JCheckBoxMenuItem("Gapless Playback", musicPlayer.isGapless());
+        gapless.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                musicPlayer.setGapless(gapless.isSelected());
+            }
+        });
+        playbackMenu.add(gapless);
+
+        // Shuffle item, the songs after the current one play in a random order
+        JCheckBoxMenuItem shuffle = new JCheckBoxMenuItem("Shuffle", musicPlayer.isShuffle());
+        shuffle.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_S, InputEvent.CTRL_DOWN_MASK));
+        shuffle.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                musicPlayer.setShuffle(shuffle.isSelected());
+            }
+        });
+        playbackMenu.add(shuffle);
+
+        // Repeat submenu, one radio item per mode
+        JMenu repeatMenu = new JMenu("Repeat");
+        ButtonGroup repeatGroup = new ButtonGroup();
+        String[] repeatNames = {"Off", "All", "One"};
+        for (PlayQueue.RepeatMode mode : PlayQueue.RepeatMode.values()) {
+            JRadioButtonMenuItem repeat = new JRadioButtonMenuItem(repeatNames[mode.ordinal()],
+                    mode == musicPlayer.getRepeatMode());
+            repeat.addActionListener(new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    musicPlayer.setRepeatMode(mode);
+                }
+            });
+            repeatGroup.add(repeat);
+            repeatMenu.add(repeat);
+        }
+        playbackMenu.add(repeatMenu);
+
+        // ReplayGain submenu, evens out the loudness of the songs that were analyzed
+        JMenu replayGainMenu = new JMenu("ReplayGain");
+        ButtonGroup replayGainGroup = new ButtonGroup();
+        String[] replayGainNames = {"Off", "Track", "Album"};
+        for (GainStage.Mode mode : GainStage.Mode.values()) {
+            JRadioButtonMenuItem replayGain = new JRadioButtonMenuItem(replayGainNames[mode.ordinal()],
+                    mode == musicPlayer.getReplayGainMode());
+            replayGain.addActionListener(new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    musicPlayer.setReplayGainMode(mode);
+                }
+            });
+            replayGainGroup.add(replayGain);
+            replayGainMenu.add(replayGain);
+        }
+        playbackMenu.add(replayGainMenu);
+
+        // Crossfade submenu, the length of the fade between consecutive songs and the shape of the fade
+        JMenu crossfadeMenu = new JMenu("Crossfade");
+        ButtonGroup crossfadeGroup = new ButtonGroup();
+        int[] crossfadeSeconds = {0, 2, 5, 10};
+        for (int seconds : crossfadeSeconds) {
+            JRadioButtonMenuItem crossfade = new JRadioButtonMenuItem(seconds == 0 ? "Off" : seconds + " s",
+                    seconds * 1000 == musicPlayer.getCrossfadeMillis());
+            crossfade.addActionListener(new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    musicPlayer.setCrossfade(seconds * 1000, musicPlayer.getCrossfadeCurve());
+                }
+            });
+            crossfadeGroup.add(crossfade);
+            crossfadeMenu.add(crossfade);
+        }
+        crossfadeMenu.addSeparator();
+        ButtonGroup curveGroup = new ButtonGroup();
+        String[] curveNames = {"Linear", "Equal Power", "S-Curve"};
+        for (Crossfader.Curve curve : Crossfader.Curve.values()) {
+            JRadioButtonMenuItem curveItem = new JRadioButtonMenuItem(curveNames[curve.ordinal()],
+                    curve == musicPlayer.getCrossfadeCurve());
+            curveItem.addActionListener(new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    musicPlayer.setCrossfade(musicPlayer.getCrossfadeMillis(), curve);
+                }
+            });
+            curveGroup.add(curveItem);
+            crossfadeMenu.add(curveItem);
+        }
+        playbackMenu.add(crossfadeMenu);
+
+        // Equalizer item, opens the sliders of the ten bands and the presets
+        JMenuItem equalizer = new JMenuItem("Equalizer...");
+        equalizer.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                new EqualizerDialog(mainFrame, musicPlayer.getEqualizer()).setVisible(true);
+            }
+        });
+        playbackMenu.add(equalizer);
+
+        // Metrics item, shows load, decode and latency measurements over the window
+        JCheckBoxMenuItem metrics = new JCheckBoxMenuItem("Show Metrics", mainFrame.isMetricsOverlayVisible());
+        metrics.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                mainFrame.setMetricsOverlayVisible(metrics.isSelected());
+            }
+        });
+        playbackMenu.add(metrics);
     }
 }
\ No newline at end of file
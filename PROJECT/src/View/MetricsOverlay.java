@@ -0,0 +1,61 @@
+package View;
+
+import Model.PlayerMetrics;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Overlay za otklanjanje gresaka: preko glavnog prozora ispisuje mjerenja iz PlayerMetrics,
+ * osvjezena dva puta u sekundi. Koristi se kao glass pane, pa ne hvata klikove mis-a.
+ */
+public class MetricsOverlay extends JComponent {
+
+    private static final int REFRESH_MILLISECONDS = 500;
+
+    private final Timer refreshTimer = new Timer(REFRESH_MILLISECONDS, e -> repaint());
+    private final Font font = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+
+    public MetricsOverlay() {
+        setOpaque(false);
+    }
+
+    //Methods
+
+    @Override
+    public void setVisible(boolean visible) {
+        super.setVisible(visible);
+        if (visible) {
+            refreshTimer.start();
+        } else {
+            refreshTimer.stop(); // costs nothing while hidden
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        PlayerMetrics metrics = PlayerMetrics.getDefault();
+        String[] lines = {
+                "metadata   " + metrics.getMetadataLoad(),
+                "1st audio  " + metrics.getTimeToFirstAudio(),
+                "decode     " + metrics.getFrameDecode(),
+                "EDT update " + metrics.getUiUpdate(),
+                "buffer " + metrics.getBufferFillPercent() + "%  underruns " + metrics.getUnderruns()
+                        + "  stalls " + metrics.getDecoderStalls(),
+                "cache hits " + metrics.getLibraryCacheHits() + "  misses " + metrics.getLibraryCacheMisses()
+        };
+
+        Graphics2D graphics = (Graphics2D) g.create();
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        graphics.setFont(font);
+        FontMetrics fontMetrics = graphics.getFontMetrics();
+        int lineHeight = fontMetrics.getHeight();
+        graphics.setColor(new Color(0, 0, 0, 170));
+        graphics.fillRect(0, 0, getWidth(), lineHeight * lines.length + 8);
+        graphics.setColor(Color.GREEN);
+        for (int i = 0; i < lines.length; i++) {
+            graphics.drawString(lines[i], 4, 4 + fontMetrics.getAscent() + i * lineHeight);
+        }
+        graphics.dispose();
+    }
+}
@@ -1,7 +1,9 @@
 package View;
 
 import Model.MusicPlayer;
+import Model.PlayerEvent;
 import Model.Song;
+import Model.WaveformCache;
 
 import javax.swing.*;
 import java.awt.*;
@@ -16,8 +18,10 @@ public class ToolBar extends JToolBar {
     private JButton pauseButton;
     private JButton nextButton;
     private JButton previousButton;
-    private JSlider playbackSlider;
-    private Timer playbackTimer;
+    private WaveformSlider playbackSlider;
+    private JLabel labelBeginning;
+    private JLabel labelEnd;
+    private int sliderDuration = -1; // seconds the slider and its labels are set up for
     private final Color TEXT_COLOR = Color.WHITE;
 
     // Constructor
@@ -35,30 +39,11 @@ public class ToolBar extends JToolBar {
         nextButton = createButton("PROJECT/src/assets/next.png");
         previousButton = createButton("PROJECT/src/assets/previous.png");
 
-        // Set actions
-        playButton.addActionListener(e -> {
-            musicPlayer.playSong();
-            enablePauseButtonDisablePlayButton();
-            updatePlaybackSlider(musicPlayer.getCurrentSong());
-        });
-
-        pauseButton.addActionListener(e -> {
-            musicPlayer.pauseSong();
-            enablePlayButtonDisablePauseButton();
-            stopPlaybackTimer();
-        });
-
-        nextButton.addActionListener(e -> {
-            musicPlayer.nextSong();
-            mainFrame.updateSongTitleAndArtist(musicPlayer.getCurrentSong());
-            updatePlaybackSlider(musicPlayer.getCurrentSong());
-        });
-
-        previousButton.addActionListener(e -> {
-            musicPlayer.prevSong();
-            mainFrame.updateSongTitleAndArtist(musicPlayer.getCurrentSong());
-            updatePlaybackSlider(musicPlayer.getCurrentSong());
-        });
+        // Set actions, the player runs them on its own thread; the buttons follow its state events
+        playButton.addActionListener(e -> musicPlayer.playSong());
+        pauseButton.addActionListener(e -> musicPlayer.pauseSong());
+        nextButton.addActionListener(e -> musicPlayer.nextSong());
+        previousButton.addActionListener(e -> musicPlayer.prevSong());
 
         // Create a panel to hold the buttons and center them
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
@@ -68,12 +53,37 @@ public class ToolBar extends JToolBar {
         buttonPanel.add(pauseButton);
         buttonPanel.add(nextButton);
 
+        // Volume slider, heard at once
+        JSlider volumeSlider = new JSlider(JSlider.HORIZONTAL, 0, 100, Math.round(musicPlayer.getVolume() * 100));
+        volumeSlider.setBackground(null);
+        volumeSlider.setPreferredSize(new Dimension(100, volumeSlider.getPreferredSize().height));
+        volumeSlider.setToolTipText("Volume");
+        volumeSlider.addChangeListener(e -> musicPlayer.setVolume(volumeSlider.getValue() / 100f));
+        buttonPanel.add(volumeSlider);
+
         // Add button panel to the bottom of the toolbar
         add(buttonPanel, BorderLayout.SOUTH);
 
         // Add the playback slider to the toolbar (above the buttons)
         addPlaybackSlider();
 
+        // The slider follows the playback clock, which is updated from the samples the audio line played
+        musicPlayer.getPlaybackClock().subscribe((song, positionInMilliseconds) -> {
+            if (!playbackSlider.getValueIsAdjusting()) { // the user is dragging it
+                playbackSlider.setValue((int) (positionInMilliseconds / 1000));
+            }
+        }, SwingUtilities::invokeLater);
+
+        // The song and the state of the player, a burst of changes arrives as one event per frame
+        musicPlayer.getEventBus().subscribe(PlayerEvent.SongChanged.class, event -> updatePlaybackSlider(event.getSong()));
+        musicPlayer.getEventBus().subscribe(PlayerEvent.StateChanged.class, event -> {
+            if (event.getState() == MusicPlayer.State.PLAYING) {
+                enablePauseButtonDisablePlayButton();
+            } else {
+                enablePlayButtonDisablePauseButton();
+            }
+        });
+
         enablePlayButtonDisablePauseButton();
     }
 
@@ -101,7 +111,7 @@ public class ToolBar extends JToolBar {
     }
 
     private void addPlaybackSlider() {
-        playbackSlider = new JSlider(JSlider.HORIZONTAL, 0, 100, 0);
+        playbackSlider = new WaveformSlider(0, 100, 0);
         playbackSlider.setBackground(null);
 
         playbackSlider.addMouseListener(new MouseAdapter() {
@@ -115,49 +125,45 @@ public class ToolBar extends JToolBar {
                 JSlider source = (JSlider) e.getSource();
                 int seconds = source.getValue();
                 musicPlayer.seekTo(seconds);
-                enablePauseButtonDisablePlayButton();
-                updatePlaybackSlider(musicPlayer.getCurrentSong());
             }
         });
 
-        add(playbackSlider, BorderLayout.CENTER);
-    }
-
-    public void updatePlaybackSlider(Song song) {
-        // Reset the slider and timer
-        if (playbackTimer != null) {
-            playbackTimer.stop();
-        }
-        playbackSlider.setValue(0);
-
-        // Set maximum value of the slider
-        playbackSlider.setMaximum(song.getDurationInSeconds());
-
-        // Update slider based on current position in the song every 1000 ms (1 second)
-        playbackTimer = new Timer(1000, e -> {
-            int currentSeconds = musicPlayer.getPlaybackPositionInSeconds();
-            playbackSlider.setValue(currentSeconds);
-        });
-
-        playbackTimer.start(); // Start the timer when the song is played
-
-        // Create labels for slider
-        Hashtable<Integer, JLabel> labelTable = new Hashtable<>();
-        JLabel labelBeginning = new JLabel("00:00");
+        labelBeginning = new JLabel("00:00");
         labelBeginning.setFont(new Font("Dialog", Font.BOLD, 18));
         labelBeginning.setForeground(TEXT_COLOR);
-
-        JLabel labelEnd = new JLabel(formatTime(song.getDurationInSeconds()));
+        labelEnd = new JLabel();
         labelEnd.setFont(new Font("Dialog", Font.BOLD, 18));
         labelEnd.setForeground(TEXT_COLOR);
 
-        labelTable.put(0, labelBeginning);
-        labelTable.put(song.getDurationInSeconds(), labelEnd);
+        add(playbackSlider, BorderLayout.CENTER);
+    }
+
+    private void updatePlaybackSlider(Song song) {
+        // The value itself comes from the playback clock
+        playbackSlider.setValue(musicPlayer.getPlaybackPositionInSeconds());
+
+        // Maximum, labels and ticks only change with the duration, songs of the same length keep them
+        int duration = song.getDurationInSeconds();
+        if (duration != sliderDuration) {
+            sliderDuration = duration;
+            playbackSlider.setMaximum(duration);
+            labelEnd.setText(formatTime(duration));
+            Hashtable<Integer, JLabel> labelTable = new Hashtable<>(); // a new table, the slider ignores the same one
+            labelTable.put(0, labelBeginning);
+            labelTable.put(duration, labelEnd);
+            playbackSlider.setLabelTable(labelTable);
+            playbackSlider.setPaintLabels(true);
+            playbackSlider.setMajorTickSpacing(duration / 10);
+            playbackSlider.setPaintTicks(true);
+        }
 
-        playbackSlider.setLabelTable(labelTable);
-        playbackSlider.setPaintLabels(true);
-        playbackSlider.setMajorTickSpacing(song.getDurationInSeconds() / 10);
-        playbackSlider.setPaintTicks(true);
+        // Waveform behind the slider, from memory at once or read or computed in the background
+        playbackSlider.setWaveform(null);
+        WaveformCache.getDefault().load(song).thenAccept(waveform -> SwingUtilities.invokeLater(() -> {
+            if (waveform != null && song == musicPlayer.getCurrentSong()) {
+                playbackSlider.setWaveform(waveform);
+            }
+        }));
     }
 
     private String formatTime(int totalSeconds) {
@@ -165,10 +171,4 @@ public class ToolBar extends JToolBar {
         int seconds = totalSeconds % 60;
         return String.format("%02d:%02d", minutes, seconds);
     }
-
-    public void stopPlaybackTimer() {
-        if (playbackTimer != null) {
-            playbackTimer.stop();
-        }
-    }
 }
@@ -1,10 +1,10 @@
 package View;
 
-import javax.imageio.ImageIO;
+import Model.Song;
+
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
 
 
 
@@ -13,18 +13,16 @@ class ViewPanel extends JPanel {
     private JLabel albumArtLabel;
     private JLabel songTitleLabel;
     private JLabel artistLabel;
-    private ImageIcon defaultAlbumArt;
+    private ImageIcon defaultAlbumArt; // null until it is loaded in the background
+    private final AlbumArtCache albumArtCache = new AlbumArtCache();
+    private Song shownSong;
+    private boolean showingDefault = true; // the label shows (or waits for) the default artwork
 
     public ViewPanel() {
         setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
 
-        // Load default album art
-        defaultAlbumArt = loadImage("/assets/record1.png");
-        defaultAlbumArt = new ImageIcon(defaultAlbumArt.getImage().getScaledInstance(300, 300, Image.SCALE_SMOOTH));
-
-
-        // Album Art
-        albumArtLabel = new JLabel(defaultAlbumArt);
+        // Album Art, the default artwork is read and scaled in the background and shown when it is ready
+        albumArtLabel = new JLabel();
         albumArtLabel.setAlignmentX(CENTER_ALIGNMENT); // Center the image
         albumArtLabel.setPreferredSize(new Dimension(300, 300));
         albumArtLabel.setMaximumSize(new Dimension(300, 300));
@@ -46,41 +44,52 @@ class ViewPanel extends JPanel {
         artistLabel.setFont(new Font("Arial", Font.PLAIN, 18));
         add(Box.createRigidArea(new Dimension(0, 10)));
         add(artistLabel);
+
+        albumArtCache.loadResource("/assets/record1.png").thenAccept(image -> SwingUtilities.invokeLater(() -> {
+            if (image != null) {
+                defaultAlbumArt = new ImageIcon(image);
+                if (showingDefault) {
+                    albumArtLabel.setIcon(defaultAlbumArt);
+                }
+            }
+        }));
     }
 
     //Methods
 
-    public void updateSongDetails(String artist, String title, String albumArtPath) {
-        songTitleLabel.setText(title != null && !title.isEmpty() ? title : "Unknown Title");
-        artistLabel.setText(artist != null && !artist.isEmpty() ? artist : "Unknown Artist");
-
-        // Update album art
-        ImageIcon albumArtIcon;
-        if (albumArtPath != null && !albumArtPath.isEmpty()) { // If album art path is not empty
-            albumArtIcon = new ImageIcon(albumArtPath); // Load album art from file
-        } else {
-            albumArtIcon = defaultAlbumArt; // Use default album art
+    /**
+     * Prikazuje naslov i izvodjaca odmah, a omot albuma iz AlbumArtCache-a.
+     * Ako omot nije u cache-u, ucitava se i skalira na pozadinskoj niti i postavlja jednim setIcon-om na EDT-u
+     * kad je spreman, samo ako se u medjuvremenu nije promijenila pjesma. Dotad se prikazuje zadani omot.
+     */
+    public void updateSongDetails(Song song) {
+        songTitleLabel.setText(song.getSongTitle() != null && !song.getSongTitle().isEmpty() ? song.getSongTitle() : "Unknown Title");
+        artistLabel.setText(song.getSongArtist() != null && !song.getSongArtist().isEmpty() ? song.getSongArtist() : "Unknown Artist");
+
+        shownSong = song;
+        BufferedImage cachedArt = albumArtCache.getIfCached(song);
+        if (cachedArt != null) {
+            showAlbumArt(cachedArt);
+            return;
         }
-
-        if (albumArtIcon != null) {
-            // Scale image to fit label
-            Image img = albumArtIcon.getImage().getScaledInstance(300, 300, Image.SCALE_SMOOTH);
-            albumArtLabel.setIcon(new ImageIcon(img));
-        } else {
-            albumArtLabel.setIcon(null);
+        showAlbumArt(null); // Use default album art until the real one is ready
+        if (!song.hasAlbumArt()) {
+            return;
         }
+
+        // a request for an earlier song is dropped by the cache when this one is made
+        albumArtCache.load(song).thenAccept(albumArt -> SwingUtilities.invokeLater(() -> {
+            if (shownSong == song && albumArt != null) {
+                showAlbumArt(albumArt);
+            }
+        }));
     }
 
-    private ImageIcon loadImage(String imagePath) {
-        try {
-            // Read the image file from the given path
-            BufferedImage image = ImageIO.read(getClass().getResource(imagePath));
-            // Return an image icon so that our component can render the image
-            return new ImageIcon(image);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        // Could not find resource
-        return null;
+    /**
+     * Shows the artwork, or the default artwork for null.
+     */
+    private void showAlbumArt(BufferedImage albumArt) {
+        showingDefault = albumArt == null;
+        albumArtLabel.setIcon(albumArt != null ? new ImageIcon(albumArt) : defaultAlbumArt);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,77 @@
+package View;
+
+import Model.Waveform;
+
+import javax.swing.*;
+import javax.swing.plaf.metal.MetalSliderUI;
+import java.awt.*;
+
+/**
+ * Slajder reprodukcije koji iza staze crta pregled talasnog oblika pjesme (Waveform).
+ * Dio pjesme koji je odsviran crta se svjetlije. Dok pregled nije izracunat, slajder izgleda kao obican JSlider.
+ */
+public class WaveformSlider extends JSlider {
+
+    private static final Color PLAYED_COLOR = new Color(120, 170, 255, 150);
+    private static final Color REMAINING_COLOR = new Color(255, 255, 255, 60);
+
+    private Waveform waveform;
+
+    public WaveformSlider(int min, int max, int value) {
+        super(JSlider.HORIZONTAL, min, max, value);
+    }
+
+    // Getters and Setters
+
+    public Waveform getWaveform() {
+        return waveform;
+    }
+
+    /**
+     * Sets the overview that is painted behind the track, or null for none.
+     */
+    public void setWaveform(Waveform waveform) {
+        this.waveform = waveform;
+        repaint();
+    }
+
+    //Methods
+
+    @Override
+    public void updateUI() {
+        setUI(new WaveformSliderUI()); // the application uses the default (Metal) look and feel
+    }
+
+    /**
+     * Paints one bar per pixel column of the track, the highest peak of the buckets that fall into it.
+     */
+    private void paintWaveform(Graphics g, Rectangle track, int playedX) {
+        Waveform shown = waveform;
+        if (shown == null || track.width <= 0) {
+            return;
+        }
+        int buckets = shown.getBucketCount();
+        int middle = track.y + track.height / 2;
+        int halfHeight = track.height / 2;
+        for (int x = 0; x < track.width; x++) {
+            int from = x * buckets / track.width;
+            int to = Math.max(from + 1, (x + 1) * buckets / track.width);
+            float peak = 0;
+            for (int bucket = from; bucket < to; bucket++) {
+                peak = Math.max(peak, shown.getPeak(bucket));
+            }
+            int bar = Math.max(1, Math.round(peak * halfHeight));
+            g.setColor(track.x + x < playedX ? PLAYED_COLOR : REMAINING_COLOR);
+            g.drawLine(track.x + x, middle - bar, track.x + x, middle + bar);
+        }
+    }
+
+
+    private final class WaveformSliderUI extends MetalSliderUI {
+        @Override
+        public void paintTrack(Graphics g) {
+            paintWaveform(g, trackRect, thumbRect.x + thumbRect.width / 2);
+            super.paintTrack(g);
+        }
+    }
+}